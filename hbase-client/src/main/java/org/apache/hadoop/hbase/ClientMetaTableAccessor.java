@@ -190,6 +190,48 @@ public final class ClientMetaTableAccessor {
     return future;
   }
 
+  /**
+   * Used to get the locations of the regions of the given table which start in the given range of
+   * rows, with one scan of the meta table. The region containing {@code startRow} is not included
+   * if it starts before {@code startRow}.
+   * @param startRow the first row of the range, inclusive, empty for the start of the table
+   * @param endRow   the last row of the range, exclusive, empty for the end of the table
+   * @return the locations of the regions including their replicas, one element per region. The
+   *         return value will be wrapped by a {@link CompletableFuture}.
+   */
+  public static CompletableFuture<List<RegionLocations>> getTableRegionLocations(
+    AsyncTable<AdvancedScanResultConsumer> metaTable, TableName tableName, byte[] startRow,
+    byte[] endRow) {
+    CompletableFuture<List<RegionLocations>> future = new CompletableFuture<>();
+    if (TableName.META_TABLE_NAME.equals(tableName)) {
+      future.completeExceptionally(new IOException(
+        "This method can't be used to locate meta regions;" + " use MetaTableLocator instead"));
+      return future;
+    }
+    // the region names of the regions starting with a given row sort after this row name
+    byte[] metaStartRow = startRow == null || startRow.length == 0
+      ? getTableStartRowForMeta(tableName, QueryType.REGION)
+      : RegionInfo.createRegionName(tableName, startRow, HConstants.ZEROES, false);
+    byte[] metaStopRow = endRow == null || endRow.length == 0
+      ? getTableStopRowForMeta(tableName, QueryType.REGION)
+      : RegionInfo.createRegionName(tableName, endRow, HConstants.ZEROES, false);
+    CollectingVisitor<RegionLocations> visitor = new CollectingVisitor<RegionLocations>() {
+      @Override
+      void add(Result r) {
+        getRegionLocations(r).ifPresent(results::add);
+      }
+    };
+    addListener(scanMeta(metaTable, metaStartRow, metaStopRow, QueryType.REGION,
+      Integer.MAX_VALUE, visitor), (v, error) -> {
+        if (error != null) {
+          future.completeExceptionally(error);
+          return;
+        }
+        future.complete(visitor.getResults());
+      });
+    return future;
+  }
+
   /**
    * Used to get table regions' info and server. n * @param tableName table we're looking for, can
    * be null for getting all regions
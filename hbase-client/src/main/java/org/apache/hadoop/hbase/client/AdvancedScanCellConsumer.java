@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.client;
+
+import org.apache.yetus.audience.InterfaceAudience;
+import org.apache.yetus.audience.InterfaceStability;
+
+/**
+ * An {@link AdvancedScanResultConsumer} which can also receive the data as a
+ * {@link ScanCellCursor} over the cells of the scan response, instead of an array of
+ * {@link Result}s. This saves creating a Result and a copy of each cell for applications which
+ * only read through the cells, for example to aggregate them.
+ * <p>
+ * The cursor is only used when the scan allows partial results, see
+ * {@link Scan#setAllowPartialResults(boolean)}, does not set a batch or need cursor results, and
+ * the connection uses the default {@link org.apache.hadoop.hbase.codec.KeyValueCodec} or
+ * {@link org.apache.hadoop.hbase.codec.KeyValueCodecWithTags}. In all the other cases, or when a
+ * response carries no cell block, {@link #onNext(Result[], ScanController)} is called as for any
+ * other {@link AdvancedScanResultConsumer}, so both methods must be implemented.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public interface AdvancedScanCellConsumer extends AdvancedScanResultConsumer {
+
+  /**
+   * Indicate that we have receive some data.
+   * @param cursor     the cells fetched from HBase service. The cursor and the cells it returns
+   *                   are only valid within scope of onNext method.
+   * @param controller used to suspend or terminate the scan. Notice that the {@code controller}
+   *                   instance is only valid within scope of onNext method. You can only call its
+   *                   method in onNext, do NOT store it and call it later outside onNext.
+   */
+  void onNext(ScanCellCursor cursor, ScanController controller);
+}
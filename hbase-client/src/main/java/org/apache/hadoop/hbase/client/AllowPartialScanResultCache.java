@@ -22,7 +22,9 @@ import static org.apache.hadoop.hbase.client.ConnectionUtils.filterCells;
 import java.io.IOException;
 import java.util.Arrays;
 import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
 import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.ExtendedCell;
 import org.apache.yetus.audience.InterfaceAudience;
 
 /**
@@ -84,6 +86,70 @@ class AllowPartialScanResultCache implements ScanResultCache {
     return results;
   }
 
+  /**
+   * Same as {@link #addAndGet(Result[], boolean)}, but for a response which is passed to the user
+   * as a {@link ScanCellCursor}. The cursor is left positioned before the first cell which has not
+   * been returned yet.
+   * @return whether there is anything to pass to the user
+   */
+  boolean addAndGet(ScanCellCursor cursor, boolean isHeartbeatMessage) {
+    if (cursor.getResultCount() == 0) {
+      if (!isHeartbeatMessage && lastResultPartial) {
+        numberOfCompleteRows++;
+      }
+      return false;
+    }
+    int cellsToSkip = 0;
+    boolean found = false;
+    boolean partial = false;
+    while (cursor.advanceResult()) {
+      boolean foundInResult = false;
+      while (cursor.advance()) {
+        Cell cell = cursor.current();
+        if (!found) {
+          if (
+            lastCell != null && CellUtil.matchingRows(lastCell, cell)
+              && CellComparator.getInstance().compareWithoutRow(cell, lastCell) <= 0
+          ) {
+            cellsToSkip++;
+            continue;
+          }
+          found = true;
+          if (lastResultPartial && !CellUtil.matchingRows(lastCell, cell)) {
+            // there is a row change, so increase numberOfCompleteRows
+            numberOfCompleteRows++;
+          }
+        }
+        foundInResult = true;
+      }
+      if (foundInResult) {
+        partial = cursor.mayHaveMoreCellsInRow();
+        if (!partial) {
+          numberOfCompleteRows++;
+        }
+      }
+    }
+    if (!found) {
+      cursor.reset();
+      return false;
+    }
+    // The cursor is still on the last cell of the response. Its cell instance is reused, and we do
+    // not want to pin the whole cell block, so keep a copy.
+    lastCell = ((ExtendedCell) cursor.current()).deepClone();
+    lastResultPartial = partial;
+    cursor.reset();
+    cursor.skip(cellsToSkip);
+    return true;
+  }
+
+  Cell getLastCell() {
+    return lastCell;
+  }
+
+  boolean isLastResultPartial() {
+    return lastResultPartial;
+  }
+
   @Override
   public void clear() {
     // we do not cache anything
@@ -29,6 +29,8 @@ import org.apache.hbase.thirdparty.io.netty.util.HashedWheelTimer;
 @InterfaceAudience.Private
 class AsyncBufferedMutatorBuilderImpl implements AsyncBufferedMutatorBuilder {
 
+  private final AsyncConnectionImpl conn;
+
   private final HashedWheelTimer periodicalFlushTimer;
 
   private final AsyncTableBuilder<?> tableBuilder;
@@ -39,12 +41,17 @@ class AsyncBufferedMutatorBuilderImpl implements AsyncBufferedMutatorBuilder {
 
   private int maxKeyValueSize;
 
-  public AsyncBufferedMutatorBuilderImpl(AsyncConnectionConfiguration connConf,
-    AsyncTableBuilder<?> tableBuilder, HashedWheelTimer periodicalFlushTimer) {
+  private final long perServerBufferSize;
+
+  public AsyncBufferedMutatorBuilderImpl(AsyncConnectionImpl conn,
+    AsyncConnectionConfiguration connConf, AsyncTableBuilder<?> tableBuilder,
+    HashedWheelTimer periodicalFlushTimer) {
+    this.conn = conn;
     this.tableBuilder = tableBuilder;
     this.writeBufferSize = connConf.getWriteBufferSize();
     this.periodicFlushTimeoutNs = connConf.getWriteBufferPeriodicFlushTimeoutNs();
     this.maxKeyValueSize = connConf.getMaxKeyValueSize();
+    this.perServerBufferSize = connConf.getWriteBufferPerServerSize();
     this.periodicalFlushTimer = periodicalFlushTimer;
   }
 
@@ -102,6 +109,10 @@ class AsyncBufferedMutatorBuilderImpl implements AsyncBufferedMutatorBuilder {
 
   @Override
   public AsyncBufferedMutator build() {
+    if (perServerBufferSize > 0) {
+      return new AsyncBufferedMutatorImpl(periodicalFlushTimer, tableBuilder.build(),
+        writeBufferSize, periodicFlushTimeoutNs, maxKeyValueSize, conn, perServerBufferSize);
+    }
     return new AsyncBufferedMutatorImpl(periodicalFlushTimer, tableBuilder.build(), writeBufferSize,
       periodicFlushTimeoutNs, maxKeyValueSize);
   }
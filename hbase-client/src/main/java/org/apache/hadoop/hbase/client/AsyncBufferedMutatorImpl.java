@@ -21,15 +21,24 @@ import static org.apache.hadoop.hbase.client.ConnectionUtils.validatePut;
 import static org.apache.hadoop.hbase.util.FutureUtils.addListener;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.RegionLocations;
+import org.apache.hadoop.hbase.ServerName;
 import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.backoff.ServerStatistics;
 import org.apache.yetus.audience.InterfaceAudience;
 
 import org.apache.hbase.thirdparty.io.netty.util.HashedWheelTimer;
@@ -37,6 +46,17 @@ import org.apache.hbase.thirdparty.io.netty.util.Timeout;
 
 /**
  * The implementation of {@link AsyncBufferedMutator}. Simply wrap an {@link AsyncTable}.
+ * <p>
+ * When a per server buffer size is configured, see
+ * {@link ConnectionConfiguration#WRITE_BUFFER_PER_SERVER_SIZE_KEY}, the mutations whose region
+ * location is already cached are buffered per destination region server, and the mutations of a
+ * server are sent out as soon as they reach the per server size, so a busy server gets full multi
+ * requests without waiting for the whole write buffer to fill up. A server which asks the client
+ * to back off is not flushed early, its mutations stay buffered until the whole write buffer is
+ * flushed. The mutations whose location is unknown are kept in a shared buffer which is only
+ * flushed together with the whole write buffer. A mutation of a row which already has buffered
+ * mutations always goes to the same buffer as them, whether its location is cached now or not, so
+ * the mutations of a row are never sent out of order.
  */
 @InterfaceAudience.Private
 class AsyncBufferedMutatorImpl implements AsyncBufferedMutator {
@@ -51,23 +71,60 @@ class AsyncBufferedMutatorImpl implements AsyncBufferedMutator {
 
   private final int maxKeyValueSize;
 
+  // null if we do not buffer per region server
+  private final AsyncConnectionImpl conn;
+
+  private final long perServerBufferSize;
+
   private List<Mutation> mutations = new ArrayList<>();
 
   private List<CompletableFuture<Void>> futures = new ArrayList<>();
 
+  private final Map<ServerName, ServerBuffer> serverBuffers = new HashMap<>();
+
+  // the rows which have mutations in the shared buffer
+  private final Set<ByteBuffer> sharedBufferRows = new HashSet<>();
+
+  // the rows which have mutations in a per server buffer, and the server of the buffer
+  private final Map<ByteBuffer, ServerName> serverBufferRows = new HashMap<>();
+
   private long bufferedSize;
 
   private boolean closed;
 
+  /**
+   * The mutations buffered for one region server.
+   */
+  private static final class ServerBuffer {
+
+    final List<Mutation> mutations = new ArrayList<>();
+
+    final List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+    long size;
+
+    // the region of the last buffered mutation, used to look up the backoff of the server
+    byte[] regionName;
+  }
+
   Timeout periodicFlushTask;
 
   AsyncBufferedMutatorImpl(HashedWheelTimer periodicalFlushTimer, AsyncTable<?> table,
     long writeBufferSize, long periodicFlushTimeoutNs, int maxKeyValueSize) {
+    this(periodicalFlushTimer, table, writeBufferSize, periodicFlushTimeoutNs, maxKeyValueSize,
+      null, 0);
+  }
+
+  AsyncBufferedMutatorImpl(HashedWheelTimer periodicalFlushTimer, AsyncTable<?> table,
+    long writeBufferSize, long periodicFlushTimeoutNs, int maxKeyValueSize,
+    AsyncConnectionImpl conn, long perServerBufferSize) {
     this.periodicalFlushTimer = periodicalFlushTimer;
     this.table = table;
     this.writeBufferSize = writeBufferSize;
     this.periodicFlushTimeoutNs = periodicFlushTimeoutNs;
     this.maxKeyValueSize = maxKeyValueSize;
+    this.conn = conn;
+    this.perServerBufferSize = perServerBufferSize;
   }
 
   @Override
@@ -87,14 +144,27 @@ class AsyncBufferedMutatorImpl implements AsyncBufferedMutator {
       periodicFlushTask = null;
     }
     List<Mutation> toSend = this.mutations;
+    List<CompletableFuture<Void>> toComplete = this.futures;
+    if (!serverBuffers.isEmpty()) {
+      for (ServerBuffer buffer : serverBuffers.values()) {
+        toSend.addAll(buffer.mutations);
+        toComplete.addAll(buffer.futures);
+      }
+      serverBuffers.clear();
+      serverBufferRows.clear();
+    }
+    sharedBufferRows.clear();
     if (toSend.isEmpty()) {
       return;
     }
-    List<CompletableFuture<Void>> toComplete = this.futures;
-    assert toSend.size() == toComplete.size();
     this.mutations = new ArrayList<>();
     this.futures = new ArrayList<>();
     bufferedSize = 0L;
+    send(toSend, toComplete);
+  }
+
+  private void send(List<Mutation> toSend, List<CompletableFuture<Void>> toComplete) {
+    assert toSend.size() == toComplete.size();
     Iterator<CompletableFuture<Void>> toCompleteIter = toComplete.iterator();
     for (CompletableFuture<?> future : table.batch(toSend)) {
       CompletableFuture<Void> toCompleteFuture = toCompleteIter.next();
@@ -108,14 +178,85 @@ class AsyncBufferedMutatorImpl implements AsyncBufferedMutator {
     }
   }
 
+  private HRegionLocation getCachedLocation(Mutation mutation) {
+    RegionLocations locs = conn.getLocator().getRegionLocationInCache(getName(), mutation.getRow());
+    if (locs == null) {
+      return null;
+    }
+    HRegionLocation loc = locs.getDefaultRegionLocation();
+    return loc != null && loc.getServerName() != null ? loc : null;
+  }
+
+  private boolean isBackedOff(ServerName serverName, ServerBuffer buffer) {
+    ServerStatisticTracker tracker = conn.getStatisticsTracker().orElse(null);
+    if (tracker == null) {
+      return false;
+    }
+    ServerStatistics stats = tracker.getStats(serverName);
+    return stats != null
+      && conn.getBackoffPolicy().getBackoffTime(serverName, buffer.regionName, stats) > 0;
+  }
+
+  private void bufferPerServer(List<? extends Mutation> mutations,
+    List<CompletableFuture<Void>> futures, long[] heapSizes) {
+    for (int i = 0; i < mutations.size(); i++) {
+      Mutation mutation = mutations.get(i);
+      CompletableFuture<Void> future = futures.get(i);
+      bufferedSize += heapSizes[i];
+      ByteBuffer row = ByteBuffer.wrap(mutation.getRow());
+      // Keep the mutations of a row in one buffer. Otherwise, if the location of the row is cached
+      // or changes after its first mutation has been buffered, a later mutation could go to a per
+      // server buffer which is sent before the buffer holding the earlier one.
+      ServerName serverName = null;
+      HRegionLocation loc = null;
+      if (!sharedBufferRows.contains(row)) {
+        serverName = serverBufferRows.get(row);
+        if (serverName == null) {
+          loc = getCachedLocation(mutation);
+          if (loc != null) {
+            serverName = loc.getServerName();
+            serverBufferRows.put(row, serverName);
+          }
+        }
+      }
+      if (serverName == null) {
+        sharedBufferRows.add(row);
+        this.mutations.add(mutation);
+        this.futures.add(future);
+        continue;
+      }
+      ServerBuffer buffer = serverBuffers.computeIfAbsent(serverName, k -> new ServerBuffer());
+      buffer.mutations.add(mutation);
+      buffer.futures.add(future);
+      buffer.size += heapSizes[i];
+      if (loc != null) {
+        buffer.regionName = loc.getRegion().getRegionName();
+      }
+      if (buffer.size >= perServerBufferSize && !isBackedOff(serverName, buffer)) {
+        serverBuffers.remove(serverName);
+        for (Mutation m : buffer.mutations) {
+          serverBufferRows.remove(ByteBuffer.wrap(m.getRow()));
+        }
+        bufferedSize -= buffer.size;
+        send(buffer.mutations, buffer.futures);
+      }
+    }
+  }
+
   @Override
   public List<CompletableFuture<Void>> mutate(List<? extends Mutation> mutations) {
     List<CompletableFuture<Void>> futures =
       Stream.<CompletableFuture<Void>> generate(CompletableFuture::new).limit(mutations.size())
         .collect(Collectors.toList());
     long heapSize = 0;
-    for (Mutation mutation : mutations) {
-      heapSize += mutation.heapSize();
+    long[] heapSizes = conn != null ? new long[mutations.size()] : null;
+    for (int i = 0; i < mutations.size(); i++) {
+      Mutation mutation = mutations.get(i);
+      long size = mutation.heapSize();
+      heapSize += size;
+      if (heapSizes != null) {
+        heapSizes[i] = size;
+      }
       if (mutation instanceof Put) {
         validatePut((Put) mutation, maxKeyValueSize);
       }
@@ -126,7 +267,7 @@ class AsyncBufferedMutatorImpl implements AsyncBufferedMutator {
         futures.forEach(f -> f.completeExceptionally(ioe));
         return futures;
       }
-      if (this.mutations.isEmpty() && periodicFlushTimeoutNs > 0) {
+      if (periodicFlushTask == null && periodicFlushTimeoutNs > 0) {
         periodicFlushTask = periodicalFlushTimer.newTimeout(timeout -> {
           synchronized (AsyncBufferedMutatorImpl.this) {
             // confirm that we are still valid, if there is already an internalFlush call before us,
@@ -140,9 +281,13 @@ class AsyncBufferedMutatorImpl implements AsyncBufferedMutator {
           }
         }, periodicFlushTimeoutNs, TimeUnit.NANOSECONDS);
       }
-      this.mutations.addAll(mutations);
-      this.futures.addAll(futures);
-      bufferedSize += heapSize;
+      if (conn != null) {
+        bufferPerServer(mutations, futures, heapSizes);
+      } else {
+        this.mutations.addAll(mutations);
+        this.futures.addAll(futures);
+        bufferedSize += heapSize;
+      }
       if (bufferedSize >= writeBufferSize) {
         internalFlush();
       }
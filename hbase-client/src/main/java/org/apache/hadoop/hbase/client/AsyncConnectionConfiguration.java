@@ -46,6 +46,8 @@ import static org.apache.hadoop.hbase.client.ConnectionConfiguration.PRIMARY_SCA
 import static org.apache.hadoop.hbase.client.ConnectionConfiguration.PRIMARY_SCAN_TIMEOUT_MICROSECOND_DEFAULT;
 import static org.apache.hadoop.hbase.client.ConnectionConfiguration.WRITE_BUFFER_PERIODIC_FLUSH_TIMEOUT_MS;
 import static org.apache.hadoop.hbase.client.ConnectionConfiguration.WRITE_BUFFER_PERIODIC_FLUSH_TIMEOUT_MS_DEFAULT;
+import static org.apache.hadoop.hbase.client.ConnectionConfiguration.WRITE_BUFFER_PER_SERVER_SIZE_DEFAULT;
+import static org.apache.hadoop.hbase.client.ConnectionConfiguration.WRITE_BUFFER_PER_SERVER_SIZE_KEY;
 import static org.apache.hadoop.hbase.client.ConnectionConfiguration.WRITE_BUFFER_SIZE_DEFAULT;
 import static org.apache.hadoop.hbase.client.ConnectionConfiguration.WRITE_BUFFER_SIZE_KEY;
 
@@ -132,6 +134,8 @@ class AsyncConnectionConfiguration {
 
   private final long writeBufferPeriodicFlushTimeoutNs;
 
+  private final long writeBufferPerServerSize;
+
   // this is for supporting region replica get, if the primary does not finished within this
   // timeout, we will send request to secondaries.
   private final long primaryCallTimeoutNs;
@@ -180,6 +184,8 @@ class AsyncConnectionConfiguration {
     this.writeBufferPeriodicFlushTimeoutNs =
       TimeUnit.MILLISECONDS.toNanos(conf.getLong(WRITE_BUFFER_PERIODIC_FLUSH_TIMEOUT_MS,
         WRITE_BUFFER_PERIODIC_FLUSH_TIMEOUT_MS_DEFAULT));
+    this.writeBufferPerServerSize =
+      conf.getLong(WRITE_BUFFER_PER_SERVER_SIZE_KEY, WRITE_BUFFER_PER_SERVER_SIZE_DEFAULT);
     this.primaryCallTimeoutNs = TimeUnit.MICROSECONDS.toNanos(
       conf.getLong(PRIMARY_CALL_TIMEOUT_MICROSECOND, PRIMARY_CALL_TIMEOUT_MICROSECOND_DEFAULT));
     this.primaryScanTimeoutNs = TimeUnit.MICROSECONDS.toNanos(
@@ -250,6 +256,10 @@ class AsyncConnectionConfiguration {
     return writeBufferPeriodicFlushTimeoutNs;
   }
 
+  long getWriteBufferPerServerSize() {
+    return writeBufferPerServerSize;
+  }
+
   long getPrimaryCallTimeoutNs() {
     return primaryCallTimeoutNs;
   }
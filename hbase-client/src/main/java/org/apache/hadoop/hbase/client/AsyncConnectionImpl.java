@@ -120,6 +120,12 @@ public class AsyncConnectionImpl implements AsyncConnection {
 
   private final Optional<MetricsConnection> metrics;
 
+  private final Optional<TimelineReadHedgePolicy> hedgePolicy;
+
+  private final Optional<GetCoalescer> getCoalescer;
+
+  private final Optional<NearCache> nearCache;
+
   private final ClusterStatusListener clusterStatusListener;
 
   private volatile ConnectionOverAsyncConnection conn;
@@ -154,6 +160,9 @@ public class AsyncConnectionImpl implements AsyncConnection {
     }
     this.stats = Optional.ofNullable(ServerStatisticTracker.create(conf));
     this.backoffPolicy = ClientBackoffPolicyFactory.create(conf);
+    this.hedgePolicy = Optional.ofNullable(TimelineReadHedgePolicy.create(conf));
+    this.getCoalescer = Optional.ofNullable(GetCoalescer.create(conf, RETRY_TIMER));
+    this.nearCache = Optional.ofNullable(NearCache.create(conf));
     ClusterStatusListener listener = null;
     if (conf.getBoolean(STATUS_PUBLISHED, STATUS_PUBLISHED_DEFAULT)) {
       // TODO: this maybe a blocking operation, better to create it outside the constructor and pass
@@ -390,13 +399,14 @@ public class AsyncConnectionImpl implements AsyncConnection {
 
   @Override
   public AsyncBufferedMutatorBuilder getBufferedMutatorBuilder(TableName tableName) {
-    return new AsyncBufferedMutatorBuilderImpl(connConf, getTableBuilder(tableName), RETRY_TIMER);
+    return new AsyncBufferedMutatorBuilderImpl(this, connConf, getTableBuilder(tableName),
+      RETRY_TIMER);
   }
 
   @Override
   public AsyncBufferedMutatorBuilder getBufferedMutatorBuilder(TableName tableName,
     ExecutorService pool) {
-    return new AsyncBufferedMutatorBuilderImpl(connConf, getTableBuilder(tableName, pool),
+    return new AsyncBufferedMutatorBuilderImpl(this, connConf, getTableBuilder(tableName, pool),
       RETRY_TIMER);
   }
 
@@ -449,4 +459,16 @@ public class AsyncConnectionImpl implements AsyncConnection {
   Optional<MetricsConnection> getConnectionMetrics() {
     return metrics;
   }
+
+  Optional<TimelineReadHedgePolicy> getTimelineReadHedgePolicy() {
+    return hedgePolicy;
+  }
+
+  Optional<GetCoalescer> getGetCoalescer() {
+    return getCoalescer;
+  }
+
+  Optional<NearCache> getNearCache() {
+    return nearCache;
+  }
 }
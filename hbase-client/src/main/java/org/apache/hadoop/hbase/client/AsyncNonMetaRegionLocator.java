@@ -124,6 +124,9 @@ class AsyncNonMetaRegionLocator {
 
   private static final class TableCache {
 
+    // Keyed by the start keys of the regions, which are the arrays of their RegionInfos and so are
+    // not copied. A sorted array of locations would take less memory for tables with many regions,
+    // but the locate, merge and invalidate paths all replace single entries concurrently.
     private final ConcurrentNavigableMap<byte[], RegionLocations> cache =
       new ConcurrentSkipListMap<>(BYTES_COMPARATOR);
 
@@ -656,6 +659,22 @@ class AsyncNonMetaRegionLocator {
     addToCache(getTableCache(loc.getRegion().getTable()), createRegionLocations(loc));
   }
 
+  /**
+   * Add the locations of a region, as read from the meta table, to the cache. Locations of split
+   * parents and regions without a default location are ignored, same as when locating a row.
+   */
+  void addLocationsToCache(RegionLocations locs) {
+    locs = locs.removeElementsWithNullLocation();
+    if (locs == null) {
+      return;
+    }
+    HRegionLocation loc = locs.getDefaultRegionLocation();
+    if (loc == null || loc.getRegion() == null || loc.getRegion().isSplitParent()) {
+      return;
+    }
+    addToCache(getTableCache(loc.getRegion().getTable()), locs);
+  }
+
   private HRegionLocation getCachedLocation(HRegionLocation loc) {
     TableCache tableCache = cache.get(loc.getRegion().getTable());
     if (tableCache == null) {
@@ -36,6 +36,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.DoNotRetryIOException;
 import org.apache.hadoop.hbase.HBaseServerException;
 import org.apache.hadoop.hbase.HConstants;
@@ -47,6 +48,7 @@ import org.apache.hadoop.hbase.client.metrics.ScanMetrics;
 import org.apache.hadoop.hbase.exceptions.OutOfOrderScannerNextException;
 import org.apache.hadoop.hbase.exceptions.ScannerResetException;
 import org.apache.hadoop.hbase.ipc.HBaseRpcController;
+import org.apache.hadoop.hbase.ipc.RawCellBlockScanner;
 import org.apache.hadoop.hbase.regionserver.RegionServerStoppedException;
 import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
 import org.apache.yetus.audience.InterfaceAudience;
@@ -89,6 +91,9 @@ class AsyncScanSingleRegionRpcRetryingCaller {
 
   private final AdvancedScanResultConsumer consumer;
 
+  // not null if the responses can be passed to the consumer as a ScanCellCursor
+  private final AdvancedScanCellConsumer cellConsumer;
+
   private final ClientService.Interface stub;
 
   private final HRegionLocation loc;
@@ -323,6 +328,12 @@ class AsyncScanSingleRegionRpcRetryingCaller {
     this.scannerId = scannerId;
     this.resultCache = resultCache;
     this.consumer = consumer;
+    // The cursor skips the cells returned before a reopen, as AllowPartialScanResultCache does,
+    // the other caches need to build Results
+    this.cellConsumer = consumer instanceof AdvancedScanCellConsumer
+      && resultCache instanceof AllowPartialScanResultCache && !scan.isNeedCursorResult()
+        ? (AdvancedScanCellConsumer) consumer
+        : null;
     this.stub = stub;
     this.loc = loc;
     this.regionServerRemote = isRegionServerRemote;
@@ -493,6 +504,11 @@ class AsyncScanSingleRegionRpcRetryingCaller {
     }
     updateServerSideMetrics(scanMetrics, resp);
     boolean isHeartbeatMessage = resp.hasHeartbeatMessage() && resp.getHeartbeatMessage();
+    if (cellConsumer != null && controller.cellScanner() instanceof RawCellBlockScanner) {
+      onCompleteWithCursor((RawCellBlockScanner) controller.cellScanner(), resp,
+        isHeartbeatMessage);
+      return;
+    }
     Result[] rawResults;
     Result[] results;
     int numberOfCompleteRowsBefore = resultCache.numberOfCompleteRows();
@@ -535,6 +551,37 @@ class AsyncScanSingleRegionRpcRetryingCaller {
         consumer.onHeartbeat(scanController);
       }
     }
+    onConsumed(resp, scanController, numberOfCompleteRowsBefore);
+  }
+
+  private void onCompleteWithCursor(RawCellBlockScanner cellScanner, ScanResponse resp,
+    boolean isHeartbeatMessage) {
+    AllowPartialScanResultCache cache = (AllowPartialScanResultCache) resultCache;
+    int numberOfCompleteRowsBefore = cache.numberOfCompleteRows();
+    ScanCellCursor cursor;
+    try {
+      cursor = ScanCellCursor.create(cellScanner, resp);
+    } catch (IOException e) {
+      // Same as in onComplete, we can not retry here.
+      LOG.warn("decode scan response failed", e);
+      completeWhenError(true);
+      return;
+    }
+    updateResultsMetrics(scanMetrics, cursor.getSerializedSize(), regionServerRemote);
+    ScanControllerImpl scanController = new ScanControllerImpl(
+      resp.hasCursor() ? Optional.of(ProtobufUtil.toCursor(resp.getCursor())) : Optional.empty());
+    if (cache.addAndGet(cursor, isHeartbeatMessage)) {
+      nextStartRowWhenError = CellUtil.cloneRow(cache.getLastCell());
+      includeNextStartRowWhenError = cache.isLastResultPartial();
+      cellConsumer.onNext(cursor, scanController);
+    } else if (isHeartbeatMessage || resp.hasCursor()) {
+      consumer.onHeartbeat(scanController);
+    }
+    onConsumed(resp, scanController, numberOfCompleteRowsBefore);
+  }
+
+  private void onConsumed(ScanResponse resp, ScanControllerImpl scanController,
+    int numberOfCompleteRowsBefore) {
     ScanControllerState state = scanController.destroy();
     if (state == ScanControllerState.TERMINATED) {
       if (resp.getMoreResultsInRegion()) {
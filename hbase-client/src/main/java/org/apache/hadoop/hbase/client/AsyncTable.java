@@ -432,6 +432,33 @@ public interface AsyncTable<C extends ScanResultConsumerBase> {
    */
   ResultScanner getScanner(Scan scan);
 
+  /**
+   * Returns a scanner which scans the regions covered by the given {@link Scan} object in parallel.
+   * <p>
+   * The scan range is split at the region boundaries and up to {@code parallelism} of the ranges
+   * are scanned at the same time. Like {@link #getScanner(Scan)}, every range only fetches a
+   * bounded amount of data ahead of the reader, about twice the max result size of the scan, and
+   * is suspended until the reader catches up, so a slow reader does not make the client run out of
+   * memory.
+   * <p>
+   * In ordered mode the results are returned in the same order as with {@link #getScanner(Scan)}.
+   * As the regions do not overlap, the results of a range are returned once the preceding ranges
+   * are exhausted while the following ranges are fetched ahead. Otherwise the results are returned
+   * as soon as any range has them, the results of one range are still in order.
+   * <p>
+   * A scan with a limit is not split, as the limit applies to the whole scan. If the scan of one
+   * range fails, the scans of the other ranges are stopped and the error is thrown by the scanner.
+   * <p>
+   * The default implementation does not scan in parallel, it returns {@link #getScanner(Scan)}.
+   * @param scan        A configured {@link Scan} object.
+   * @param parallelism the maximum number of ranges scanned at the same time.
+   * @param ordered     whether to return the results in the order of the scan.
+   * @return A scanner.
+   */
+  default ResultScanner getParallelScanner(Scan scan, int parallelism, boolean ordered) {
+    return getScanner(scan);
+  }
+
   /**
    * Return all the results that match the given scan object.
    * <p>
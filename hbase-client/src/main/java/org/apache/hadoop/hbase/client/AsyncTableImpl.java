@@ -232,6 +232,11 @@ class AsyncTableImpl implements AsyncTable<ScanResultConsumer> {
     return rawTable.getScanner(scan);
   }
 
+  @Override
+  public ResultScanner getParallelScanner(Scan scan, int parallelism, boolean ordered) {
+    return rawTable.getParallelScanner(scan, parallelism, ordered);
+  }
+
   private void scan0(Scan scan, ScanResultConsumer consumer) {
     Span span = null;
     try (AsyncTableResultScanner scanner = rawTable.getScanner(scan)) {
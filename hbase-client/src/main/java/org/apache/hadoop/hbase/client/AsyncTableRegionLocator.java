@@ -112,6 +112,20 @@ public interface AsyncTableRegionLocator {
    */
   CompletableFuture<List<HRegionLocation>> getAllRegionLocations();
 
+  /**
+   * Loads the locations of all the regions of this table which overlap the given range of rows
+   * into the region location cache.
+   * <p/>
+   * The locations are read with one scan of the meta table, instead of one meta lookup for every
+   * region the following operations happen to touch, so this is useful to warm up the cache of a
+   * new connection against a table with many regions.
+   * @param startRow the first row of the range, inclusive, empty for the start of the table
+   * @param endRow   the last row of the range, exclusive, empty for the end of the table
+   */
+  default CompletableFuture<Void> prefetchRegionLocations(byte[] startRow, byte[] endRow) {
+    return getAllRegionLocations().thenApply(locs -> null);
+  }
+
   /**
    * Gets the starting row key for every region in the currently open table.
    * <p>
@@ -24,7 +24,9 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import org.apache.hadoop.hbase.ClientMetaTableAccessor;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.RegionLocations;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.yetus.audience.InterfaceAudience;
 
@@ -64,12 +66,50 @@ class AsyncTableRegionLocatorImpl implements AsyncTableRegionLocator {
       }
       CompletableFuture<List<HRegionLocation>> future = ClientMetaTableAccessor
         .getTableHRegionLocations(conn.getTable(TableName.META_TABLE_NAME), tableName);
-      addListener(future, (locs, error) -> locs
-        .forEach(loc -> conn.getLocator().getNonMetaRegionLocator().addLocationToCache(loc)));
+      addListener(future, (locs, error) -> {
+        if (error == null) {
+          locs.forEach(loc -> conn.getLocator().getNonMetaRegionLocator().addLocationToCache(loc));
+        }
+      });
       return future;
     }, getClass().getSimpleName() + ".getAllRegionLocations");
   }
 
+  @Override
+  public CompletableFuture<Void> prefetchRegionLocations(byte[] startRow, byte[] endRow) {
+    return tracedFuture(() -> {
+      if (TableName.isMetaTableName(tableName)) {
+        // the meta locations come from the registry, there is nothing to scan
+        return getAllRegionLocations().thenApply(locs -> null);
+      }
+      CompletableFuture<Void> future = new CompletableFuture<>();
+      // The region containing the start row usually starts before it, so it is not found by the
+      // scan below, locate it the normal way.
+      CompletableFuture<RegionLocations> first = conn.getLocator().getRegionLocations(tableName,
+        startRow != null ? startRow : HConstants.EMPTY_START_ROW, RegionLocateType.CURRENT, false,
+        -1L);
+      CompletableFuture<List<RegionLocations>> scanned = ClientMetaTableAccessor
+        .getTableRegionLocations(conn.getTable(TableName.META_TABLE_NAME), tableName, startRow,
+          endRow);
+      addListener(scanned, (locsList, error) -> {
+        if (error != null) {
+          future.completeExceptionally(error);
+          return;
+        }
+        AsyncNonMetaRegionLocator locator = conn.getLocator().getNonMetaRegionLocator();
+        locsList.forEach(locator::addLocationsToCache);
+        addListener(first, (locs, e) -> {
+          if (e != null) {
+            future.completeExceptionally(e);
+          } else {
+            future.complete(null);
+          }
+        });
+      });
+      return future;
+    }, getClass().getSimpleName() + ".prefetchRegionLocations");
+  }
+
   @Override
   public CompletableFuture<List<HRegionLocation>> getRegionLocations(byte[] row, boolean reload) {
     return conn.getLocator()
@@ -39,6 +39,9 @@ public class ConnectionConfiguration {
     "hbase.client.write.buffer.periodicflush.timertick.ms";
   public static final long WRITE_BUFFER_PERIODIC_FLUSH_TIMEOUT_MS_DEFAULT = 0; // 0 == Disabled
   public static final long WRITE_BUFFER_PERIODIC_FLUSH_TIMERTICK_MS_DEFAULT = 1000L; // 1 second
+  public static final String WRITE_BUFFER_PER_SERVER_SIZE_KEY =
+    "hbase.client.write.buffer.per.server";
+  public static final long WRITE_BUFFER_PER_SERVER_SIZE_DEFAULT = 0; // 0 == Disabled
   public static final String MAX_KEYVALUE_SIZE_KEY = "hbase.client.keyvalue.maxsize";
   public static final int MAX_KEYVALUE_SIZE_DEFAULT = 10485760;
   public static final String PRIMARY_CALL_TIMEOUT_MICROSECOND =
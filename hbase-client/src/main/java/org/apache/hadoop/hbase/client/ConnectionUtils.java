@@ -367,6 +367,14 @@ public final class ConnectionUtils {
         resultSize += PrivateCellUtil.estimatedSerializedSizeOf(cell);
       }
     }
+    updateResultsMetrics(scanMetrics, resultSize, isRegionServerRemote);
+  }
+
+  static void updateResultsMetrics(ScanMetrics scanMetrics, long resultSize,
+    boolean isRegionServerRemote) {
+    if (scanMetrics == null || resultSize == 0) {
+      return;
+    }
     scanMetrics.countOfBytesInResults.addAndGet(resultSize);
     if (isRegionServerRemote) {
       scanMetrics.countOfBytesInRemoteResults.addAndGet(resultSize);
@@ -433,10 +441,24 @@ public final class ConnectionUtils {
     }
   }
 
+  private static <T> void sendRequestsToSecondaryReplicas(
+    Function<Integer, CompletableFuture<T>> requestReplica, RegionLocations locs,
+    CompletableFuture<T> future, long delayNs, Timer retryTimer,
+    Optional<MetricsConnection> metrics) {
+    if (delayNs <= 0) {
+      sendRequestsToSecondaryReplicas(requestReplica, locs, future, metrics);
+    } else {
+      retryTimer.newTimeout(
+        timeout -> sendRequestsToSecondaryReplicas(requestReplica, locs, future, metrics), delayNs,
+        TimeUnit.NANOSECONDS);
+    }
+  }
+
   static <T> CompletableFuture<T> timelineConsistentRead(AsyncRegionLocator locator,
     TableName tableName, Query query, byte[] row, RegionLocateType locateType,
     Function<Integer, CompletableFuture<T>> requestReplica, long rpcTimeoutNs,
-    long primaryCallTimeoutNs, Timer retryTimer, Optional<MetricsConnection> metrics) {
+    long primaryCallTimeoutNs, Timer retryTimer, Optional<MetricsConnection> metrics,
+    Optional<TimelineReadHedgePolicy> hedgePolicy) {
     if (query.getConsistency() != Consistency.TIMELINE) {
       return requestReplica.apply(RegionReplicaUtil.DEFAULT_REPLICA_ID);
     }
@@ -467,14 +489,43 @@ public final class ConnectionUtils {
             locs.getDefaultRegionLocation().getRegion());
           return;
         }
-        long delayNs = primaryCallTimeoutNs - (System.nanoTime() - startNs);
-        if (delayNs <= 0) {
-          sendRequestsToSecondaryReplicas(requestReplica, locs, future, metrics);
-        } else {
-          retryTimer.newTimeout(
-            timeout -> sendRequestsToSecondaryReplicas(requestReplica, locs, future, metrics),
-            delayNs, TimeUnit.NANOSECONDS);
+        if (hedgePolicy.isPresent()) {
+          TimelineReadHedgePolicy policy = hedgePolicy.get();
+          HRegionLocation primaryLoc = locs.getDefaultRegionLocation();
+          ServerName primary = primaryLoc != null ? primaryLoc.getServerName() : null;
+          // Usually the locations are cached and we get here long before the primary request is
+          // done. If not we can not tell its latency, so do not record it.
+          if (primary != null && !primaryFuture.isDone()) {
+            addListener(primaryFuture, (r, e) -> {
+              if (e == null) {
+                policy.recordPrimaryLatency(primary, System.nanoTime() - startNs);
+              } else if (primaryFuture.isCancelled()) {
+                // a secondary replica won, the primary would have taken at least this long. Do
+                // not drop the sample, otherwise only the fast requests are counted and we hedge
+                // more and more.
+                policy.recordPrimaryLatency(primary, System.nanoTime() - startNs);
+              }
+            });
+          }
+          long hedgeDelayNs = policy.getHedgeDelayNs(primary, primaryCallTimeoutNs);
+          if (hedgeDelayNs < primaryCallTimeoutNs) {
+            retryTimer.newTimeout(timeout -> {
+              if (future.isDone()) {
+                return;
+              }
+              if (policy.tryAcquireHedge()) {
+                sendRequestsToSecondaryReplicas(requestReplica, locs, future, metrics);
+              } else {
+                // out of budget, fall back to the fixed primary call timeout
+                sendRequestsToSecondaryReplicas(requestReplica, locs, future,
+                  primaryCallTimeoutNs - (System.nanoTime() - startNs), retryTimer, metrics);
+              }
+            }, Math.max(0, hedgeDelayNs - (System.nanoTime() - startNs)), TimeUnit.NANOSECONDS);
+            return;
+          }
         }
+        sendRequestsToSecondaryReplicas(requestReplica, locs, future,
+          primaryCallTimeoutNs - (System.nanoTime() - startNs), retryTimer, metrics);
       });
     return future;
   }
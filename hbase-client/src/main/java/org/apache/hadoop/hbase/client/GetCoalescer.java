@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.client;
+
+import static org.apache.hadoop.hbase.util.FutureUtils.addListener;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.exceptions.TimeoutIOException;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.hbase.thirdparty.io.netty.util.Timeout;
+import org.apache.hbase.thirdparty.io.netty.util.Timer;
+
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos;
+
+/**
+ * Coalesces identical Gets which are in flight at the same time, so only one of them is sent to
+ * the region server and its result is handed to all the callers.
+ * <p>
+ * Two Gets are identical if they are against the same table and their protobuf representations,
+ * which contain the row, the columns, the time range, the filter and so on, are equal. A Get which
+ * joins an in flight one may not see the writes which completed after the in flight Get has been
+ * sent, which is why this is disabled by default.
+ * <p>
+ * The in flight Get is sent with the timeouts of the caller which issued it first, which may be
+ * shorter than the ones of the callers which joined it. So if it fails, the callers which joined
+ * it do not take over its error but go through the coalescer again, the first one sends the Get
+ * and the others join it. A caller which joined a Get gives up after its own operation timeout.
+ */
+@InterfaceAudience.Private
+class GetCoalescer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(GetCoalescer.class);
+
+  /** Whether to coalesce identical concurrent Gets of a connection. */
+  static final String GET_COALESCING_ENABLED_KEY = "hbase.client.get.coalescing.enabled";
+
+  static final boolean DEFAULT_GET_COALESCING_ENABLED = false;
+
+  private static final class Key {
+
+    private final TableName tableName;
+
+    private final ClientProtos.Get get;
+
+    private final int replicaId;
+
+    Key(TableName tableName, ClientProtos.Get get, int replicaId) {
+      this.tableName = tableName;
+      this.get = get;
+      this.replicaId = replicaId;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(tableName, get, replicaId);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return tableName.equals(other.tableName) && get.equals(other.get)
+        && replicaId == other.replicaId;
+    }
+  }
+
+  private final ConcurrentMap<Key, CompletableFuture<Result>> inflight = new ConcurrentHashMap<>();
+
+  private final Timer retryTimer;
+
+  GetCoalescer(Timer retryTimer) {
+    this.retryTimer = retryTimer;
+  }
+
+  /**
+   * Returns the result of the given Get, either by joining an identical Get which is in flight or
+   * by sending it with the given {@code caller}.
+   * @param proto              the protobuf representation of the Get
+   * @param operationTimeoutNs how long to wait for a Get which was joined, 0 or less for ever
+   */
+  CompletableFuture<Result> get(TableName tableName, Get get, ClientProtos.Get proto,
+    long operationTimeoutNs, Supplier<CompletableFuture<Result>> caller) {
+    long deadlineNs =
+      operationTimeoutNs > 0 ? System.nanoTime() + operationTimeoutNs : Long.MAX_VALUE;
+    // Every caller gets its own Result as a Result has a cell scanner position, and cancelling
+    // the returned future must not cancel the shared one.
+    CompletableFuture<Result> result = new CompletableFuture<>();
+    get(new Key(tableName, proto, get.getReplicaId()), get, deadlineNs, caller, result);
+    return result;
+  }
+
+  private void get(Key key, Get get, long deadlineNs, Supplier<CompletableFuture<Result>> caller,
+    CompletableFuture<Result> result) {
+    CompletableFuture<Result> future = new CompletableFuture<>();
+    CompletableFuture<Result> existing = inflight.putIfAbsent(key, future);
+    if (existing == null) {
+      addListener(caller.get(), (r, e) -> {
+        // remove before completing so Gets issued after the completion are sent again
+        inflight.remove(key, future);
+        if (e != null) {
+          future.completeExceptionally(e);
+        } else {
+          future.complete(r);
+        }
+      });
+      addListener(future, (r, e) -> {
+        if (e != null) {
+          result.completeExceptionally(e);
+        } else {
+          result.complete(copy(r));
+        }
+      });
+      return;
+    }
+    Timeout timeout = null;
+    if (deadlineNs != Long.MAX_VALUE) {
+      long remainingNs = deadlineNs - System.nanoTime();
+      if (remainingNs <= 0) {
+        result.completeExceptionally(timeoutException(get));
+        return;
+      }
+      timeout = retryTimer.newTimeout(t -> result.completeExceptionally(timeoutException(get)),
+        remainingNs, TimeUnit.NANOSECONDS);
+    }
+    Timeout joinTimeout = timeout;
+    addListener(existing, (r, e) -> {
+      if (joinTimeout != null) {
+        joinTimeout.cancel();
+      }
+      if (result.isDone()) {
+        // timed out or cancelled
+        return;
+      }
+      if (e == null) {
+        result.complete(copy(r));
+        return;
+      }
+      // The error may come from the timeouts of the caller we joined, which are not ours, so do
+      // not fail with it. Go through the coalescer again rather than sending our own Get, so the
+      // callers which joined the failed Get do not all send it at once.
+      LOG.debug("The in flight {} failed, send it again for the callers which joined it", get, e);
+      get(key, get, deadlineNs, caller, result);
+    });
+  }
+
+  private static TimeoutIOException timeoutException(Get get) {
+    return new TimeoutIOException("Timed out waiting for the in flight " + get);
+  }
+
+  int getInflightCount() {
+    return inflight.size();
+  }
+
+  private static Result copy(Result r) {
+    return Result.create(r.rawCells(), r.getExists(), r.isStale(), r.mayHaveMoreCellsInRow());
+  }
+
+  static GetCoalescer create(Configuration conf, Timer retryTimer) {
+    if (!conf.getBoolean(GET_COALESCING_ENABLED_KEY, DEFAULT_GET_COALESCING_ENABLED)) {
+      return null;
+    }
+    return new GetCoalescer(retryTimer);
+  }
+}
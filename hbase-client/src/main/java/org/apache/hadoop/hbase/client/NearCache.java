@@ -0,0 +1,378 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.client;
+
+import static org.apache.hadoop.hbase.util.FutureUtils.addListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.replication.ReplicationPeerConfigUtil;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.hbase.thirdparty.com.google.common.cache.Cache;
+import org.apache.hbase.thirdparty.com.google.common.cache.CacheBuilder;
+
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos;
+
+/**
+ * A bounded client side cache of the results of Gets against read mostly tables.
+ * <p>
+ * Only the tables, or column families of tables, listed in {@link #NEAR_CACHE_COLUMNS_KEY} are
+ * cached, in the same format as the table-cfs of a replication peer, for example
+ * {@code ns1.table1:cf1,cf2;table2}. A Get is only served from the cache if it reads the primary
+ * replica and, when column families are listed for its table, only reads listed families.
+ * <p>
+ * All the mutations of the connection against a cached row invalidate it when they are sent and
+ * again when they complete, so a client always reads its own writes. The writes of other clients
+ * are not seen until the cached result expires after {@link #NEAR_CACHE_TTL_MS_KEY}, the RPC
+ * protocol has no way for a region server to push invalidations to the client.
+ * <p>
+ * An invalidation drops the cached results of the row and bumps its stamp, and a cached result is
+ * only served while the stamp of its row is still the one seen before its Get was sent. So a Get
+ * which was in flight while its row was invalidated, and may have read the old value, is never
+ * served. The stamps are striped by the hash of the row, so an invalidation also stops serving the
+ * cached results of the few other rows which share its stripe.
+ * <p>
+ * Gets which may be cached are never coalesced with identical in flight Gets, see
+ * {@link GetCoalescer}, as the in flight Get may have been sent before an invalidation which the
+ * joining Get has already seen.
+ */
+@InterfaceAudience.Private
+class NearCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(NearCache.class);
+
+  /** The tables and column families to cache, empty to disable the near cache. */
+  static final String NEAR_CACHE_COLUMNS_KEY = "hbase.client.nearcache.columns";
+
+  /** The maximum heap size of the cached results. */
+  static final String NEAR_CACHE_MAX_SIZE_KEY = "hbase.client.nearcache.max.size";
+
+  static final long DEFAULT_NEAR_CACHE_MAX_SIZE = 32L * 1024 * 1024;
+
+  /** How long a cached result is served, bounds the staleness against other clients' writes. */
+  static final String NEAR_CACHE_TTL_MS_KEY = "hbase.client.nearcache.ttl.ms";
+
+  static final long DEFAULT_NEAR_CACHE_TTL_MS = 1000;
+
+  // the number of invalidation stamps, a power of 2
+  private static final int STAMP_STRIPES = 4096;
+
+  private static final class RowKey {
+
+    private final TableName tableName;
+
+    private final byte[] row;
+
+    RowKey(TableName tableName, byte[] row) {
+      this.tableName = tableName;
+      this.row = row;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * tableName.hashCode() + Bytes.hashCode(row);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof RowKey)) {
+        return false;
+      }
+      RowKey other = (RowKey) obj;
+      return tableName.equals(other.tableName) && Bytes.equals(row, other.row);
+    }
+  }
+
+  private static final class CachedResult {
+
+    private final Result result;
+
+    private final long size;
+
+    private final long expireTime;
+
+    // the invalidation stamp of the row before the Get was sent
+    private final long stamp;
+
+    CachedResult(Result result, long size, long expireTime, long stamp) {
+      this.result = result;
+      this.size = size;
+      this.expireTime = expireTime;
+      this.stamp = stamp;
+    }
+  }
+
+  /**
+   * The cached results of all the Gets of one row, keyed by the protobuf representation of the
+   * Get, so Gets reading different columns of the same row do not share results. Never modified
+   * once it is in the cache, a changed copy replaces it.
+   */
+  private static final class RowEntry {
+
+    private final Map<ClientProtos.Get, CachedResult> results;
+
+    private final long size;
+
+    RowEntry(Map<ClientProtos.Get, CachedResult> results) {
+      this.results = results;
+      this.size = results.values().stream().mapToLong(c -> c.size).sum();
+    }
+
+    RowEntry with(ClientProtos.Get get, CachedResult result) {
+      Map<ClientProtos.Get, CachedResult> copy = new HashMap<>(results);
+      copy.put(get, result);
+      return new RowEntry(copy);
+    }
+
+    // returns null if there is no result left
+    RowEntry without(ClientProtos.Get get, CachedResult result) {
+      if (results.get(get) != result) {
+        return this;
+      }
+      if (results.size() == 1) {
+        return null;
+      }
+      Map<ClientProtos.Get, CachedResult> copy = new HashMap<>(results);
+      copy.remove(get);
+      return new RowEntry(copy);
+    }
+  }
+
+  // table name -> the cached families, an empty set means all the families
+  private final Map<TableName, Set<byte[]>> columns;
+
+  private final long maxSize;
+
+  private final long ttlMs;
+
+  // Evicts the least recently read rows first. Reads do not lock, only storing and dropping results
+  // lock, with a single segment so the size limit applies to the whole cache and not to each
+  // segment.
+  private final Cache<RowKey, RowEntry> rows;
+
+  // bumped by every invalidation of a row which hashes to the stripe
+  private final AtomicLongArray stamps = new AtomicLongArray(STAMP_STRIPES);
+
+  private final LongAdder hits = new LongAdder();
+
+  private final LongAdder misses = new LongAdder();
+
+  NearCache(Map<TableName, Set<byte[]>> columns, long maxSize, long ttlMs) {
+    this.columns = columns;
+    this.maxSize = maxSize;
+    this.ttlMs = ttlMs;
+    this.rows = CacheBuilder.newBuilder().concurrencyLevel(1).maximumWeight(maxSize)
+      .<RowKey, RowEntry> weigher((k, v) -> (int) Math.min(v.size, Integer.MAX_VALUE)).build();
+  }
+
+  private static int stripe(RowKey rowKey) {
+    int h = rowKey.hashCode();
+    return (h ^ (h >>> 16)) & (STAMP_STRIPES - 1);
+  }
+
+  /**
+   * Returns whether the given Get may be served from the cache.
+   */
+  boolean isCacheable(TableName tableName, Get get) {
+    Set<byte[]> families = columns.get(tableName);
+    if (families == null) {
+      return false;
+    }
+    if (get.getConsistency() != Consistency.STRONG || get.getReplicaId() > 0) {
+      return false;
+    }
+    if (families.isEmpty()) {
+      return true;
+    }
+    return get.hasFamilies() && families.containsAll(get.familySet());
+  }
+
+  /**
+   * Returns the result of the given Get, either from the cache or by sending it with the given
+   * {@code caller} and caching its result. A Get which can not be cached is sent with the given
+   * {@code uncachedCaller} instead, which may coalesce it with identical in flight Gets.
+   * @param proto the protobuf representation of the Get
+   */
+  CompletableFuture<Result> get(TableName tableName, Get get, ClientProtos.Get proto,
+    Supplier<CompletableFuture<Result>> caller,
+    Supplier<CompletableFuture<Result>> uncachedCaller) {
+    if (!isCacheable(tableName, get)) {
+      return uncachedCaller.get();
+    }
+    RowKey rowKey = new RowKey(tableName, get.getRow());
+    int stripe = stripe(rowKey);
+    long stamp = stamps.get(stripe);
+    RowEntry entry = rows.getIfPresent(rowKey);
+    CachedResult cached = entry != null ? entry.results.get(proto) : null;
+    if (cached != null) {
+      if (cached.stamp == stamp && cached.expireTime > EnvironmentEdgeManager.currentTime()) {
+        hits.increment();
+        return CompletableFuture.completedFuture(copy(cached.result));
+      }
+      // expired or invalidated, only drop it if it has not been replaced in the meantime
+      rows.asMap().computeIfPresent(rowKey, (k, e) -> e.without(proto, cached));
+    }
+    misses.increment();
+    CompletableFuture<Result> future = caller.get();
+    addListener(future, (r, e) -> {
+      if (e == null && !r.isStale() && !r.mayHaveMoreCellsInRow()) {
+        cache(rowKey, proto, copy(r), stripe, stamp);
+      }
+    });
+    return future;
+  }
+
+  private void cache(RowKey rowKey, ClientProtos.Get proto, Result result, int stripe,
+    long stamp) {
+    if (stamps.get(stripe) != stamp) {
+      // invalidated while the Get was in flight. The stored stamp keeps a result which is
+      // invalidated after this check from being served, this only saves storing it.
+      return;
+    }
+    long resultSize = ConnectionUtils.calcEstimatedSize(result) + proto.getSerializedSize();
+    if (resultSize > maxSize) {
+      return;
+    }
+    CachedResult cached =
+      new CachedResult(result, resultSize, EnvironmentEdgeManager.currentTime() + ttlMs, stamp);
+    rows.asMap().compute(rowKey, (k, e) -> e != null
+      ? e.with(proto, cached)
+      : new RowEntry(Collections.singletonMap(proto, cached)));
+  }
+
+  /**
+   * Drop all the cached results of the given row.
+   */
+  void invalidate(TableName tableName, byte[] row) {
+    RowKey rowKey = new RowKey(tableName, row);
+    stamps.incrementAndGet(stripe(rowKey));
+    rows.invalidate(rowKey);
+  }
+
+  /**
+   * Send a mutation of the given row with the given {@code caller}, invalidating the row before
+   * the mutation is sent and before the returned future is completed.
+   */
+  <T> CompletableFuture<T> mutate(TableName tableName, byte[] row,
+    Supplier<CompletableFuture<T>> caller) {
+    if (!columns.containsKey(tableName)) {
+      return caller.get();
+    }
+    invalidate(tableName, row);
+    CompletableFuture<T> future = new CompletableFuture<>();
+    addListener(caller.get(), (r, e) -> {
+      invalidate(tableName, row);
+      if (e != null) {
+        future.completeExceptionally(e);
+      } else {
+        future.complete(r);
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Same as {@link #mutate(TableName, byte[], Supplier)} but for a batch, only the rows of the
+   * mutations are invalidated.
+   */
+  <T> List<CompletableFuture<T>> batch(TableName tableName, List<? extends Row> actions,
+    Supplier<List<CompletableFuture<T>>> caller) {
+    if (!columns.containsKey(tableName)) {
+      return caller.get();
+    }
+    for (Row action : actions) {
+      if (!(action instanceof Get)) {
+        invalidate(tableName, action.getRow());
+      }
+    }
+    List<CompletableFuture<T>> futures = new ArrayList<>(caller.get());
+    for (int i = 0; i < futures.size(); i++) {
+      Row action = actions.get(i);
+      if (action instanceof Get) {
+        continue;
+      }
+      CompletableFuture<T> future = new CompletableFuture<>();
+      addListener(futures.get(i), (r, e) -> {
+        invalidate(tableName, action.getRow());
+        if (e != null) {
+          future.completeExceptionally(e);
+        } else {
+          future.complete(r);
+        }
+      });
+      futures.set(i, future);
+    }
+    return futures;
+  }
+
+  /**
+   * Returns the heap size of the cached results. Only for testing, this iterates over all the
+   * cached rows.
+   */
+  long getSize() {
+    return rows.asMap().values().stream().mapToLong(e -> e.size).sum();
+  }
+
+  long getHitCount() {
+    return hits.sum();
+  }
+
+  long getMissCount() {
+    return misses.sum();
+  }
+
+  private static Result copy(Result r) {
+    return Result.create(r.rawCells(), r.getExists(), r.isStale(), r.mayHaveMoreCellsInRow());
+  }
+
+  static NearCache create(Configuration conf) {
+    Map<TableName, List<String>> tableCFs =
+      ReplicationPeerConfigUtil.parseTableCFsFromConfig(conf.get(NEAR_CACHE_COLUMNS_KEY));
+    if (tableCFs == null || tableCFs.isEmpty()) {
+      return null;
+    }
+    Map<TableName, Set<byte[]>> columns = new HashMap<>();
+    tableCFs.forEach((tableName, cfs) -> {
+      Set<byte[]> families = new TreeSet<>(Bytes.BYTES_COMPARATOR);
+      if (cfs != null) {
+        cfs.forEach(cf -> families.add(Bytes.toBytes(cf)));
+      }
+      columns.put(tableName, families);
+    });
+    long maxSize = conf.getLong(NEAR_CACHE_MAX_SIZE_KEY, DEFAULT_NEAR_CACHE_MAX_SIZE);
+    long ttlMs = conf.getLong(NEAR_CACHE_TTL_MS_KEY, DEFAULT_NEAR_CACHE_TTL_MS);
+    LOG.info("Near cache enabled for {}, maxSize={}, ttlMs={}", tableCFs.keySet(), maxSize, ttlMs);
+    return new NearCache(columns, maxSize, ttlMs);
+  }
+}
@@ -0,0 +1,332 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.client;
+
+import static org.apache.hadoop.hbase.client.ConnectionUtils.calcEstimatedSize;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import org.apache.hadoop.hbase.client.metrics.ScanMetrics;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.FutureUtils;
+import org.apache.hadoop.hbase.util.ReflectionUtils;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * The {@link ResultScanner} implementation for {@link AsyncTable#getParallelScanner}.
+ * <p>
+ * The scan is split into one range per region, see {@link #split(Scan, List)}, and every range is
+ * scanned by its own {@link AdvancedScanResultConsumer} which caches the results like
+ * {@link AsyncTableResultScanner} does, i.e, it suspends the scan of its range when its cache is
+ * full. A range is only started when one of the {@code parallelism} running ranges is exhausted,
+ * so at most {@code parallelism * maxCacheSize} of data is buffered. When one range fails, the
+ * other running ranges are terminated and the pending ones are not started.
+ */
+@InterfaceAudience.Private
+class ParallelScanResultScanner implements ResultScanner {
+
+  private final AsyncTable<AdvancedScanResultConsumer> table;
+
+  private final Scan scan;
+
+  private final int parallelism;
+
+  private final boolean ordered;
+
+  private final long maxCacheSize;
+
+  // the ranges which have not been started yet, in scan order
+  private final Queue<Scan> pending = new ArrayDeque<>();
+
+  // the ranges which are started and not exhausted, in scan order
+  private final List<Partition> running = new ArrayList<>();
+
+  private final List<ScanMetrics> scanMetrics = new ArrayList<>();
+
+  private boolean initialized;
+
+  private boolean closed;
+
+  private Throwable error;
+
+  // where to look for results first in unordered mode
+  private int nextPartition;
+
+  private final class Partition implements AdvancedScanResultConsumer {
+
+    private final Queue<Result> queue = new ArrayDeque<>();
+
+    private long cacheSize;
+
+    private boolean done;
+
+    private ScanResumer resumer;
+
+    @Override
+    public void onNext(Result[] results, ScanController controller) {
+      synchronized (ParallelScanResultScanner.this) {
+        if (isStopped()) {
+          controller.terminate();
+          return;
+        }
+        for (Result result : results) {
+          queue.add(result);
+          cacheSize += calcEstimatedSize(result);
+        }
+        if (cacheSize >= maxCacheSize) {
+          resumer = controller.suspend();
+        }
+        ParallelScanResultScanner.this.notifyAll();
+      }
+    }
+
+    @Override
+    public void onHeartbeat(ScanController controller) {
+      synchronized (ParallelScanResultScanner.this) {
+        if (isStopped()) {
+          controller.terminate();
+          return;
+        }
+        if (scan.isNeedCursorResult()) {
+          controller.cursor().ifPresent(c -> queue.add(Result.createCursorResult(c)));
+          ParallelScanResultScanner.this.notifyAll();
+        }
+      }
+    }
+
+    @Override
+    public void onError(Throwable error) {
+      synchronized (ParallelScanResultScanner.this) {
+        if (ParallelScanResultScanner.this.error == null) {
+          ParallelScanResultScanner.this.error = error;
+        }
+        // the scan fails as a whole, do not keep scanning the other ranges
+        stopPartitions();
+        ParallelScanResultScanner.this.notifyAll();
+      }
+    }
+
+    @Override
+    public void onComplete() {
+      synchronized (ParallelScanResultScanner.this) {
+        done = true;
+        ParallelScanResultScanner.this.notifyAll();
+      }
+    }
+
+    @Override
+    public void onScanMetricsCreated(ScanMetrics scanMetrics) {
+      synchronized (ParallelScanResultScanner.this) {
+        ParallelScanResultScanner.this.scanMetrics.add(scanMetrics);
+      }
+    }
+
+    private Result poll() {
+      Result result = queue.poll();
+      if (result != null && !result.isCursor()) {
+        cacheSize -= calcEstimatedSize(result);
+        if (resumer != null && cacheSize <= maxCacheSize / 2) {
+          resume();
+        }
+      }
+      return result;
+    }
+
+    private void resume() {
+      resumer.resume();
+      resumer = null;
+    }
+
+    private void close() {
+      queue.clear();
+      cacheSize = 0;
+      if (resumer != null) {
+        // let the scan run into the terminate call in onNext
+        resume();
+      }
+    }
+  }
+
+  ParallelScanResultScanner(AsyncTable<AdvancedScanResultConsumer> table, Scan scan,
+    CompletableFuture<List<byte[]>> startKeys, int parallelism, boolean ordered,
+    long maxCacheSize) {
+    this.table = table;
+    this.scan = scan;
+    this.parallelism = parallelism;
+    this.ordered = ordered;
+    this.maxCacheSize = maxCacheSize;
+    FutureUtils.addListener(startKeys, (keys, e) -> {
+      synchronized (this) {
+        if (e != null) {
+          error = e;
+        } else {
+          pending.addAll(split(scan, keys));
+          initialized = true;
+          startPartitions();
+        }
+        notifyAll();
+      }
+    });
+  }
+
+  /**
+   * Split the given scan at the given region start keys, the returned scans are in scan order,
+   * i.e, in descending row order for a reversed scan. A scan with a limit is not split.
+   */
+  static List<Scan> split(Scan scan, List<byte[]> startKeys) {
+    if (scan.getLimit() > 0) {
+      return Collections.singletonList(ReflectionUtils.newInstance(scan.getClass(), scan));
+    }
+    byte[] lower = scan.isReversed() ? scan.getStopRow() : scan.getStartRow();
+    boolean includeLower = scan.isReversed() ? scan.includeStopRow() : scan.includeStartRow();
+    byte[] upper = scan.isReversed() ? scan.getStartRow() : scan.getStopRow();
+    boolean includeUpper = scan.isReversed() ? scan.includeStartRow() : scan.includeStopRow();
+    List<byte[]> boundaries = new ArrayList<>();
+    for (byte[] key : startKeys) {
+      if (
+        key.length > 0 && Bytes.compareTo(key, lower) > 0
+          && (upper.length == 0 || Bytes.compareTo(key, upper) < 0)
+      ) {
+        boundaries.add(key);
+      }
+    }
+    boundaries.sort(Bytes.BYTES_COMPARATOR);
+    List<Scan> scans = new ArrayList<>(boundaries.size() + 1);
+    for (int i = 0; i <= boundaries.size(); i++) {
+      byte[] from = i == 0 ? lower : boundaries.get(i - 1);
+      boolean includeFrom = i == 0 ? includeLower : true;
+      byte[] to = i == boundaries.size() ? upper : boundaries.get(i);
+      boolean includeTo = i == boundaries.size() ? includeUpper : false;
+      Scan range = ReflectionUtils.newInstance(scan.getClass(), scan);
+      if (scan.isReversed()) {
+        range.withStartRow(to, includeTo).withStopRow(from, includeFrom);
+      } else {
+        range.withStartRow(from, includeFrom).withStopRow(to, includeTo);
+      }
+      scans.add(range);
+    }
+    if (scan.isReversed()) {
+      Collections.reverse(scans);
+    }
+    return scans;
+  }
+
+  private boolean isStopped() {
+    return closed || error != null;
+  }
+
+  private void startPartitions() {
+    while (!isStopped() && running.size() < parallelism && !pending.isEmpty()) {
+      Partition partition = new Partition();
+      running.add(partition);
+      table.scan(pending.poll(), partition);
+    }
+  }
+
+  private Result poll() {
+    for (Iterator<Partition> iter = running.iterator(); iter.hasNext();) {
+      Partition partition = iter.next();
+      if (partition.done && partition.queue.isEmpty()) {
+        iter.remove();
+      }
+    }
+    startPartitions();
+    if (running.isEmpty()) {
+      return null;
+    }
+    if (ordered) {
+      // the following ranges only fetch ahead until the first one is exhausted
+      return running.get(0).poll();
+    }
+    for (int i = 0; i < running.size(); i++) {
+      int index = (nextPartition + i) % running.size();
+      Result result = running.get(index).poll();
+      if (result != null) {
+        // start with the next range next time, so no range is starved
+        nextPartition = index + 1;
+        return result;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public synchronized Result next() throws IOException {
+    for (;;) {
+      if (error != null) {
+        throw FutureUtils.rethrow(error);
+      }
+      if (closed) {
+        return null;
+      }
+      Result result = poll();
+      if (result != null) {
+        return result;
+      }
+      if (initialized && running.isEmpty()) {
+        return null;
+      }
+      try {
+        wait();
+      } catch (InterruptedException e) {
+        throw new InterruptedIOException();
+      }
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    closed = true;
+    stopPartitions();
+    notifyAll();
+  }
+
+  // the running ranges terminate their scans on the next onNext or onHeartbeat call
+  private void stopPartitions() {
+    pending.clear();
+    for (Partition partition : running) {
+      partition.close();
+    }
+    running.clear();
+  }
+
+  @Override
+  public boolean renewLease() {
+    // the ranges are fetched in background, see AsyncTableResultScanner
+    return false;
+  }
+
+  @Override
+  public synchronized ScanMetrics getScanMetrics() {
+    if (scanMetrics.isEmpty()) {
+      return null;
+    }
+    ScanMetrics sum = new ScanMetrics();
+    for (ScanMetrics metrics : scanMetrics) {
+      metrics.getMetricsMap(false).forEach(sum::addToCounter);
+    }
+    return sum;
+  }
+}
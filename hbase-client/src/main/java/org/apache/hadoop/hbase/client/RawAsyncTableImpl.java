@@ -26,6 +26,7 @@ import static org.apache.hadoop.hbase.client.ConnectionUtils.validatePutsInRowMu
 import static org.apache.hadoop.hbase.trace.TraceUtil.tracedFuture;
 import static org.apache.hadoop.hbase.trace.TraceUtil.tracedFutures;
 import static org.apache.hadoop.hbase.util.FutureUtils.addListener;
+import static org.apache.hadoop.hbase.util.FutureUtils.failedFuture;
 
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.StatusCode;
@@ -34,6 +35,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -68,6 +70,7 @@ import org.apache.hbase.thirdparty.io.netty.util.Timer;
 import org.apache.hadoop.hbase.shaded.protobuf.ProtobufUtil;
 import org.apache.hadoop.hbase.shaded.protobuf.RequestConverter;
 import org.apache.hadoop.hbase.shaded.protobuf.ResponseConverter;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.ClientService;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.GetRequest;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.GetResponse;
@@ -218,10 +221,10 @@ class RawAsyncTableImpl implements AsyncTable<AdvancedScanResultConsumer> {
     return newCaller(row.getRow(), row.getPriority(), rpcTimeoutNs);
   }
 
-  private CompletableFuture<Result> get(Get get, int replicaId) {
+  private CompletableFuture<Result> get(Get get, ClientProtos.Get proto, int replicaId) {
     return this.<Result, Get> newCaller(get, readRpcTimeoutNs)
-      .action((controller, loc, stub) -> ConnectionUtils.<Get, GetRequest, GetResponse,
-        Result> call(controller, loc, stub, get, RequestConverter::buildGetRequest,
+      .action((controller, loc, stub) -> ConnectionUtils.<ClientProtos.Get, GetRequest,
+        GetResponse, Result> call(controller, loc, stub, proto, RequestConverter::buildGetRequest,
           (s, c, req, done) -> s.get(c, req, done),
           (c, resp) -> ProtobufUtil.toResult(resp.getResult(), c.cellScanner())))
       .replicaId(replicaId).call();
@@ -231,63 +234,131 @@ class RawAsyncTableImpl implements AsyncTable<AdvancedScanResultConsumer> {
     return new TableOperationSpanBuilder(conn).setTableName(tableName);
   }
 
+  private CompletableFuture<Result> timelineConsistentGet(Get get, ClientProtos.Get proto) {
+    return timelineConsistentRead(conn.getLocator(), tableName, get, get.getRow(),
+      RegionLocateType.CURRENT, replicaId -> get(get, proto, replicaId), readRpcTimeoutNs,
+      conn.connConf.getPrimaryCallTimeoutNs(), retryTimer, conn.getConnectionMetrics(),
+      conn.getTimelineReadHedgePolicy());
+  }
+
+  private CompletableFuture<Result> coalescedGet(Get get, ClientProtos.Get proto) {
+    Optional<GetCoalescer> coalescer = conn.getGetCoalescer();
+    if (coalescer.isPresent()) {
+      return coalescer.get().get(tableName, get, proto, operationTimeoutNs,
+        () -> timelineConsistentGet(get, proto));
+    }
+    return timelineConsistentGet(get, proto);
+  }
+
   @Override
   public CompletableFuture<Result> get(Get get) {
     final Supplier<Span> supplier = newTableOperationSpanBuilder().setOperation(get);
-    return tracedFuture(
-      () -> timelineConsistentRead(conn.getLocator(), tableName, get, get.getRow(),
-        RegionLocateType.CURRENT, replicaId -> get(get, replicaId), readRpcTimeoutNs,
-        conn.connConf.getPrimaryCallTimeoutNs(), retryTimer, conn.getConnectionMetrics()),
-      supplier);
+    return tracedFuture(() -> {
+      // Convert the Get only once, for the near cache and coalescer keys and for the requests of
+      // all the attempts and replicas.
+      ClientProtos.Get proto;
+      try {
+        proto = ProtobufUtil.toGet(get);
+      } catch (IOException e) {
+        return failedFuture(e);
+      }
+      Optional<NearCache> nearCache = conn.getNearCache();
+      if (nearCache.isPresent()) {
+        return nearCache.get().get(tableName, get, proto, () -> timelineConsistentGet(get, proto),
+          () -> coalescedGet(get, proto));
+      }
+      return coalescedGet(get, proto);
+    }, supplier);
+  }
+
+  // invalidates the row in the near cache, if any, around the given mutation
+  private <T> CompletableFuture<T> nearCacheMutate(byte[] row,
+    Supplier<CompletableFuture<T>> caller) {
+    Optional<NearCache> nearCache = conn.getNearCache();
+    return nearCache.isPresent() ? nearCache.get().mutate(tableName, row, caller) : caller.get();
+  }
+
+  /**
+   * Build the request for a put, delete, append or increment. When the connection supports cell
+   * blocks, the cells are sent in the cell block, as for a multi request, which is much cheaper
+   * than building and encoding a protobuf message for every cell.
+   * <p>
+   * The MutateRequest envelope itself is still protobuf, there is no separate binary encoding for
+   * small operations. The cell block codec negotiated in the connection header is the only non
+   * protobuf part of the request.
+   */
+  private MutateRequest buildMutateRequest(HBaseRpcController controller, byte[] regionName,
+    Mutation mutation, long nonceGroup, long nonce) throws IOException {
+    // a Delete of the whole row has no cells, see RequestConverter.buildNoDataRegionAction
+    if (conn.rpcClient.hasCellBlockSupport() && !mutation.isEmpty()) {
+      controller.setCellScanner(mutation.cellScanner());
+      return RequestConverter.buildNoDataMutateRequest(regionName, mutation, nonceGroup, nonce);
+    }
+    if (mutation instanceof Put) {
+      return RequestConverter.buildMutateRequest(regionName, (Put) mutation);
+    } else if (mutation instanceof Delete) {
+      return RequestConverter.buildMutateRequest(regionName, (Delete) mutation);
+    } else if (mutation instanceof Append) {
+      return RequestConverter.buildMutateRequest(regionName, (Append) mutation, nonceGroup, nonce);
+    } else {
+      return RequestConverter.buildMutateRequest(regionName, (Increment) mutation, nonceGroup,
+        nonce);
+    }
   }
 
   @Override
   public CompletableFuture<Void> put(Put put) {
     validatePut(put, conn.connConf.getMaxKeyValueSize());
     final Supplier<Span> supplier = newTableOperationSpanBuilder().setOperation(put);
-    return tracedFuture(() -> this.<Void, Put> newCaller(put, writeRpcTimeoutNs)
-      .action((controller, loc, stub) -> RawAsyncTableImpl.<Put> voidMutate(controller, loc, stub,
-        put, RequestConverter::buildMutateRequest))
-      .call(), supplier);
+    return nearCacheMutate(put.getRow(),
+      () -> tracedFuture(() -> this.<Void, Put> newCaller(put, writeRpcTimeoutNs)
+        .action((controller, loc, stub) -> RawAsyncTableImpl.<Put> voidMutate(controller, loc,
+          stub, put, (rn, p) -> buildMutateRequest(controller, rn, p, HConstants.NO_NONCE,
+            HConstants.NO_NONCE)))
+        .call(), supplier));
   }
 
   @Override
   public CompletableFuture<Void> delete(Delete delete) {
     final Supplier<Span> supplier = newTableOperationSpanBuilder().setOperation(delete);
-    return tracedFuture(() -> this.<Void, Delete> newCaller(delete, writeRpcTimeoutNs)
-      .action((controller, loc, stub) -> RawAsyncTableImpl.<Delete> voidMutate(controller, loc,
-        stub, delete, RequestConverter::buildMutateRequest))
-      .call(), supplier);
+    return nearCacheMutate(delete.getRow(),
+      () -> tracedFuture(() -> this.<Void, Delete> newCaller(delete, writeRpcTimeoutNs)
+        .action((controller, loc, stub) -> RawAsyncTableImpl.<Delete> voidMutate(controller, loc,
+          stub, delete, (rn, d) -> buildMutateRequest(controller, rn, d, HConstants.NO_NONCE,
+            HConstants.NO_NONCE)))
+        .call(), supplier));
   }
 
   @Override
   public CompletableFuture<Result> append(Append append) {
     checkHasFamilies(append);
     final Supplier<Span> supplier = newTableOperationSpanBuilder().setOperation(append);
-    return tracedFuture(() -> {
+    return nearCacheMutate(append.getRow(), () -> tracedFuture(() -> {
       long nonceGroup = conn.getNonceGenerator().getNonceGroup();
       long nonce = conn.getNonceGenerator().newNonce();
       return this.<Result, Append> newCaller(append, rpcTimeoutNs)
         .action((controller, loc, stub) -> this.<Append, Result> noncedMutate(nonceGroup, nonce,
-          controller, loc, stub, append, RequestConverter::buildMutateRequest,
+          controller, loc, stub, append,
+          (rn, a, ng, n) -> buildMutateRequest(controller, rn, a, ng, n),
           RawAsyncTableImpl::toResult))
         .call();
-    }, supplier);
+    }, supplier));
   }
 
   @Override
   public CompletableFuture<Result> increment(Increment increment) {
     checkHasFamilies(increment);
     final Supplier<Span> supplier = newTableOperationSpanBuilder().setOperation(increment);
-    return tracedFuture(() -> {
+    return nearCacheMutate(increment.getRow(), () -> tracedFuture(() -> {
       long nonceGroup = conn.getNonceGenerator().getNonceGroup();
       long nonce = conn.getNonceGenerator().newNonce();
       return this.<Result, Increment> newCaller(increment, rpcTimeoutNs)
         .action((controller, loc, stub) -> this.<Increment, Result> noncedMutate(nonceGroup, nonce,
-          controller, loc, stub, increment, RequestConverter::buildMutateRequest,
+          controller, loc, stub, increment,
+          (rn, i, ng, n) -> buildMutateRequest(controller, rn, i, ng, n),
           RawAsyncTableImpl::toResult))
         .call();
-    }, supplier);
+    }, supplier));
   }
 
   private final class CheckAndMutateBuilderImpl implements CheckAndMutateBuilder {
@@ -348,14 +419,14 @@ class RawAsyncTableImpl implements AsyncTable<AdvancedScanResultConsumer> {
       final Supplier<Span> supplier = newTableOperationSpanBuilder()
         .setOperation(HBaseSemanticAttributes.Operation.CHECK_AND_MUTATE)
         .setContainerOperations(put);
-      return tracedFuture(
+      return nearCacheMutate(row, () -> tracedFuture(
         () -> RawAsyncTableImpl.this.<Boolean> newCaller(row, put.getPriority(), rpcTimeoutNs)
           .action((controller, loc, stub) -> RawAsyncTableImpl.mutate(controller, loc, stub, put,
             (rn, p) -> RequestConverter.buildMutateRequest(rn, row, family, qualifier, op, value,
               null, timeRange, p, HConstants.NO_NONCE, HConstants.NO_NONCE),
             (c, r) -> r.getProcessed()))
           .call(),
-        supplier);
+        supplier));
     }
 
     @Override
@@ -364,14 +435,14 @@ class RawAsyncTableImpl implements AsyncTable<AdvancedScanResultConsumer> {
       final Supplier<Span> supplier = newTableOperationSpanBuilder()
         .setOperation(HBaseSemanticAttributes.Operation.CHECK_AND_MUTATE)
         .setContainerOperations(delete);
-      return tracedFuture(
+      return nearCacheMutate(row, () -> tracedFuture(
         () -> RawAsyncTableImpl.this.<Boolean> newCaller(row, delete.getPriority(), rpcTimeoutNs)
           .action((controller, loc, stub) -> RawAsyncTableImpl.mutate(controller, loc, stub, delete,
             (rn, d) -> RequestConverter.buildMutateRequest(rn, row, family, qualifier, op, value,
               null, timeRange, d, HConstants.NO_NONCE, HConstants.NO_NONCE),
             (c, r) -> r.getProcessed()))
           .call(),
-        supplier);
+        supplier));
     }
 
     @Override
@@ -381,14 +452,14 @@ class RawAsyncTableImpl implements AsyncTable<AdvancedScanResultConsumer> {
       final Supplier<Span> supplier = newTableOperationSpanBuilder()
         .setOperation(HBaseSemanticAttributes.Operation.CHECK_AND_MUTATE)
         .setContainerOperations(mutations);
-      return tracedFuture(() -> RawAsyncTableImpl.this
+      return nearCacheMutate(row, () -> tracedFuture(() -> RawAsyncTableImpl.this
         .<Boolean> newCaller(row, mutations.getMaxPriority(), rpcTimeoutNs)
         .action((controller, loc, stub) -> RawAsyncTableImpl.this.mutateRow(controller, loc, stub,
           mutations,
           (rn, rm) -> RequestConverter.buildMultiRequest(rn, row, family, qualifier, op, value,
             null, timeRange, rm, HConstants.NO_NONCE, HConstants.NO_NONCE),
           CheckAndMutateResult::isSuccess))
-        .call(), supplier);
+        .call(), supplier));
     }
   }
 
@@ -423,14 +494,14 @@ class RawAsyncTableImpl implements AsyncTable<AdvancedScanResultConsumer> {
       final Supplier<Span> supplier = newTableOperationSpanBuilder()
         .setOperation(HBaseSemanticAttributes.Operation.CHECK_AND_MUTATE)
         .setContainerOperations(put);
-      return tracedFuture(
+      return nearCacheMutate(row, () -> tracedFuture(
         () -> RawAsyncTableImpl.this.<Boolean> newCaller(row, put.getPriority(), rpcTimeoutNs)
           .action((controller, loc, stub) -> RawAsyncTableImpl.mutate(controller, loc, stub, put,
             (rn, p) -> RequestConverter.buildMutateRequest(rn, row, null, null, null, null, filter,
               timeRange, p, HConstants.NO_NONCE, HConstants.NO_NONCE),
             (c, r) -> r.getProcessed()))
           .call(),
-        supplier);
+        supplier));
     }
 
     @Override
@@ -438,14 +509,14 @@ class RawAsyncTableImpl implements AsyncTable<AdvancedScanResultConsumer> {
       final Supplier<Span> supplier = newTableOperationSpanBuilder()
         .setOperation(HBaseSemanticAttributes.Operation.CHECK_AND_MUTATE)
         .setContainerOperations(delete);
-      return tracedFuture(
+      return nearCacheMutate(row, () -> tracedFuture(
         () -> RawAsyncTableImpl.this.<Boolean> newCaller(row, delete.getPriority(), rpcTimeoutNs)
           .action((controller, loc, stub) -> RawAsyncTableImpl.mutate(controller, loc, stub, delete,
             (rn, d) -> RequestConverter.buildMutateRequest(rn, row, null, null, null, null, filter,
               timeRange, d, HConstants.NO_NONCE, HConstants.NO_NONCE),
             (c, r) -> r.getProcessed()))
           .call(),
-        supplier);
+        supplier));
     }
 
     @Override
@@ -454,14 +525,14 @@ class RawAsyncTableImpl implements AsyncTable<AdvancedScanResultConsumer> {
       final Supplier<Span> supplier = newTableOperationSpanBuilder()
         .setOperation(HBaseSemanticAttributes.Operation.CHECK_AND_MUTATE)
         .setContainerOperations(mutations);
-      return tracedFuture(() -> RawAsyncTableImpl.this
+      return nearCacheMutate(row, () -> tracedFuture(() -> RawAsyncTableImpl.this
         .<Boolean> newCaller(row, mutations.getMaxPriority(), rpcTimeoutNs)
         .action((controller, loc, stub) -> RawAsyncTableImpl.this.mutateRow(controller, loc, stub,
           mutations,
           (rn, rm) -> RequestConverter.buildMultiRequest(rn, row, null, null, null, null, filter,
             timeRange, rm, HConstants.NO_NONCE, HConstants.NO_NONCE),
           CheckAndMutateResult::isSuccess))
-        .call(), supplier);
+        .call(), supplier));
     }
   }
 
@@ -474,7 +545,7 @@ class RawAsyncTableImpl implements AsyncTable<AdvancedScanResultConsumer> {
   public CompletableFuture<CheckAndMutateResult> checkAndMutate(CheckAndMutate checkAndMutate) {
     final Supplier<Span> supplier = newTableOperationSpanBuilder().setOperation(checkAndMutate)
       .setContainerOperations(checkAndMutate.getAction());
-    return tracedFuture(() -> {
+    return nearCacheMutate(checkAndMutate.getRow(), () -> tracedFuture(() -> {
       if (
         checkAndMutate.getAction() instanceof Put || checkAndMutate.getAction() instanceof Delete
           || checkAndMutate.getAction() instanceof Increment
@@ -519,7 +590,7 @@ class RawAsyncTableImpl implements AsyncTable<AdvancedScanResultConsumer> {
           "CheckAndMutate doesn't support " + checkAndMutate.getAction().getClass().getName()));
         return future;
       }
-    }, supplier);
+    }, supplier));
   }
 
   @Override
@@ -582,14 +653,14 @@ class RawAsyncTableImpl implements AsyncTable<AdvancedScanResultConsumer> {
     long nonce = conn.getNonceGenerator().newNonce();
     final Supplier<Span> supplier =
       newTableOperationSpanBuilder().setOperation(mutations).setContainerOperations(mutations);
-    return tracedFuture(
+    return nearCacheMutate(mutations.getRow(), () -> tracedFuture(
       () -> this
         .<Result> newCaller(mutations.getRow(), mutations.getMaxPriority(), writeRpcTimeoutNs)
         .action((controller, loc, stub) -> this.<Result, Result> mutateRow(controller, loc, stub,
           mutations, (rn, rm) -> RequestConverter.buildMultiRequest(rn, rm, nonceGroup, nonce),
           resp -> resp))
         .call(),
-      supplier);
+      supplier));
   }
 
   private Scan setDefaultScanConfig(Scan scan) {
@@ -627,6 +698,16 @@ class RawAsyncTableImpl implements AsyncTable<AdvancedScanResultConsumer> {
     return scanner;
   }
 
+  @Override
+  public ResultScanner getParallelScanner(Scan scan, int parallelism, boolean ordered) {
+    Preconditions.checkArgument(parallelism > 0, "parallelism must be positive");
+    final long maxCacheSize = resultSize2CacheSize(
+      scan.getMaxResultSize() > 0 ? scan.getMaxResultSize() : defaultScannerMaxResultSize);
+    final Scan scanCopy = ReflectionUtils.newInstance(scan.getClass(), scan);
+    return new ParallelScanResultScanner(this, scanCopy,
+      conn.getRegionLocator(tableName).getStartKeys(), parallelism, ordered, maxCacheSize);
+  }
+
   @Override
   public CompletableFuture<List<Result>> scanAll(Scan scan) {
     CompletableFuture<List<Result>> future = new CompletableFuture<>();
@@ -700,11 +781,13 @@ class RawAsyncTableImpl implements AsyncTable<AdvancedScanResultConsumer> {
         validatePutsInRowMutations((RowMutations) action, conn.connConf.getMaxKeyValueSize());
       }
     }
-    return conn.callerFactory.batch().table(tableName).actions(actions)
-      .operationTimeout(operationTimeoutNs, TimeUnit.NANOSECONDS)
+    Supplier<List<CompletableFuture<T>>> caller = () -> conn.callerFactory.batch()
+      .table(tableName).actions(actions).operationTimeout(operationTimeoutNs, TimeUnit.NANOSECONDS)
       .rpcTimeout(rpcTimeoutNs, TimeUnit.NANOSECONDS).pause(pauseNs, TimeUnit.NANOSECONDS)
       .pauseForServerOverloaded(pauseNsForServerOverloaded, TimeUnit.NANOSECONDS)
       .maxAttempts(maxAttempts).startLogErrorsCnt(startLogErrorsCnt).call();
+    Optional<NearCache> nearCache = conn.getNearCache();
+    return nearCache.isPresent() ? nearCache.get().batch(tableName, actions, caller) : caller.get();
   }
 
   @Override
@@ -27,11 +27,20 @@ public class RegionLoadStats {
   int memstoreLoad;
   int heapOccupancy;
   int compactionPressure;
+  int rpcQueueTime;
+  int handlerSaturation;
 
   public RegionLoadStats(int memstoreLoad, int heapOccupancy, int compactionPressure) {
+    this(memstoreLoad, heapOccupancy, compactionPressure, 0, 0);
+  }
+
+  public RegionLoadStats(int memstoreLoad, int heapOccupancy, int compactionPressure,
+    int rpcQueueTime, int handlerSaturation) {
     this.memstoreLoad = memstoreLoad;
     this.heapOccupancy = heapOccupancy;
     this.compactionPressure = compactionPressure;
+    this.rpcQueueTime = rpcQueueTime;
+    this.handlerSaturation = handlerSaturation;
   }
 
   public int getMemStoreLoad() {
@@ -45,4 +54,18 @@ public class RegionLoadStats {
   public int getCompactionPressure() {
     return this.compactionPressure;
   }
+
+  /**
+   * Returns the average time the calls spent in the RPC call queue of the server, in milliseconds.
+   */
+  public int getRpcQueueTime() {
+    return this.rpcQueueTime;
+  }
+
+  /**
+   * Returns the percent of the RPC handlers of the server which are serving calls.
+   */
+  public int getHandlerSaturation() {
+    return this.handlerSaturation;
+  }
 }
@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.client;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.DoNotRetryIOException;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.ipc.RawCellBlockScanner;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.apache.yetus.audience.InterfaceStability;
+
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.ScanResponse;
+
+/**
+ * A cursor over the cells of one scan response, read in place from the cell block the response was
+ * received in. It is the {@link AdvancedScanCellConsumer} counterpart of the {@link Result} array
+ * passed to {@link AdvancedScanResultConsumer#onNext}, without creating a Result, a Cell array and
+ * a copy of every cell.
+ * <p>
+ * The cells are grouped the same way as the Results would be, use {@link #advanceResult()} to move
+ * to the next group and {@link #advance()} to move to the next cell of the current group:
+ *
+ * <pre>
+ * while (cursor.advanceResult()) {
+ *   while (cursor.advance()) {
+ *     Cell cell = cursor.current();
+ *     // read the row, family, qualifier and value by offset and length
+ *   }
+ * }
+ * </pre>
+ *
+ * The same {@link Cell} instance is returned for every cell and it is only valid until the next
+ * call to {@link #advance()}. The cursor itself is only valid within the onNext call it has been
+ * passed to. Copy the cells, for example with {@link org.apache.hadoop.hbase.CellUtil#cloneValue},
+ * if they are needed afterwards.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public final class ScanCellCursor {
+
+  /**
+   * A KeyValue which is moved over the cell block instead of being created for each cell.
+   */
+  private static final class CursorCell extends KeyValue {
+
+    void reset(byte[] bytes, int offset, int length) {
+      this.bytes = bytes;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+  private final byte[] cellBlock;
+
+  private final int start;
+
+  // the size of the cells of the response in the cell block, including the length prefixes
+  private final int size;
+
+  private final ScanResponse response;
+
+  private final CursorCell cell = new CursorCell();
+
+  // the position of the next cell in the cell block
+  private int pos;
+
+  private int resultIndex;
+
+  // the number of cells of the current result which have not been read yet
+  private int cellsLeft;
+
+  // the number of cells at the beginning which have already been returned to the user
+  private int cellsToSkip;
+
+  private ScanCellCursor(byte[] cellBlock, int start, int size, ScanResponse response) {
+    this.cellBlock = cellBlock;
+    this.start = start;
+    this.size = size;
+    this.response = response;
+    reset();
+  }
+
+  /**
+   * Create a cursor over the cells of the given response. Checks up front that the cell block holds
+   * all the cells the response announces, so moving the cursor never fails later.
+   */
+  static ScanCellCursor create(RawCellBlockScanner scanner, ScanResponse response)
+    throws DoNotRetryIOException {
+    byte[] cellBlock = scanner.getCellBlock();
+    int end = scanner.getOffset() + scanner.getLength();
+    int expected = 0;
+    for (int i = 0; i < response.getCellsPerResultCount(); i++) {
+      expected += response.getCellsPerResult(i);
+    }
+    int pos = scanner.getOffset();
+    for (int i = 0; i < expected; i++) {
+      if (pos + Bytes.SIZEOF_INT > end) {
+        throw new DoNotRetryIOException("Results sent from server contain " + expected
+          + " cells. But only got " + i + " cells at client. Resetting the scanner to scan again.");
+      }
+      int length = Bytes.toInt(cellBlock, pos);
+      pos += Bytes.SIZEOF_INT;
+      if (length <= 0 || length > end - pos) {
+        throw new DoNotRetryIOException("Corrupted cell block, cell " + i + " has length "
+          + length + ". Resetting the scanner to scan again.");
+      }
+      pos += length;
+    }
+    return new ScanCellCursor(cellBlock, scanner.getOffset(), pos - scanner.getOffset(), response);
+  }
+
+  /**
+   * Move the cursor back before the first cell.
+   */
+  void reset() {
+    pos = start;
+    resultIndex = -1;
+    cellsLeft = 0;
+    cellsToSkip = 0;
+  }
+
+  /**
+   * Skip the given number of cells from the beginning, results with no cells left are skipped
+   * entirely. Must be called right after {@link #reset()}.
+   */
+  void skip(int cellsToSkip) {
+    this.cellsToSkip = cellsToSkip;
+  }
+
+  private void skipCell() {
+    pos += Bytes.SIZEOF_INT + Bytes.toInt(cellBlock, pos);
+    cellsLeft--;
+  }
+
+  /**
+   * Returns the serialized size of all the cells, the same as estimated for the cells of Results.
+   */
+  long getSerializedSize() {
+    return size;
+  }
+
+  /**
+   * Returns the number of results, i.e, groups of cells, in the response.
+   */
+  int getResultCount() {
+    return response.getCellsPerResultCount();
+  }
+
+  /**
+   * Move to the next result, skipping the cells of the current result which have not been read.
+   * @return {@code false} if there are no more results
+   */
+  public boolean advanceResult() {
+    while (cellsLeft > 0) {
+      skipCell();
+    }
+    while (++resultIndex < response.getCellsPerResultCount()) {
+      cellsLeft = response.getCellsPerResult(resultIndex);
+      for (; cellsToSkip > 0 && cellsLeft > 0; cellsToSkip--) {
+        skipCell();
+      }
+      if (cellsLeft > 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Move to the next cell of the current result.
+   * @return {@code false} if there are no more cells in the current result
+   */
+  public boolean advance() {
+    if (cellsLeft == 0) {
+      return false;
+    }
+    int length = Bytes.toInt(cellBlock, pos);
+    cell.reset(cellBlock, pos + Bytes.SIZEOF_INT, length);
+    pos += Bytes.SIZEOF_INT + length;
+    cellsLeft--;
+    return true;
+  }
+
+  /**
+   * Returns the cell the cursor is positioned at. The returned instance is reused for every cell.
+   */
+  public Cell current() {
+    return cell;
+  }
+
+  /**
+   * Whether the current result is a partial row, same as {@link Result#mayHaveMoreCellsInRow()}.
+   */
+  public boolean mayHaveMoreCellsInRow() {
+    return response.getPartialFlagPerResultCount() > resultIndex
+      && response.getPartialFlagPerResult(resultIndex);
+  }
+
+  /**
+   * Whether the results come from a secondary replica, same as {@link Result#isStale()}.
+   */
+  public boolean isStale() {
+    return response.getStale();
+  }
+}
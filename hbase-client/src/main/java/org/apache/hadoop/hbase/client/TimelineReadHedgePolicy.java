@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.client;
+
+import static org.apache.hadoop.hbase.util.ConcurrentMapUtils.computeIfAbsent;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * Decides when a timeline consistent read sends hedged requests to the secondary replicas.
+ * <p>
+ * Without this policy the secondary replicas are only queried after the fixed primary call
+ * timeout. With it the client tracks the latency of the primary requests per region server and
+ * hedges once a request takes longer than the configured percentile of the recent requests to the
+ * same server, which is usually much earlier than the fixed timeout when a server stalls, for
+ * example during a GC pause. The early hedges are limited to a configured percentage of the
+ * primary requests, when the budget is used up the fixed timeout applies again.
+ */
+@InterfaceAudience.Private
+class TimelineReadHedgePolicy {
+
+  /** Whether to derive the hedge delay of timeline consistent reads from the observed latency. */
+  static final String ADAPTIVE_HEDGE_ENABLED_KEY = "hbase.client.timeline.hedge.adaptive.enabled";
+
+  static final boolean DEFAULT_ADAPTIVE_HEDGE_ENABLED = false;
+
+  /** The latency percentile of the primary requests after which we hedge. */
+  static final String HEDGE_PERCENTILE_KEY = "hbase.client.timeline.hedge.percentile";
+
+  static final double DEFAULT_HEDGE_PERCENTILE = 95;
+
+  /** The maximum number of early hedged requests, as a percentage of the primary requests. */
+  static final String HEDGE_BUDGET_PERCENT_KEY = "hbase.client.timeline.hedge.budget.percent";
+
+  static final double DEFAULT_HEDGE_BUDGET_PERCENT = 10;
+
+  // the number of recent requests per server the percentile is calculated from
+  static final int WINDOW_SIZE = 128;
+
+  // do not hedge early before we have seen this many requests to the server
+  static final int MIN_SAMPLES = 32;
+
+  // recalculate the percentile every this many requests
+  private static final int RECALCULATE_INTERVAL = 16;
+
+  // the maximum number of early hedges we can save up
+  private static final double MAX_BUDGET = 10;
+
+  // forget the latency of a server we have not sent requests to for this long, usually because it
+  // is dead or does not host the primary replicas we read any more
+  static final long SERVER_EXPIRY_MS = TimeUnit.MINUTES.toMillis(10);
+
+  /**
+   * The latency of the recent primary requests to one region server.
+   */
+  private final class ServerLatency {
+
+    private final long[] samples = new long[WINDOW_SIZE];
+
+    private long count;
+
+    private long percentileNs = -1;
+
+    private volatile long lastUpdateMs;
+
+    synchronized void add(long latencyNs, long nowMs) {
+      lastUpdateMs = nowMs;
+      samples[(int) (count % WINDOW_SIZE)] = latencyNs;
+      count++;
+      if (count >= MIN_SAMPLES && count % RECALCULATE_INTERVAL == 0) {
+        int n = (int) Math.min(count, WINDOW_SIZE);
+        long[] sorted = Arrays.copyOf(samples, n);
+        Arrays.sort(sorted);
+        percentileNs = sorted[Math.min(n - 1, (int) Math.ceil(n * percentile / 100) - 1)];
+      }
+    }
+
+    synchronized long getPercentileNs() {
+      return percentileNs;
+    }
+  }
+
+  private final ConcurrentHashMap<ServerName, ServerLatency> latencies = new ConcurrentHashMap<>();
+
+  private final double percentile;
+
+  private final double budgetPerRequest;
+
+  private volatile long lastExpiryCheckMs = EnvironmentEdgeManager.currentTime();
+
+  // guarded by this
+  private double budget;
+
+  TimelineReadHedgePolicy(double percentile, double budgetPercent) {
+    this.percentile = Math.max(1, Math.min(100, percentile));
+    this.budgetPerRequest = Math.max(0, budgetPercent) / 100;
+  }
+
+  /**
+   * Returns the delay after which the secondary replicas should be queried if the primary replica,
+   * hosted on the given server, has not answered yet. This is never longer than the given fixed
+   * primary call timeout.
+   */
+  long getHedgeDelayNs(ServerName primary, long primaryCallTimeoutNs) {
+    synchronized (this) {
+      budget = Math.min(MAX_BUDGET, budget + budgetPerRequest);
+    }
+    ServerLatency latency = primary != null ? latencies.get(primary) : null;
+    if (latency == null) {
+      return primaryCallTimeoutNs;
+    }
+    long percentileNs = latency.getPercentileNs();
+    return percentileNs >= 0 ? Math.min(percentileNs, primaryCallTimeoutNs) : primaryCallTimeoutNs;
+  }
+
+  /**
+   * Take one early hedge from the budget. If this returns {@code false} the caller should wait
+   * for the fixed primary call timeout before hedging.
+   */
+  synchronized boolean tryAcquireHedge() {
+    if (budget < 1) {
+      return false;
+    }
+    budget -= 1;
+    return true;
+  }
+
+  /**
+   * Record the latency of a request to the primary replica on the given server. For a request which
+   * was cancelled because a secondary replica answered first this is the time until the
+   * cancellation, a lower bound of the real latency.
+   */
+  void recordPrimaryLatency(ServerName primary, long latencyNs) {
+    long nowMs = EnvironmentEdgeManager.currentTime();
+    computeIfAbsent(latencies, primary, ServerLatency::new).add(latencyNs, nowMs);
+    if (nowMs - lastExpiryCheckMs >= SERVER_EXPIRY_MS) {
+      lastExpiryCheckMs = nowMs;
+      latencies.values().removeIf(l -> nowMs - l.lastUpdateMs >= SERVER_EXPIRY_MS);
+    }
+  }
+
+  static TimelineReadHedgePolicy create(Configuration conf) {
+    if (!conf.getBoolean(ADAPTIVE_HEDGE_ENABLED_KEY, DEFAULT_ADAPTIVE_HEDGE_ENABLED)) {
+      return null;
+    }
+    return new TimelineReadHedgePolicy(
+      conf.getDouble(HEDGE_PERCENTILE_KEY, DEFAULT_HEDGE_PERCENTILE),
+      conf.getDouble(HEDGE_BUDGET_PERCENT_KEY, DEFAULT_HEDGE_BUDGET_PERCENT));
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.client.backoff;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * A backoff policy which reacts to the RPC congestion of the servers, i.e, the average time the
+ * calls spent in the call queue and the percent of busy handlers, which the servers report with
+ * the region load statistics.
+ * <p>
+ * The backoff time for each server is driven by an AIMD controller, like the congestion window of
+ * TCP. While the server is congested, i.e, either signal is above its target, the backoff time is
+ * doubled at most once per {@link #INTERVAL_KEY}, up to {@link #MAX_BACKOFF_KEY}. Otherwise it is
+ * decreased by {@link #STEP_KEY} per interval. So the request rate is cut quickly when the call
+ * queue builds up, before the server starts rejecting calls with a ServerTooBusyException or a
+ * CallQueueTooBigException, and probes back slowly once it has drained.
+ */
+@InterfaceAudience.Public
+public class AimdClientBackoffPolicy implements ClientBackoffPolicy {
+
+  /** The maximum backoff time, in milliseconds. */
+  public static final String MAX_BACKOFF_KEY = "hbase.client.aimd-backoff.max";
+
+  public static final long DEFAULT_MAX_BACKOFF = 10000;
+
+  /** The additive decrease, and the initial backoff time when congested, in milliseconds. */
+  public static final String STEP_KEY = "hbase.client.aimd-backoff.step";
+
+  public static final long DEFAULT_STEP = 10;
+
+  /** The minimum time between two changes of the backoff time of a server, in milliseconds. */
+  public static final String INTERVAL_KEY = "hbase.client.aimd-backoff.interval";
+
+  public static final long DEFAULT_INTERVAL = 100;
+
+  /** The average call queue time above which a server is congested, in milliseconds. */
+  public static final String QUEUE_TIME_TARGET_KEY = "hbase.client.aimd-backoff.queue-time.target";
+
+  public static final int DEFAULT_QUEUE_TIME_TARGET = 50;
+
+  /** The percent of busy handlers above which a server is congested. */
+  public static final String HANDLER_SATURATION_TARGET_KEY =
+    "hbase.client.aimd-backoff.handler-saturation.target";
+
+  public static final int DEFAULT_HANDLER_SATURATION_TARGET = 90;
+
+  private final long maxBackoff;
+
+  private final long step;
+
+  private final long interval;
+
+  private final int queueTimeTarget;
+
+  private final int handlerSaturationTarget;
+
+  private final ConcurrentMap<ServerName, ServerBackoff> backoffs = new ConcurrentHashMap<>();
+
+  private final class ServerBackoff {
+
+    private long backoff;
+
+    private long lastUpdate;
+
+    synchronized long update(boolean congested) {
+      long now = EnvironmentEdgeManager.currentTime();
+      if (now - lastUpdate < interval) {
+        return backoff;
+      }
+      if (congested) {
+        backoff = Math.min(maxBackoff, Math.max(step, backoff * 2));
+      } else {
+        backoff = Math.max(0, backoff - step);
+      }
+      lastUpdate = now;
+      return backoff;
+    }
+  }
+
+  public AimdClientBackoffPolicy(Configuration conf) {
+    this.maxBackoff = conf.getLong(MAX_BACKOFF_KEY, DEFAULT_MAX_BACKOFF);
+    this.step = conf.getLong(STEP_KEY, DEFAULT_STEP);
+    this.interval = conf.getLong(INTERVAL_KEY, DEFAULT_INTERVAL);
+    this.queueTimeTarget = conf.getInt(QUEUE_TIME_TARGET_KEY, DEFAULT_QUEUE_TIME_TARGET);
+    this.handlerSaturationTarget =
+      conf.getInt(HANDLER_SATURATION_TARGET_KEY, DEFAULT_HANDLER_SATURATION_TARGET);
+  }
+
+  @Override
+  public long getBackoffTime(ServerName serverName, byte[] region, ServerStatistics stats) {
+    // no stats for the server yet, so don't backoff
+    if (stats == null) {
+      return 0;
+    }
+    ServerStatistics.RegionStatistics regionStats = stats.getStatsForRegion(region);
+    // no stats for the region yet - don't backoff
+    if (regionStats == null) {
+      return 0;
+    }
+    // The signals are the same for all the regions of the server, so control the server
+    boolean congested = regionStats.getRpcQueueTime() > queueTimeTarget
+      || regionStats.getHandlerSaturationPercent() > handlerSaturationTarget;
+    ServerBackoff backoff = backoffs.get(serverName);
+    if (backoff == null) {
+      if (!congested) {
+        return 0;
+      }
+      backoff = backoffs.computeIfAbsent(serverName, k -> new ServerBackoff());
+    }
+    return backoff.update(congested);
+  }
+}
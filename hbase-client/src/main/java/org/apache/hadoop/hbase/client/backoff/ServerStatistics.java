@@ -54,11 +54,15 @@ public class ServerStatistics {
     private int memstoreLoad = 0;
     private int heapOccupancy = 0;
     private int compactionPressure = 0;
+    private int rpcQueueTime = 0;
+    private int handlerSaturation = 0;
 
     public void update(RegionLoadStats currentStats) {
       this.memstoreLoad = currentStats.getMemStoreLoad();
       this.heapOccupancy = currentStats.getHeapOccupancy();
       this.compactionPressure = currentStats.getCompactionPressure();
+      this.rpcQueueTime = currentStats.getRpcQueueTime();
+      this.handlerSaturation = currentStats.getHandlerSaturation();
     }
 
     public int getMemStoreLoadPercent() {
@@ -73,5 +77,13 @@ public class ServerStatistics {
       return compactionPressure;
     }
 
+    public int getRpcQueueTime() {
+      return rpcQueueTime;
+    }
+
+    public int getHandlerSaturationPercent() {
+      return handlerSaturation;
+    }
+
   }
 }
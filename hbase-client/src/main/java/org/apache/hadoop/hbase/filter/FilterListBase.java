@@ -20,6 +20,7 @@ package org.apache.hadoop.hbase.filter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.BinaryOperator;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.CellComparator;
 import org.apache.yetus.audience.InterfaceAudience;
@@ -53,6 +54,45 @@ public abstract class FilterListBase extends FilterBase {
     return false;
   }
 
+  protected static boolean isIncludeReturnCode(ReturnCode rc) {
+    return rc == ReturnCode.INCLUDE || rc == ReturnCode.INCLUDE_AND_NEXT_COL
+      || rc == ReturnCode.INCLUDE_AND_SEEK_NEXT_ROW;
+  }
+
+  /**
+   * Evaluate the given merge rule for every pair of return codes up front, so merging the return
+   * codes of the sub-filters for every cell is an array lookup instead of a chain of comparisons.
+   * The pairs the rule rejects are left {@code null}.
+   * <p>
+   * Only the merge is precomputed. The sub-filters are still called one by one for every cell, in
+   * the tree they were built in, nested lists are not flattened and no filter is inlined.
+   * @see #mergeReturnCode(ReturnCode[][], ReturnCode, ReturnCode)
+   */
+  protected static ReturnCode[][] createMergeTable(BinaryOperator<ReturnCode> mergeRule) {
+    ReturnCode[] codes = ReturnCode.values();
+    ReturnCode[][] table = new ReturnCode[codes.length][codes.length];
+    for (ReturnCode rc : codes) {
+      for (ReturnCode localRC : codes) {
+        try {
+          table[rc.ordinal()][localRC.ordinal()] = mergeRule.apply(rc, localRC);
+        } catch (IllegalStateException e) {
+          // not a valid combination
+        }
+      }
+    }
+    return table;
+  }
+
+  protected static ReturnCode mergeReturnCode(ReturnCode[][] table, ReturnCode rc,
+    ReturnCode localRC) {
+    ReturnCode merged = table[rc.ordinal()][localRC.ordinal()];
+    if (merged == null) {
+      throw new IllegalStateException(
+        "Received code is not valid. rc: " + rc + ", localRC: " + localRC);
+    }
+    return merged;
+  }
+
   protected static boolean checkAndGetReversed(List<Filter> rowFilters, boolean defaultValue) {
     if (rowFilters.isEmpty()) {
       return defaultValue;
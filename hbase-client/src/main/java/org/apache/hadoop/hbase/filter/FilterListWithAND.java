@@ -32,6 +32,9 @@ import org.apache.yetus.audience.InterfaceAudience;
 @InterfaceAudience.Private
 public class FilterListWithAND extends FilterListBase {
 
+  private static final ReturnCode[][] MERGE_TABLE =
+    createMergeTable(FilterListWithAND::computeMergedReturnCode);
+
   private List<Filter> seekHintFilters = new ArrayList<>();
 
   public FilterListWithAND(List<Filter> filters) {
@@ -94,7 +97,11 @@ public class FilterListWithAND extends FilterListBase {
    * @return Return code which is merged by the return code of previous sub-filter(s) and the return
    *         code of current sub-filter.
    */
-  private ReturnCode mergeReturnCode(ReturnCode rc, ReturnCode localRC) {
+  static ReturnCode mergeReturnCode(ReturnCode rc, ReturnCode localRC) {
+    return mergeReturnCode(MERGE_TABLE, rc, localRC);
+  }
+
+  private static ReturnCode computeMergedReturnCode(ReturnCode rc, ReturnCode localRC) {
     if (rc == ReturnCode.SEEK_NEXT_USING_HINT) {
       return ReturnCode.SEEK_NEXT_USING_HINT;
     }
@@ -157,11 +164,6 @@ public class FilterListWithAND extends FilterListBase {
       "Received code is not valid. rc: " + rc + ", localRC: " + localRC);
   }
 
-  private boolean isIncludeRelatedReturnCode(ReturnCode rc) {
-    return isInReturnCodes(rc, ReturnCode.INCLUDE, ReturnCode.INCLUDE_AND_NEXT_COL,
-      ReturnCode.INCLUDE_AND_SEEK_NEXT_ROW);
-  }
-
   @Override
   public ReturnCode filterCell(Cell c) throws IOException {
     if (isEmpty()) {
@@ -183,7 +185,7 @@ public class FilterListWithAND extends FilterListBase {
       // Only when rc is INCLUDE* case, we should pass the cell to the following sub-filters.
       // otherwise we may mess up the global state (such as offset, count..) in the following
       // sub-filters. (HBASE-20565)
-      if (!isIncludeRelatedReturnCode(rc)) {
+      if (!isIncludeReturnCode(rc)) {
         return rc;
       }
     }
@@ -33,6 +33,9 @@ import org.apache.yetus.audience.InterfaceAudience;
 @InterfaceAudience.Private
 public class FilterListWithOR extends FilterListBase {
 
+  private static final ReturnCode[][] MERGE_TABLE =
+    createMergeTable(FilterListWithOR::computeMergedReturnCode);
+
   /**
    * Save previous return code and previous cell for every filter in filter list. For MUST_PASS_ONE,
    * we use the previous return code to decide whether we should pass current cell encountered to
@@ -152,8 +155,12 @@ public class FilterListWithOR extends FilterListBase {
    * @return Return code which is merged by the return code of previous sub-filter(s) and the return
    *         code of current sub-filter.
    */
-  private ReturnCode mergeReturnCode(ReturnCode rc, ReturnCode localRC) {
+  static ReturnCode mergeReturnCode(ReturnCode rc, ReturnCode localRC) {
     if (rc == null) return localRC;
+    return mergeReturnCode(MERGE_TABLE, rc, localRC);
+  }
+
+  private static ReturnCode computeMergedReturnCode(ReturnCode rc, ReturnCode localRC) {
     switch (localRC) {
       case INCLUDE:
         return ReturnCode.INCLUDE;
@@ -297,10 +304,7 @@ public class FilterListWithOR extends FilterListBase {
       rc = mergeReturnCode(rc, localRC);
 
       // For INCLUDE* case, we need to update the transformed cell.
-      if (
-        isInReturnCodes(localRC, ReturnCode.INCLUDE, ReturnCode.INCLUDE_AND_NEXT_COL,
-          ReturnCode.INCLUDE_AND_SEEK_NEXT_ROW)
-      ) {
+      if (isIncludeReturnCode(localRC)) {
         subFiltersIncludedCell.set(i, true);
       }
     }
@@ -20,6 +20,7 @@ package org.apache.hadoop.hbase.ipc;
 import static org.apache.hadoop.hbase.ipc.IPCUtil.toIOE;
 import static org.apache.hadoop.hbase.ipc.IPCUtil.wrapException;
 
+import com.google.errorprone.annotations.RestrictedApi;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.StatusCode;
 import io.opentelemetry.context.Scope;
@@ -31,6 +32,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.ServerName;
@@ -121,6 +123,7 @@ public abstract class AbstractRpcClient<T extends RpcConnection> implements RpcC
   protected final boolean tcpKeepAlive; // if T then use keepalives
   protected final Codec codec;
   protected final CompressionCodec compressor;
+  protected final CompressionCodec responseCompressor;
   protected final boolean fallbackAllowed;
 
   protected final FailedServers failedServers;
@@ -129,6 +132,10 @@ public abstract class AbstractRpcClient<T extends RpcConnection> implements RpcC
   protected final int readTO;
   protected final int writeTO;
 
+  // whether scans and large multi requests use their own connections, and what a large multi is
+  private final boolean bulkConnectionEnabled;
+  private final int bulkMultiActions;
+
   private final PoolMap<ConnectionId, T> connections;
 
   private final AtomicInteger callIdCnt = new AtomicInteger(0);
@@ -168,7 +175,8 @@ public abstract class AbstractRpcClient<T extends RpcConnection> implements RpcC
     this.minIdleTimeBeforeClose = conf.getInt(IDLE_TIME, 120000); // 2 minutes
     this.conf = conf;
     this.codec = getCodec();
-    this.compressor = getCompressor(conf);
+    this.compressor = getCompressor(conf, "hbase.client.rpc.compressor");
+    this.responseCompressor = getCompressor(conf, RESPONSE_COMPRESSOR_KEY);
     this.fallbackAllowed = conf.getBoolean(IPC_CLIENT_FALLBACK_TO_SIMPLE_AUTH_ALLOWED_KEY,
       IPC_CLIENT_FALLBACK_TO_SIMPLE_AUTH_ALLOWED_DEFAULT);
     this.failedServers = new FailedServers(conf);
@@ -180,7 +188,12 @@ public abstract class AbstractRpcClient<T extends RpcConnection> implements RpcC
       conf.getInt(HConstants.HBASE_CLIENT_PERSERVER_REQUESTS_THRESHOLD,
         HConstants.DEFAULT_HBASE_CLIENT_PERSERVER_REQUESTS_THRESHOLD);
 
-    this.connections = new PoolMap<>(getPoolType(conf), getPoolSize(conf));
+    this.bulkConnectionEnabled =
+      conf.getBoolean(BULK_CONNECTION_ENABLED_KEY, BULK_CONNECTION_ENABLED_DEFAULT);
+    this.bulkMultiActions = conf.getInt(BULK_MULTI_ACTIONS_KEY, BULK_MULTI_ACTIONS_DEFAULT);
+
+    this.connections =
+      new PoolMap<>(getPoolType(conf), getPoolSize(conf), RpcConnection::getOutstandingBytes);
 
     this.cleanupIdleConnectionTask = IDLE_CONN_SWEEPER.scheduleAtFixedRate(new Runnable() {
 
@@ -200,6 +213,18 @@ public abstract class AbstractRpcClient<T extends RpcConnection> implements RpcC
     }
   }
 
+  @RestrictedApi(explanation = "Should only be called in tests", link = "",
+      allowedOnPath = ".*/src/test/.*")
+  long getOutstandingBytes() {
+    long outstandingBytes = 0;
+    synchronized (connections) {
+      for (T conn : connections.values()) {
+        outstandingBytes += conn.getOutstandingBytes();
+      }
+    }
+    return outstandingBytes;
+  }
+
   private void cleanupIdleConnections() {
     long closeBeforeTime = EnvironmentEdgeManager.currentTime() - minIdleTimeBeforeClose;
     synchronized (connections) {
@@ -257,10 +282,11 @@ public abstract class AbstractRpcClient<T extends RpcConnection> implements RpcC
   /**
    * Encapsulate the ugly casting and RuntimeException conversion in private method.
    * @param conf configuration
+   * @param key  the configuration key of the compressor class
    * @return The compressor to use on this client.
    */
-  private static CompressionCodec getCompressor(final Configuration conf) {
-    String className = conf.get("hbase.client.rpc.compressor", null);
+  private static CompressionCodec getCompressor(final Configuration conf, final String key) {
+    String className = conf.get(key, null);
     if (className == null || className.isEmpty()) {
       return null;
     }
@@ -273,15 +299,17 @@ public abstract class AbstractRpcClient<T extends RpcConnection> implements RpcC
 
   /**
    * Return the pool type specified in the configuration, which must be set to either
-   * {@link org.apache.hadoop.hbase.util.PoolMap.PoolType#RoundRobin} or
+   * {@link org.apache.hadoop.hbase.util.PoolMap.PoolType#RoundRobin},
+   * {@link org.apache.hadoop.hbase.util.PoolMap.PoolType#LeastLoaded} or
    * {@link org.apache.hadoop.hbase.util.PoolMap.PoolType#ThreadLocal}, otherwise default to the
-   * former. For applications with many user threads, use a small round-robin pool. For applications
-   * with few user threads, you may want to try using a thread-local pool. In any case, the number
-   * of {@link org.apache.hadoop.hbase.ipc.RpcClient} instances should not exceed the operating
+   * first. For applications with many user threads, use a small round-robin pool, or a least-loaded
+   * pool, which sends each call over the connection with the fewest outstanding request and
+   * expected response bytes, if the calls are of very different sizes. For applications with few
+   * user threads, you may want to try using a thread-local pool. In any case, the number of
+   * {@link org.apache.hadoop.hbase.ipc.RpcClient} instances should not exceed the operating
    * system's hard limit on the number of connections.
    * @param config configuration
-   * @return either a {@link org.apache.hadoop.hbase.util.PoolMap.PoolType#RoundRobin} or
-   *         {@link org.apache.hadoop.hbase.util.PoolMap.PoolType#ThreadLocal}
+   * @return the pool type
    */
   private static PoolMap.PoolType getPoolType(Configuration config) {
     return PoolMap.PoolType.valueOf(config.get(HConstants.HBASE_CLIENT_IPC_POOL_TYPE),
@@ -290,7 +318,8 @@ public abstract class AbstractRpcClient<T extends RpcConnection> implements RpcC
 
   /**
    * Return the pool size specified in the configuration, which is applicable only if the pool type
-   * is {@link org.apache.hadoop.hbase.util.PoolMap.PoolType#RoundRobin}.
+   * is {@link org.apache.hadoop.hbase.util.PoolMap.PoolType#RoundRobin} or
+   * {@link org.apache.hadoop.hbase.util.PoolMap.PoolType#LeastLoaded}.
    * @param config configuration
    * @return the maximum pool size
    */
@@ -402,6 +431,7 @@ public abstract class AbstractRpcClient<T extends RpcConnection> implements RpcC
       final MetricsConnection.CallStats cs = MetricsConnection.newCallStats();
       cs.setStartTime(EnvironmentEdgeManager.currentTime());
 
+      boolean bulk = false;
       if (param instanceof ClientProtos.MultiRequest) {
         ClientProtos.MultiRequest req = (ClientProtos.MultiRequest) param;
         int numActions = 0;
@@ -410,8 +440,12 @@ public abstract class AbstractRpcClient<T extends RpcConnection> implements RpcC
         }
 
         cs.setNumActionsPerServer(numActions);
+        bulk = bulkConnectionEnabled && numActions >= bulkMultiActions;
+      } else if (param instanceof ClientProtos.ScanRequest) {
+        bulk = bulkConnectionEnabled;
       }
 
+      final AtomicReference<RpcConnection> sentOn = new AtomicReference<>();
       final AtomicInteger counter = concurrentCounterCache.getUnchecked(addr);
       Call call = new Call(nextCallId(), md, param, hrc.cellScanner(), returnType,
         hrc.getCallTimeout(), hrc.getPriority(), new RpcCallback<Call>() {
@@ -419,6 +453,10 @@ public abstract class AbstractRpcClient<T extends RpcConnection> implements RpcC
           public void run(Call call) {
             try (Scope scope = call.span.makeCurrent()) {
               counter.decrementAndGet();
+              RpcConnection connection = sentOn.get();
+              if (connection != null) {
+                connection.callCompleted(call);
+              }
               onCallFinished(call, hrc, addr, callback);
             } finally {
               if (hrc.failed()) {
@@ -430,7 +468,7 @@ public abstract class AbstractRpcClient<T extends RpcConnection> implements RpcC
             }
           }
         }, cs);
-      ConnectionId remoteId = new ConnectionId(ticket, md.getService().getName(), addr);
+      ConnectionId remoteId = new ConnectionId(ticket, md.getService().getName(), addr, bulk);
       int count = counter.incrementAndGet();
       try {
         if (count > maxConcurrentCallsPerServer) {
@@ -438,6 +476,9 @@ public abstract class AbstractRpcClient<T extends RpcConnection> implements RpcC
         }
         cs.setConcurrentCallsPerServer(count);
         T connection = getConnection(remoteId);
+        sentOn.set(connection);
+        // the cell block is added by the connection once it is built
+        connection.callSent(call, param != null ? param.getSerializedSize() : 0);
         connection.sendRequest(call, hrc);
       } catch (Exception e) {
         call.setException(toIOE(e));
@@ -26,6 +26,7 @@ import static org.apache.hadoop.hbase.ipc.IPCUtil.write;
 
 import io.opentelemetry.context.Scope;
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
@@ -49,6 +50,7 @@ import org.apache.hadoop.hbase.CellScanner;
 import org.apache.hadoop.hbase.DoNotRetryIOException;
 import org.apache.hadoop.hbase.exceptions.ConnectionClosingException;
 import org.apache.hadoop.hbase.io.ByteArrayOutputStream;
+import org.apache.hadoop.hbase.io.ByteBufferInputStream;
 import org.apache.hadoop.hbase.ipc.HBaseRpcController.CancellationCallback;
 import org.apache.hadoop.hbase.log.HBaseMarkers;
 import org.apache.hadoop.hbase.security.HBaseSaslRpcClient;
@@ -218,7 +220,7 @@ class BlockingRpcConnection extends RpcConnection implements Runnable {
   BlockingRpcConnection(BlockingRpcClient rpcClient, ConnectionId remoteId) throws IOException {
     super(rpcClient.conf, AbstractRpcClient.WHEEL_TIMER, remoteId, rpcClient.clusterId,
       rpcClient.userProvider.isHBaseSecurityEnabled(), rpcClient.codec, rpcClient.compressor,
-      rpcClient.metrics);
+      rpcClient.responseCompressor, rpcClient.metrics);
     this.rpcClient = rpcClient;
     this.connectionHeaderPreamble = getConnectionHeaderPreamble();
     ConnectionHeader header = getConnectionHeader();
@@ -602,6 +604,7 @@ class BlockingRpcConnection extends RpcConnection implements Runnable {
         call.cells, PooledByteBufAllocator.DEFAULT);
       CellBlockMeta cellBlockMeta;
       if (cellBlock != null) {
+        addOutstandingBytes(call, cellBlock.readableBytes());
         cellBlockMeta = CellBlockMeta.newBuilder().setLength(cellBlock.readableBytes()).build();
       } else {
         cellBlockMeta = null;
@@ -670,6 +673,7 @@ class BlockingRpcConnection extends RpcConnection implements Runnable {
         }
         return;
       }
+      responseReceived(totalSize);
       if (responseHeader.hasException()) {
         ExceptionResponse exceptionResponse = responseHeader.getException();
         RemoteException re = createRemoteException(exceptionResponse);
@@ -683,17 +687,27 @@ class BlockingRpcConnection extends RpcConnection implements Runnable {
           }
         }
       } else {
+        InputStream payloadIn = this.in;
+        if (responseHeader.hasUncompressedPayloadLength()) {
+          // The response message and the cell block were compressed together
+          int compressedSize = totalSize - getTotalSizeWhenWrittenDelimited(responseHeader);
+          byte[] compressed = new byte[compressedSize];
+          IOUtils.readFully(this.in, compressed, 0, compressed.length);
+          payloadIn = new ByteBufferInputStream(this.rpcClient.cellBlockBuilder.decompressPayload(
+            this.responseCompressor, new ByteArrayInputStream(compressed),
+            responseHeader.getUncompressedPayloadLength()));
+        }
         Message value = null;
         if (call.responseDefaultType != null) {
           Builder builder = call.responseDefaultType.newBuilderForType();
-          ProtobufUtil.mergeDelimitedFrom(builder, in);
+          ProtobufUtil.mergeDelimitedFrom(builder, payloadIn);
           value = builder.build();
         }
         CellScanner cellBlockScanner = null;
         if (responseHeader.hasCellBlockMeta()) {
           int size = responseHeader.getCellBlockMeta().getLength();
           byte[] cellBlock = new byte[size];
-          IOUtils.readFully(this.in, cellBlock, 0, cellBlock.length);
+          IOUtils.readFully(payloadIn, cellBlock, 0, cellBlock.length);
           cellBlockScanner = this.rpcClient.cellBlockBuilder.createCellScanner(this.codec,
             this.compressor, cellBlock);
         }
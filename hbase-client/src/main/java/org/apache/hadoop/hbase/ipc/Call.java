@@ -53,6 +53,8 @@ class Call {
       justification = "Direct access is only allowed after done")
   IOException error; // exception, null if value
   private boolean done; // true when call is done
+  // the bytes this call adds to the load of the connection it is sent over
+  private long outstandingBytes;
   final Descriptors.MethodDescriptor md;
   final int timeout; // timeout in millisecond for this call; 0 means infinite.
   final int priority;
@@ -150,6 +152,26 @@ class Call {
     return done;
   }
 
+  /**
+   * Add the given bytes to the load of this call, unless it is done already.
+   * @return whether the bytes were added, and so must be added to the load of the connection too
+   */
+  synchronized boolean addOutstandingBytes(long bytes) {
+    if (done) {
+      return false;
+    }
+    outstandingBytes += bytes;
+    return true;
+  }
+
+  /**
+   * Returns the bytes this call added to the load of its connection. Once the call is done no
+   * more bytes are added.
+   */
+  synchronized long getOutstandingBytes() {
+    return outstandingBytes;
+  }
+
   public long getStartTime() {
     return this.callStats.getStartTime();
   }
@@ -68,6 +68,16 @@ class CellBlockBuilder {
 
   private final int cellBlockBuildingInitialBufferSize;
 
+  /**
+   * The minimum size of a cell for its serialized form to be referenced by the stream built by
+   * {@link #buildCellBlockStream(Codec, CompressionCodec, CellScanner, ByteBuffAllocator)} instead
+   * of being copied, see {@link ByteBufferListOutputStream#writeByReference}. Zero or less disables
+   * the referencing.
+   */
+  static final String CELL_BLOCK_REFERENCE_MIN_SIZE_KEY = "hbase.ipc.cellblock.reference.min.size";
+
+  private final int cellBlockReferenceMinSize;
+
   public CellBlockBuilder(Configuration conf) {
     this.conf = conf;
     this.cellBlockDecompressionMultiplier =
@@ -77,6 +87,8 @@ class CellBlockBuilder {
     // #buildCellBlock.
     this.cellBlockBuildingInitialBufferSize =
       ClassSize.align(conf.getInt("hbase.ipc.cellblock.building.initial.buffersize", 16 * 1024));
+    int referenceMinSize = conf.getInt(CELL_BLOCK_REFERENCE_MIN_SIZE_KEY, 0);
+    this.cellBlockReferenceMinSize = referenceMinSize > 0 ? referenceMinSize : Integer.MAX_VALUE;
   }
 
   private interface OutputStreamSupplier {
@@ -207,7 +219,9 @@ class CellBlockBuilder {
    *         passed in <code>codec</code> and/or <code>compressor</code>; the returned buffer has
    *         been flipped and is ready for reading. Use limit to find total size. If
    *         <code>pool</code> was not null, then this returned ByteBuffer came from there and
-   *         should be returned to the pool when done.
+   *         should be returned to the pool when done. If
+   *         {@link ByteBufferListOutputStream#hasReferences()} the stream references the memory
+   *         of some of the cells, which then must stay valid until the stream has been consumed.
    * @throws IOException if encoding the cells fail
    */
   public ByteBufferListOutputStream buildCellBlockStream(Codec codec, CompressionCodec compressor,
@@ -218,7 +232,9 @@ class CellBlockBuilder {
     if (codec == null) {
       throw new CellScannerButNoCodecException();
     }
-    ByteBufferListOutputStream bbos = new ByteBufferListOutputStream(allocator);
+    // Referencing only works against the raw stream, not through a compressor.
+    ByteBufferListOutputStream bbos = new ByteBufferListOutputStream(allocator,
+      compressor == null ? cellBlockReferenceMinSize : Integer.MAX_VALUE);
     encodeCellsTo(bbos, cellScanner, codec, compressor);
     if (bbos.size() == 0) {
       bbos.releaseResources();
@@ -238,12 +254,20 @@ class CellBlockBuilder {
     // Use this method from Client side to create the CellScanner
     if (compressor != null) {
       ByteBuffer cellBlockBuf = decompress(compressor, cellBlock);
+      if (cellBlockBuf.hasArray() && RawCellBlockScanner.isRawReadable(codec)) {
+        return new RawCellBlockScanner(codec, cellBlockBuf.array(),
+          cellBlockBuf.arrayOffset() + cellBlockBuf.position(), cellBlockBuf.remaining());
+      }
       return codec.getDecoder(new ByteBufferInputStream(cellBlockBuf));
     }
     // Not making the Decoder over the ByteBuffer purposefully. The Decoder over the BB will
     // make Cells directly over the passed BB. This method is called at client side and we don't
     // want the Cells to share the same byte[] where the RPC response is being read. Caching of any
     // of the Cells at user's app level will make it not possible to GC the response byte[]
+    if (RawCellBlockScanner.isRawReadable(codec)) {
+      // Decodes the same way, but also lets the scan path read the cells in place
+      return new RawCellBlockScanner(codec, cellBlock, 0, cellBlock.length);
+    }
     return codec.getDecoder(new ByteArrayInputStream(cellBlock));
   }
 
@@ -266,6 +290,19 @@ class CellBlockBuilder {
     return codec.getDecoder(cellBlock);
   }
 
+  /**
+   * Decompress the payload of a response, i.e, its response message and cell block which the
+   * server compressed together.
+   * @param compressor        the response compressor of the connection
+   * @param compressedPayload the compressed payload, only the payload is read from it
+   * @param length            the length of the payload once decompressed
+   * @return a buffer with the response message, delimited, followed by the cell block
+   */
+  public ByteBuffer decompressPayload(CompressionCodec compressor, InputStream compressedPayload,
+    int length) throws IOException {
+    return decompress(compressor, compressedPayload, length);
+  }
+
   private ByteBuffer decompress(CompressionCodec compressor, byte[] compressedCellBlock)
     throws IOException {
     ByteBuffer cellBlock = decompress(compressor, new ByteArrayInputStream(compressedCellBlock),
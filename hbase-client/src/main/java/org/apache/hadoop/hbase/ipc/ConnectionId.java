@@ -24,7 +24,9 @@ import org.apache.yetus.audience.InterfaceAudience;
 
 /**
  * This class holds the address and the user ticket, etc. The client connections to servers are
- * uniquely identified by &lt;remoteAddress, ticket, serviceName&gt;
+ * uniquely identified by &lt;remoteAddress, ticket, serviceName, bulk&gt;, where bulk tells apart
+ * the connections reserved for scans and large multi requests, see
+ * {@link RpcClient#BULK_CONNECTION_ENABLED_KEY}.
  */
 @InterfaceAudience.Private
 class ConnectionId {
@@ -32,11 +34,17 @@ class ConnectionId {
   final User ticket;
   final String serviceName;
   final Address address;
+  final boolean bulk;
 
   public ConnectionId(User ticket, String serviceName, Address address) {
+    this(ticket, serviceName, address, false);
+  }
+
+  public ConnectionId(User ticket, String serviceName, Address address, boolean bulk) {
     this.address = address;
     this.ticket = ticket;
     this.serviceName = serviceName;
+    this.bulk = bulk;
   }
 
   public String getServiceName() {
@@ -51,9 +59,14 @@ class ConnectionId {
     return ticket;
   }
 
+  public boolean isBulk() {
+    return bulk;
+  }
+
   @Override
   public String toString() {
-    return this.address.toString() + "/" + this.serviceName + "/" + this.ticket;
+    return this.address.toString() + "/" + this.serviceName + "/" + this.ticket
+      + (bulk ? "/bulk" : "");
   }
 
   @Override
@@ -62,14 +75,14 @@ class ConnectionId {
       ConnectionId id = (ConnectionId) obj;
       return address.equals(id.address)
         && ((ticket != null && ticket.equals(id.ticket)) || (ticket == id.ticket))
-        && Objects.equals(this.serviceName, id.serviceName);
+        && Objects.equals(this.serviceName, id.serviceName) && bulk == id.bulk;
     }
     return false;
   }
 
   @Override // simply use the default Object#hashcode() ?
   public int hashCode() {
-    return hashCode(ticket, serviceName, address);
+    return hashCode(ticket, serviceName, address) + (bulk ? 1 : 0);
   }
 
   public static int hashCode(User ticket, String serviceName, Address address) {
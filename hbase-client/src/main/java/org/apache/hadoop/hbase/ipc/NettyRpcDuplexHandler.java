@@ -19,6 +19,7 @@ package org.apache.hadoop.hbase.ipc;
 
 import io.opentelemetry.context.Scope;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 import org.apache.hadoop.hbase.CellScanner;
@@ -36,6 +37,7 @@ import org.apache.hbase.thirdparty.com.google.protobuf.TextFormat;
 import org.apache.hbase.thirdparty.io.netty.buffer.ByteBuf;
 import org.apache.hbase.thirdparty.io.netty.buffer.ByteBufInputStream;
 import org.apache.hbase.thirdparty.io.netty.buffer.ByteBufOutputStream;
+import org.apache.hbase.thirdparty.io.netty.buffer.Unpooled;
 import org.apache.hbase.thirdparty.io.netty.channel.ChannelDuplexHandler;
 import org.apache.hbase.thirdparty.io.netty.channel.ChannelFuture;
 import org.apache.hbase.thirdparty.io.netty.channel.ChannelHandlerContext;
@@ -82,6 +84,7 @@ class NettyRpcDuplexHandler extends ChannelDuplexHandler {
     ByteBuf cellBlock = cellBlockBuilder.buildCellBlock(codec, compressor, call.cells, ctx.alloc());
     CellBlockMeta cellBlockMeta;
     if (cellBlock != null) {
+      conn.addOutstandingBytes(call, cellBlock.writerIndex());
       CellBlockMeta.Builder cellBlockMetaBuilder = CellBlockMeta.newBuilder();
       cellBlockMetaBuilder.setLength(cellBlock.writerIndex());
       cellBlockMeta = cellBlockMetaBuilder.build();
@@ -162,10 +165,20 @@ class NettyRpcDuplexHandler extends ChannelDuplexHandler {
       }
       return;
     }
+    conn.responseReceived(totalSize);
     if (remoteExc != null) {
       call.setException(remoteExc);
       return;
     }
+    if (responseHeader.hasUncompressedPayloadLength()) {
+      // The response message and the cell block were compressed together, read them from the
+      // decompressed payload
+      int compressedSize = totalSize - IPCUtil.getTotalSizeWhenWrittenDelimited(responseHeader);
+      ByteBuffer payload = cellBlockBuilder.decompressPayload(conn.responseCompressor,
+        new ByteBufInputStream(buf, compressedSize), responseHeader.getUncompressedPayloadLength());
+      buf = Unpooled.wrappedBuffer(payload);
+      in = new ByteBufInputStream(buf);
+    }
     Message value;
     if (call.responseDefaultType != null) {
       Builder builder = call.responseDefaultType.newBuilderForType();
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.ipc;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellScanner;
+import org.apache.hadoop.hbase.codec.Codec;
+import org.apache.hadoop.hbase.codec.KeyValueCodec;
+import org.apache.hadoop.hbase.codec.KeyValueCodecWithTags;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * A {@link CellScanner} over a client side cell block which has been written by a
+ * {@link KeyValueCodec} or a {@link KeyValueCodecWithTags}, i.e, a sequence of int length
+ * prefixed KeyValues.
+ * <p>
+ * It works exactly like the decoder of the codec, but it also gives access to the undecoded cell
+ * block, so the cells can be read in place without creating a KeyValue for each of them. Use
+ * either the raw cell block or the scanner methods, not both.
+ */
+@InterfaceAudience.Private
+public final class RawCellBlockScanner implements CellScanner {
+
+  private final Codec codec;
+
+  private final byte[] cellBlock;
+
+  private final int offset;
+
+  private final int length;
+
+  private CellScanner decoder;
+
+  public RawCellBlockScanner(Codec codec, byte[] cellBlock, int offset, int length) {
+    this.codec = codec;
+    this.cellBlock = cellBlock;
+    this.offset = offset;
+    this.length = length;
+  }
+
+  /**
+   * Whether the cell blocks written by the given codec can be read in place. Only the exact codec
+   * classes qualify, as a sub class may change the format.
+   */
+  static boolean isRawReadable(Codec codec) {
+    return codec.getClass() == KeyValueCodec.class
+      || codec.getClass() == KeyValueCodecWithTags.class;
+  }
+
+  public byte[] getCellBlock() {
+    return cellBlock;
+  }
+
+  public int getOffset() {
+    return offset;
+  }
+
+  public int getLength() {
+    return length;
+  }
+
+  private CellScanner decoder() {
+    if (decoder == null) {
+      decoder = codec.getDecoder(new ByteArrayInputStream(cellBlock, offset, length));
+    }
+    return decoder;
+  }
+
+  @Override
+  public Cell current() {
+    return decoder().current();
+  }
+
+  @Override
+  public boolean advance() throws IOException {
+    return decoder().advance();
+  }
+}
@@ -50,6 +50,23 @@ public interface RpcClient extends Closeable {
   int DEFAULT_SOCKET_TIMEOUT_READ = 20000; // 20 seconds
   int DEFAULT_SOCKET_TIMEOUT_WRITE = 60000; // 60 seconds
 
+  /**
+   * Whether scans and large multi requests use their own connections to a server, so their large
+   * requests and responses do not delay the small calls to the same server.
+   */
+  String BULK_CONNECTION_ENABLED_KEY = "hbase.ipc.client.bulk.connection.enabled";
+  boolean BULK_CONNECTION_ENABLED_DEFAULT = false;
+  /** The minimum number of actions of a multi request sent over the bulk connections. */
+  String BULK_MULTI_ACTIONS_KEY = "hbase.ipc.client.bulk.multi.actions";
+  int BULK_MULTI_ACTIONS_DEFAULT = 100;
+
+  /**
+   * The compression codec the servers should compress the large responses with, for example
+   * {@code org.apache.hadoop.hbase.io.compress.zstd.ZstdCodec}. Not set by default. Unlike
+   * hbase.client.rpc.compressor it also compresses the response messages, not only the cell blocks.
+   */
+  String RESPONSE_COMPRESSOR_KEY = "hbase.client.rpc.response.compressor";
+
   // Used by the server, for compatibility with old clients.
   // The client in 0.99+ does not ping the server.
   int PING_CALL_ID = -1;
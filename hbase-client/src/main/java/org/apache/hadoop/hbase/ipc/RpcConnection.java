@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.client.MetricsConnection;
@@ -69,6 +70,8 @@ abstract class RpcConnection {
 
   protected final CompressionCodec compressor;
 
+  protected final CompressionCodec responseCompressor;
+
   protected final MetricsConnection metrics;
 
   protected final HashedWheelTimer timeoutTimer;
@@ -82,14 +85,22 @@ abstract class RpcConnection {
   // the last time we were picked up from connection pool.
   protected long lastTouched;
 
+  // the size of the requests sent over this connection which have not completed yet, with the
+  // expected size of their responses.
+  private final AtomicLong outstandingBytes = new AtomicLong();
+
+  // moving average of the size of the responses received over this connection.
+  private volatile long avgResponseBytes;
+
   protected SaslClientAuthenticationProvider provider;
 
   protected RpcConnection(Configuration conf, HashedWheelTimer timeoutTimer, ConnectionId remoteId,
     String clusterId, boolean isSecurityEnabled, Codec codec, CompressionCodec compressor,
-    MetricsConnection metrics) throws IOException {
+    CompressionCodec responseCompressor, MetricsConnection metrics) throws IOException {
     this.timeoutTimer = timeoutTimer;
     this.codec = codec;
     this.compressor = compressor;
+    this.responseCompressor = responseCompressor;
     this.conf = conf;
     this.metrics = metrics;
     User ticket = remoteId.getTicket();
@@ -169,6 +180,9 @@ abstract class RpcConnection {
     if (this.compressor != null) {
       builder.setCellBlockCompressorClass(this.compressor.getClass().getCanonicalName());
     }
+    if (this.responseCompressor != null) {
+      builder.setResponseCompressorClass(this.responseCompressor.getClass().getCanonicalName());
+    }
     builder.setVersionInfo(ProtobufUtil.getVersionInfo());
     boolean isCryptoAESEnable = conf.getBoolean(CRYPTO_AES_ENABLED_KEY, CRYPTO_AES_ENABLED_DEFAULT);
     // if Crypto AES enable, setup Cipher transformation
@@ -208,6 +222,49 @@ abstract class RpcConnection {
     this.lastTouched = lastTouched;
   }
 
+  /**
+   * Returns the size of the requests sent over this connection which have not completed yet, with
+   * the expected size of their responses, used to pick the least loaded connection of the pool.
+   */
+  public long getOutstandingBytes() {
+    return outstandingBytes.get();
+  }
+
+  /**
+   * Add the given request bytes of the given call to the load of this connection, with the
+   * average response size of this connection as the expected size of its response.
+   */
+  void callSent(Call call, long requestBytes) {
+    addOutstandingBytes(call, requestBytes + avgResponseBytes);
+  }
+
+  /**
+   * Add the given bytes of the given call to the load of this connection, unless the call is done
+   * already. Used for the cell block, whose size is only known once it is built.
+   */
+  void addOutstandingBytes(Call call, long bytes) {
+    if (call.addOutstandingBytes(bytes)) {
+      outstandingBytes.addAndGet(bytes);
+    }
+  }
+
+  /**
+   * Remove the bytes of the given call from the load of this connection, once it is done.
+   */
+  void callCompleted(Call call) {
+    outstandingBytes.addAndGet(-call.getOutstandingBytes());
+  }
+
+  /**
+   * Record the size of a response received over this connection.
+   */
+  void responseReceived(long responseBytes) {
+    // not atomic, losing a concurrent update only makes the average a bit less accurate
+    long avg = avgResponseBytes;
+    // the first response seeds the average
+    avgResponseBytes = avg == 0 ? responseBytes : avg + ((responseBytes - avg) >> 3);
+  }
+
   /**
    * Tell the idle connection sweeper whether we could be swept.
    */
@@ -2951,7 +2951,7 @@ public final class ProtobufUtil {
 
   public static RegionLoadStats createRegionLoadStats(ClientProtos.RegionLoadStats stats) {
     return new RegionLoadStats(stats.getMemStoreLoad(), stats.getHeapOccupancy(),
-      stats.getCompactionPressure());
+      stats.getCompactionPressure(), stats.getRpcQueueTime(), stats.getHandlerSaturation());
   }
 
   /**
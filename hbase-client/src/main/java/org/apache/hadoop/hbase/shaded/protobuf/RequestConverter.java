@@ -193,6 +193,21 @@ public final class RequestConverter {
     return builder.build();
   }
 
+  /**
+   * Create a protocol buffer GetRequest for a Get which has already been converted, so a Get which
+   * is sent several times, on retries or to several replicas, is only converted once.
+   * @param regionName the name of the region to get
+   * @param get        the converted client Get
+   * @return a protocol buffer GetRequest
+   */
+  public static GetRequest buildGetRequest(final byte[] regionName, final ClientProtos.Get get) {
+    GetRequest.Builder builder = GetRequest.newBuilder();
+    RegionSpecifier region = buildRegionSpecifier(RegionSpecifierType.REGION_NAME, regionName);
+    builder.setRegion(region);
+    builder.setGet(get);
+    return builder.build();
+  }
+
   /**
    * Create a protocol buffer MutateRequest for a conditioned put/delete/increment/append
    * @return a mutate request n
@@ -328,6 +343,24 @@ public final class RequestConverter {
     return builder.build();
   }
 
+  /**
+   * Create a protocol buffer MutateRequest for a mutation whose cells are sent in the cell block
+   * instead of the protobuf message, the same way as the mutations of a multi request.
+   * @return a mutate request which only carries the metadata of the mutation
+   */
+  public static MutateRequest buildNoDataMutateRequest(final byte[] regionName,
+    final Mutation mutation, long nonceGroup, long nonce) throws IOException {
+    MutateRequest.Builder builder = MutateRequest.newBuilder();
+    RegionSpecifier region = buildRegionSpecifier(RegionSpecifierType.REGION_NAME, regionName);
+    builder.setRegion(region);
+    if (nonce != HConstants.NO_NONCE && nonceGroup != HConstants.NO_NONCE) {
+      builder.setNonceGroup(nonceGroup);
+    }
+    builder.setMutation(ProtobufUtil.toMutationNoData(getMutationType(mutation), mutation,
+      MutationProto.newBuilder(), nonce));
+    return builder.build();
+  }
+
   public static RegionAction.Builder getRegionActionBuilderWithRegion(
     final RegionAction.Builder regionActionBuilder, final byte[] regionName) {
     RegionSpecifier region = buildRegionSpecifier(RegionSpecifierType.REGION_NAME, regionName);
@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.ToLongFunction;
 import org.apache.yetus.audience.InterfaceAudience;
 
 /**
@@ -48,11 +49,22 @@ public class PoolMap<K, V> {
   private final Map<K, Pool<V>> pools;
   private final PoolType poolType;
   private final int poolMaxSize;
+  private final ToLongFunction<V> loadFunction;
 
   public PoolMap(PoolType poolType, int poolMaxSize) {
+    this(poolType, poolMaxSize, null);
+  }
+
+  /**
+   * @param loadFunction returns the current load of a resource, only used by
+   *                     {@link PoolType#LeastLoaded} pools, which fall back to
+   *                     {@link PoolType#RoundRobin} if it is {@code null}
+   */
+  public PoolMap(PoolType poolType, int poolMaxSize, ToLongFunction<V> loadFunction) {
     pools = new HashMap<>();
     this.poolType = poolType;
     this.poolMaxSize = poolMaxSize;
+    this.loadFunction = loadFunction;
   }
 
   public V getOrCreate(K key, PoolResourceSupplier<V> supplier) throws IOException {
@@ -142,7 +154,8 @@ public class PoolMap<K, V> {
 
   public enum PoolType {
     ThreadLocal,
-    RoundRobin;
+    RoundRobin,
+    LeastLoaded;
 
     public static PoolType valueOf(String poolTypeName, PoolType defaultPoolType) {
       PoolType poolType = PoolType.fuzzyMatch(poolTypeName);
@@ -169,6 +182,10 @@ public class PoolMap<K, V> {
         return new RoundRobinPool<>(poolMaxSize);
       case ThreadLocal:
         return new ThreadLocalPool<>();
+      case LeastLoaded:
+        return loadFunction != null
+          ? new LeastLoadedPool<>(poolMaxSize, loadFunction)
+          : new RoundRobinPool<>(poolMaxSize);
       default:
         return new RoundRobinPool<>(poolMaxSize);
     }
@@ -241,6 +258,71 @@ public class PoolMap<K, V> {
     }
   }
 
+  /**
+   * The <code>LeastLoadedPool</code> represents a {@link PoolMap.Pool}, which stores its resources
+   * in an {@link ArrayList}. It returns the resource with the lowest load, and only creates a new
+   * resource, up to {@link #maxSize}, if all the existing ones are loaded. Unlike the
+   * {@link RoundRobinPool}, one heavily loaded resource does not delay the requests which would
+   * otherwise have been assigned to it in turn.
+   * @param <R> the type of the resource
+   */
+  static class LeastLoadedPool<R> implements Pool<R> {
+    private final List<R> resources;
+    private final int maxSize;
+    private final ToLongFunction<R> loadFunction;
+
+    public LeastLoadedPool(int maxSize, ToLongFunction<R> loadFunction) {
+      if (maxSize <= 0) {
+        throw new IllegalArgumentException("maxSize must be positive");
+      }
+
+      resources = new ArrayList<>();
+      this.maxSize = maxSize;
+      this.loadFunction = loadFunction;
+    }
+
+    @Override
+    public R getOrCreate(PoolResourceSupplier<R> supplier) throws IOException {
+      R leastLoaded = null;
+      long minLoad = Long.MAX_VALUE;
+      for (R resource : resources) {
+        long load = loadFunction.applyAsLong(resource);
+        if (load < minLoad) {
+          leastLoaded = resource;
+          minLoad = load;
+        }
+      }
+
+      /* only grow the pool if there is no idle resource */
+      if (leastLoaded == null || (minLoad > 0 && resources.size() < maxSize)) {
+        leastLoaded = createResource(supplier);
+        resources.add(leastLoaded);
+      }
+
+      return leastLoaded;
+    }
+
+    @Override
+    public boolean remove(R resource) {
+      return resources.remove(resource);
+    }
+
+    @Override
+    public void clear() {
+      resources.clear();
+    }
+
+    @Override
+    public Collection<R> values() {
+      return resources;
+    }
+
+    @Override
+    public int size() {
+      return resources.size();
+    }
+  }
+
   /**
    * The <code>ThreadLocalPool</code> represents a {@link PoolMap.Pool} that works similarly to
    * {@link ThreadLocal} class. It essentially binds the resource to the thread from which it is
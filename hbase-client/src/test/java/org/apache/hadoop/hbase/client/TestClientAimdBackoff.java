@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.client;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.client.backoff.AimdClientBackoffPolicy;
+import org.apache.hadoop.hbase.client.backoff.ServerStatistics;
+import org.apache.hadoop.hbase.testclassification.ClientTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.hadoop.hbase.shaded.protobuf.ProtobufUtil;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos;
+
+@Category({ ClientTests.class, SmallTests.class })
+public class TestClientAimdBackoff {
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+    HBaseClassTestRule.forClass(TestClientAimdBackoff.class);
+
+  private final ServerName server = ServerName.valueOf("localhost", 16020, 1);
+
+  private final byte[] regionname = Bytes.toBytes("region");
+
+  private long now = 1000;
+
+  private AimdClientBackoffPolicy backoff;
+
+  @Before
+  public void setUp() {
+    EnvironmentEdgeManager.injectEdge(() -> now);
+    Configuration conf = new Configuration(false);
+    conf.setLong(AimdClientBackoffPolicy.MAX_BACKOFF_KEY, 100);
+    conf.setLong(AimdClientBackoffPolicy.STEP_KEY, 10);
+    conf.setLong(AimdClientBackoffPolicy.INTERVAL_KEY, 100);
+    backoff = new AimdClientBackoffPolicy(conf);
+  }
+
+  @After
+  public void tearDown() {
+    EnvironmentEdgeManager.reset();
+  }
+
+  private void update(ServerStatistics stats, int rpcQueueTime, int handlerSaturation) {
+    ClientProtos.RegionLoadStats stat = ClientProtos.RegionLoadStats.newBuilder()
+      .setRpcQueueTime(rpcQueueTime).setHandlerSaturation(handlerSaturation).build();
+    stats.update(regionname, ProtobufUtil.createRegionLoadStats(stat));
+  }
+
+  @Test
+  public void testNulls() {
+    assertEquals(0, backoff.getBackoffTime(null, null, null));
+    assertEquals(0, backoff.getBackoffTime(server, regionname, null));
+    assertEquals(0, backoff.getBackoffTime(server, regionname, new ServerStatistics()));
+  }
+
+  @Test
+  public void testNoCongestion() {
+    ServerStatistics stats = new ServerStatistics();
+    update(stats, AimdClientBackoffPolicy.DEFAULT_QUEUE_TIME_TARGET,
+      AimdClientBackoffPolicy.DEFAULT_HANDLER_SATURATION_TARGET);
+    assertEquals(0, backoff.getBackoffTime(server, regionname, stats));
+  }
+
+  @Test
+  public void testMultiplicativeIncreaseAdditiveDecrease() {
+    ServerStatistics stats = new ServerStatistics();
+    update(stats, 500, 0);
+    assertEquals(10, backoff.getBackoffTime(server, regionname, stats));
+    // at most one change per interval
+    now += 50;
+    assertEquals(10, backoff.getBackoffTime(server, regionname, stats));
+    now += 50;
+    assertEquals(20, backoff.getBackoffTime(server, regionname, stats));
+    // handler saturation alone is congestion too
+    update(stats, 0, 100);
+    now += 100;
+    assertEquals(40, backoff.getBackoffTime(server, regionname, stats));
+    now += 100;
+    assertEquals(80, backoff.getBackoffTime(server, regionname, stats));
+    now += 100;
+    assertEquals(100, backoff.getBackoffTime(server, regionname, stats));
+
+    update(stats, 0, 0);
+    now += 100;
+    assertEquals(90, backoff.getBackoffTime(server, regionname, stats));
+    now += 100;
+    assertEquals(80, backoff.getBackoffTime(server, regionname, stats));
+    for (int i = 0; i < 10; i++) {
+      now += 100;
+      backoff.getBackoffTime(server, regionname, stats);
+    }
+    assertEquals(0, backoff.getBackoffTime(server, regionname, stats));
+  }
+}
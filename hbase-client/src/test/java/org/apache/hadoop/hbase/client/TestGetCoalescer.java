@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.exceptions.TimeoutIOException;
+import org.apache.hadoop.hbase.ipc.CallTimeoutException;
+import org.apache.hadoop.hbase.testclassification.ClientTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.hbase.thirdparty.io.netty.util.Timeout;
+import org.apache.hbase.thirdparty.io.netty.util.Timer;
+import org.apache.hbase.thirdparty.io.netty.util.TimerTask;
+
+import org.apache.hadoop.hbase.shaded.protobuf.ProtobufUtil;
+
+@Category({ ClientTests.class, SmallTests.class })
+public class TestGetCoalescer {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+    HBaseClassTestRule.forClass(TestGetCoalescer.class);
+
+  private static final TableName TABLE = TableName.valueOf("test");
+
+  private static final byte[] ROW = Bytes.toBytes("row");
+
+  private static final byte[] FAMILY = Bytes.toBytes("cf");
+
+  private static final long OPERATION_TIMEOUT_NS = TimeUnit.SECONDS.toNanos(10);
+
+  private final Timer timer = mock(Timer.class);
+
+  private final Timeout timeout = mock(Timeout.class);
+
+  private final List<TimerTask> timerTasks = new ArrayList<>();
+
+  private final GetCoalescer coalescer = new GetCoalescer(timer);
+
+  private final AtomicInteger calls = new AtomicInteger();
+
+  @Before
+  public void setUp() {
+    when(timer.newTimeout(any(), anyLong(), any())).thenAnswer(invocation -> {
+      timerTasks.add(invocation.getArgument(0));
+      return timeout;
+    });
+  }
+
+  private CompletableFuture<Result> send(Get get, CompletableFuture<Result> rpc)
+    throws IOException {
+    return coalescer.get(TABLE, get, ProtobufUtil.toGet(get), OPERATION_TIMEOUT_NS, () -> {
+      calls.incrementAndGet();
+      return rpc;
+    });
+  }
+
+  @Test
+  public void testCoalesceIdenticalGets() throws Exception {
+    CompletableFuture<Result> rpc = new CompletableFuture<>();
+    CompletableFuture<Result> f1 = send(new Get(ROW).addFamily(FAMILY), rpc);
+    CompletableFuture<Result> f2 = send(new Get(ROW).addFamily(FAMILY), new CompletableFuture<>());
+    assertEquals(1, calls.get());
+    assertEquals(1, coalescer.getInflightCount());
+    // cancelling one caller does not affect the other one
+    f1.cancel(false);
+    Cell cell = new KeyValue(ROW, FAMILY, Bytes.toBytes("q"), Bytes.toBytes("v"));
+    Result result = Result.create(new Cell[] { cell });
+    rpc.complete(result);
+    assertEquals(0, coalescer.getInflightCount());
+    Result r2 = f2.get();
+    assertNotSame(result, r2);
+    assertSame(cell, r2.rawCells()[0]);
+
+    // the next Get is sent again
+    CompletableFuture<Result> f3 =
+      send(new Get(ROW).addFamily(FAMILY), CompletableFuture.completedFuture(result));
+    assertEquals(2, calls.get());
+    assertEquals(1, f3.get().size());
+  }
+
+  @Test
+  public void testDifferentGetsAreNotCoalesced() throws IOException {
+    send(new Get(ROW).addFamily(FAMILY), new CompletableFuture<>());
+    send(new Get(ROW).addColumn(FAMILY, Bytes.toBytes("q")), new CompletableFuture<>());
+    send(new Get(Bytes.toBytes("row2")).addFamily(FAMILY), new CompletableFuture<>());
+    send(new Get(ROW).addFamily(FAMILY).setTimeRange(0, 100), new CompletableFuture<>());
+    send(new Get(ROW).addFamily(FAMILY).setReplicaId(1), new CompletableFuture<>());
+    Get get = new Get(ROW).addFamily(FAMILY);
+    coalescer.get(TableName.valueOf("other"), get, ProtobufUtil.toGet(get), 0, () -> {
+      calls.incrementAndGet();
+      return new CompletableFuture<>();
+    });
+    assertEquals(6, calls.get());
+    assertEquals(6, coalescer.getInflightCount());
+  }
+
+  @Test
+  public void testErrorIsPropagated() throws Exception {
+    CompletableFuture<Result> rpc = new CompletableFuture<>();
+    CompletableFuture<Result> f1 = send(new Get(ROW), rpc);
+    CompletableFuture<Result> f2 = send(new Get(ROW), rpc);
+    rpc.completeExceptionally(new IOException("inject"));
+    for (CompletableFuture<Result> f : Arrays.asList(f1, f2)) {
+      try {
+        f.get();
+        fail("should fail");
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof IOException);
+      }
+    }
+    // the caller which joined sent its own Get, which failed too
+    assertEquals(2, calls.get());
+    assertEquals(0, coalescer.getInflightCount());
+  }
+
+  @Test
+  public void testJoinedGetIsSentAgainOnFailure() throws Exception {
+    CompletableFuture<Result> rpc = new CompletableFuture<>();
+    CompletableFuture<Result> f1 = send(new Get(ROW), rpc);
+    Cell cell = new KeyValue(ROW, FAMILY, Bytes.toBytes("q"), Bytes.toBytes("v"));
+    CompletableFuture<Result> ownRpc = new CompletableFuture<>();
+    CompletableFuture<Result> f2 = send(new Get(ROW), ownRpc);
+    assertEquals(1, calls.get());
+    // the first caller has a shorter timeout than the one which joined it
+    rpc.completeExceptionally(new CallTimeoutException("inject"));
+    try {
+      f1.get();
+      fail("should fail");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof CallTimeoutException);
+    }
+    // the second caller does not fail with the timeout of the first one but sends its own Get
+    assertEquals(2, calls.get());
+    assertFalse(f2.isDone());
+    ownRpc.complete(Result.create(new Cell[] { cell }));
+    assertSame(cell, f2.get().rawCells()[0]);
+  }
+
+  @Test
+  public void testJoinedGetTimesOut() throws Exception {
+    CompletableFuture<Result> rpc = new CompletableFuture<>();
+    CompletableFuture<Result> f1 = send(new Get(ROW), rpc);
+    CompletableFuture<Result> f2 = send(new Get(ROW), rpc);
+    // only the caller which joined waits on the timer, the other one has the timeouts of its rpc
+    assertEquals(1, timerTasks.size());
+    timerTasks.get(0).run(timeout);
+    try {
+      f2.get();
+      fail("should time out");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof TimeoutIOException);
+    }
+    assertFalse(f1.isDone());
+    rpc.complete(Result.create(new Cell[0]));
+    assertTrue(f1.get().isEmpty());
+    verify(timeout).cancel();
+  }
+
+  @Test
+  public void testJoinedGetsAreCoalescedAgainOnFailure() throws Exception {
+    List<CompletableFuture<Result>> rpcs = new ArrayList<>();
+    List<CompletableFuture<Result>> futures = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      Get get = new Get(ROW);
+      futures.add(coalescer.get(TABLE, get, ProtobufUtil.toGet(get), OPERATION_TIMEOUT_NS, () -> {
+        calls.incrementAndGet();
+        CompletableFuture<Result> rpc = new CompletableFuture<>();
+        rpcs.add(rpc);
+        return rpc;
+      }));
+    }
+    assertEquals(1, calls.get());
+    rpcs.get(0).completeExceptionally(new CallTimeoutException("inject"));
+    // the first caller which joined sends the Get again and the other ones join it
+    assertEquals(2, calls.get());
+    assertEquals(1, coalescer.getInflightCount());
+    assertTrue(futures.get(0).isCompletedExceptionally());
+    Cell cell = new KeyValue(ROW, FAMILY, Bytes.toBytes("q"), Bytes.toBytes("v"));
+    rpcs.get(1).complete(Result.create(new Cell[] { cell }));
+    for (CompletableFuture<Result> f : futures.subList(1, 4)) {
+      assertSame(cell, f.get().rawCells()[0]);
+    }
+    assertEquals(2, calls.get());
+  }
+}
@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.testclassification.ClientTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.EnvironmentEdge;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.hadoop.hbase.shaded.protobuf.ProtobufUtil;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos;
+
+@Category({ ClientTests.class, SmallTests.class })
+public class TestNearCache {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+    HBaseClassTestRule.forClass(TestNearCache.class);
+
+  private static final TableName TABLE = TableName.valueOf("test");
+
+  private static final byte[] ROW = Bytes.toBytes("row");
+
+  private static final byte[] FAMILY = Bytes.toBytes("cf");
+
+  private static final byte[] QUALIFIER = Bytes.toBytes("q");
+
+  private long now = 1000;
+
+  private final EnvironmentEdge edge = () -> now;
+
+  private final AtomicInteger calls = new AtomicInteger();
+
+  private NearCache cache;
+
+  @Before
+  public void setUp() {
+    EnvironmentEdgeManager.injectEdge(edge);
+    Configuration conf = HBaseConfiguration.create();
+    conf.set(NearCache.NEAR_CACHE_COLUMNS_KEY, "test:cf");
+    conf.setLong(NearCache.NEAR_CACHE_TTL_MS_KEY, 100);
+    cache = NearCache.create(conf);
+  }
+
+  @After
+  public void tearDown() {
+    EnvironmentEdgeManager.reset();
+  }
+
+  private static Result result(byte[] row, String value) {
+    Cell cell = new KeyValue(row, FAMILY, QUALIFIER, Bytes.toBytes(value));
+    return Result.create(new Cell[] { cell });
+  }
+
+  private static ClientProtos.Get toProto(Get get) {
+    try {
+      return ProtobufUtil.toGet(get);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private CompletableFuture<Result> get(Get get, CompletableFuture<Result> rpc) {
+    Supplier<CompletableFuture<Result>> caller = () -> {
+      calls.incrementAndGet();
+      return rpc;
+    };
+    return cache.get(TABLE, get, toProto(get), caller, caller);
+  }
+
+  private Result getAndComplete(Get get, Result result) throws Exception {
+    return get(get, CompletableFuture.completedFuture(result)).get();
+  }
+
+  @Test
+  public void testDisabledByDefault() {
+    assertNull(NearCache.create(HBaseConfiguration.create()));
+  }
+
+  @Test
+  public void testCacheHit() throws Exception {
+    Result v1 = result(ROW, "v1");
+    getAndComplete(new Get(ROW).addFamily(FAMILY), v1);
+    Result cached = getAndComplete(new Get(ROW).addFamily(FAMILY), result(ROW, "v2"));
+    assertEquals(1, calls.get());
+    assertEquals(1, cache.getHitCount());
+    Result.compareResults(v1, cached);
+    // a Get of other columns of the same row is cached separately
+    getAndComplete(new Get(ROW).addColumn(FAMILY, QUALIFIER), v1);
+    assertEquals(2, calls.get());
+    assertTrue(cache.getSize() > 0);
+  }
+
+  @Test
+  public void testNotCacheable() throws Exception {
+    // only the cf family is cached, so neither a whole row Get nor other families are
+    getAndComplete(new Get(ROW), result(ROW, "v1"));
+    getAndComplete(new Get(ROW), result(ROW, "v1"));
+    getAndComplete(new Get(ROW).addFamily(Bytes.toBytes("other")), result(ROW, "v1"));
+    getAndComplete(new Get(ROW).addFamily(Bytes.toBytes("other")), result(ROW, "v1"));
+    // other tables are not cached
+    Supplier<CompletableFuture<Result>> caller = () -> {
+      calls.incrementAndGet();
+      return CompletableFuture.completedFuture(result(ROW, "v1"));
+    };
+    Get other = new Get(ROW).addFamily(FAMILY);
+    cache.get(TableName.valueOf("other"), other, toProto(other), caller, caller).get();
+    // nor reads from secondary replicas
+    getAndComplete(new Get(ROW).addFamily(FAMILY).setConsistency(Consistency.TIMELINE),
+      result(ROW, "v1"));
+    assertEquals(6, calls.get());
+    assertEquals(0, cache.getHitCount());
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  public void testInvalidateOnMutate() throws Exception {
+    getAndComplete(new Get(ROW).addFamily(FAMILY), result(ROW, "v1"));
+    CompletableFuture<Void> write = new CompletableFuture<>();
+    CompletableFuture<Void> f = cache.mutate(TABLE, ROW, () -> write);
+    assertEquals(0, cache.getSize());
+    // a Get issued while the write is in flight may read the old value, so it is dropped again
+    // when the write completes
+    getAndComplete(new Get(ROW).addFamily(FAMILY), result(ROW, "v1"));
+    write.complete(null);
+    f.get();
+    Result r = getAndComplete(new Get(ROW).addFamily(FAMILY), result(ROW, "v2"));
+    assertEquals("v2", Bytes.toString(r.getValue(FAMILY, QUALIFIER)));
+    assertEquals(3, calls.get());
+    // and now it is cached again
+    getAndComplete(new Get(ROW).addFamily(FAMILY), result(ROW, "v3"));
+    assertEquals(3, calls.get());
+  }
+
+  @Test
+  public void testInFlightGetNotCached() throws Exception {
+    CompletableFuture<Result> rpc = new CompletableFuture<>();
+    CompletableFuture<Result> f = get(new Get(ROW).addFamily(FAMILY), rpc);
+    cache.mutate(TABLE, ROW, () -> CompletableFuture.completedFuture(null)).get();
+    rpc.complete(result(ROW, "v1"));
+    assertNotNull(f.get());
+    getAndComplete(new Get(ROW).addFamily(FAMILY), result(ROW, "v2"));
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  public void testCacheableGetsNotCoalesced() throws Exception {
+    GetCoalescer coalescer = new GetCoalescer(AsyncConnectionImpl.RETRY_TIMER);
+    CompletableFuture<Result> rpc1 = new CompletableFuture<>();
+    CompletableFuture<Result> rpc2 = new CompletableFuture<>();
+    Iterator<CompletableFuture<Result>> rpcs = Arrays.asList(rpc1, rpc2).iterator();
+    Supplier<CompletableFuture<Result>> caller = () -> {
+      calls.incrementAndGet();
+      return rpcs.next();
+    };
+    Get get = new Get(ROW).addFamily(FAMILY);
+    // the same wiring as the table, the Gets which are not cached are coalesced
+    Supplier<CompletableFuture<Result>> coalescedCaller =
+      () -> coalescer.get(TABLE, get, toProto(get), 0, caller);
+    // the first Get is sent before the write
+    CompletableFuture<Result> f1 = cache.get(TABLE, get, toProto(get), caller, coalescedCaller);
+    cache.mutate(TABLE, ROW, () -> CompletableFuture.completedFuture(null)).get();
+    // the second Get is issued after the write completed, so it must not join the first one, which
+    // may have read the old value, and cache its result
+    CompletableFuture<Result> f2 = cache.get(TABLE, get, toProto(get), caller, coalescedCaller);
+    assertEquals(2, calls.get());
+    rpc1.complete(result(ROW, "v1"));
+    assertEquals("v1", Bytes.toString(f1.get().getValue(FAMILY, QUALIFIER)));
+    assertFalse(f2.isDone());
+    rpc2.complete(result(ROW, "v2"));
+    assertEquals("v2", Bytes.toString(f2.get().getValue(FAMILY, QUALIFIER)));
+    // the value read after the write is the one which is cached
+    Result r = getAndComplete(get, result(ROW, "v3"));
+    assertEquals("v2", Bytes.toString(r.getValue(FAMILY, QUALIFIER)));
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  public void testInvalidateOnBatch() throws Exception {
+    byte[] row2 = Bytes.toBytes("row2");
+    getAndComplete(new Get(ROW).addFamily(FAMILY), result(ROW, "v1"));
+    getAndComplete(new Get(row2).addFamily(FAMILY), result(row2, "v1"));
+    List<Row> actions = Arrays.asList(new Get(row2), new Delete(ROW));
+    List<CompletableFuture<Object>> futures = cache.batch(TABLE, actions,
+      () -> Arrays.asList(CompletableFuture.completedFuture(null),
+        CompletableFuture.completedFuture(null)));
+    assertEquals(2, futures.size());
+    futures.get(1).get();
+    // only the mutated row has been dropped
+    getAndComplete(new Get(row2).addFamily(FAMILY), result(row2, "v2"));
+    assertEquals(2, calls.get());
+    getAndComplete(new Get(ROW).addFamily(FAMILY), result(ROW, "v2"));
+    assertEquals(3, calls.get());
+  }
+
+  @Test
+  public void testExpire() throws Exception {
+    getAndComplete(new Get(ROW).addFamily(FAMILY), result(ROW, "v1"));
+    now += 99;
+    getAndComplete(new Get(ROW).addFamily(FAMILY), result(ROW, "v2"));
+    assertEquals(1, calls.get());
+    now += 1;
+    Result r = getAndComplete(new Get(ROW).addFamily(FAMILY), result(ROW, "v2"));
+    assertEquals("v2", Bytes.toString(r.getValue(FAMILY, QUALIFIER)));
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  public void testEvictLeastRecentlyRead() throws Exception {
+    byte[] row2 = Bytes.toBytes("row2");
+    getAndComplete(new Get(ROW).addFamily(FAMILY), result(ROW, "v1"));
+    long rowSize = cache.getSize();
+    Configuration conf = HBaseConfiguration.create();
+    conf.set(NearCache.NEAR_CACHE_COLUMNS_KEY, "test:cf");
+    conf.setLong(NearCache.NEAR_CACHE_MAX_SIZE_KEY, rowSize * 2 - 1);
+    cache = NearCache.create(conf);
+    getAndComplete(new Get(ROW).addFamily(FAMILY), result(ROW, "v1"));
+    getAndComplete(new Get(row2).addFamily(FAMILY), result(row2, "v1"));
+    assertEquals(3, calls.get());
+    // row2 is still cached, row has been evicted
+    getAndComplete(new Get(row2).addFamily(FAMILY), result(row2, "v1"));
+    assertEquals(3, calls.get());
+    getAndComplete(new Get(ROW).addFamily(FAMILY), result(ROW, "v1"));
+    assertEquals(4, calls.get());
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.client;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.DoNotRetryIOException;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.codec.Codec;
+import org.apache.hadoop.hbase.codec.KeyValueCodec;
+import org.apache.hadoop.hbase.ipc.RawCellBlockScanner;
+import org.apache.hadoop.hbase.testclassification.ClientTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.ScanResponse;
+
+@Category({ ClientTests.class, SmallTests.class })
+public class TestScanCellCursor {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+    HBaseClassTestRule.forClass(TestScanCellCursor.class);
+
+  private static final byte[] FAMILY = Bytes.toBytes("cf");
+
+  private static final byte[] Q1 = Bytes.toBytes("q1");
+
+  private static final byte[] Q2 = Bytes.toBytes("q2");
+
+  private final Codec codec = new KeyValueCodec();
+
+  private static KeyValue kv(String row, byte[] qualifier, String value) {
+    return new KeyValue(Bytes.toBytes(row), FAMILY, qualifier, 1L, Bytes.toBytes(value));
+  }
+
+  private RawCellBlockScanner encode(KeyValue... kvs) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Codec.Encoder encoder = codec.getEncoder(out);
+    for (KeyValue kv : kvs) {
+      encoder.write(kv);
+    }
+    encoder.flush();
+    byte[] cellBlock = out.toByteArray();
+    return new RawCellBlockScanner(codec, cellBlock, 0, cellBlock.length);
+  }
+
+  private static ScanResponse response(int[] cellsPerResult, boolean[] partial) {
+    ScanResponse.Builder builder = ScanResponse.newBuilder();
+    for (int i = 0; i < cellsPerResult.length; i++) {
+      builder.addCellsPerResult(cellsPerResult[i]).addPartialFlagPerResult(partial[i]);
+    }
+    return builder.build();
+  }
+
+  private static List<String> values(ScanCellCursor cursor) {
+    List<String> values = new ArrayList<>();
+    while (cursor.advanceResult()) {
+      while (cursor.advance()) {
+        values.add(Bytes.toString(CellUtil.cloneValue(cursor.current())));
+      }
+    }
+    return values;
+  }
+
+  @Test
+  public void testCursor() throws IOException {
+    RawCellBlockScanner scanner =
+      encode(kv("row1", Q1, "v11"), kv("row1", Q2, "v12"), kv("row2", Q1, "v21"));
+    ScanCellCursor cursor = ScanCellCursor.create(scanner,
+      response(new int[] { 2, 1 }, new boolean[] { false, true }));
+    assertEquals(scanner.getLength(), cursor.getSerializedSize());
+
+    assertTrue(cursor.advanceResult());
+    assertFalse(cursor.mayHaveMoreCellsInRow());
+    assertTrue(cursor.advance());
+    Cell cell = cursor.current();
+    assertTrue(CellUtil.matchingRows(cell, Bytes.toBytes("row1")));
+    assertTrue(CellUtil.matchingColumn(cell, FAMILY, Q1));
+    assertTrue(CellUtil.matchingValue(cell, Bytes.toBytes("v11")));
+    // do not read the rest of the first result
+    assertTrue(cursor.advanceResult());
+    assertTrue(cursor.mayHaveMoreCellsInRow());
+    assertTrue(cursor.advance());
+    assertArrayEquals(Bytes.toBytes("row2"), CellUtil.cloneRow(cursor.current()));
+    assertArrayEquals(Q1, CellUtil.cloneQualifier(cursor.current()));
+    assertFalse(cursor.advance());
+    assertFalse(cursor.advanceResult());
+
+    // the scanner still decodes the cells when not read in place
+    int count = 0;
+    while (scanner.advance()) {
+      count++;
+    }
+    assertEquals(3, count);
+  }
+
+  @Test
+  public void testSkipReturnedCells() throws IOException {
+    AllowPartialScanResultCache cache = new AllowPartialScanResultCache();
+    ScanCellCursor cursor =
+      ScanCellCursor.create(encode(kv("row1", Q1, "v11"), kv("row2", Q1, "v21")),
+        response(new int[] { 1, 1 }, new boolean[] { false, true }));
+    assertTrue(cache.addAndGet(cursor, false));
+    assertEquals(1, cache.numberOfCompleteRows());
+    assertTrue(cache.isLastResultPartial());
+    assertArrayEquals(Bytes.toBytes("row2"), CellUtil.cloneRow(cache.getLastCell()));
+    assertEquals(Arrays.asList("v11", "v21"), values(cursor));
+
+    // the scanner has been reopened at the beginning of row2
+    cursor = ScanCellCursor.create(
+      encode(kv("row2", Q1, "v21"), kv("row2", Q2, "v22"), kv("row3", Q1, "v31")),
+      response(new int[] { 2, 1 }, new boolean[] { false, false }));
+    assertTrue(cache.addAndGet(cursor, false));
+    assertEquals(3, cache.numberOfCompleteRows());
+    assertFalse(cache.isLastResultPartial());
+    assertEquals(Arrays.asList("v22", "v31"), values(cursor));
+
+    // everything has been returned already
+    cursor = ScanCellCursor.create(encode(kv("row3", Q1, "v31")),
+      response(new int[] { 1 }, new boolean[] { false }));
+    assertFalse(cache.addAndGet(cursor, false));
+    assertEquals(3, cache.numberOfCompleteRows());
+  }
+
+  @Test(expected = DoNotRetryIOException.class)
+  public void testMissingCells() throws IOException {
+    ScanCellCursor.create(encode(kv("row1", Q1, "v11")),
+      response(new int[] { 2 }, new boolean[] { false }));
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.RegionLocations;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.Waiter;
+import org.apache.hadoop.hbase.testclassification.ClientTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.hbase.thirdparty.io.netty.util.HashedWheelTimer;
+
+@Category({ ClientTests.class, SmallTests.class })
+public class TestTimelineReadHedgePolicy {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+    HBaseClassTestRule.forClass(TestTimelineReadHedgePolicy.class);
+
+  private static final ServerName SERVER = ServerName.valueOf("server1", 16020, 1);
+
+  private static final ServerName OTHER_SERVER = ServerName.valueOf("server2", 16020, 1);
+
+  private static final long FIXED_TIMEOUT_NS = TimeUnit.SECONDS.toNanos(1);
+
+  @Test
+  public void testDisabledByDefault() {
+    assertNull(TimelineReadHedgePolicy.create(new Configuration(false)));
+  }
+
+  @Test
+  public void testDelayFromPercentile() {
+    TimelineReadHedgePolicy policy = new TimelineReadHedgePolicy(95, 10);
+    assertEquals(FIXED_TIMEOUT_NS, policy.getHedgeDelayNs(SERVER, FIXED_TIMEOUT_NS));
+    for (int i = 1; i < TimelineReadHedgePolicy.MIN_SAMPLES; i++) {
+      policy.recordPrimaryLatency(SERVER, TimeUnit.MILLISECONDS.toNanos(i));
+    }
+    // not enough samples yet
+    assertEquals(FIXED_TIMEOUT_NS, policy.getHedgeDelayNs(SERVER, FIXED_TIMEOUT_NS));
+    for (int i = TimelineReadHedgePolicy.MIN_SAMPLES; i <= 96; i++) {
+      policy.recordPrimaryLatency(SERVER, TimeUnit.MILLISECONDS.toNanos(i));
+    }
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(92),
+      policy.getHedgeDelayNs(SERVER, FIXED_TIMEOUT_NS));
+    // never later than the fixed timeout
+    long fixed = TimeUnit.MILLISECONDS.toNanos(50);
+    assertEquals(fixed, policy.getHedgeDelayNs(SERVER, fixed));
+    // nothing known about the other server
+    assertEquals(FIXED_TIMEOUT_NS, policy.getHedgeDelayNs(OTHER_SERVER, FIXED_TIMEOUT_NS));
+    assertEquals(FIXED_TIMEOUT_NS, policy.getHedgeDelayNs(null, FIXED_TIMEOUT_NS));
+  }
+
+  @Test
+  public void testBudget() {
+    TimelineReadHedgePolicy policy = new TimelineReadHedgePolicy(95, 50);
+    assertFalse(policy.tryAcquireHedge());
+    policy.getHedgeDelayNs(SERVER, FIXED_TIMEOUT_NS);
+    assertFalse(policy.tryAcquireHedge());
+    policy.getHedgeDelayNs(SERVER, FIXED_TIMEOUT_NS);
+    assertTrue(policy.tryAcquireHedge());
+    assertFalse(policy.tryAcquireHedge());
+    // the budget which can be saved up is bounded
+    for (int i = 0; i < 1000; i++) {
+      policy.getHedgeDelayNs(SERVER, FIXED_TIMEOUT_NS);
+    }
+    int hedges = 0;
+    while (policy.tryAcquireHedge()) {
+      hedges++;
+    }
+    assertEquals(10, hedges);
+  }
+
+  @Test
+  public void testExpireIdleServers() {
+    AtomicLong time = new AtomicLong(1);
+    EnvironmentEdgeManager.injectEdge(time::get);
+    try {
+      TimelineReadHedgePolicy policy = new TimelineReadHedgePolicy(95, 10);
+      for (int i = 1; i <= TimelineReadHedgePolicy.MIN_SAMPLES; i++) {
+        policy.recordPrimaryLatency(SERVER, TimeUnit.MILLISECONDS.toNanos(i));
+      }
+      assertEquals(TimeUnit.MILLISECONDS.toNanos(31),
+        policy.getHedgeDelayNs(SERVER, FIXED_TIMEOUT_NS));
+      // not idle for the whole expiry time yet
+      time.addAndGet(TimelineReadHedgePolicy.SERVER_EXPIRY_MS - 1);
+      policy.recordPrimaryLatency(OTHER_SERVER, TimeUnit.MILLISECONDS.toNanos(1));
+      assertEquals(TimeUnit.MILLISECONDS.toNanos(31),
+        policy.getHedgeDelayNs(SERVER, FIXED_TIMEOUT_NS));
+      // no requests to the server for the whole expiry time, forget about it
+      time.incrementAndGet();
+      policy.recordPrimaryLatency(OTHER_SERVER, TimeUnit.MILLISECONDS.toNanos(1));
+      assertEquals(FIXED_TIMEOUT_NS, policy.getHedgeDelayNs(SERVER, FIXED_TIMEOUT_NS));
+    } finally {
+      EnvironmentEdgeManager.reset();
+    }
+  }
+
+  @Test
+  public void testRecordCancelledPrimary() throws Exception {
+    TableName tableName = TableName.valueOf("test");
+    byte[] row = Bytes.toBytes("row");
+    RegionInfo primaryRegion = RegionInfoBuilder.newBuilder(tableName).build();
+    RegionLocations locs = new RegionLocations(new HRegionLocation(primaryRegion, SERVER),
+      new HRegionLocation(RegionReplicaUtil.getRegionInfoForReplica(primaryRegion, 1),
+        OTHER_SERVER));
+    AsyncRegionLocator locator = mock(AsyncRegionLocator.class);
+    when(locator.getRegionLocations(any(), any(), any(), anyBoolean(), anyLong()))
+      .thenReturn(CompletableFuture.completedFuture(locs));
+    TimelineReadHedgePolicy policy = new TimelineReadHedgePolicy(95, 10);
+    long primaryCallTimeoutNs = TimeUnit.MILLISECONDS.toNanos(20);
+    HashedWheelTimer timer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS);
+    try {
+      for (int i = 0; i < TimelineReadHedgePolicy.MIN_SAMPLES; i++) {
+        // the primary never answers, every read is won by the secondary replica
+        CompletableFuture<String> primaryFuture = new CompletableFuture<>();
+        CompletableFuture<String> future = ConnectionUtils.timelineConsistentRead(locator,
+          tableName, new Get(row).setConsistency(Consistency.TIMELINE), row,
+          RegionLocateType.CURRENT,
+          replicaId -> replicaId == RegionReplicaUtil.DEFAULT_REPLICA_ID
+            ? primaryFuture
+            : CompletableFuture.completedFuture("secondary"),
+          FIXED_TIMEOUT_NS, primaryCallTimeoutNs, timer, Optional.empty(), Optional.of(policy));
+        assertEquals("secondary", future.get());
+        // the primary is cancelled and its latency recorded by the listeners of the future
+        Waiter.waitFor(new Configuration(false), 1000, primaryFuture::isCancelled);
+      }
+    } finally {
+      timer.stop();
+    }
+    // the cancelled primary requests are counted with the time they were waited for, so the
+    // percentile is not made up only of the requests the primary won
+    Waiter.waitFor(new Configuration(false), 1000,
+      () -> policy.getHedgeDelayNs(SERVER, FIXED_TIMEOUT_NS) < FIXED_TIMEOUT_NS);
+    assertTrue(policy.getHedgeDelayNs(SERVER, FIXED_TIMEOUT_NS) >= primaryCallTimeoutNs);
+  }
+}
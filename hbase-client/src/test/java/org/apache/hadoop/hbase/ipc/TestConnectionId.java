@@ -97,6 +97,12 @@ public class TestConnectionId {
 
     // Test different instances of same class
     assertFalse(connectionId1.equals(connectionId2));
+
+    // The bulk connections are different from the normal ones
+    ConnectionId bulkConnectionId = new ConnectionId(testUser1, serviceName, address, true);
+    assertFalse(connectionId1.equals(bulkConnectionId));
+    assertEquals(bulkConnectionId, new ConnectionId(testUser1, serviceName, address, true));
+    assertEquals("localhost:999/test/test (auth:SIMPLE)/bulk", bulkConnectionId.toString());
   }
 
   /**
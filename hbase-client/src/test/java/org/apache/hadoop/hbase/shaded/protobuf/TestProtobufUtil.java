@@ -18,6 +18,7 @@
 package org.apache.hadoop.hbase.shaded.protobuf;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -57,6 +58,7 @@ import org.apache.hbase.thirdparty.com.google.protobuf.BytesValue;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.CellProtos;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.Column;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.MutateRequest;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.MutationProto;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.MutationProto.ColumnValue;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.MutationProto.ColumnValue.QualifierValue;
@@ -215,6 +217,49 @@ public class TestProtobufUtil {
     assertEquals(mutateBuilder.build(), ProtobufUtil.toMutation(MutationType.PUT, put));
   }
 
+  /**
+   * Test that a single mutation sent with its cells in the cell block converts back to the same
+   * mutation.
+   */
+  @Test
+  public void testNoDataMutateRequest() throws IOException {
+    Put put = new Put(Bytes.toBytes("row"), 111111L);
+    put.addColumn(Bytes.toBytes("f1"), Bytes.toBytes("c1"), Bytes.toBytes("v1"));
+    put.addColumn(Bytes.toBytes("f1"), Bytes.toBytes("c2"), 222222L, Bytes.toBytes("v2"));
+    MutateRequest request =
+      RequestConverter.buildNoDataMutateRequest(Bytes.toBytes("region"), put, 1L, 2L);
+    MutationProto proto = request.getMutation();
+    assertEquals(0, proto.getColumnValueCount());
+    assertEquals(2, proto.getAssociatedCellCount());
+    assertEquals(1L, request.getNonceGroup());
+    assertEquals(2L, proto.getNonce());
+
+    Put converted = ProtobufUtil.toPut(proto, put.cellScanner());
+    assertEquals(put.getTimestamp(), converted.getTimestamp());
+    assertEquals(2, converted.size());
+    assertEquals(0, CellComparatorImpl.COMPARATOR.compare(put.get(Bytes.toBytes("f1"),
+      Bytes.toBytes("c2")).get(0), converted.get(Bytes.toBytes("f1"), Bytes.toBytes("c2")).get(0)));
+
+    // no nonce group without a nonce
+    request = RequestConverter.buildNoDataMutateRequest(Bytes.toBytes("region"), put, 1L,
+      HConstants.NO_NONCE);
+    assertFalse(request.hasNonceGroup());
+  }
+
+  /**
+   * Test that a Get request built from an already converted Get is the same as one built from the
+   * client Get.
+   */
+  @Test
+  public void testGetRequestFromConvertedGet() throws IOException {
+    Get get = new Get(Bytes.toBytes("row"));
+    get.addColumn(Bytes.toBytes("f1"), Bytes.toBytes("c1"));
+    get.setTimeRange(1, 100);
+    byte[] regionName = Bytes.toBytes("region");
+    assertEquals(RequestConverter.buildGetRequest(regionName, get),
+      RequestConverter.buildGetRequest(regionName, ProtobufUtil.toGet(get)));
+  }
+
   /**
    * Test basic Scan conversions.
    * @throws IOException if the conversion to a {@link org.apache.hadoop.hbase.client.Scan} fails
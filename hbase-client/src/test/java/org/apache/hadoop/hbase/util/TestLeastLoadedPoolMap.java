@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.testclassification.MiscTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.PoolMap.PoolType;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({ MiscTests.class, SmallTests.class })
+public class TestLeastLoadedPoolMap extends PoolMapTestBase {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+    HBaseClassTestRule.forClass(TestLeastLoadedPoolMap.class);
+
+  private final Map<String, Long> loads = new HashMap<>();
+
+  @Before
+  @Override
+  public void setUp() throws Exception {
+    this.poolMap = new PoolMap<>(getPoolType(), POOL_SIZE, v -> loads.getOrDefault(v, 0L));
+  }
+
+  @Override
+  protected PoolType getPoolType() {
+    return PoolType.LeastLoaded;
+  }
+
+  private String getOrCreate(String key, String value) throws IOException {
+    return poolMap.getOrCreate(key, () -> value);
+  }
+
+  @Test
+  public void testReuseIdleResource() throws IOException {
+    String key = "key";
+    assertEquals("0", getOrCreate(key, "0"));
+    // the only resource is idle, no need to create a new one
+    assertEquals("0", getOrCreate(key, "1"));
+    assertEquals(1, poolMap.values().size());
+  }
+
+  @Test
+  public void testGrowWhenLoaded() throws IOException {
+    String key = "key";
+    for (int i = 0; i < POOL_SIZE; i++) {
+      String value = Integer.toString(i);
+      assertEquals(value, getOrCreate(key, value));
+      loads.put(value, 100L - i);
+    }
+    assertEquals(POOL_SIZE, poolMap.values().size());
+
+    // pool is filled, the least loaded resource is returned
+    String last = Integer.toString(POOL_SIZE - 1);
+    assertEquals(last, poolMap.getOrCreate(key, () -> {
+      throw new IOException("must not call me");
+    }));
+    loads.put(last, 1000L);
+    assertEquals(Integer.toString(POOL_SIZE - 2), getOrCreate(key, "new"));
+    loads.put("0", 0L);
+    assertEquals("0", getOrCreate(key, "new"));
+    assertEquals(POOL_SIZE, poolMap.values().size());
+  }
+
+  @Test
+  public void testFallbackToRoundRobin() throws IOException {
+    poolMap = new PoolMap<>(getPoolType(), POOL_SIZE);
+    for (int i = 0; i < POOL_SIZE; i++) {
+      String value = Integer.toString(i);
+      assertEquals(value, getOrCreate("key", value));
+    }
+    assertEquals("0", getOrCreate("key", "new"));
+  }
+}
@@ -21,11 +21,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import org.apache.hadoop.hbase.ByteBufferKeyValue;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.HBaseInterfaceAudience;
 import org.apache.hadoop.hbase.KeyValueUtil;
 import org.apache.hadoop.hbase.NoTagsByteBufferKeyValue;
 import org.apache.hadoop.hbase.NoTagsKeyValue;
+import org.apache.hadoop.hbase.io.ByteBufferListOutputStream;
 import org.apache.hadoop.hbase.nio.ByteBuff;
 import org.apache.hadoop.hbase.util.ByteBufferUtils;
 import org.apache.yetus.audience.InterfaceAudience;
@@ -58,8 +60,23 @@ public class KeyValueCodec implements Codec {
     public void write(Cell cell) throws IOException {
       checkFlushed();
       // Do not write tags over RPC
-      ByteBufferUtils.putInt(this.out, KeyValueUtil.getSerializedSize(cell, false));
-      KeyValueUtil.oswrite(cell, out, false);
+      int size = KeyValueUtil.getSerializedSize(cell, false);
+      ByteBufferUtils.putInt(this.out, size);
+      KeyValueCodec.write(cell, size, out, false);
+    }
+  }
+
+  /**
+   * Writes the serialized form of the cell. If the cell is a {@link ByteBufferKeyValue} and the
+   * stream a {@link ByteBufferListOutputStream}, the serialized form, which is a prefix of the
+   * backing buffer of the KeyValue, is handed to the stream by reference so it need not be copied.
+   */
+  static void write(Cell cell, int size, OutputStream out, boolean withTags) throws IOException {
+    if (cell instanceof ByteBufferKeyValue && out instanceof ByteBufferListOutputStream) {
+      ByteBufferKeyValue kv = (ByteBufferKeyValue) cell;
+      ((ByteBufferListOutputStream) out).writeByReference(kv.getBuffer(), kv.getOffset(), size);
+    } else {
+      KeyValueUtil.oswrite(cell, out, withTags);
     }
   }
 
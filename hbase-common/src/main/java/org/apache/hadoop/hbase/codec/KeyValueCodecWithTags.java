@@ -61,8 +61,9 @@ public class KeyValueCodecWithTags implements Codec {
     public void write(Cell cell) throws IOException {
       checkFlushed();
       // Write tags
-      ByteBufferUtils.putInt(this.out, KeyValueUtil.getSerializedSize(cell, true));
-      KeyValueUtil.oswrite(cell, out, true);
+      int size = KeyValueUtil.getSerializedSize(cell, true);
+      ByteBufferUtils.putInt(this.out, size);
+      KeyValueCodec.write(cell, size, out, true);
     }
   }
 
@@ -17,8 +17,10 @@
  */
 package org.apache.hadoop.hbase.io;
 
+import java.lang.reflect.Constructor;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -72,7 +74,10 @@ public class ByteBuffAllocator {
 
   /**
    * Set an alternate bytebuffallocator by setting this config, e.g. we can config
-   * {@link DeallocateRewriteByteBuffAllocator} to find out prematurely release issues
+   * {@link DeallocateRewriteByteBuffAllocator} to find out prematurely release issues, or
+   * {@link SizeClassByteBuffAllocator} to pool buffers of several sizes. An allocator which has a
+   * constructor taking a {@link Configuration} in front of the common arguments gets created with
+   * it.
    */
   public static final String BYTEBUFF_ALLOCATOR_CLASS = "hbase.bytebuff.allocator.class";
 
@@ -138,8 +143,11 @@ public class ByteBuffAllocator {
 
   // Metrics to track the pool allocation bytes and heap allocation bytes. If heap allocation
   // bytes is increasing so much, then we may need to increase the max.buffer.count .
-  private final LongAdder poolAllocationBytes = new LongAdder();
-  private final LongAdder heapAllocationBytes = new LongAdder();
+  protected final LongAdder poolAllocationBytes = new LongAdder();
+  protected final LongAdder heapAllocationBytes = new LongAdder();
+  // The bytes actually requested out of the pooled buffers, the rest of the pool allocation bytes
+  // is wasted because the buffers are larger than needed.
+  protected final LongAdder poolRequestedBytes = new LongAdder();
   private long lastPoolAllocationBytes = 0;
   private long lastHeapAllocationBytes = 0;
 
@@ -177,13 +185,30 @@ public class ByteBuffAllocator {
           HConstants.DEFAULT_REGION_SERVER_HANDLER_COUNT) * bufsForTwoMB * 2);
       int minSizeForReservoirUse = conf.getInt(MIN_ALLOCATE_SIZE_KEY, poolBufSize / 6);
       Class<?> clazz = conf.getClass(BYTEBUFF_ALLOCATOR_CLASS, ByteBuffAllocator.class);
-      return (ByteBuffAllocator) ReflectionUtils.newInstance(clazz, true, maxBuffCount, poolBufSize,
-        minSizeForReservoirUse);
+      Object[] args = { conf, true, maxBuffCount, poolBufSize, minSizeForReservoirUse };
+      if (!takesConfiguration(clazz, args.length)) {
+        args = Arrays.copyOfRange(args, 1, args.length);
+      }
+      return (ByteBuffAllocator) ReflectionUtils.newInstance(clazz, args);
     } else {
       return HEAP;
     }
   }
 
+  /**
+   * Whether the given allocator class has a constructor taking the configuration in front of the
+   * other {@code paramCount - 1} arguments.
+   */
+  private static boolean takesConfiguration(Class<?> clazz, int paramCount) {
+    for (Constructor<?> ctor : clazz.getDeclaredConstructors()) {
+      Class<?>[] types = ctor.getParameterTypes();
+      if (types.length == paramCount && types[0] == Configuration.class) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * Initialize an {@link ByteBuffAllocator} which only allocate ByteBuffer from on-heap, it's
    * designed for testing purpose or disabled reservoir case.
@@ -213,6 +238,18 @@ public class ByteBuffAllocator {
     return poolAllocationBytes.sum();
   }
 
+  /**
+   * Returns the fraction of the pooled bytes handed out which was not requested, i.e, wasted
+   * because the pooled buffers were larger than the requested size.
+   */
+  public double getPoolFragmentationRatio() {
+    long allocated = poolAllocationBytes.sum();
+    if (allocated == 0) {
+      return 0.0;
+    }
+    return 1.0 - (double) poolRequestedBytes.sum() / allocated;
+  }
+
   public int getBufferSize() {
     return this.bufSize;
   }
@@ -273,6 +310,7 @@ public class ByteBuffAllocator {
     if (isReservoirEnabled()) {
       ByteBuffer bb = getBuffer();
       if (bb != null) {
+        poolRequestedBytes.add(bufSize);
         return new SingleByteBuff(() -> putbackBuffer(bb), bb);
       }
     }
@@ -280,7 +318,7 @@ public class ByteBuffAllocator {
     return (SingleByteBuff) ByteBuff.wrap(allocateOnHeap(bufSize));
   }
 
-  private ByteBuffer allocateOnHeap(int size) {
+  protected ByteBuffer allocateOnHeap(int size) {
     heapAllocationBytes.add(size);
     return ByteBuffer.allocate(size);
   }
@@ -314,6 +352,7 @@ public class ByteBuffAllocator {
       remain -= bufSize;
     }
     int lenFromReservoir = bbs.size();
+    poolRequestedBytes.add(size - Math.max(remain, 0));
     if (remain > 0) {
       // If the last ByteBuffer is too small or the reservoir can not provide more ByteBuffers, we
       // just allocate the ByteBuffer from on-heap.
@@ -342,6 +381,7 @@ public class ByteBuffAllocator {
     this.maxPoolSizeInfoLevelLogged = false;
     this.poolAllocationBytes.reset();
     this.heapAllocationBytes.reset();
+    this.poolRequestedBytes.reset();
     this.lastPoolAllocationBytes = 0;
     this.lastHeapAllocationBytes = 0;
   }
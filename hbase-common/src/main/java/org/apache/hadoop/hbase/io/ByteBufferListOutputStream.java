@@ -48,13 +48,38 @@ public class ByteBufferListOutputStream extends ByteBufferOutputStream {
 
   private boolean lastBufFlipped = false;// Indicate whether the curBuf/lastBuf is flipped already
 
+  // Ranges of at least this size passed to writeByReference are referenced instead of copied
+  private final int minReferenceSize;
+
+  // The output in order once a range has been referenced, i.e, the parts of the pooled BBs written
+  // to interleaved with the referenced ranges. Null as long as nothing has been referenced.
+  private List<ByteBuffer> segments;
+
+  // The position in curBuf from where on the bytes are not part of the segments yet
+  private int curSegmentStart = 0;
+
   public ByteBufferListOutputStream(ByteBuffAllocator allocator) {
+    this(allocator, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @param allocator        to get the BBs to write to from
+   * @param minReferenceSize the minimum size of a range passed to
+   *                         {@link #writeByReference(ByteBuffer, int, int)} to be referenced
+   *                         instead of copied
+   */
+  public ByteBufferListOutputStream(ByteBuffAllocator allocator, int minReferenceSize) {
     this.allocator = allocator;
+    this.minReferenceSize = minReferenceSize;
     allocateNewBuffer();
   }
 
   private void allocateNewBuffer() {
     if (this.curBuf != null) {
+      if (this.segments != null) {
+        sealCurrentSegment();
+        this.curSegmentStart = 0;
+      }
       this.curBuf.flip();// On the current buf set limit = pos and pos = 0.
     }
     // Get an initial ByteBuffer from the allocator.
@@ -66,6 +91,13 @@ public class ByteBufferListOutputStream extends ByteBufferOutputStream {
   @Override
   public int size() {
     int s = 0;
+    if (this.segments != null) {
+      for (ByteBuffer segment : this.segments) {
+        s += segment.remaining();
+      }
+      // Once getByteBuffers is called all the bytes are in the segments
+      return this.lastBufFlipped ? s : s + this.curBuf.position() - this.curSegmentStart;
+    }
     for (int i = 0; i < this.allBufs.size() - 1; i++) {
       s += this.allBufs.get(i).remaining();
     }
@@ -114,6 +146,7 @@ public class ByteBufferListOutputStream extends ByteBufferOutputStream {
     }
     this.allBufs = null;
     this.curBuf = null;
+    this.segments = null;
   }
 
   @Override
@@ -127,6 +160,20 @@ public class ByteBufferListOutputStream extends ByteBufferOutputStream {
    * @return list of bytebuffers
    */
   public List<ByteBuffer> getByteBuffers() {
+    if (this.segments != null) {
+      if (!this.lastBufFlipped) {
+        this.lastBufFlipped = true;
+        if (this.curBuf.position() > this.curSegmentStart) {
+          // Not a slice, so the free space of curBuf can still be used by whoever consumes the
+          // last buffer, as with the flipped curBuf
+          ByteBuffer last = this.curBuf.duplicate();
+          last.limit(this.curBuf.position());
+          last.position(this.curSegmentStart);
+          this.segments.add(last);
+        }
+      }
+      return new ArrayList<>(this.segments);
+    }
     if (!this.lastBufFlipped) {
       this.lastBufFlipped = true;
       // All the other BBs are already flipped while moving to the new BB.
@@ -166,4 +213,50 @@ public class ByteBufferListOutputStream extends ByteBufferOutputStream {
       }
     }
   }
+
+  /**
+   * Write the given range of the passed buffer. A range of at least the minimum reference size
+   * passed in the constructor is not copied; the buffers returned by {@link #getByteBuffers()}
+   * reference it directly instead. The caller must make sure the referenced memory is neither
+   * changed nor released before those buffers have been consumed.
+   */
+  public void writeByReference(ByteBuffer b, int off, int len) throws IOException {
+    if (len < this.minReferenceSize) {
+      write(b, off, len);
+      return;
+    }
+    if (this.segments == null) {
+      this.segments = new ArrayList<>();
+      // All the BBs but the current one are flipped already
+      for (int i = 0; i < this.allBufs.size() - 1; i++) {
+        this.segments.add(this.allBufs.get(i).nioByteBuffers()[0]);
+      }
+      this.curSegmentStart = 0;
+    }
+    sealCurrentSegment();
+    ByteBuffer ref = b.duplicate();
+    ref.clear();
+    ref.position(off);
+    ref.limit(off + len);
+    // slice so nobody can write past the referenced range
+    this.segments.add(ref.slice());
+  }
+
+  /**
+   * Whether any range has been referenced instead of copied.
+   */
+  public boolean hasReferences() {
+    return this.segments != null;
+  }
+
+  private void sealCurrentSegment() {
+    int pos = this.curBuf.position();
+    if (pos > this.curSegmentStart) {
+      ByteBuffer segment = this.curBuf.duplicate();
+      segment.limit(pos);
+      segment.position(this.curSegmentStart);
+      this.segments.add(segment.slice());
+      this.curSegmentStart = pos;
+    }
+  }
 }
@@ -0,0 +1,421 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.nio.ByteBuff;
+import org.apache.hadoop.hbase.nio.SingleByteBuff;
+import org.apache.hadoop.hbase.util.UnsafeAccess;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link ByteBuffAllocator} which pools direct buffers of several size classes instead of only
+ * the single {@link #getBufferSize() buffer size}.
+ * <p>
+ * The i-th size class holds buffers of {@code bufSize >> i} bytes. A request is served by the
+ * smallest class which fits it, so a small RPC request or a medium block takes a buffer of about
+ * its own size instead of a whole 65KB buffer, or heap memory. Requests larger than the buffer size
+ * are composed of full sized buffers plus one buffer of the class fitting the remainder, as in
+ * {@link ByteBuffAllocator}. Only requests smaller than half of the smallest class are allocated on
+ * heap.
+ * <p>
+ * Every thread keeps a small magazine of free buffers per size class in front of the shared free
+ * queues. Allocations and releases on the same thread only lock its own magazine, which no other
+ * thread contends for, a thread only goes to the shared queue to refill its empty magazine or to
+ * hand over half of its full magazine, in batches. When the direct memory budget,
+ * {@code maxBufCount * bufSize} bytes, is exhausted, the buffers cached by threads which have died
+ * or which have not allocated or released a buffer for a while, such as parked handlers or idle
+ * event loops, are handed back to the shared queues before falling back to heap.
+ */
+@InterfaceAudience.Private
+public class SizeClassByteBuffAllocator extends ByteBuffAllocator {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SizeClassByteBuffAllocator.class);
+
+  /** The number of size classes. */
+  public static final String SIZE_CLASS_COUNT_KEY = "hbase.server.allocator.size.class.count";
+
+  public static final int DEFAULT_SIZE_CLASS_COUNT = 6;
+
+  /** The maximum number of free buffers of one size class cached by a thread. */
+  public static final String MAGAZINE_SIZE_KEY = "hbase.server.allocator.magazine.size";
+
+  public static final int DEFAULT_MAGAZINE_SIZE = 8;
+
+  // a live thread whose magazine has not been used for this long gives up its cached buffers when
+  // the budget is exhausted
+  static final long IDLE_MAGAZINE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  /**
+   * The free buffers of all the size classes cached by a thread. Mostly accessed by its owner, the
+   * other threads only drain it when the owner has died or is idle, so the lock is uncontended.
+   */
+  private static final class Magazine {
+
+    private final Thread owner = Thread.currentThread();
+
+    private final ByteBuffer[][] buffers;
+
+    private final int[] counts;
+
+    private long lastUsedNanos = System.nanoTime();
+
+    Magazine(int sizeClasses, int size) {
+      this.buffers = new ByteBuffer[sizeClasses][size];
+      this.counts = new int[sizeClasses];
+    }
+
+    synchronized ByteBuffer pop(int sizeClass) {
+      lastUsedNanos = System.nanoTime();
+      if (counts[sizeClass] == 0) {
+        return null;
+      }
+      int i = --counts[sizeClass];
+      ByteBuffer bb = buffers[sizeClass][i];
+      buffers[sizeClass][i] = null;
+      return bb;
+    }
+
+    synchronized boolean push(int sizeClass, ByteBuffer bb) {
+      lastUsedNanos = System.nanoTime();
+      if (counts[sizeClass] == buffers[sizeClass].length) {
+        return false;
+      }
+      buffers[sizeClass][counts[sizeClass]++] = bb;
+      return true;
+    }
+
+    synchronized int count(int sizeClass) {
+      return counts[sizeClass];
+    }
+
+    synchronized boolean isIdle(long nowNanos, long idleNanos) {
+      return nowNanos - lastUsedNanos >= idleNanos;
+    }
+
+    /**
+     * Move all the cached buffers to the given queues, one per size class.
+     */
+    synchronized void drainTo(List<Queue<ByteBuffer>> queues) {
+      for (int i = 0; i < counts.length; i++) {
+        for (; counts[i] > 0; counts[i]--) {
+          queues.get(i).offer(buffers[i][counts[i] - 1]);
+          buffers[i][counts[i] - 1] = null;
+        }
+      }
+    }
+  }
+
+  private final int[] classSizes;
+
+  // The free buffers shared by all the threads, one queue per size class
+  private final List<Queue<ByteBuffer>> freeBuffers;
+
+  private final int magazineSize;
+
+  // Requests smaller than this are allocated on heap
+  private final int minPooledSize;
+
+  private final long maxBytes;
+
+  // The bytes of direct memory allocated by this pool
+  private final AtomicLong usedBytes = new AtomicLong();
+
+  private final Queue<Magazine> magazines = new ConcurrentLinkedQueue<>();
+
+  private final ThreadLocal<Magazine> threadMagazine = ThreadLocal.withInitial(this::newMagazine);
+
+  private volatile boolean maxPoolSizeInfoLevelLogged = false;
+
+  SizeClassByteBuffAllocator(Configuration conf, boolean reservoirEnabled, int maxBufCount,
+    int bufSize, int minSizeForReservoirUse) {
+    this(reservoirEnabled, maxBufCount, bufSize, minSizeForReservoirUse,
+      conf.getInt(SIZE_CLASS_COUNT_KEY, DEFAULT_SIZE_CLASS_COUNT),
+      conf.getInt(MAGAZINE_SIZE_KEY, DEFAULT_MAGAZINE_SIZE));
+  }
+
+  SizeClassByteBuffAllocator(boolean reservoirEnabled, int maxBufCount, int bufSize,
+    int minSizeForReservoirUse, int sizeClassCount, int magazineSize) {
+    super(reservoirEnabled, maxBufCount, bufSize, minSizeForReservoirUse);
+    // Do not split the buffer size into classes of less than one KB
+    int count = 1;
+    while (count < sizeClassCount && (bufSize >> count) >= 1024) {
+      count++;
+    }
+    this.classSizes = new int[count];
+    this.freeBuffers = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      classSizes[i] = bufSize >> i;
+      freeBuffers.add(new ConcurrentLinkedQueue<>());
+    }
+    this.magazineSize = Math.max(0, magazineSize);
+    this.minPooledSize = Math.min(minSizeForReservoirUse, classSizes[count - 1] / 2);
+    this.maxBytes = (long) maxBufCount * bufSize;
+  }
+
+  private Magazine newMagazine() {
+    reclaimMagazines(null, Long.MAX_VALUE);
+    Magazine magazine = new Magazine(classSizes.length, magazineSize);
+    magazines.add(magazine);
+    return magazine;
+  }
+
+  /**
+   * Hand the buffers cached by the threads which have died, or which have not used their magazine
+   * for the given time, back to the shared queues. The magazine of the given thread is skipped.
+   */
+  private void reclaimMagazines(Magazine self, long idleNanos) {
+    long now = System.nanoTime();
+    for (Magazine magazine : magazines) {
+      if (magazine == self) {
+        continue;
+      }
+      if (!magazine.owner.isAlive()) {
+        if (magazines.remove(magazine)) {
+          magazine.drainTo(freeBuffers);
+        }
+      } else if (magazine.isIdle(now, idleNanos)) {
+        magazine.drainTo(freeBuffers);
+      }
+    }
+  }
+
+  /**
+   * Returns the size class fitting the given size, or -1 if the size should be allocated on heap.
+   * Sizes larger than the buffer size map to the largest class.
+   */
+  int getSizeClass(int size) {
+    if (size < minPooledSize) {
+      return -1;
+    }
+    for (int i = classSizes.length - 1; i > 0; i--) {
+      if (size <= classSizes[i]) {
+        return i;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Returns the size class of a buffer with the given capacity, or -1 if it does not belong to any.
+   */
+  private int getSizeClassOfCapacity(int capacity) {
+    for (int i = 0; i < classSizes.length; i++) {
+      if (classSizes[i] == capacity) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the bytes of direct memory allocated by this pool, including the free buffers.
+   */
+  public long getUsedBytes() {
+    return usedBytes.get();
+  }
+
+  /**
+   * Returns the number of buffer size units of direct memory allocated by this pool, the buffers of
+   * the smaller classes count with their fraction.
+   */
+  @Override
+  public int getUsedBufferCount() {
+    return (int) (usedBytes.get() / bufSize);
+  }
+
+  /**
+   * The number of free buffers of all the size classes. It iterates all the free buffers, so DO NOT
+   * use the method except in UT.
+   */
+  @Override
+  public int getFreeBufferCount() {
+    int count = 0;
+    for (Queue<ByteBuffer> queue : freeBuffers) {
+      count += queue.size();
+    }
+    for (Magazine magazine : magazines) {
+      for (int i = 0; i < classSizes.length; i++) {
+        count += magazine.count(i);
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public SingleByteBuff allocateOneBuffer() {
+    if (isReservoirEnabled()) {
+      ByteBuffer bb = getBuffer(0);
+      if (bb != null) {
+        poolRequestedBytes.add(bufSize);
+        return new SingleByteBuff(() -> putbackBuffer(bb), bb);
+      }
+    }
+    return (SingleByteBuff) ByteBuff.wrap(allocateOnHeap(bufSize));
+  }
+
+  @Override
+  public ByteBuff allocate(int size) {
+    if (size < 0) {
+      throw new IllegalArgumentException("size to allocate should >=0");
+    }
+    if (!isReservoirEnabled() || size == 0) {
+      return ByteBuff.wrap(allocateOnHeap(size));
+    }
+    List<ByteBuffer> bbs = new ArrayList<>(size / bufSize + 1);
+    int remain = size;
+    while (remain > 0) {
+      int sizeClass = getSizeClass(remain);
+      if (sizeClass < 0) {
+        break;
+      }
+      ByteBuffer bb = getBuffer(sizeClass);
+      if (bb == null) {
+        break;
+      }
+      bbs.add(bb);
+      remain -= bb.capacity();
+    }
+    int lenFromReservoir = bbs.size();
+    poolRequestedBytes.add(size - Math.max(remain, 0));
+    if (remain > 0) {
+      bbs.add(allocateOnHeap(remain));
+    }
+    ByteBuff bb = ByteBuff.wrap(bbs, () -> {
+      for (int i = 0; i < lenFromReservoir; i++) {
+        putbackBuffer(bbs.get(i));
+      }
+    });
+    bb.limit(size);
+    return bb;
+  }
+
+  /**
+   * Returns a free direct buffer of the given size class, or of a larger class if the memory budget
+   * is exhausted, or null if there is none.
+   */
+  private ByteBuffer getBuffer(int sizeClass) {
+    Magazine magazine = threadMagazine.get();
+    ByteBuffer bb = magazine.pop(sizeClass);
+    if (bb == null) {
+      bb = refill(magazine, sizeClass);
+    }
+    if (bb == null) {
+      bb = allocateDirect(sizeClass);
+    }
+    if (bb == null) {
+      reclaimMagazines(magazine, IDLE_MAGAZINE_NANOS);
+      // Rather waste some space of a larger buffer than fall back to heap
+      for (int i = sizeClass; i >= 0 && bb == null; i--) {
+        bb = magazine.pop(i);
+        if (bb == null) {
+          bb = freeBuffers.get(i).poll();
+        }
+      }
+    }
+    if (bb == null) {
+      if (!maxPoolSizeInfoLevelLogged) {
+        LOG.info("Pool already reached its max capacity : {} bytes and no free buffers now. "
+          + "Consider increasing the value for '{}' ?", maxBytes, MAX_BUFFER_COUNT_KEY);
+        maxPoolSizeInfoLevelLogged = true;
+      }
+      return null;
+    }
+    // To reset the limit to capacity and position to 0, must clear here.
+    bb.clear();
+    poolAllocationBytes.add(bb.capacity());
+    return bb;
+  }
+
+  /**
+   * Take one buffer from the shared queue, and up to half a magazine more into the magazine.
+   */
+  private ByteBuffer refill(Magazine magazine, int sizeClass) {
+    Queue<ByteBuffer> queue = freeBuffers.get(sizeClass);
+    ByteBuffer bb = queue.poll();
+    if (bb != null) {
+      for (int i = magazineSize / 2; i > 0; i--) {
+        ByteBuffer next = queue.poll();
+        if (next == null) {
+          break;
+        }
+        magazine.push(sizeClass, next);
+      }
+    }
+    return bb;
+  }
+
+  private ByteBuffer allocateDirect(int sizeClass) {
+    int size = classSizes[sizeClass];
+    while (true) {
+      long used = usedBytes.get();
+      if (used + size > maxBytes) {
+        return null;
+      }
+      if (usedBytes.compareAndSet(used, used + size)) {
+        return ByteBuffer.allocateDirect(size);
+      }
+    }
+  }
+
+  @Override
+  protected void putbackBuffer(ByteBuffer buf) {
+    int sizeClass = getSizeClassOfCapacity(buf.capacity());
+    if (sizeClass < 0 || !buf.isDirect()) {
+      LOG.warn("Trying to put a buffer, not created by this pool! Will be just ignored");
+      return;
+    }
+    Magazine magazine = threadMagazine.get();
+    if (!magazine.push(sizeClass, buf)) {
+      // The magazine is full, hand half of it over to the other threads
+      Queue<ByteBuffer> queue = freeBuffers.get(sizeClass);
+      for (int i = (magazine.count(sizeClass) + 1) / 2; i > 0; i--) {
+        queue.offer(magazine.pop(sizeClass));
+      }
+      if (!magazine.push(sizeClass, buf)) {
+        queue.offer(buf);
+      }
+    }
+  }
+
+  /**
+   * Free all direct buffers if allocated, mainly used for testing. This includes the free buffers
+   * cached by all the threads.
+   */
+  @Override
+  public void clean() {
+    reclaimMagazines(null, 0);
+    for (Queue<ByteBuffer> queue : freeBuffers) {
+      for (ByteBuffer bb; (bb = queue.poll()) != null;) {
+        usedBytes.addAndGet(-bb.capacity());
+        UnsafeAccess.freeDirectBuffer(bb);
+      }
+    }
+    maxPoolSizeInfoLevelLogged = false;
+    super.clean();
+  }
+}
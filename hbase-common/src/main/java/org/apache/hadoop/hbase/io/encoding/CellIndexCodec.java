@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.encoding;
+
+import java.io.DataOutputStream;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * Same as {@link RowIndexCodecV1} but with the offset of every cell in the index. Format: flat
+ * cells integer: number of cells integer: cell0's offset integer: cell1's offset .... integer:
+ * dataSize
+ * <p>
+ * A seek inside the block, e.g. the seek to the next requested column issued when a scan selects a
+ * few qualifiers of wide rows, is a binary search over the cells of the block instead of a walk
+ * over all the cells of the row, at the cost of four bytes per cell.
+ */
+@InterfaceAudience.Private
+public class CellIndexCodec extends RowIndexCodecV1 {
+
+  @Override
+  protected RowIndexEncoderV1 createEncoder(DataOutputStream out,
+    HFileBlockDefaultEncodingContext encodingCtx) {
+    return new CellIndexEncoder(out, encodingCtx);
+  }
+
+  @Override
+  public EncodedSeeker createSeeker(HFileBlockDecodingContext decodingCtx) {
+    return new CellIndexSeeker(decodingCtx);
+  }
+}
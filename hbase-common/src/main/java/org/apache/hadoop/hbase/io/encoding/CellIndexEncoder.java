@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.encoding;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * Writes the block layout of {@link RowIndexEncoderV1}, but records the offset of every cell
+ * instead of only the first cell of every row.
+ */
+@InterfaceAudience.Private
+public class CellIndexEncoder extends RowIndexEncoderV1 {
+
+  public CellIndexEncoder(DataOutputStream out, HFileBlockDefaultEncodingContext encodingCtx) {
+    super(out, encodingCtx);
+  }
+
+  @Override
+  protected boolean checkRow(final Cell cell) throws IOException {
+    // still verify the order of the cells, but never treat a cell as part of an already indexed
+    // row so that its offset is written to the index.
+    super.checkRow(cell);
+    return false;
+  }
+}
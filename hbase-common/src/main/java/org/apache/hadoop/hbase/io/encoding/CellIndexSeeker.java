@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.encoding;
+
+import org.apache.hadoop.hbase.ByteBufferKeyOnlyKeyValue;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.PrivateCellUtil;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * Seeker for blocks written by {@link CellIndexEncoder}. As every cell is indexed, the binary
+ * search compares the whole key and lands directly on the cell to seek to, instead of on the first
+ * cell of its row.
+ */
+@InterfaceAudience.Private
+public class CellIndexSeeker extends RowIndexSeekerV1 {
+
+  // reused for comparing the keys of the indexed cells
+  private final ByteBufferKeyOnlyKeyValue indexedKey = new ByteBufferKeyOnlyKeyValue();
+
+  public CellIndexSeeker(HFileBlockDecodingContext decodingCtx) {
+    super(decodingCtx);
+  }
+
+  @Override
+  protected int binarySearch(Cell seekCell, boolean seekBefore) {
+    // find the first cell which is not smaller than the seek key
+    int low = 0;
+    int high = rowNumber;
+    boolean found = false;
+    while (low < high) {
+      int mid = low + ((high - low) >> 1);
+      int comp = PrivateCellUtil.compareKeyIgnoresMvcc(cellComparator, seekCell, getKey(mid));
+      if (comp > 0) {
+        low = mid + 1;
+      } else {
+        found = comp == 0;
+        high = mid;
+      }
+    }
+    // low is the insertion point now, the cell at low is the seek key only if the last comparison
+    // against it was an exact match
+    if (found && low < rowNumber && !seekBefore) {
+      return low;
+    }
+    return low - 1;
+  }
+
+  private Cell getKey(int index) {
+    int offset = rowOffsets.getIntAfterPosition(index * Bytes.SIZEOF_INT);
+    int keyLength = currentBuffer.getInt(offset);
+    currentBuffer.asSubByteBuffer(offset + Bytes.SIZEOF_LONG, keyLength, tmpPair);
+    indexedKey.setKey(tmpPair.getFirst(), tmpPair.getSecond(), keyLength);
+    return indexedKey;
+  }
+}
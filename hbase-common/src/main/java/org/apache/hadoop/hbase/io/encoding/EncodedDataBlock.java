@@ -63,9 +63,9 @@ public class EncodedDataBlock {
   // The is for one situation that there are some cells includes tags and others are not.
   // isTagsLenZero stores if cell tags length is zero before doing encoding since we need
   // to check cell tags length is zero or not after decoding.
-  // Encoders ROW_INDEX_V1 would abandon tags segment if tags is 0 after decode cells to
-  // byte array, other encoders won't do that. So we have to find a way to add tagsLen zero
-  // in the decoded byte array.
+  // Encoders ROW_INDEX_V1 and CELL_INDEX would abandon tags segment if tags is 0 after decode
+  // cells to byte array, other encoders won't do that. So we have to find a way to add tagsLen
+  // zero in the decoded byte array.
   private List<Boolean> isTagsLenZero = new ArrayList<>();
 
   /**
@@ -138,7 +138,7 @@ public class EncodedDataBlock {
           }
           // ROW_INDEX_V1 will not put tagsLen back in cell if it is zero, there is no need
           // to read short here.
-          if (!(encoding.equals(DataBlockEncoding.ROW_INDEX_V1) && noTags)) {
+          if (!(isRowIndex(encoding) && noTags)) {
             tagsLen = ((decompressedData.get() & 0xff) << 8) ^ (decompressedData.get() & 0xff);
             ByteBufferUtils.skip(decompressedData, tagsLen);
           }
@@ -287,7 +287,7 @@ public class EncodedDataBlock {
       // The if branch is necessary because Encoders excepts ROW_INDEX_V1 write integer in
       // baosBytes directly, without if branch and do toByteArray() again, baosBytes won't
       // contains the integer wrotten in endBlockEncoding.
-      if (this.encoding.equals(DataBlockEncoding.ROW_INDEX_V1)) {
+      if (isRowIndex(this.encoding)) {
         baosBytes = baos.toByteArray();
       }
     } catch (IOException e) {
@@ -297,6 +297,13 @@ public class EncodedDataBlock {
     return baosBytes;
   }
 
+  /**
+   * Whether the encoding writes its row or cell index after the cells, see {@link RowIndexCodecV1}.
+   */
+  private static boolean isRowIndex(DataBlockEncoding encoding) {
+    return encoding == DataBlockEncoding.ROW_INDEX_V1 || encoding == DataBlockEncoding.CELL_INDEX;
+  }
+
   @Override
   public String toString() {
     return encoding.name();
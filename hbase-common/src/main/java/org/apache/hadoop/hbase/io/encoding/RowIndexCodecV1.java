@@ -65,12 +65,17 @@ public class RowIndexCodecV1 extends AbstractDataBlockEncoder {
       (HFileBlockDefaultEncodingContext) blkEncodingCtx;
     encodingCtx.prepareEncoding(out);
 
-    RowIndexEncoderV1 encoder = new RowIndexEncoderV1(out, encodingCtx);
+    RowIndexEncoderV1 encoder = createEncoder(out, encodingCtx);
     RowIndexEncodingState state = new RowIndexEncodingState();
     state.encoder = encoder;
     blkEncodingCtx.setEncodingState(state);
   }
 
+  protected RowIndexEncoderV1 createEncoder(DataOutputStream out,
+    HFileBlockDefaultEncodingContext encodingCtx) {
+    return new RowIndexEncoderV1(out, encodingCtx);
+  }
+
   @Override
   public void encode(Cell cell, HFileBlockEncodingContext encodingCtx, DataOutputStream out)
     throws IOException {
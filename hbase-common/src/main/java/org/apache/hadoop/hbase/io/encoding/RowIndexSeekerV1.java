@@ -43,13 +43,13 @@ public class RowIndexSeekerV1 extends AbstractEncodedSeeker {
   // many object creations.
   protected final ObjectIntPair<ByteBuffer> tmpPair = new ObjectIntPair<>();
 
-  private ByteBuff currentBuffer;
+  protected ByteBuff currentBuffer;
   private SeekerState current = new SeekerState(); // always valid
   private SeekerState previous = new SeekerState(); // may not be valid
 
-  private int rowNumber;
-  private ByteBuff rowOffsets = null;
-  private final CellComparator cellComparator;
+  protected int rowNumber;
+  protected ByteBuff rowOffsets = null;
+  protected final CellComparator cellComparator;
 
   public RowIndexSeekerV1(HFileBlockDecodingContext decodingCtx) {
     super(decodingCtx);
@@ -122,7 +122,11 @@ public class RowIndexSeekerV1 extends AbstractEncodedSeeker {
     return true;
   }
 
-  private int binarySearch(Cell seekCell, boolean seekBefore) {
+  /**
+   * Returns the index of the indexed entry to start the linear search for the seek key from, or a
+   * negative value if the seek key is before the first entry of the block.
+   */
+  protected int binarySearch(Cell seekCell, boolean seekBefore) {
     int low = 0;
     int high = rowNumber - 1;
     int mid = low + ((high - low) >> 1);
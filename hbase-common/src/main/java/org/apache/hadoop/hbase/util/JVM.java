@@ -196,6 +196,29 @@ public class JVM {
     return -1;
   }
 
+  /**
+   * Returns the recent CPU usage of the whole system, between 0 and 1, or a negative value if it
+   * is not available. Calls getCpuLoad of com.sun.management.OperatingSystemMXBean, or
+   * getSystemCpuLoad, deprecated since Java 14, on older JVMs.
+   */
+  public double getCpuLoad() {
+    try {
+      Class<?> classRef = Class.forName("com.sun.management.OperatingSystemMXBean");
+      if (classRef.isInstance(osMbean)) {
+        Method mBeanMethod;
+        try {
+          mBeanMethod = classRef.getMethod("getCpuLoad");
+        } catch (NoSuchMethodException e) {
+          mBeanMethod = classRef.getMethod("getSystemCpuLoad");
+        }
+        return (Double) mBeanMethod.invoke(classRef.cast(osMbean));
+      }
+    } catch (Exception e) {
+      LOG.warn("Not able to load class or method for com.sun.management.OperatingSystemMXBean.", e);
+    }
+    return -1;
+  }
+
   /**
    * @see java.lang.management.OperatingSystemMXBean#getSystemLoadAverage
    */
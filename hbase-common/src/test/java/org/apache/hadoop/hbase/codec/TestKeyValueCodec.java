@@ -26,8 +26,14 @@ import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.apache.hadoop.hbase.ArrayBackedTag;
+import org.apache.hadoop.hbase.ByteBufferKeyValue;
 import org.apache.hadoop.hbase.HBaseClassTestRule;
 import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.Tag;
+import org.apache.hadoop.hbase.io.ByteBuffAllocator;
+import org.apache.hadoop.hbase.io.ByteBufferListOutputStream;
 import org.apache.hadoop.hbase.testclassification.MiscTests;
 import org.apache.hadoop.hbase.testclassification.SmallTests;
 import org.apache.hadoop.hbase.util.Bytes;
@@ -126,4 +132,41 @@ public class TestKeyValueCodec {
     dis.close();
     assertEquals((length * 3), cis.getCount());
   }
+
+  @Test
+  public void testWriteByReference() throws IOException {
+    KeyValue kv1 = new KeyValue(Bytes.toBytes("r"), Bytes.toBytes("f"), Bytes.toBytes("1"), 1L,
+      Bytes.toBytes("1"), new Tag[] { new ArrayBackedTag((byte) 1, Bytes.toBytes("t")) });
+    KeyValue kv2 =
+      new KeyValue(Bytes.toBytes("r"), Bytes.toBytes("f"), Bytes.toBytes("2"), Bytes.toBytes("2"));
+    ByteBuffer buf = ByteBuffer.allocateDirect(kv1.getLength());
+    buf.put(kv1.getBuffer(), kv1.getOffset(), kv1.getLength());
+    ByteBufferKeyValue bbkv = new ByteBufferKeyValue(buf, 0, kv1.getLength());
+    ByteBufferListOutputStream bblos = new ByteBufferListOutputStream(ByteBuffAllocator.HEAP, 1);
+    Codec.Encoder encoder = new KeyValueCodec().getEncoder(bblos);
+    encoder.write(bbkv);
+    encoder.write(kv2);
+    encoder.flush();
+    assertTrue(bblos.hasReferences());
+    byte[] bytes = new byte[bblos.size()];
+    int pos = 0;
+    for (ByteBuffer bb : bblos.getByteBuffers()) {
+      int len = bb.remaining();
+      bb.get(bytes, pos, len);
+      pos += len;
+    }
+    bblos.releaseResources();
+    assertEquals(bytes.length, pos);
+    Codec.Decoder decoder = new KeyValueCodec().getDecoder(new ByteArrayInputStream(bytes));
+    assertTrue(decoder.advance());
+    // tags are not written over RPC
+    KeyValue kv = (KeyValue) decoder.current();
+    assertTrue(Bytes.equals(kv1.getKey(), kv.getKey()));
+    assertTrue(Bytes.equals(kv1.getValueArray(), kv1.getValueOffset(), kv1.getValueLength(),
+      kv.getValueArray(), kv.getValueOffset(), kv.getValueLength()));
+    assertEquals(0, kv.getTagsLength());
+    assertTrue(decoder.advance());
+    assertTrue(kv2.equals(decoder.current()));
+    assertFalse(decoder.advance());
+  }
 }
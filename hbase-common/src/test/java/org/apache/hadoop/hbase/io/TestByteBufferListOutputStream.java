@@ -18,6 +18,7 @@
 package org.apache.hadoop.hbase.io;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.nio.ByteBuffer;
@@ -82,4 +83,55 @@ public class TestByteBufferListOutputStream {
     bbos.releaseResources();
     assertEquals(3, alloc.getFreeBufferCount());
   }
+
+  @Test
+  public void testWriteByReference() throws Exception {
+    ByteBuffAllocator alloc = new ByteBuffAllocator(true, 3, 10, 10 / 6);
+    ByteBufferListOutputStream bbos = new ByteBufferListOutputStream(alloc, 8);
+    bbos.writeInt(100);
+    ByteBuffer src = ByteBuffer.allocateDirect(32);
+    for (int i = 0; i < src.capacity(); i++) {
+      src.put(i, (byte) i);
+    }
+    // below the minimum reference size, copied
+    bbos.writeByReference(src, 0, 4);
+    assertFalse(bbos.hasReferences());
+    // referenced
+    bbos.writeByReference(src, 10, 12);
+    assertTrue(bbos.hasReferences());
+    bbos.writeInt(200);
+    bbos.writeInt(300);
+    assertEquals(4 + 4 + 12 + 8, bbos.size());
+    List<ByteBuffer> bufs = bbos.getByteBuffers();
+    assertEquals(4 + 4 + 12 + 8, bbos.size());
+    // [int, 4 copied bytes], [12 referenced bytes], [int, int]
+    assertEquals(3, bufs.size());
+    ByteBuffer b1 = bufs.get(0);
+    assertEquals(8, b1.remaining());
+    assertEquals(100, b1.getInt());
+    for (int i = 0; i < 4; i++) {
+      assertEquals(i, b1.get());
+    }
+    ByteBuffer b2 = bufs.get(1);
+    assertEquals(12, b2.remaining());
+    // the referenced range can not be written beyond
+    assertEquals(12, b2.capacity());
+    for (int i = 10; i < 22; i++) {
+      assertEquals(i, b2.get());
+    }
+    // changes to the source are visible, it was not copied
+    src.put(10, (byte) 100);
+    assertEquals(100, bufs.get(1).get(0));
+    ByteBuffer b3 = bufs.get(2);
+    assertEquals(8, b3.remaining());
+    assertEquals(200, b3.getInt());
+    assertEquals(300, b3.getInt());
+    // the pool creates its buffers lazily, the stream took one for each copied range
+    assertEquals(2, alloc.getUsedBufferCount());
+    assertEquals(0, alloc.getFreeBufferCount());
+    bbos.releaseResources();
+    // both came back, the referenced range is not the pool's
+    assertEquals(2, alloc.getUsedBufferCount());
+    assertEquals(2, alloc.getFreeBufferCount());
+  }
 }
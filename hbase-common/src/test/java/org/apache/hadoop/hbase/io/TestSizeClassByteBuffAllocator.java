@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.nio.ByteBuff;
+import org.apache.hadoop.hbase.nio.MultiByteBuff;
+import org.apache.hadoop.hbase.nio.SingleByteBuff;
+import org.apache.hadoop.hbase.testclassification.RPCTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({ RPCTests.class, SmallTests.class })
+public class TestSizeClassByteBuffAllocator {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+    HBaseClassTestRule.forClass(TestSizeClassByteBuffAllocator.class);
+
+  private static final int BUF_SIZE = 64 * 1024;
+
+  @Test
+  public void testCreate() {
+    Configuration conf = HBaseConfiguration.create();
+    conf.set(ByteBuffAllocator.BYTEBUFF_ALLOCATOR_CLASS,
+      SizeClassByteBuffAllocator.class.getName());
+    conf.setInt(SizeClassByteBuffAllocator.SIZE_CLASS_COUNT_KEY, 3);
+    conf.setInt(ByteBuffAllocator.BUFFER_SIZE_KEY, BUF_SIZE);
+    ByteBuffAllocator alloc = ByteBuffAllocator.create(conf, true);
+    assertTrue(alloc instanceof SizeClassByteBuffAllocator);
+    SizeClassByteBuffAllocator sizeClassAlloc = (SizeClassByteBuffAllocator) alloc;
+    assertEquals(2, sizeClassAlloc.getSizeClass(BUF_SIZE / 4));
+    assertEquals(1, sizeClassAlloc.getSizeClass(BUF_SIZE / 4 + 1));
+    assertEquals(0, sizeClassAlloc.getSizeClass(BUF_SIZE + 1));
+    assertEquals(-1, sizeClassAlloc.getSizeClass(100));
+    alloc.clean();
+  }
+
+  @Test
+  public void testAllocateBySizeClass() {
+    SizeClassByteBuffAllocator alloc =
+      new SizeClassByteBuffAllocator(true, 10, BUF_SIZE, BUF_SIZE / 6, 4, 4);
+    // fits the 8KB class
+    ByteBuff buff = alloc.allocate(6 * 1024);
+    assertTrue(buff instanceof SingleByteBuff);
+    assertEquals(6 * 1024, buff.limit());
+    assertEquals(8 * 1024, alloc.getPoolAllocationBytes());
+    assertEquals(0, alloc.getHeapAllocationBytes());
+    assertEquals(8 * 1024, alloc.getUsedBytes());
+    assertEquals(0.25, alloc.getPoolFragmentationRatio(), 1e-6);
+    buff.release();
+    assertEquals(1, alloc.getFreeBufferCount());
+
+    // the released buffer is reused
+    buff = alloc.allocate(7 * 1024);
+    assertEquals(8 * 1024, alloc.getUsedBytes());
+    assertEquals(0, alloc.getFreeBufferCount());
+    buff.release();
+
+    // one full buffer and one of the 16KB class
+    buff = alloc.allocate(BUF_SIZE + 10 * 1024);
+    assertTrue(buff instanceof MultiByteBuff);
+    assertEquals(BUF_SIZE + 10 * 1024, buff.limit());
+    assertEquals(8 * 1024 + BUF_SIZE + 16 * 1024, alloc.getUsedBytes());
+    buff.release();
+
+    // too small for the pool
+    buff = alloc.allocate(100);
+    assertEquals(100, alloc.getHeapAllocationBytes());
+    buff.release();
+    alloc.clean();
+    assertEquals(0, alloc.getUsedBytes());
+  }
+
+  @Test
+  public void testExhausted() {
+    SizeClassByteBuffAllocator alloc =
+      new SizeClassByteBuffAllocator(true, 1, BUF_SIZE, BUF_SIZE / 6, 4, 4);
+    ByteBuff buff1 = alloc.allocate(BUF_SIZE / 2);
+    ByteBuff buff2 = alloc.allocate(BUF_SIZE / 2);
+    assertEquals(BUF_SIZE, alloc.getUsedBytes());
+    assertEquals(1, alloc.getUsedBufferCount());
+    // no more budget, allocated on heap
+    ByteBuff buff3 = alloc.allocate(BUF_SIZE / 8);
+    assertTrue(buff3.hasArray());
+    assertEquals(BUF_SIZE / 8, alloc.getHeapAllocationBytes());
+    buff3.release();
+    buff1.release();
+    buff2.release();
+    // the free larger buffer is used rather than the heap
+    ByteBuff buff4 = alloc.allocate(BUF_SIZE / 8);
+    assertEquals(BUF_SIZE / 8, alloc.getHeapAllocationBytes());
+    assertEquals(BUF_SIZE / 8, buff4.limit());
+    buff4.release();
+    alloc.clean();
+  }
+
+  @Test
+  public void testReclaimMagazineOfDeadThread() throws InterruptedException {
+    SizeClassByteBuffAllocator alloc =
+      new SizeClassByteBuffAllocator(true, 1, BUF_SIZE, BUF_SIZE / 6, 1, 4);
+    Thread t = new Thread(() -> {
+      ByteBuff buff = alloc.allocateOneBuffer();
+      // released into the magazine of this thread
+      buff.release();
+    });
+    t.start();
+    t.join();
+    assertEquals(BUF_SIZE, alloc.getUsedBytes());
+    assertEquals(1, alloc.getFreeBufferCount());
+    // the budget is exhausted, the buffer of the dead thread is reused
+    ByteBuff buff = alloc.allocate(BUF_SIZE);
+    assertEquals(0, alloc.getHeapAllocationBytes());
+    assertEquals(BUF_SIZE, alloc.getUsedBytes());
+    buff.release();
+    alloc.clean();
+  }
+
+  @Test
+  public void testReclaimMagazineOfIdleThread() throws InterruptedException {
+    SizeClassByteBuffAllocator alloc =
+      new SizeClassByteBuffAllocator(true, 1, BUF_SIZE, BUF_SIZE / 6, 1, 4);
+    CountDownLatch released = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(1);
+    Thread t = new Thread(() -> {
+      ByteBuff buff = alloc.allocateOneBuffer();
+      // released into the magazine of this thread, which then stays alive but idle
+      buff.release();
+      released.countDown();
+      try {
+        done.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    t.start();
+    try {
+      released.await();
+      assertEquals(1, alloc.getFreeBufferCount());
+      Thread.sleep(TimeUnit.NANOSECONDS.toMillis(SizeClassByteBuffAllocator.IDLE_MAGAZINE_NANOS)
+        + 100);
+      // the budget is exhausted, the buffer of the idle thread is reused
+      ByteBuff buff = alloc.allocate(BUF_SIZE);
+      assertEquals(0, alloc.getHeapAllocationBytes());
+      assertEquals(BUF_SIZE, alloc.getUsedBytes());
+      buff.release();
+    } finally {
+      done.countDown();
+      t.join();
+    }
+    alloc.clean();
+  }
+}
@@ -221,6 +221,7 @@ class TDataBlockEncoding(object):
     DIFF = 3
     FAST_DIFF = 4
     ROW_INDEX_V1 = 7
+    CELL_INDEX = 8
 
     _VALUES_TO_NAMES = {
         0: "NONE",
@@ -228,6 +229,7 @@ class TDataBlockEncoding(object):
         3: "DIFF",
         4: "FAST_DIFF",
         7: "ROW_INDEX_V1",
+        8: "CELL_INDEX",
     }
 
     _NAMES_TO_VALUES = {
@@ -236,6 +238,7 @@ class TDataBlockEncoding(object):
         "DIFF": 3,
         "FAST_DIFF": 4,
         "ROW_INDEX_V1": 7,
+        "CELL_INDEX": 8,
     }
 
 
@@ -73,6 +73,9 @@ public interface MetricsHBaseServerSource extends ExceptionTrackingSource {
   String NUM_ACTIVE_HANDLER_DESC = "Total number of active rpc handlers.";
   String NUM_ACTIVE_GENERAL_HANDLER_NAME = "numActiveGeneralHandler";
   String NUM_ACTIVE_GENERAL_HANDLER_DESC = "Number of active general rpc handlers.";
+  String NUM_ENABLED_GENERAL_HANDLER_NAME = "numEnabledGeneralHandler";
+  String NUM_ENABLED_GENERAL_HANDLER_DESC =
+    "Number of general rpc handlers allowed to take calls, changes when handlers are adaptive.";
   String NUM_ACTIVE_PRIORITY_HANDLER_NAME = "numActivePriorityHandler";
   String NUM_ACTIVE_PRIORITY_HANDLER_DESC = "Number of active priority rpc handlers.";
   String NUM_ACTIVE_REPLICATION_HANDLER_NAME = "numActiveReplicationHandler";
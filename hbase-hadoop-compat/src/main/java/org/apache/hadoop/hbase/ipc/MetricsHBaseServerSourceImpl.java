@@ -153,6 +153,8 @@ public class MetricsHBaseServerSourceImpl extends ExceptionTrackingSourceImpl
           wrapper.getActiveRpcHandlerCount())
         .addGauge(Interns.info(NUM_ACTIVE_GENERAL_HANDLER_NAME, NUM_ACTIVE_GENERAL_HANDLER_DESC),
           wrapper.getActiveGeneralRpcHandlerCount())
+        .addGauge(Interns.info(NUM_ENABLED_GENERAL_HANDLER_NAME, NUM_ENABLED_GENERAL_HANDLER_DESC),
+          wrapper.getEnabledGeneralRpcHandlerCount())
         .addGauge(Interns.info(NUM_ACTIVE_PRIORITY_HANDLER_NAME, NUM_ACTIVE_PRIORITY_HANDLER_DESC),
           wrapper.getActivePriorityRpcHandlerCount())
         .addGauge(
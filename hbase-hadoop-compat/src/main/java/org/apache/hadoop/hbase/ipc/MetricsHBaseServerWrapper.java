@@ -37,6 +37,8 @@ public interface MetricsHBaseServerWrapper {
 
   int getActiveGeneralRpcHandlerCount();
 
+  int getEnabledGeneralRpcHandlerCount();
+
   int getActivePriorityRpcHandlerCount();
 
   int getActiveReplicationRpcHandlerCount();
@@ -580,6 +580,9 @@ public interface MetricsRegionServerSource extends BaseSource, JvmPauseMonitorSo
   String BYTE_BUFF_ALLOCATOR_TOTAL_BUFFER_COUNT_DESC = "Total buffer count in ByteBuffAllocator";
   String BYTE_BUFF_ALLOCATOR_USED_BUFFER_COUNT = "ByteBuffAllocatorUsedBufferCount";
   String BYTE_BUFF_ALLOCATOR_USED_BUFFER_COUNT_DESC = "Used buffer count in ByteBuffAllocator";
+  String BYTE_BUFF_ALLOCATOR_POOL_FRAGMENTATION_RATIO = "ByteBuffAllocatorPoolFragmentationRatio";
+  String BYTE_BUFF_ALLOCATOR_POOL_FRAGMENTATION_RATIO_DESC =
+    "Ratio of the pool allocation bytes of ByteBuffAllocator wasted by oversized buffers";
 
   String ACTIVE_SCANNERS = "activeScanners";
   String ACTIVE_SCANNERS_DESC = "Gauge of currently active scanners";
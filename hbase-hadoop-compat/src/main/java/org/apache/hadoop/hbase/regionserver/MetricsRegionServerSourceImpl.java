@@ -579,6 +579,10 @@ public class MetricsRegionServerSourceImpl extends BaseSourceImpl
         rsWrap.getByteBuffAllocatorTotalBufferCount())
       .addGauge(Interns.info(BYTE_BUFF_ALLOCATOR_USED_BUFFER_COUNT,
         BYTE_BUFF_ALLOCATOR_USED_BUFFER_COUNT_DESC), rsWrap.getByteBuffAllocatorUsedBufferCount())
+      .addGauge(
+        Interns.info(BYTE_BUFF_ALLOCATOR_POOL_FRAGMENTATION_RATIO,
+          BYTE_BUFF_ALLOCATOR_POOL_FRAGMENTATION_RATIO_DESC),
+        rsWrap.getByteBuffAllocatorPoolFragmentationRatio())
       .addGauge(Interns.info(ACTIVE_SCANNERS, ACTIVE_SCANNERS_DESC), rsWrap.getActiveScanners());
   }
 
@@ -589,5 +589,7 @@ public interface MetricsRegionServerWrapper {
 
   long getByteBuffAllocatorUsedBufferCount();
 
+  double getByteBuffAllocatorPoolFragmentationRatio();
+
   int getActiveScanners();
 }
@@ -57,6 +57,13 @@ public interface MetricsWALSource extends BaseSource {
   String SLOW_APPEND_COUNT_DESC = "Number of appends that were slow.";
   String SYNC_TIME = "syncTime";
   String SYNC_TIME_DESC = "The time it took to sync the WAL to HDFS.";
+  String SYNCS_PER_BATCH = "syncsPerBatch";
+  String SYNCS_PER_BATCH_DESC = "Number of sync calls released by one sync of the WAL.";
+  String EDITS_PER_SYNC = "editsPerSync";
+  String EDITS_PER_SYNC_DESC = "Number of edits appended to the WAL per sync of the WAL.";
+  String SYNC_WAIT_TIME = "syncWaitTime";
+  String SYNC_WAIT_TIME_DESC =
+    "The time in microseconds a sync call waited for its sync, including the group commit window.";
   String ROLL_REQUESTED = "rollRequest";
   String ROLL_REQUESTED_DESC = "How many times a roll has been requested total";
   String ERROR_ROLL_REQUESTED = "errorRollRequest";
@@ -101,6 +108,16 @@ public interface MetricsWALSource extends BaseSource {
    */
   void incrementSyncTime(long time);
 
+  /**
+   * Add the number of sync calls released by one sync and the number of edits it covered.
+   */
+  void incrementSyncBatch(int syncs, long edits);
+
+  /**
+   * Add the time, in microseconds, a sync call waited for its sync.
+   */
+  void incrementSyncWaitTime(long time);
+
   void incrementLogRollRequested();
 
   void incrementErrorLogRoll();
@@ -36,6 +36,9 @@ public class MetricsWALSourceImpl extends BaseSourceImpl implements MetricsWALSo
   private final MetricHistogram appendSizeHisto;
   private final MetricHistogram appendTimeHisto;
   private final MetricHistogram syncTimeHisto;
+  private final MetricHistogram syncsPerBatchHisto;
+  private final MetricHistogram editsPerSyncHisto;
+  private final MetricHistogram syncWaitTimeHisto;
   private final MutableFastCounter appendCount;
   private final MutableFastCounter slowAppendCount;
   private final MutableFastCounter logRollRequested;
@@ -64,6 +67,10 @@ public class MetricsWALSourceImpl extends BaseSourceImpl implements MetricsWALSo
     slowAppendCount =
       this.getMetricsRegistry().newCounter(SLOW_APPEND_COUNT, SLOW_APPEND_COUNT_DESC, 0L);
     syncTimeHisto = this.getMetricsRegistry().newTimeHistogram(SYNC_TIME, SYNC_TIME_DESC);
+    syncsPerBatchHisto =
+      this.getMetricsRegistry().newHistogram(SYNCS_PER_BATCH, SYNCS_PER_BATCH_DESC);
+    editsPerSyncHisto = this.getMetricsRegistry().newHistogram(EDITS_PER_SYNC, EDITS_PER_SYNC_DESC);
+    syncWaitTimeHisto = this.getMetricsRegistry().newHistogram(SYNC_WAIT_TIME, SYNC_WAIT_TIME_DESC);
     logRollRequested =
       this.getMetricsRegistry().newCounter(ROLL_REQUESTED, ROLL_REQUESTED_DESC, 0L);
     errorRollRequested =
@@ -124,6 +131,17 @@ public class MetricsWALSourceImpl extends BaseSourceImpl implements MetricsWALSo
     syncTimeHisto.add(time);
   }
 
+  @Override
+  public void incrementSyncBatch(int syncs, long edits) {
+    syncsPerBatchHisto.add(syncs);
+    editsPerSyncHisto.add(edits);
+  }
+
+  @Override
+  public void incrementSyncWaitTime(long time) {
+    syncWaitTimeHisto.add(time);
+  }
+
   @Override
   public void incrementLogRollRequested() {
     logRollRequested.incr();
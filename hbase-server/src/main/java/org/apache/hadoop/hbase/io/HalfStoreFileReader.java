@@ -27,6 +27,7 @@ import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.PrivateCellUtil;
 import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
 import org.apache.hadoop.hbase.io.hfile.CacheConfig;
 import org.apache.hadoop.hbase.io.hfile.HFileInfo;
 import org.apache.hadoop.hbase.io.hfile.HFileScanner;
@@ -269,6 +270,11 @@ public class HalfStoreFileReader extends StoreFileReader {
         return null;
       }
 
+      @Override
+      public DataBlockEncoding getCurrentBlockEncoding() {
+        return delegate.getCurrentBlockEncoding();
+      }
+
       @Override
       public void close() {
         this.delegate.close();
@@ -608,6 +608,12 @@ public abstract class HFileReaderImpl implements HFile.Reader, Configurable {
       return nextIndexedKey;
     }
 
+    @Override
+    public DataBlockEncoding getCurrentBlockEncoding() {
+      HFileBlock block = this.curBlock;
+      return block != null ? block.getDataBlockEncoding() : DataBlockEncoding.NONE;
+    }
+
     @Override
     public int seekTo(Cell key) throws IOException {
       return seekTo(key, true);
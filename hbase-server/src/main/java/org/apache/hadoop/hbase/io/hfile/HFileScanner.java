@@ -21,6 +21,7 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
 import org.apache.hadoop.hbase.regionserver.Shipper;
 import org.apache.yetus.audience.InterfaceAudience;
 
@@ -140,6 +141,12 @@ public interface HFileScanner extends Shipper, Closeable {
    */
   Cell getNextIndexedKey();
 
+  /**
+   * @return the data block encoding of the current block, {@link DataBlockEncoding#NONE} if it is
+   *         not encoded or the scanner is not seeked
+   */
+  DataBlockEncoding getCurrentBlockEncoding();
+
   /**
    * Close this HFile scanner and do necessary cleanup.
    */
@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.ipc;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.util.JVM;
+import org.apache.hadoop.hbase.util.Threads;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.hbase.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Sizes the set of enabled handlers of an {@link RpcExecutor} after the time the calls wait in the
+ * call queues.
+ * <p>
+ * All the handlers are started up front and the handlers above the current limit just park, so
+ * resizing is cheap. Every {@link #INTERVAL_KEY} the limit grows by a quarter when the calls waited
+ * longer than {@link #TARGET_WAIT_KEY} on average, unless the CPUs are already saturated in which
+ * case more threads would not help, and shrinks by a tenth when the calls hardly waited and less
+ * than half of the enabled handlers are busy. The limit stays between {@link #MIN_HANDLERS_KEY} and
+ * the configured handler count. The handlers are assigned to the queues round robin, so as long as
+ * the limit is not lower than the number of queues every queue keeps a handler.
+ */
+@InterfaceAudience.Private
+class AdaptiveHandlerPool {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AdaptiveHandlerPool.class);
+
+  /** Whether to resize the enabled handler set of the executors at runtime. */
+  static final String ENABLED_KEY = "hbase.ipc.server.handler.adaptive.enabled";
+
+  static final boolean DEFAULT_ENABLED = false;
+
+  /** The minimum number of enabled handlers, as a fraction of the configured handler count. */
+  static final String MIN_HANDLERS_KEY = "hbase.ipc.server.handler.adaptive.min.ratio";
+
+  static final float DEFAULT_MIN_HANDLERS = 0.25f;
+
+  /** The average queue wait time, in milliseconds, above which more handlers are enabled. */
+  static final String TARGET_WAIT_KEY = "hbase.ipc.server.handler.adaptive.target.wait";
+
+  static final long DEFAULT_TARGET_WAIT = 10;
+
+  /**
+   * The CPU utilization of the system, between 0 and 1, above which no more handlers are enabled.
+   */
+  static final String MAX_CPU_KEY = "hbase.ipc.server.handler.adaptive.max.cpu";
+
+  static final float DEFAULT_MAX_CPU = 0.9f;
+
+  /** The period of the resizing, in milliseconds. */
+  static final String INTERVAL_KEY = "hbase.ipc.server.handler.adaptive.interval";
+
+  static final long DEFAULT_INTERVAL = 5000;
+
+  private final String name;
+
+  private final int minHandlers;
+
+  private final int maxHandlers;
+
+  private final long targetWait;
+
+  private final double maxCpu;
+
+  private final long interval;
+
+  private final AtomicInteger activeHandlerCount;
+
+  private final JVM jvm = new JVM();
+
+  private final LongAdder waitTime = new LongAdder();
+
+  private final LongAdder calls = new LongAdder();
+
+  private final Object lock = new Object();
+
+  private volatile int limit;
+
+  private ScheduledExecutorService chore;
+
+  AdaptiveHandlerPool(String name, int handlerCount, int numCallQueues,
+    AtomicInteger activeHandlerCount, Configuration conf) {
+    this.name = name;
+    this.maxHandlers = handlerCount;
+    this.minHandlers = Math.min(handlerCount, Math.max(numCallQueues,
+      (int) Math.ceil(handlerCount * conf.getFloat(MIN_HANDLERS_KEY, DEFAULT_MIN_HANDLERS))));
+    this.targetWait = conf.getLong(TARGET_WAIT_KEY, DEFAULT_TARGET_WAIT);
+    this.maxCpu = conf.getFloat(MAX_CPU_KEY, DEFAULT_MAX_CPU);
+    this.interval = conf.getLong(INTERVAL_KEY, DEFAULT_INTERVAL);
+    this.activeHandlerCount = activeHandlerCount;
+    this.limit = handlerCount;
+  }
+
+  static boolean isEnabled(Configuration conf) {
+    return conf != null && conf.getBoolean(ENABLED_KEY, DEFAULT_ENABLED);
+  }
+
+  void start() {
+    chore = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setNameFormat("RpcServer." + name + ".handlerSizer")
+        .setDaemon(true).setUncaughtExceptionHandler(Threads.LOGGING_EXCEPTION_HANDLER).build());
+    chore.scheduleAtFixedRate(this::resize, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  void stop() {
+    if (chore != null) {
+      chore.shutdownNow();
+    }
+    // Let the parked handlers see that they are stopped
+    setLimit(maxHandlers);
+  }
+
+  /**
+   * Returns the number of handlers currently allowed to take calls.
+   */
+  int getLimit() {
+    return limit;
+  }
+
+  /**
+   * Called by the handler of the given index before it takes a call, parks it while it is above
+   * the limit.
+   */
+  void awaitEnabled(int index) throws InterruptedException {
+    if (index < limit) {
+      return;
+    }
+    synchronized (lock) {
+      while (index >= limit) {
+        lock.wait();
+      }
+    }
+  }
+
+  /**
+   * Called by the handlers with the time a call waited in its queue.
+   */
+  void recordQueueWait(long time) {
+    waitTime.add(time);
+    calls.increment();
+  }
+
+  /**
+   * Returns the recent CPU utilization of the system. Only the time the CPUs were busy counts,
+   * unlike the load average which also counts the threads waiting for IO, so a server bound by its
+   * WAL or by HDFS does not look saturated and still gets more handlers. Falls back to the load
+   * average per processor on JVMs which do not report the CPU load.
+   */
+  private double getCpuUtilization() {
+    double cpuLoad = jvm.getCpuLoad();
+    if (cpuLoad >= 0) {
+      return cpuLoad;
+    }
+    double load = jvm.getSystemLoadAverage();
+    return load < 0 ? 0 : load / Runtime.getRuntime().availableProcessors();
+  }
+
+  void resize() {
+    long n = calls.sumThenReset();
+    long wait = waitTime.sumThenReset();
+    long avgWait = n == 0 ? 0 : wait / n;
+    int current = limit;
+    int newLimit = current;
+    if (avgWait > targetWait) {
+      if (current < maxHandlers && getCpuUtilization() < maxCpu) {
+        newLimit = Math.min(maxHandlers, current + Math.max(1, current / 4));
+      }
+    } else if (avgWait < targetWait / 2 && activeHandlerCount.get() < current / 2) {
+      newLimit = Math.max(minHandlers, current - Math.max(1, current / 10));
+    }
+    if (newLimit != current) {
+      LOG.info("{} enabled handlers {} -> {}, average queue wait {} ms over {} calls", name,
+        current, newLimit, avgWait, n);
+      setLimit(newLimit);
+    }
+  }
+
+  private void setLimit(int newLimit) {
+    synchronized (lock) {
+      limit = newLimit;
+      lock.notifyAll();
+    }
+  }
+}
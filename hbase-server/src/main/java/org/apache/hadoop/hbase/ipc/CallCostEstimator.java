@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.ipc;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.security.User;
+import org.apache.yetus.audience.InterfaceAudience;
+
+import org.apache.hbase.thirdparty.com.google.protobuf.ByteString;
+import org.apache.hbase.thirdparty.com.google.protobuf.Message;
+
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.GetRequest;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.MultiRequest;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.MutateRequest;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.RegionAction;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.ScanRequest;
+
+/**
+ * Estimates the cost of a call, in microseconds of handler time, before it is executed.
+ * <p>
+ * The cost of a call is the number of actions it carries, i.e, the Gets and Mutations of a multi
+ * or the rows asked for by a scan, times the average processing time per action observed for the
+ * region the call targets, plus a cost proportional to the request size. The processing time per
+ * action of a region is learnt from the calls which have been executed, see
+ * {@link #record(Estimate, long)}, so calls against a slow region, e.g. one which has to read from
+ * disk, are estimated more expensive.
+ */
+@InterfaceAudience.Private
+class CallCostEstimator {
+
+  /** The cost of an action against a region no call has been executed for yet, in microseconds. */
+  static final String DEFAULT_ACTION_COST_KEY = "hbase.ipc.server.callqueue.cost.action.default";
+
+  static final long DEFAULT_DEFAULT_ACTION_COST = 100;
+
+  /** The cost of one KB of request, in microseconds. */
+  static final String KB_COST_KEY = "hbase.ipc.server.callqueue.cost.kb";
+
+  static final long DEFAULT_KB_COST = 10;
+
+  // The rows of a scan are much cheaper than independent actions, do not count more than this
+  private static final int MAX_SCAN_ACTIONS = 100;
+
+  // Bound the memory used for the regions which have been closed or moved away meanwhile
+  private static final int MAX_TRACKED_REGIONS = 10000;
+
+  // The weight of a new sample in the moving average of the processing time per action
+  private static final double ALPHA = 0.1;
+
+  /**
+   * The estimated cost of a call, and what is needed to learn from its actual processing time.
+   */
+  static final class Estimate {
+
+    private final String user;
+
+    private final ByteString table;
+
+    private final ByteString region;
+
+    private final int actions;
+
+    private final long cost;
+
+    Estimate(String user, ByteString table, ByteString region, int actions, long cost) {
+      this.user = user;
+      this.table = table;
+      this.region = region;
+      this.actions = actions;
+      this.cost = cost;
+    }
+
+    /** Returns the name of the user issuing the call, empty if unknown. */
+    String getUser() {
+      return user;
+    }
+
+    /** Returns the name of the table the call targets, empty if unknown. */
+    ByteString getTable() {
+      return table;
+    }
+
+    long getCost() {
+      return cost;
+    }
+  }
+
+  private final Map<ByteString, double[]> actionCosts = new ConcurrentHashMap<>();
+
+  private final long defaultActionCost;
+
+  private final long kbCost;
+
+  CallCostEstimator(Configuration conf) {
+    this.defaultActionCost = conf.getLong(DEFAULT_ACTION_COST_KEY, DEFAULT_DEFAULT_ACTION_COST);
+    this.kbCost = conf.getLong(KB_COST_KEY, DEFAULT_KB_COST);
+  }
+
+  Estimate estimate(RpcCall call) {
+    Message param = call.getParam();
+    ByteString region = getRegionName(param);
+    int actions = getActionCount(param);
+    double actionCost = defaultActionCost;
+    if (region != null) {
+      double[] average = actionCosts.get(region);
+      if (average != null) {
+        actionCost = average[0];
+      }
+    }
+    long cost = Math.max(1, (long) (actions * actionCost) + call.getSize() * kbCost / 1024);
+    String user = call.getRequestUser().map(User::getName).orElse("");
+    return new Estimate(user, getTable(region), region, actions, cost);
+  }
+
+  /**
+   * Learn from the processing time of a call which has been executed.
+   */
+  void record(Estimate estimate, long processingTimeNs) {
+    if (estimate.region == null || processingTimeNs < 0) {
+      return;
+    }
+    double sample = processingTimeNs / 1000.0 / estimate.actions;
+    double[] average = actionCosts.get(estimate.region);
+    if (average == null) {
+      if (actionCosts.size() >= MAX_TRACKED_REGIONS) {
+        actionCosts.clear();
+      }
+      actionCosts.putIfAbsent(estimate.region, new double[] { sample });
+      return;
+    }
+    // Racy, a lost update only loses one sample
+    average[0] += ALPHA * (sample - average[0]);
+  }
+
+  /**
+   * Returns the name of the region the given request targets, the first one for a multi, or null
+   * if the request does not carry one.
+   */
+  static ByteString getRegionName(Message param) {
+    if (param instanceof GetRequest) {
+      return ((GetRequest) param).getRegion().getValue();
+    } else if (param instanceof MutateRequest) {
+      return ((MutateRequest) param).getRegion().getValue();
+    } else if (param instanceof MultiRequest) {
+      MultiRequest multi = (MultiRequest) param;
+      return multi.getRegionActionCount() > 0
+        ? multi.getRegionAction(0).getRegion().getValue()
+        : null;
+    } else if (param instanceof ScanRequest) {
+      ScanRequest scan = (ScanRequest) param;
+      // A scan continued by scanner id does not carry its region
+      return scan.hasRegion() ? scan.getRegion().getValue() : null;
+    }
+    return null;
+  }
+
+  private static int getActionCount(Message param) {
+    if (param instanceof MultiRequest) {
+      int actions = 0;
+      for (RegionAction regionAction : ((MultiRequest) param).getRegionActionList()) {
+        actions += regionAction.getActionCount();
+      }
+      return Math.max(1, actions);
+    } else if (param instanceof ScanRequest) {
+      ScanRequest scan = (ScanRequest) param;
+      return scan.hasNumberOfRows()
+        ? Math.max(1, Math.min(scan.getNumberOfRows(), MAX_SCAN_ACTIONS))
+        : 1;
+    }
+    return 1;
+  }
+
+  /**
+   * Returns the table part of a region name, i.e, up to the first delimiter, or an empty string if
+   * the region is null.
+   */
+  static ByteString getTable(ByteString region) {
+    if (region == null) {
+      return ByteString.EMPTY;
+    }
+    for (int i = 0, n = region.size(); i < n; i++) {
+      if (region.byteAt(i) == ',') {
+        return region.substring(0, i);
+      }
+    }
+    return region;
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.ipc;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * An iterator over a snapshot of the calls of a call queue, which removes calls from the queue
+ * itself. The removeAll, retainAll and removeIf of {@link java.util.AbstractQueue} remove through
+ * the iterator, and would otherwise only remove from the snapshot.
+ */
+@InterfaceAudience.Private
+final class CallQueueSnapshotIterator implements Iterator<CallRunner> {
+
+  private final Iterator<CallRunner> snapshot;
+
+  private final Queue<CallRunner> queue;
+
+  private CallRunner last;
+
+  CallQueueSnapshotIterator(List<CallRunner> snapshot, Queue<CallRunner> queue) {
+    this.snapshot = snapshot.iterator();
+    this.queue = queue;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return snapshot.hasNext();
+  }
+
+  @Override
+  public CallRunner next() {
+    last = snapshot.next();
+    return last;
+  }
+
+  @Override
+  public void remove() {
+    if (last == null) {
+      throw new IllegalStateException();
+    }
+    queue.remove(last);
+    last = null;
+  }
+}
@@ -22,6 +22,7 @@ import io.opentelemetry.api.trace.StatusCode;
 import io.opentelemetry.context.Scope;
 import java.net.InetSocketAddress;
 import java.nio.channels.ClosedChannelException;
+import java.util.function.LongConsumer;
 import org.apache.hadoop.hbase.CallDroppedException;
 import org.apache.hadoop.hbase.CellScanner;
 import org.apache.hadoop.hbase.HBaseInterfaceAudience;
@@ -53,6 +54,7 @@ public class CallRunner {
   private MonitoredRPCHandler status;
   private final Span span;
   private volatile boolean successful;
+  private LongConsumer processingTimeCallback;
 
   /**
    * On construction, adds the size of this call to the running count of outstanding call sizes.
@@ -78,6 +80,14 @@ public class CallRunner {
     this.status = status;
   }
 
+  /**
+   * Set a callback which is given the processing time of the call, in nanoseconds, once it has
+   * been executed. Used by call queues which schedule calls by the cost of the previous ones.
+   */
+  public void setProcessingTimeCallback(LongConsumer processingTimeCallback) {
+    this.processingTimeCallback = processingTimeCallback;
+  }
+
   /**
    * Cleanup after ourselves... let go of references.
    */
@@ -114,6 +124,8 @@ public class CallRunner {
       Pair<Message, CellScanner> resultPair = null;
       RpcServer.CurCall.set(call);
       final Span ipcServerSpan = new IpcServerSpanBuilder(call).build();
+      // The start time is in milliseconds, cheap calls take less than that
+      long startNanos = System.nanoTime();
       try (Scope ignored1 = ipcServerSpan.makeCurrent()) {
         if (!this.rpcServer.isStarted()) {
           InetSocketAddress address = rpcServer.getListenerAddress();
@@ -144,6 +156,9 @@ public class CallRunner {
         }
       } finally {
         RpcServer.CurCall.set(null);
+        if (processingTimeCallback != null) {
+          processingTimeCallback.accept(System.nanoTime() - startNanos);
+        }
         if (resultPair != null) {
           this.rpcServer.addCallSize(call.getSize() * -1);
           ipcServerSpan.setStatus(StatusCode.OK);
@@ -0,0 +1,345 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.ipc;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.yetus.audience.InterfaceAudience;
+
+import org.apache.hbase.thirdparty.com.google.protobuf.ByteString;
+
+/**
+ * A call queue which schedules the calls by their estimated cost with weighted fair queuing across
+ * the users and tables issuing them, selected with the 'cost' call queue type.
+ * <p>
+ * Every user and table pair is a flow. A call is stamped with a virtual finish time, the virtual
+ * finish time of the previous call of its flow, or the current virtual time if the flow is idle,
+ * plus its {@link CallCostEstimator estimated cost}, and the calls are executed by increasing
+ * virtual finish time. The virtual time is the finish time of the call executed last (self-clocked
+ * fair queuing). So every flow gets the same share of the handler time, and a cheap point Get does
+ * not wait behind the expensive multis another client has queued, while calls of the same flow are
+ * still executed in order.
+ * <p>
+ * The fairness only applies within one queue, use a single call queue per executor, see
+ * {@link RpcExecutor#CALL_QUEUE_HANDLER_FACTOR_CONF_KEY}, to get it across all handlers.
+ */
+@InterfaceAudience.Private
+public class CostBasedCallQueue extends AbstractQueue<CallRunner>
+  implements BlockingQueue<CallRunner> {
+
+  // Forget the idle flows every so many calls
+  private static final int FLOW_CLEANUP_INTERVAL = 1024;
+
+  private static final class Entry {
+
+    private final CallRunner call;
+
+    private final double finish;
+
+    private final long seq;
+
+    Entry(CallRunner call, double finish, long seq) {
+      this.call = call;
+      this.finish = finish;
+      this.seq = seq;
+    }
+  }
+
+  private static final class FlowKey {
+
+    private final String user;
+
+    private final ByteString table;
+
+    FlowKey(String user, ByteString table) {
+      this.user = user;
+      this.table = table;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof FlowKey)) {
+        return false;
+      }
+      FlowKey other = (FlowKey) obj;
+      return user.equals(other.user) && table.equals(other.table);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * user.hashCode() + table.hashCode();
+    }
+  }
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final Condition notEmpty = lock.newCondition();
+
+  private final Condition notFull = lock.newCondition();
+
+  private final PriorityQueue<Entry> queue = new PriorityQueue<>((a, b) -> {
+    int c = Double.compare(a.finish, b.finish);
+    return c != 0 ? c : Long.compare(a.seq, b.seq);
+  });
+
+  // The virtual finish time of the last call of each flow
+  private final Map<FlowKey, double[]> flows = new HashMap<>();
+
+  private final int capacity;
+
+  private final CallCostEstimator estimator;
+
+  private double virtualTime;
+
+  private long seq;
+
+  public CostBasedCallQueue(int maxQueueLength, PriorityFunction priority, Configuration conf) {
+    this.capacity = maxQueueLength;
+    this.estimator = new CallCostEstimator(conf);
+  }
+
+  /**
+   * Estimate the cost of the call, outside of the lock, and arrange to learn from its actual
+   * processing time.
+   */
+  private CallCostEstimator.Estimate estimate(CallRunner call) {
+    CallCostEstimator.Estimate estimate = estimator.estimate(call.getRpcCall());
+    call.setProcessingTimeCallback(time -> estimator.record(estimate, time));
+    return estimate;
+  }
+
+  private void enqueue(CallRunner call, CallCostEstimator.Estimate estimate) {
+    FlowKey key = new FlowKey(estimate.getUser(), estimate.getTable());
+    double[] lastFinish = flows.computeIfAbsent(key, k -> new double[1]);
+    double start = Math.max(virtualTime, lastFinish[0]);
+    lastFinish[0] = start + estimate.getCost();
+    queue.add(new Entry(call, lastFinish[0], seq++));
+    notEmpty.signal();
+  }
+
+  private CallRunner dequeue() {
+    Entry entry = queue.poll();
+    virtualTime = Math.max(virtualTime, entry.finish);
+    if (entry.seq % FLOW_CLEANUP_INTERVAL == 0) {
+      flows.values().removeIf(lastFinish -> lastFinish[0] <= virtualTime);
+    }
+    notFull.signal();
+    return entry.call;
+  }
+
+  @Override
+  public boolean offer(CallRunner call) {
+    Objects.requireNonNull(call);
+    CallCostEstimator.Estimate estimate = estimate(call);
+    lock.lock();
+    try {
+      if (queue.size() >= capacity) {
+        return false;
+      }
+      enqueue(call, estimate);
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void put(CallRunner call) throws InterruptedException {
+    Objects.requireNonNull(call);
+    CallCostEstimator.Estimate estimate = estimate(call);
+    lock.lockInterruptibly();
+    try {
+      while (queue.size() >= capacity) {
+        notFull.await();
+      }
+      enqueue(call, estimate);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean offer(CallRunner call, long timeout, TimeUnit unit) throws InterruptedException {
+    Objects.requireNonNull(call);
+    CallCostEstimator.Estimate estimate = estimate(call);
+    long nanos = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      while (queue.size() >= capacity) {
+        if (nanos <= 0) {
+          return false;
+        }
+        nanos = notFull.awaitNanos(nanos);
+      }
+      enqueue(call, estimate);
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public CallRunner take() throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      while (queue.isEmpty()) {
+        notEmpty.await();
+      }
+      return dequeue();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public CallRunner poll() {
+    lock.lock();
+    try {
+      return queue.isEmpty() ? null : dequeue();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public CallRunner poll(long timeout, TimeUnit unit) throws InterruptedException {
+    long nanos = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      while (queue.isEmpty()) {
+        if (nanos <= 0) {
+          return null;
+        }
+        nanos = notEmpty.awaitNanos(nanos);
+      }
+      return dequeue();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public CallRunner peek() {
+    lock.lock();
+    try {
+      Entry entry = queue.peek();
+      return entry != null ? entry.call : null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    lock.lock();
+    try {
+      return queue.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int remainingCapacity() {
+    lock.lock();
+    try {
+      return capacity - queue.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns an iterator over a snapshot of the queued calls, in no particular order. Removing a call
+   * through the iterator removes it from this queue.
+   */
+  @Override
+  public Iterator<CallRunner> iterator() {
+    List<CallRunner> calls;
+    lock.lock();
+    try {
+      calls = new ArrayList<>(queue.size());
+      for (Entry entry : queue) {
+        calls.add(entry.call);
+      }
+    } finally {
+      lock.unlock();
+    }
+    return new CallQueueSnapshotIterator(calls, this);
+  }
+
+  /**
+   * Removes the given call if it is still queued, as required by {@link BlockingQueue}. The
+   * default of {@link java.util.AbstractCollection} would remove it from a snapshot only.
+   */
+  @Override
+  public boolean remove(Object o) {
+    lock.lock();
+    try {
+      Iterator<Entry> it = queue.iterator();
+      while (it.hasNext()) {
+        if (it.next().call.equals(o)) {
+          it.remove();
+          notFull.signal();
+          return true;
+        }
+      }
+      return false;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int drainTo(Collection<? super CallRunner> c) {
+    return drainTo(c, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public int drainTo(Collection<? super CallRunner> c, int maxElements) {
+    Objects.requireNonNull(c);
+    if (c == this) {
+      throw new IllegalArgumentException();
+    }
+    lock.lock();
+    try {
+      int n = Math.min(queue.size(), Math.max(0, maxElements));
+      for (int i = 0; i < n; i++) {
+        c.add(dequeue());
+      }
+      return n;
+    } finally {
+      lock.unlock();
+    }
+  }
+}
@@ -0,0 +1,416 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.ipc;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * A call queue made of virtual queues, one per group of tenants, which are served by deficit round
+ * robin, selected with the 'fairshare' call queue type.
+ * <p>
+ * The calls are put in the virtual queue of their tenant chosen by a {@link TenantQueueBalancer}.
+ * The virtual queues are visited in turn and every visit credits the queue with a quantum. A queue
+ * is served as long as the {@link CallCostEstimator estimated cost} of its head call does not
+ * exceed its credit, which is then charged with that cost. So every active tenant group gets the
+ * same share of the handler time whatever the number and the cost of its calls, while the handlers
+ * of the executor are shared by all tenants, see {@link FairShareRpcExecutor}. A virtual queue may
+ * hold at most a fraction of the queue capacity, so a noisy tenant can not fill the whole queue and
+ * get the calls of the others rejected.
+ */
+@InterfaceAudience.Private
+public class FairShareCallQueue extends AbstractQueue<CallRunner>
+  implements BlockingQueue<CallRunner> {
+
+  /** The number of virtual queues the tenants are hashed to. */
+  public static final String VIRTUAL_QUEUES_CONF_KEY =
+    "hbase.ipc.server.callqueue.fairshare.queues";
+
+  public static final int DEFAULT_VIRTUAL_QUEUES = 16;
+
+  /** The credit given to a virtual queue on every visit, in microseconds of estimated cost. */
+  public static final String QUANTUM_CONF_KEY = "hbase.ipc.server.callqueue.fairshare.quantum";
+
+  public static final long DEFAULT_QUANTUM = 1000;
+
+  /** The fraction of the queue capacity a single virtual queue may hold. */
+  public static final String MAX_SHARE_CONF_KEY = "hbase.ipc.server.callqueue.fairshare.max.share";
+
+  public static final float DEFAULT_MAX_SHARE = 0.5f;
+
+  private static final class Entry {
+
+    private final CallRunner call;
+
+    private final long cost;
+
+    Entry(CallRunner call, long cost) {
+      this.call = call;
+      this.cost = cost;
+    }
+  }
+
+  private static final class VirtualQueue {
+
+    private final ArrayDeque<Entry> calls = new ArrayDeque<>();
+
+    private long deficit;
+
+    // Whether the queue got its quantum for the current visit
+    private boolean credited;
+  }
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final Condition notEmpty = lock.newCondition();
+
+  private final Condition notFull = lock.newCondition();
+
+  private final VirtualQueue[] queues;
+
+  private final TenantQueueBalancer balancer;
+
+  private final CallCostEstimator estimator;
+
+  private final int capacity;
+
+  private final int virtualQueueCapacity;
+
+  private final long quantum;
+
+  private int size;
+
+  private int nonEmptyQueues;
+
+  private int current;
+
+  public FairShareCallQueue(int maxQueueLength, PriorityFunction priority, Configuration conf) {
+    int virtualQueues = Math.max(1, conf.getInt(VIRTUAL_QUEUES_CONF_KEY, DEFAULT_VIRTUAL_QUEUES));
+    this.queues = new VirtualQueue[virtualQueues];
+    for (int i = 0; i < virtualQueues; i++) {
+      queues[i] = new VirtualQueue();
+    }
+    this.balancer = new TenantQueueBalancer(conf, virtualQueues);
+    this.estimator = new CallCostEstimator(conf);
+    this.capacity = maxQueueLength;
+    this.virtualQueueCapacity =
+      Math.max(1, (int) (maxQueueLength * conf.getFloat(MAX_SHARE_CONF_KEY, DEFAULT_MAX_SHARE)));
+    this.quantum = Math.max(1, conf.getLong(QUANTUM_CONF_KEY, DEFAULT_QUANTUM));
+  }
+
+  /**
+   * Estimate the cost of the call, outside of the lock, and arrange to learn from its actual
+   * processing time.
+   */
+  private Entry newEntry(CallRunner call) {
+    CallCostEstimator.Estimate estimate = estimator.estimate(call.getRpcCall());
+    call.setProcessingTimeCallback(time -> estimator.record(estimate, time));
+    return new Entry(call, estimate.getCost());
+  }
+
+  private boolean isFull(VirtualQueue queue) {
+    return size >= capacity || queue.calls.size() >= virtualQueueCapacity;
+  }
+
+  private void enqueue(VirtualQueue queue, Entry entry) {
+    if (queue.calls.isEmpty()) {
+      nonEmptyQueues++;
+    }
+    queue.calls.addLast(entry);
+    size++;
+    notEmpty.signal();
+  }
+
+  private CallRunner dequeue() {
+    int misses = 0;
+    while (true) {
+      VirtualQueue queue = queues[current];
+      if (queue.calls.isEmpty()) {
+        current = (current + 1) % queues.length;
+        continue;
+      }
+      if (!queue.credited) {
+        queue.deficit += quantum;
+        queue.credited = true;
+      }
+      Entry head = queue.calls.peekFirst();
+      if (head.cost <= queue.deficit) {
+        queue.deficit -= head.cost;
+        queue.calls.pollFirst();
+        size--;
+        if (queue.calls.isEmpty()) {
+          // An idle queue does not keep its credit
+          queue.deficit = 0;
+          queue.credited = false;
+          nonEmptyQueues--;
+          current = (current + 1) % queues.length;
+        }
+        notFull.signalAll();
+        return head.call;
+      }
+      queue.credited = false;
+      current = (current + 1) % queues.length;
+      if (++misses >= nonEmptyQueues) {
+        skipRounds();
+        misses = 0;
+      }
+    }
+  }
+
+  /**
+   * No queue could be served in a whole round, credit all of them at once with the rounds needed
+   * until the first one can be served, instead of looping over them.
+   */
+  private void skipRounds() {
+    long rounds = Long.MAX_VALUE;
+    for (VirtualQueue queue : queues) {
+      if (!queue.calls.isEmpty()) {
+        long missing = queue.calls.peekFirst().cost - queue.deficit;
+        rounds = Math.min(rounds, (missing + quantum - 1) / quantum);
+      }
+    }
+    // The next round credits one more quantum
+    rounds--;
+    if (rounds > 0) {
+      for (VirtualQueue queue : queues) {
+        if (!queue.calls.isEmpty()) {
+          queue.deficit += rounds * quantum;
+        }
+      }
+    }
+  }
+
+  @Override
+  public boolean offer(CallRunner call) {
+    Objects.requireNonNull(call);
+    VirtualQueue queue = queues[balancer.getNextQueue(call)];
+    Entry entry = newEntry(call);
+    lock.lock();
+    try {
+      if (isFull(queue)) {
+        return false;
+      }
+      enqueue(queue, entry);
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void put(CallRunner call) throws InterruptedException {
+    Objects.requireNonNull(call);
+    VirtualQueue queue = queues[balancer.getNextQueue(call)];
+    Entry entry = newEntry(call);
+    lock.lockInterruptibly();
+    try {
+      while (isFull(queue)) {
+        notFull.await();
+      }
+      enqueue(queue, entry);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean offer(CallRunner call, long timeout, TimeUnit unit) throws InterruptedException {
+    Objects.requireNonNull(call);
+    VirtualQueue queue = queues[balancer.getNextQueue(call)];
+    Entry entry = newEntry(call);
+    long nanos = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      while (isFull(queue)) {
+        if (nanos <= 0) {
+          return false;
+        }
+        nanos = notFull.awaitNanos(nanos);
+      }
+      enqueue(queue, entry);
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public CallRunner take() throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      while (size == 0) {
+        notEmpty.await();
+      }
+      return dequeue();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public CallRunner poll() {
+    lock.lock();
+    try {
+      return size == 0 ? null : dequeue();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public CallRunner poll(long timeout, TimeUnit unit) throws InterruptedException {
+    long nanos = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      while (size == 0) {
+        if (nanos <= 0) {
+          return null;
+        }
+        nanos = notEmpty.awaitNanos(nanos);
+      }
+      return dequeue();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the head call of the virtual queue visited next, which is not necessarily the call
+   * served next.
+   */
+  @Override
+  public CallRunner peek() {
+    lock.lock();
+    try {
+      for (int i = 0; i < queues.length; i++) {
+        Entry head = queues[(current + i) % queues.length].calls.peekFirst();
+        if (head != null) {
+          return head.call;
+        }
+      }
+      return null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    lock.lock();
+    try {
+      return size;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int remainingCapacity() {
+    lock.lock();
+    try {
+      return capacity - size;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns an iterator over a snapshot of the queued calls, in no particular order. Removing a call
+   * through the iterator removes it from this queue.
+   */
+  @Override
+  public Iterator<CallRunner> iterator() {
+    List<CallRunner> calls;
+    lock.lock();
+    try {
+      calls = new ArrayList<>(size);
+      for (VirtualQueue queue : queues) {
+        for (Entry entry : queue.calls) {
+          calls.add(entry.call);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+    return new CallQueueSnapshotIterator(calls, this);
+  }
+
+  /**
+   * Removes the given call if it is still queued, as required by {@link BlockingQueue}. The
+   * default of {@link java.util.AbstractCollection} would remove it from a snapshot only.
+   */
+  @Override
+  public boolean remove(Object o) {
+    lock.lock();
+    try {
+      for (VirtualQueue queue : queues) {
+        Iterator<Entry> it = queue.calls.iterator();
+        while (it.hasNext()) {
+          if (it.next().call.equals(o)) {
+            it.remove();
+            size--;
+            if (queue.calls.isEmpty()) {
+              queue.deficit = 0;
+              queue.credited = false;
+              nonEmptyQueues--;
+            }
+            notFull.signalAll();
+            return true;
+          }
+        }
+      }
+      return false;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int drainTo(Collection<? super CallRunner> c) {
+    return drainTo(c, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public int drainTo(Collection<? super CallRunner> c, int maxElements) {
+    Objects.requireNonNull(c);
+    if (c == this) {
+      throw new IllegalArgumentException();
+    }
+    lock.lock();
+    try {
+      int n = Math.min(size, Math.max(0, maxElements));
+      for (int i = 0; i < n; i++) {
+        c.add(dequeue());
+      }
+      return n;
+    } finally {
+      lock.unlock();
+    }
+  }
+}
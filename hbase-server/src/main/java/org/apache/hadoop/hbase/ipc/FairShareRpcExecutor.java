@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.ipc;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Abortable;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * An {@link RpcExecutor} whose handlers all serve a single {@link FairShareCallQueue}, so the
+ * tenants share the whole handler pool instead of being pinned to the handlers of one queue.
+ */
+@InterfaceAudience.Private
+public class FairShareRpcExecutor extends BalancedQueueRpcExecutor {
+
+  public FairShareRpcExecutor(final String name, final int handlerCount, final int maxQueueLength,
+    final PriorityFunction priority, final Configuration conf, final Abortable abortable) {
+    super(name, handlerCount, CALL_QUEUE_TYPE_FAIR_SHARE_CONF_VALUE, maxQueueLength, priority,
+      conf, abortable);
+  }
+
+  @Override
+  protected int computeNumCallQueues(final int handlerCount, final float callQueuesHandlersFactor) {
+    return 1;
+  }
+}
@@ -140,6 +140,11 @@ public class FifoRpcScheduler extends RpcScheduler {
     return getActiveRpcHandlerCount();
   }
 
+  @Override
+  public int getGeneralRpcHandlerCount() {
+    return handlerCount;
+  }
+
   @Override
   public int getActivePriorityRpcHandlerCount() {
     return 0;
@@ -17,6 +17,7 @@
  */
 package org.apache.hadoop.hbase.ipc;
 
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.hadoop.hbase.CallDroppedException;
 import org.apache.hadoop.hbase.CallQueueTooBigException;
 import org.apache.hadoop.hbase.CompatibilitySingletonFactory;
@@ -42,6 +43,15 @@ public class MetricsHBaseServer {
   private MetricsHBaseServerSource source;
   private MetricsHBaseServerWrapper serverWrapper;
 
+  /**
+   * Moving average of the queue time of the calls, in milliseconds, scaled by
+   * 2^QUEUE_TIME_AVERAGE_SHIFT. Every call moves it by 1/2^QUEUE_TIME_AVERAGE_SHIFT of the
+   * difference, like the smoothed round trip time of TCP.
+   */
+  private final AtomicLong scaledQueueTimeAverage = new AtomicLong();
+
+  private static final int QUEUE_TIME_AVERAGE_SHIFT = 4;
+
   public MetricsHBaseServer(String serverName, MetricsHBaseServerWrapper wrapper) {
     serverWrapper = wrapper;
     source = CompatibilitySingletonFactory.getInstance(MetricsHBaseServerSourceFactory.class)
@@ -86,6 +96,15 @@ public class MetricsHBaseServer {
 
   void dequeuedCall(int qTime) {
     source.dequeuedCall(qTime);
+    scaledQueueTimeAverage.getAndUpdate(avg -> avg + qTime - (avg >> QUEUE_TIME_AVERAGE_SHIFT));
+  }
+
+  /**
+   * Returns the moving average of the time the recent calls spent in the call queue, in
+   * milliseconds. Reported to the clients in the region load statistics.
+   */
+  public int getQueueTimeAverage() {
+    return (int) (scaledQueueTimeAverage.get() >> QUEUE_TIME_AVERAGE_SHIFT);
   }
 
   void processedCall(int processingTime) {
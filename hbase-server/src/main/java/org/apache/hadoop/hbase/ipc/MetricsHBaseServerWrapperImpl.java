@@ -97,6 +97,14 @@ public class MetricsHBaseServerWrapperImpl implements MetricsHBaseServerWrapper
     return server.getScheduler().getActiveGeneralRpcHandlerCount();
   }
 
+  @Override
+  public int getEnabledGeneralRpcHandlerCount() {
+    if (!isServerStarted() || this.server.getScheduler() == null) {
+      return 0;
+    }
+    return server.getScheduler().getEnabledGeneralRpcHandlerCount();
+  }
+
   @Override
   public int getActivePriorityRpcHandlerCount() {
     if (!isServerStarted() || this.server.getScheduler() == null) {
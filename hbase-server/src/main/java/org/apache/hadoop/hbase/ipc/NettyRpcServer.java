@@ -46,6 +46,7 @@ import org.apache.hbase.thirdparty.io.netty.channel.group.DefaultChannelGroup;
 import org.apache.hbase.thirdparty.io.netty.channel.nio.NioEventLoopGroup;
 import org.apache.hbase.thirdparty.io.netty.channel.socket.nio.NioServerSocketChannel;
 import org.apache.hbase.thirdparty.io.netty.handler.codec.FixedLengthFrameDecoder;
+import org.apache.hbase.thirdparty.io.netty.handler.flush.FlushConsolidationHandler;
 import org.apache.hbase.thirdparty.io.netty.util.concurrent.DefaultThreadFactory;
 import org.apache.hbase.thirdparty.io.netty.util.concurrent.GlobalEventExecutor;
 
@@ -65,6 +66,16 @@ public class NettyRpcServer extends RpcServer {
     "hbase.netty.eventloop.rpcserver.thread.count";
   private static final int EVENTLOOP_THREADCOUNT_DEFAULT = 0;
 
+  /**
+   * The maximum number of response flushes merged into one while a read is in progress on the
+   * connection, 0 disables merging. When enabled the flushes of the responses written by the
+   * handlers are also merged into one task run by the event loop, so a busy connection issues one
+   * write system call for many responses.
+   */
+  public static final String HBASE_NETTY_RPCSERVER_FLUSH_CONSOLIDATION_KEY =
+    "hbase.netty.rpcserver.flush.consolidation";
+  private static final int FLUSH_CONSOLIDATION_DEFAULT = 0;
+
   private final InetSocketAddress bindAddress;
 
   private final CountDownLatch closed = new CountDownLatch(1);
@@ -92,6 +103,8 @@ public class NettyRpcServer extends RpcServer {
         new DefaultThreadFactory("NettyRpcServer", true, Thread.MAX_PRIORITY));
       channelClass = NioServerSocketChannel.class;
     }
+    int flushConsolidation =
+      conf.getInt(HBASE_NETTY_RPCSERVER_FLUSH_CONSOLIDATION_KEY, FLUSH_CONSOLIDATION_DEFAULT);
     ServerBootstrap bootstrap = new ServerBootstrap().group(eventLoopGroup).channel(channelClass)
       .childOption(ChannelOption.TCP_NODELAY, tcpNoDelay)
       .childOption(ChannelOption.SO_KEEPALIVE, tcpKeepAlive)
@@ -101,6 +114,11 @@ public class NettyRpcServer extends RpcServer {
         @Override
         protected void initChannel(Channel ch) throws Exception {
           ChannelPipeline pipeline = ch.pipeline();
+          if (flushConsolidation > 0) {
+            // Must see the reads of the connection, so goes first
+            pipeline.addLast("flushConsolidation",
+              new FlushConsolidationHandler(flushConsolidation, true));
+          }
           FixedLengthFrameDecoder preambleDecoder = new FixedLengthFrameDecoder(6);
           preambleDecoder.setSingleDecode(true);
           pipeline.addLast("preambleDecoder", preambleDecoder);
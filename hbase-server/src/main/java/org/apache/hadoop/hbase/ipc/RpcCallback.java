@@ -30,4 +30,12 @@ public interface RpcCallback {
    * Called at the end of an Rpc Call {@link RpcCallContext}
    */
   void run() throws IOException;
+
+  /**
+   * Called instead of {@link #run()} at the end of an Rpc Call when the response references memory
+   * which {@link #run()} may release. {@link #run()} is then only called once the response has
+   * been sent, possibly on a network thread. The default does nothing.
+   */
+  default void prepareDeferredRun() throws IOException {
+  }
 }
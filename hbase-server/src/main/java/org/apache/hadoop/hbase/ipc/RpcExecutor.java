@@ -67,10 +67,14 @@ public abstract class RpcExecutor {
   /**
    * The default, 'fifo', has the least friction but is dumb. If set to 'deadline', uses a priority
    * queue and de-prioritizes long-running scans. Sorting by priority comes at a cost, reduced
-   * throughput.
+   * throughput. If set to 'cost', uses a {@link CostBasedCallQueue} which schedules calls by their
+   * estimated cost with fair queuing across users and tables. If set to 'fairshare', uses a
+   * {@link FairShareCallQueue} which serves the tenants by deficit round robin.
    */
   public static final String CALL_QUEUE_TYPE_CODEL_CONF_VALUE = "codel";
+  public static final String CALL_QUEUE_TYPE_COST_CONF_VALUE = "cost";
   public static final String CALL_QUEUE_TYPE_DEADLINE_CONF_VALUE = "deadline";
+  public static final String CALL_QUEUE_TYPE_FAIR_SHARE_CONF_VALUE = "fairshare";
   public static final String CALL_QUEUE_TYPE_FIFO_CONF_VALUE = "fifo";
   public static final String CALL_QUEUE_TYPE_PLUGGABLE_CONF_VALUE = "pluggable";
   public static final String CALL_QUEUE_TYPE_CONF_KEY = "hbase.ipc.server.callqueue.type";
@@ -111,6 +115,7 @@ public abstract class RpcExecutor {
   private final List<RpcHandler> handlers;
   private final int handlerCount;
   private final AtomicInteger failedHandlerCount = new AtomicInteger(0);
+  private AdaptiveHandlerPool handlerPool;
 
   private String name;
 
@@ -168,6 +173,14 @@ public abstract class RpcExecutor {
       this.queueInitArgs = new Object[] { maxQueueLength, codelTargetDelay, codelInterval,
         codelLifoThreshold, numGeneralCallsDropped, numLifoModeSwitches };
       this.queueClass = AdaptiveLifoCoDelCallQueue.class;
+    } else if (isCostQueueType(callQueueType)) {
+      this.name += ".Cost";
+      this.queueInitArgs = new Object[] { maxQueueLength, priority, conf };
+      this.queueClass = CostBasedCallQueue.class;
+    } else if (isFairShareQueueType(callQueueType)) {
+      this.name += ".FairShare";
+      this.queueInitArgs = new Object[] { maxQueueLength, priority, conf };
+      this.queueClass = FairShareCallQueue.class;
     } else if (isPluggableQueueType(callQueueType)) {
       Optional<Class<? extends BlockingQueue<CallRunner>>> pluggableQueueClass =
         getPluggableQueueClass();
@@ -237,6 +250,9 @@ public abstract class RpcExecutor {
   }
 
   public void stop() {
+    if (handlerPool != null) {
+      handlerPool.stop();
+    }
     for (RpcHandler handler : handlers) {
       handler.stopRunning();
       handler.interrupt();
@@ -253,7 +269,14 @@ public abstract class RpcExecutor {
 
   protected void startHandlers(final int port) {
     List<BlockingQueue<CallRunner>> callQueues = getQueues();
+    if (AdaptiveHandlerPool.isEnabled(conf)) {
+      handlerPool =
+        new AdaptiveHandlerPool(name, handlerCount, callQueues.size(), activeHandlerCount, conf);
+    }
     startHandlers(null, handlerCount, callQueues, 0, callQueues.size(), port, activeHandlerCount);
+    if (handlerPool != null) {
+      handlerPool.start();
+    }
   }
 
   /**
@@ -284,6 +307,9 @@ public abstract class RpcExecutor {
         + ",port=" + port;
       RpcHandler handler = getHandler(name, handlerFailureThreshhold, handlerCount,
         callQueues.get(index), activeHandlerCount, failedHandlerCount, abortable);
+      if (handlerPool != null) {
+        handler.setHandlerPool(handlerPool, handlers.size());
+      }
       handler.start();
       handlers.add(handler);
     }
@@ -345,6 +371,14 @@ public abstract class RpcExecutor {
     return callQueueType.equals(CALL_QUEUE_TYPE_CODEL_CONF_VALUE);
   }
 
+  public static boolean isCostQueueType(final String callQueueType) {
+    return callQueueType.equals(CALL_QUEUE_TYPE_COST_CONF_VALUE);
+  }
+
+  public static boolean isFairShareQueueType(final String callQueueType) {
+    return callQueueType.equals(CALL_QUEUE_TYPE_FAIR_SHARE_CONF_VALUE);
+  }
+
   public static boolean isFifoQueueType(final String callQueueType) {
     return callQueueType.equals(CALL_QUEUE_TYPE_FIFO_CONF_VALUE);
   }
@@ -395,6 +429,18 @@ public abstract class RpcExecutor {
     return activeHandlerCount.get();
   }
 
+  public int getHandlerCount() {
+    return handlerCount;
+  }
+
+  /**
+   * Returns the number of handlers allowed to take calls, lower than {@link #getHandlerCount()}
+   * when the handlers are sized adaptively and the load is low.
+   */
+  public int getEnabledHandlerCount() {
+    return handlerPool != null ? handlerPool.getLimit() : handlerCount;
+  }
+
   public int getActiveWriteHandlerCount() {
     return 0;
   }
@@ -21,6 +21,7 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.hadoop.hbase.Abortable;
 import org.apache.hadoop.hbase.monitoring.MonitoredRPCHandler;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
 import org.apache.hadoop.util.StringUtils;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.slf4j.Logger;
@@ -50,6 +51,10 @@ public class RpcHandler extends Thread {
 
   private boolean running;
 
+  // Set when the executor sizes its handlers adaptively
+  private AdaptiveHandlerPool handlerPool;
+  private int handlerIndex;
+
   RpcHandler(final String name, final double handlerFailureThreshhold, final int handlerCount,
     final BlockingQueue<CallRunner> q, final AtomicInteger activeHandlerCount,
     final AtomicInteger failedHandlerCount, final Abortable abortable) {
@@ -70,6 +75,15 @@ public class RpcHandler extends Thread {
     return this.q.take();
   }
 
+  /**
+   * Makes this handler take calls only while its index is below the limit of the given pool. Must
+   * be called before the handler is started.
+   */
+  void setHandlerPool(AdaptiveHandlerPool handlerPool, int handlerIndex) {
+    this.handlerPool = handlerPool;
+    this.handlerIndex = handlerIndex;
+  }
+
   public void stopRunning() {
     running = false;
   }
@@ -81,6 +95,9 @@ public class RpcHandler extends Thread {
     try {
       while (running) {
         try {
+          if (handlerPool != null) {
+            handlerPool.awaitEnabled(handlerIndex);
+          }
           run(getCallRunner());
         } catch (InterruptedException e) {
           interrupted = true;
@@ -99,6 +116,10 @@ public class RpcHandler extends Thread {
   private void run(CallRunner cr) {
     MonitoredRPCHandler status = RpcServer.getStatus();
     cr.setStatus(status);
+    if (handlerPool != null) {
+      handlerPool.recordQueueWait(
+        EnvironmentEdgeManager.currentTime() - cr.getRpcCall().getReceiveTime());
+    }
     try {
       this.activeHandlerCount.incrementAndGet();
       cr.run();
@@ -84,6 +84,22 @@ public abstract class RpcScheduler {
   /** Retrieves the number of active general handler. */
   public abstract int getActiveGeneralRpcHandlerCount();
 
+  /**
+   * Retrieves the total number of general handler, 0 if unknown, in which case no handler
+   * saturation is reported to the clients.
+   */
+  public int getGeneralRpcHandlerCount() {
+    return 0;
+  }
+
+  /**
+   * Retrieves the number of general handler allowed to take calls, which is lower than the total
+   * when the handlers are sized adaptively.
+   */
+  public int getEnabledGeneralRpcHandlerCount() {
+    return getGeneralRpcHandlerCount();
+  }
+
   /** Retrieves the number of active priority handler. */
   public abstract int getActivePriorityRpcHandlerCount();
 
@@ -195,6 +195,14 @@ public abstract class RpcServer implements RpcServerInterface, ConfigurationObse
 
   protected static final Gson GSON = GsonUtil.createGsonWithDisableHtmlEscaping().create();
 
+  /**
+   * The minimum size of the response message and cell block before they are compressed, for the
+   * connections which asked for compressed responses.
+   */
+  public static final String RESPONSE_COMPRESSION_MIN_SIZE_KEY =
+    "hbase.ipc.server.response.compression.min.size";
+  public static final int DEFAULT_RESPONSE_COMPRESSION_MIN_SIZE = 4096;
+
   protected final int maxRequestSize;
   protected final int warnResponseTime;
   protected final int warnResponseSize;
@@ -33,12 +33,17 @@ import org.apache.hadoop.hbase.HBaseServerException;
 import org.apache.hadoop.hbase.exceptions.RegionMovedException;
 import org.apache.hadoop.hbase.io.ByteBuffAllocator;
 import org.apache.hadoop.hbase.io.ByteBufferListOutputStream;
+import org.apache.hadoop.hbase.io.ByteBufferOutputStream;
 import org.apache.hadoop.hbase.ipc.RpcServer.CallCleanup;
 import org.apache.hadoop.hbase.security.User;
 import org.apache.hadoop.hbase.trace.TraceUtil;
 import org.apache.hadoop.hbase.util.ByteBufferUtils;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.hadoop.io.compress.CodecPool;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionOutputStream;
+import org.apache.hadoop.io.compress.Compressor;
 import org.apache.hadoop.util.StringUtils;
 import org.apache.yetus.audience.InterfaceAudience;
 
@@ -92,7 +97,11 @@ public abstract class ServerCall<T extends ServerRpcConnection> implements RpcCa
   protected final User user;
   protected final InetAddress remoteAddress;
   protected RpcCallback rpcCallback;
+  // Whether rpcCallback has to wait until the response has been sent, as the cellblock references
+  // memory which the callback may release.
+  private boolean deferRpcCallback = false;
 
+  // The response sizes are updated concurrently when the region actions of a multi run in parallel
   private long responseCellSize = 0;
   private long responseBlockSize = 0;
   // cumulative size of serialized exceptions
@@ -149,6 +158,10 @@ public abstract class ServerCall<T extends ServerRpcConnection> implements RpcCa
       justification = "Presume the lock on processing request held by caller is protection enough")
   @Override
   public void done() {
+    if (this.deferRpcCallback) {
+      this.deferRpcCallback = false;
+      runRpcCallback(false);
+    }
     if (this.cellBlockStream != null) {
       // This will return back the BBs which we got from pool.
       this.cellBlockStream.releaseResources();
@@ -275,6 +288,19 @@ public abstract class ServerCall<T extends ServerRpcConnection> implements RpcCa
         cellBlockBuilder.setLength(cellBlockSize);
         headerBuilder.setCellBlockMeta(cellBlockBuilder.build());
       }
+      if (connection != null && connection.responseCompressionCodec != null && m != null) {
+        int payloadSize = m.getSerializedSize() + cellBlockSize;
+        if (payloadSize >= connection.responseCompressionMinSize) {
+          ByteBuffer payload = compressPayload(connection.responseCompressionCodec, m, cellBlock);
+          headerBuilder.setUncompressedPayloadLength(
+            payloadSize + CodedOutputStream.computeUInt32SizeNoTag(m.getSerializedSize()));
+          // From here on the compressed payload is sent like a cell block
+          m = null;
+          cellBlockSize = payload.remaining();
+          cellBlock = new ArrayList<>(1);
+          cellBlock.add(payload);
+        }
+      }
       Message header = headerBuilder.build();
       ByteBuffer headerBuf = createHeaderAndMessageBytes(m, header, cellBlockSize, cellBlock);
       ByteBuffer[] responseBufs = null;
@@ -298,9 +324,48 @@ public abstract class ServerCall<T extends ServerRpcConnection> implements RpcCa
     this.response = bc;
     // Once a response message is created and set to this.response, this Call can be treated as
     // done. The Responder thread will do the n/w write of this message back to client.
+    if (bc != null && this.cellBlockStream != null && this.cellBlockStream.hasReferences()) {
+      // The cellblock points into memory, like cached blocks, which the callback would release,
+      // so only prepare it now and run it once the response has been sent, see done().
+      this.deferRpcCallback = true;
+      runRpcCallback(true);
+    } else {
+      runRpcCallback(false);
+    }
+  }
+
+  /**
+   * Compress the response message, delimited, and the cell block together into a flipped heap
+   * buffer.
+   */
+  private static ByteBuffer compressPayload(CompressionCodec codec, Message m,
+    List<ByteBuffer> cellBlock) throws IOException {
+    ByteBufferOutputStream out = new ByteBufferOutputStream(1024);
+    Compressor compressor = CodecPool.getCompressor(codec);
+    try {
+      CompressionOutputStream cos = codec.createOutputStream(out, compressor);
+      m.writeDelimitedTo(cos);
+      if (cellBlock != null) {
+        for (ByteBuffer b : cellBlock) {
+          ByteBufferUtils.copyBufferToStream(cos, b, b.position(), b.remaining());
+        }
+      }
+      cos.finish();
+      cos.flush();
+    } finally {
+      CodecPool.returnCompressor(compressor);
+    }
+    return out.getByteBuffer();
+  }
+
+  private void runRpcCallback(boolean prepareOnly) {
     if (this.rpcCallback != null) {
       try (Scope ignored = span.makeCurrent()) {
-        this.rpcCallback.run();
+        if (prepareOnly) {
+          this.rpcCallback.prepareDeferredRun();
+        } else {
+          this.rpcCallback.run();
+        }
       } catch (Exception e) {
         // Don't allow any exception here to kill this handler thread.
         RpcServer.LOG.warn("Exception while running the Rpc Callback.", e);
@@ -445,32 +510,32 @@ public abstract class ServerCall<T extends ServerRpcConnection> implements RpcCa
   }
 
   @Override
-  public long getResponseCellSize() {
+  public synchronized long getResponseCellSize() {
     return responseCellSize;
   }
 
   @Override
-  public void incrementResponseCellSize(long cellSize) {
+  public synchronized void incrementResponseCellSize(long cellSize) {
     responseCellSize += cellSize;
   }
 
   @Override
-  public long getResponseBlockSize() {
+  public synchronized long getResponseBlockSize() {
     return responseBlockSize;
   }
 
   @Override
-  public void incrementResponseBlockSize(long blockSize) {
+  public synchronized void incrementResponseBlockSize(long blockSize) {
     responseBlockSize += blockSize;
   }
 
   @Override
-  public long getResponseExceptionSize() {
+  public synchronized long getResponseExceptionSize() {
     return exceptionSize;
   }
 
   @Override
-  public void incrementResponseExceptionSize(long exSize) {
+  public synchronized void incrementResponseExceptionSize(long exSize) {
     exceptionSize += exSize;
   }
 
@@ -39,6 +39,7 @@ import java.util.Properties;
 import org.apache.commons.crypto.cipher.CryptoCipherFactory;
 import org.apache.commons.crypto.random.CryptoRandom;
 import org.apache.commons.crypto.random.CryptoRandomFactory;
+import org.apache.hadoop.conf.Configurable;
 import org.apache.hadoop.hbase.CellScanner;
 import org.apache.hadoop.hbase.DoNotRetryIOException;
 import org.apache.hadoop.hbase.client.VersionInfoUtil;
@@ -117,6 +118,14 @@ abstract class ServerRpcConnection implements Closeable {
    * Compression codec the client asked us use.
    */
   protected CompressionCodec compressionCodec;
+  /**
+   * Compression codec the client asked us to compress the payload of the responses with.
+   */
+  protected CompressionCodec responseCompressionCodec;
+  /**
+   * The minimum size of the payload of a response before it is compressed.
+   */
+  protected int responseCompressionMinSize;
   protected BlockingService service;
 
   protected SaslServerAuthenticationProvider provider;
@@ -201,6 +210,30 @@ abstract class ServerRpcConnection implements Closeable {
     }
   }
 
+  /**
+   * Set up the compression of the response payloads, see
+   * {@link ServerCall#setResponse(Message, CellScanner, Throwable, String)}.
+   */
+  private void setupResponseCompression(final ConnectionHeader header)
+    throws FatalConnectionException {
+    if (!header.hasResponseCompressorClass()) {
+      return;
+    }
+    String className = header.getResponseCompressorClass();
+    try {
+      this.responseCompressionCodec =
+        (CompressionCodec) Class.forName(className).getDeclaredConstructor().newInstance();
+    } catch (Exception e) {
+      throw new UnsupportedCompressionCodecException(className, e);
+    }
+    // The codecs read their level and dictionary from the configuration
+    if (this.responseCompressionCodec instanceof Configurable) {
+      ((Configurable) this.responseCompressionCodec).setConf(this.rpcServer.conf);
+    }
+    this.responseCompressionMinSize = this.rpcServer.conf.getInt(
+      RpcServer.RESPONSE_COMPRESSION_MIN_SIZE_KEY, RpcServer.DEFAULT_RESPONSE_COMPRESSION_MIN_SIZE);
+  }
+
   /**
    * Set up cipher for rpc encryption with Apache Commons Crypto n
    */
@@ -492,6 +525,7 @@ abstract class ServerRpcConnection implements Closeable {
     this.service = RpcServer.getService(this.rpcServer.services, serviceName);
     if (this.service == null) throw new UnknownServiceException(serviceName);
     setupCellBlockCodecs(this.connectionHeader);
+    setupResponseCompression(this.connectionHeader);
     RPCProtos.ConnectionHeaderResponse.Builder chrBuilder =
       RPCProtos.ConnectionHeaderResponse.newBuilder();
     setupCryptoCipher(this.connectionHeader, chrBuilder);
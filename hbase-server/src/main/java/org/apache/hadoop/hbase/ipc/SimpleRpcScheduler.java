@@ -91,6 +91,9 @@ public class SimpleRpcScheduler extends RpcScheduler implements ConfigurationObs
       ) {
         callExecutor = new FastPathBalancedQueueRpcExecutor("default.FPBQ", handlerCount,
           maxQueueLength, priority, conf, server);
+      } else if (RpcExecutor.isFairShareQueueType(callQueueType)) {
+        callExecutor = new FairShareRpcExecutor("default.FSQ", handlerCount, maxQueueLength,
+          priority, conf, server);
       } else {
         callExecutor = new BalancedQueueRpcExecutor("default.BQ", handlerCount, maxQueueLength,
           priority, conf, server);
@@ -249,6 +252,16 @@ public class SimpleRpcScheduler extends RpcScheduler implements ConfigurationObs
     return callExecutor.getActiveHandlerCount();
   }
 
+  @Override
+  public int getGeneralRpcHandlerCount() {
+    return callExecutor.getHandlerCount();
+  }
+
+  @Override
+  public int getEnabledGeneralRpcHandlerCount() {
+    return callExecutor.getEnabledHandlerCount();
+  }
+
   @Override
   public int getActivePriorityRpcHandlerCount() {
     return (priorityExecutor == null ? 0 : priorityExecutor.getActiveHandlerCount());
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.ipc;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.BlockingQueue;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.security.User;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.apache.yetus.audience.InterfaceStability;
+
+import org.apache.hbase.thirdparty.com.google.protobuf.ByteString;
+
+/**
+ * Queue balancer which always selects the same queue for the same tenant, so one noisy tenant only
+ * fills its own queue. The tenant of a call is its user, or the namespace or the table it targets,
+ * see {@link #TENANT_CONF_KEY}. Calls without a table, e.g. a scan continued by scanner id, are
+ * attributed to their user.
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Evolving
+public class TenantQueueBalancer implements QueueBalancer {
+
+  /** What identifies a tenant, one of 'user', 'namespace' or 'table'. */
+  public static final String TENANT_CONF_KEY = "hbase.ipc.server.callqueue.balancer.tenant";
+
+  public static final String DEFAULT_TENANT = "user";
+
+  enum Tenant {
+    USER,
+    NAMESPACE,
+    TABLE
+  }
+
+  private final int queueSize;
+
+  private final Tenant tenant;
+
+  public TenantQueueBalancer(Configuration conf, String executorName,
+    List<BlockingQueue<CallRunner>> queues) {
+    this(conf, queues.size());
+  }
+
+  TenantQueueBalancer(Configuration conf, int queueSize) {
+    this.queueSize = queueSize;
+    this.tenant =
+      Tenant.valueOf(conf.get(TENANT_CONF_KEY, DEFAULT_TENANT).toUpperCase(Locale.ROOT));
+  }
+
+  @Override
+  public int getNextQueue(CallRunner callRunner) {
+    return Math.floorMod(getTenantHash(callRunner.getRpcCall()), queueSize);
+  }
+
+  private int getTenantHash(RpcCall call) {
+    if (tenant != Tenant.USER) {
+      ByteString table =
+        CallCostEstimator.getTable(CallCostEstimator.getRegionName(call.getParam()));
+      if (!table.isEmpty()) {
+        return tenant == Tenant.TABLE ? table.hashCode() : getNamespace(table).hashCode();
+      }
+    }
+    return call.getRequestUser().map(User::getName).orElse("").hashCode();
+  }
+
+  /**
+   * Returns the namespace part of a table name, empty for the default namespace.
+   */
+  private static ByteString getNamespace(ByteString table) {
+    for (int i = 0, n = table.size(); i < n; i++) {
+      if (table.byteAt(i) == TableName.NAMESPACE_DELIM) {
+        return table.substring(0, i);
+      }
+    }
+    return ByteString.EMPTY;
+  }
+}
@@ -17,6 +17,7 @@
  */
 package org.apache.hadoop.hbase.quotas;
 
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.apache.yetus.audience.InterfaceStability;
@@ -29,18 +30,18 @@ import org.apache.yetus.audience.InterfaceStability;
 @InterfaceAudience.Private
 @InterfaceStability.Evolving
 public class AverageIntervalRateLimiter extends RateLimiter {
-  private long nextRefillTime = -1L;
+  private final AtomicLong nextRefillTime = new AtomicLong(-1L);
 
   @Override
   public long refill(long limit) {
     final long now = EnvironmentEdgeManager.currentTime();
-    if (nextRefillTime == -1) {
+    final long refillTime = nextRefillTime.get();
+    if (refillTime == -1) {
       // Till now no resource has been consumed.
-      nextRefillTime = EnvironmentEdgeManager.currentTime();
-      return limit;
+      return nextRefillTime.compareAndSet(-1, now) ? limit : 0;
     }
 
-    long timeInterval = now - nextRefillTime;
+    long timeInterval = now - refillTime;
     long delta = 0;
     long timeUnitInMillis = super.getTimeUnitInMillis();
     if (timeInterval >= timeUnitInMillis) {
@@ -50,8 +51,9 @@ public class AverageIntervalRateLimiter extends RateLimiter {
       delta = (long) r;
     }
 
-    if (delta > 0) {
-      this.nextRefillTime = now;
+    // Only the caller which moves the refill time forward refills
+    if (delta > 0 && !this.nextRefillTime.compareAndSet(refillTime, now)) {
+      return 0;
     }
 
     return delta;
@@ -59,7 +61,7 @@ public class AverageIntervalRateLimiter extends RateLimiter {
 
   @Override
   public long getWaitInterval(long limit, long available, long amount) {
-    if (nextRefillTime == -1) {
+    if (nextRefillTime.get() == -1) {
       return 0;
     }
 
@@ -70,12 +72,12 @@ public class AverageIntervalRateLimiter extends RateLimiter {
   // This method is for strictly testing purpose only
   @Override
   public void setNextRefillTime(long nextRefillTime) {
-    this.nextRefillTime = nextRefillTime;
+    this.nextRefillTime.set(nextRefillTime);
   }
 
   @Override
   public long getNextRefillTime() {
-    return this.nextRefillTime;
+    return this.nextRefillTime.get();
   }
 
 }
@@ -17,6 +17,7 @@
  */
 package org.apache.hadoop.hbase.quotas;
 
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.apache.yetus.audience.InterfaceStability;
@@ -27,36 +28,40 @@ import org.apache.yetus.audience.InterfaceStability;
 @InterfaceAudience.Private
 @InterfaceStability.Evolving
 public class FixedIntervalRateLimiter extends RateLimiter {
-  private long nextRefillTime = -1L;
+  private final AtomicLong nextRefillTime = new AtomicLong(-1L);
 
   @Override
   public long refill(long limit) {
     final long now = EnvironmentEdgeManager.currentTime();
-    if (now < nextRefillTime) {
+    final long refillTime = nextRefillTime.get();
+    if (now < refillTime) {
+      return 0;
+    }
+    // Only the caller which moves the refill time forward refills
+    if (!nextRefillTime.compareAndSet(refillTime, now + super.getTimeUnitInMillis())) {
       return 0;
     }
-    nextRefillTime = now + super.getTimeUnitInMillis();
     return limit;
   }
 
   @Override
   public long getWaitInterval(long limit, long available, long amount) {
-    if (nextRefillTime == -1) {
+    final long refillTime = nextRefillTime.get();
+    if (refillTime == -1) {
       return 0;
     }
     final long now = EnvironmentEdgeManager.currentTime();
-    final long refillTime = nextRefillTime;
     return refillTime - now;
   }
 
   // This method is for strictly testing purpose only
   @Override
   public void setNextRefillTime(long nextRefillTime) {
-    this.nextRefillTime = nextRefillTime;
+    this.nextRefillTime.set(nextRefillTime);
   }
 
   @Override
   public long getNextRefillTime() {
-    return this.nextRefillTime;
+    return this.nextRefillTime.get();
   }
 }
@@ -24,18 +24,16 @@ import org.apache.yetus.audience.InterfaceStability;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.QuotaProtos.Quotas;
 
 /**
- * In-Memory state of table or namespace quotas
+ * In-Memory state of table or namespace quotas. The updates are synchronized, while the limiters
+ * are read without locking on every RPC.
  */
 @InterfaceAudience.Private
 @InterfaceStability.Evolving
-@edu.umd.cs.findbugs.annotations.SuppressWarnings(value = "IS2_INCONSISTENT_SYNC",
-    justification = "FindBugs seems confused; says globalLimiter and lastUpdate "
-      + "are mostly synchronized...but to me it looks like they are totally synchronized")
 public class QuotaState {
-  protected long lastUpdate = 0;
-  protected long lastQuery = 0;
+  protected volatile long lastUpdate = 0;
+  protected volatile long lastQuery = 0;
 
-  protected QuotaLimiter globalLimiter = NoopQuotaLimiter.get();
+  protected volatile QuotaLimiter globalLimiter = NoopQuotaLimiter.get();
 
   public QuotaState() {
     this(0);
@@ -45,14 +43,25 @@ public class QuotaState {
     lastUpdate = updateTs;
   }
 
-  public synchronized long getLastUpdate() {
+  public long getLastUpdate() {
     return lastUpdate;
   }
 
-  public synchronized long getLastQuery() {
+  public long getLastQuery() {
     return lastQuery;
   }
 
+  /**
+   * Record that the quota has been queried. The time only matters for the eviction of unused
+   * quotas, so concurrent queries may race and it is only written once per millisecond.
+   */
+  protected void updateLastQuery() {
+    long now = EnvironmentEdgeManager.currentTime();
+    if (lastQuery < now) {
+      lastQuery = now;
+    }
+  }
+
   @Override
   public synchronized String toString() {
     StringBuilder builder = new StringBuilder();
@@ -72,7 +81,7 @@ public class QuotaState {
   /**
    * @return true if there is no quota information associated to this object
    */
-  public synchronized boolean isBypass() {
+  public boolean isBypass() {
     return globalLimiter == NoopQuotaLimiter.get();
   }
 
@@ -106,8 +115,8 @@ public class QuotaState {
    * Return the limiter associated with this quota.
    * @return the quota limiter
    */
-  public synchronized QuotaLimiter getGlobalLimiter() {
-    lastQuery = EnvironmentEdgeManager.currentTime();
+  public QuotaLimiter getGlobalLimiter() {
+    updateLastQuery();
     return globalLimiter;
   }
 
@@ -115,7 +124,7 @@ public class QuotaState {
    * Return the limiter associated with this quota without updating internal last query stats
    * @return the quota limiter
    */
-  synchronized QuotaLimiter getGlobalLimiterWithoutUpdatingLastQuery() {
+  QuotaLimiter getGlobalLimiterWithoutUpdatingLastQuery() {
     return globalLimiter;
   }
 }
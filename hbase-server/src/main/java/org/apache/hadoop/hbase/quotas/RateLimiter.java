@@ -18,6 +18,8 @@
 package org.apache.hadoop.hbase.quotas;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.apache.yetus.audience.InterfaceStability;
 
@@ -29,20 +31,43 @@ import org.apache.yetus.audience.InterfaceStability;
  * there are no available resources, wait until one is available if (!canExecute)
  * Thread.sleep(limiter.waitInterval()); // ...execute the work and consume the resource...
  * limiter.consume(); }
+ * <p>
+ * The limiter does not take any lock on the request path. Consumed units are added to a striped
+ * counter, so the handlers consuming from the same limiter do not contend on a single field. They
+ * are only reconciled with the available units, with a CAS, when the units are refilled or the
+ * limit changes. Until then the available units are computed as the reconciled units minus the
+ * units consumed since. Consequently an over consumption is only forgiven at the next refill, a
+ * later compensation by a negative amount first pays the over consumed units back.
  */
 @InterfaceAudience.Private
 @InterfaceStability.Evolving
-@edu.umd.cs.findbugs.annotations.SuppressWarnings(value = "IS2_INCONSISTENT_SYNC",
-    justification = "FindBugs seems confused; says limit and tlimit "
-      + "are mostly synchronized...but to me it looks like they are totally synchronized")
 public abstract class RateLimiter {
   public static final String QUOTA_RATE_LIMITER_CONF_KEY = "hbase.quota.rate.limiter";
-  private long tunit = 1000; // Timeunit factor for translating to ms.
-  private long limit = Long.MAX_VALUE; // The max value available resource units can be refilled to.
-  private long avail = Long.MAX_VALUE; // Currently available resource units
 
   /**
-   * Refill the available units w.r.t the elapsed time.
+   * The available units at the time of the last reconciliation, and the value of the consumed
+   * counter at that time.
+   */
+  private static final class State {
+    private final long avail;
+    private final long consumed;
+
+    State(long avail, long consumed) {
+      this.avail = avail;
+      this.consumed = consumed;
+    }
+  }
+
+  private volatile long tunit = 1000; // Timeunit factor for translating to ms.
+  // The max value available resource units can be refilled to.
+  private volatile long limit = Long.MAX_VALUE;
+  // The units consumed since the creation of the limiter, may wrap around
+  private final LongAdder consumed = new LongAdder();
+  private final AtomicReference<State> state = new AtomicReference<>(new State(Long.MAX_VALUE, 0));
+
+  /**
+   * Refill the available units w.r.t the elapsed time. Called concurrently, the refill of an
+   * interval must only be returned to one caller.
    * @param limit Maximum available resource units that can be refilled to.
    * @return how many resource units may be refilled ?
    */
@@ -83,7 +108,7 @@ public abstract class RateLimiter {
         throw new RuntimeException("Unsupported " + timeUnit.name() + " TimeUnit.");
     }
     this.limit = limit;
-    this.avail = limit;
+    this.state.set(new State(limit, consumed.sum()));
   }
 
   @Override
@@ -103,33 +128,50 @@ public abstract class RateLimiter {
    */
   public synchronized void update(final RateLimiter other) {
     this.tunit = other.tunit;
-    if (this.limit < other.limit) {
-      // If avail is capped to this.limit, it will never overflow,
-      // otherwise, avail may overflow, just be careful here.
-      long diff = other.limit - this.limit;
-      if (this.avail <= Long.MAX_VALUE - diff) {
-        this.avail += diff;
-        this.avail = Math.min(this.avail, other.limit);
-      } else {
-        this.avail = other.limit;
+    long otherLimit = other.limit;
+    if (this.limit < otherLimit) {
+      long diff = otherLimit - this.limit;
+      while (true) {
+        State s = state.get();
+        long total = consumed.sum();
+        long avail = getAvailable(s, total, this.limit);
+        // If avail is capped to this.limit, it will never overflow,
+        // otherwise, avail may overflow, just be careful here.
+        avail = avail <= Long.MAX_VALUE - diff ? Math.min(avail + diff, otherLimit) : otherLimit;
+        if (state.compareAndSet(s, new State(avail, total))) {
+          break;
+        }
       }
     }
-    this.limit = other.limit;
+    this.limit = otherLimit;
   }
 
-  public synchronized boolean isBypass() {
+  public boolean isBypass() {
     return getLimit() == Long.MAX_VALUE;
   }
 
-  public synchronized long getLimit() {
+  public long getLimit() {
     return limit;
   }
 
-  public synchronized long getAvailable() {
-    return avail;
+  public long getAvailable() {
+    return getAvailable(state.get(), consumed.sum(), limit);
   }
 
-  protected synchronized long getTimeUnitInMillis() {
+  /**
+   * Returns the units available after the given reconciled state, capped to [0, limit].
+   * @param total the current value of the consumed counter
+   */
+  private static long getAvailable(State s, long total, long limit) {
+    long pending = total - s.consumed;
+    if (pending >= 0) {
+      return Math.min(limit, Math.max(0, s.avail - pending));
+    }
+    // compensated more than consumed, check for positive overflow
+    return s.avail <= limit + pending ? s.avail - pending : limit;
+  }
+
+  protected long getTimeUnitInMillis() {
     return tunit;
   }
 
@@ -146,25 +188,33 @@ public abstract class RateLimiter {
    * @param amount the number of required resources, a non-negative number
    * @return true if there are enough available resources, otherwise false
    */
-  public synchronized boolean canExecute(final long amount) {
+  public boolean canExecute(final long amount) {
     if (isBypass()) {
       return true;
     }
-
+    long limit = this.limit;
     long refillAmount = refill(limit);
-    if (refillAmount == 0 && avail < amount) {
-      return false;
+    if (refillAmount > 0) {
+      reconcile(refillAmount, limit);
     }
-    // check for positive overflow
-    if (avail <= Long.MAX_VALUE - refillAmount) {
-      avail = Math.max(0, Math.min(avail + refillAmount, limit));
-    } else {
-      avail = Math.max(0, limit);
-    }
-    if (avail >= amount) {
-      return true;
+    return getAvailable(state.get(), consumed.sum(), limit) >= amount;
+  }
+
+  /**
+   * Fold the units consumed since the last reconciliation and the refilled units into the state.
+   */
+  private void reconcile(long refillAmount, long limit) {
+    while (true) {
+      State s = state.get();
+      long total = consumed.sum();
+      long avail = getAvailable(s, total, limit);
+      // check for positive overflow
+      avail =
+        avail <= Long.MAX_VALUE - refillAmount ? Math.min(avail + refillAmount, limit) : limit;
+      if (state.compareAndSet(s, new State(avail, total))) {
+        return;
+      }
     }
-    return false;
   }
 
   /**
@@ -178,25 +228,11 @@ public abstract class RateLimiter {
    * consume amount available units, amount could be a negative number
    * @param amount the number of units to consume
    */
-  public synchronized void consume(final long amount) {
-
+  public void consume(final long amount) {
     if (isBypass()) {
       return;
     }
-
-    if (amount >= 0) {
-      this.avail -= amount;
-      if (this.avail < 0) {
-        this.avail = 0;
-      }
-    } else {
-      if (this.avail <= Long.MAX_VALUE + amount) {
-        this.avail -= amount;
-        this.avail = Math.min(this.avail, this.limit);
-      } else {
-        this.avail = this.limit;
-      }
-    }
+    consumed.add(amount);
   }
 
   /**
@@ -209,8 +245,9 @@ public abstract class RateLimiter {
   /**
    * @return estimate of the ms required to wait before being able to provide "amount" resources.
    */
-  public synchronized long waitInterval(final long amount) {
+  public long waitInterval(final long amount) {
     // TODO Handle over quota?
+    long avail = getAvailable();
     return (amount <= avail) ? 0 : getWaitInterval(getLimit(), avail, amount);
   }
 
@@ -18,29 +18,23 @@
 package org.apache.hadoop.hbase.quotas;
 
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 import org.apache.hadoop.hbase.TableName;
-import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.apache.yetus.audience.InterfaceStability;
 
 import org.apache.hadoop.hbase.shaded.protobuf.generated.QuotaProtos.Quotas;
 
 /**
- * In-Memory state of the user quotas
+ * In-Memory state of the user quotas. The limiter maps are copied on write and never modified once
+ * published, so they can be read without locking.
  */
 @InterfaceAudience.Private
 @InterfaceStability.Evolving
-@edu.umd.cs.findbugs.annotations.SuppressWarnings(value = "IS2_INCONSISTENT_SYNC",
-    justification = "FindBugs seems confused; says bypassGlobals, namepaceLimiters, and "
-      + "tableLimiters are mostly synchronized..."
-      + "but to me it looks like they are totally synchronized")
 public class UserQuotaState extends QuotaState {
-  private Map<String, QuotaLimiter> namespaceLimiters = null;
-  private Map<TableName, QuotaLimiter> tableLimiters = null;
-  private boolean bypassGlobals = false;
+  private volatile Map<String, QuotaLimiter> namespaceLimiters = null;
+  private volatile Map<TableName, QuotaLimiter> tableLimiters = null;
+  private volatile boolean bypassGlobals = false;
 
   public UserQuotaState() {
     super();
@@ -87,13 +81,13 @@ public class UserQuotaState extends QuotaState {
    * @return true if there is no quota information associated to this object
    */
   @Override
-  public synchronized boolean isBypass() {
+  public boolean isBypass() {
     return !bypassGlobals && getGlobalLimiterWithoutUpdatingLastQuery() == NoopQuotaLimiter.get()
       && (tableLimiters == null || tableLimiters.isEmpty())
       && (namespaceLimiters == null || namespaceLimiters.isEmpty());
   }
 
-  public synchronized boolean hasBypassGlobals() {
+  public boolean hasBypassGlobals() {
     return bypassGlobals;
   }
 
@@ -115,14 +109,15 @@ public class UserQuotaState extends QuotaState {
    * Add the quota information of the specified namespace. (This operation is part of the QuotaState
    * setup)
    */
-  public void setQuotas(final String namespace, Quotas quotas) {
+  public synchronized void setQuotas(final String namespace, Quotas quotas) {
     namespaceLimiters = setLimiter(namespaceLimiters, namespace, quotas);
   }
 
-  private <K> Map<K, QuotaLimiter> setLimiter(Map<K, QuotaLimiter> limiters, final K key,
+  private <K> Map<K, QuotaLimiter> setLimiter(final Map<K, QuotaLimiter> oldLimiters, final K key,
     final Quotas quotas) {
-    if (limiters == null) {
-      limiters = new HashMap<>();
+    Map<K, QuotaLimiter> limiters = new HashMap<>();
+    if (oldLimiters != null) {
+      limiters.putAll(oldLimiters);
     }
 
     QuotaLimiter limiter =
@@ -162,12 +157,8 @@ public class UserQuotaState extends QuotaState {
     }
 
     if (otherMap != null) {
-      // To Remove
-      Set<K> toRemove = new HashSet<>(map.keySet());
-      toRemove.removeAll(otherMap.keySet());
-      map.keySet().removeAll(toRemove);
-
-      // To Update/Add
+      // The entries missing from the other map are dropped, the others are updated or added
+      Map<K, QuotaLimiter> newMap = new HashMap<>(otherMap.size());
       for (final Map.Entry<K, QuotaLimiter> entry : otherMap.entrySet()) {
         QuotaLimiter limiter = map.get(entry.getKey());
         if (limiter == null) {
@@ -175,9 +166,9 @@ public class UserQuotaState extends QuotaState {
         } else {
           limiter = QuotaLimiterFactory.update(limiter, entry.getValue());
         }
-        map.put(entry.getKey(), limiter);
+        newMap.put(entry.getKey(), limiter);
       }
-      return map;
+      return newMap;
     }
     return null;
   }
@@ -188,12 +179,14 @@ public class UserQuotaState extends QuotaState {
    * associated with this object a noop limiter will be returned.
    * @return the quota limiter for the specified table
    */
-  public synchronized QuotaLimiter getTableLimiter(final TableName table) {
-    lastQuery = EnvironmentEdgeManager.currentTime();
+  public QuotaLimiter getTableLimiter(final TableName table) {
+    updateLastQuery();
+    Map<TableName, QuotaLimiter> tableLimiters = this.tableLimiters;
     if (tableLimiters != null) {
       QuotaLimiter limiter = tableLimiters.get(table);
       if (limiter != null) return limiter;
     }
+    Map<String, QuotaLimiter> namespaceLimiters = this.namespaceLimiters;
     if (namespaceLimiters != null) {
       QuotaLimiter limiter = namespaceLimiters.get(table.getNamespaceAsString());
       if (limiter != null) return limiter;
@@ -0,0 +1,353 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.PrivateCellUtil;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Scan.ReadType;
+import org.apache.hadoop.hbase.io.TimeRange;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * Executes the Gets of a multi request which all target the same region.
+ * <p>
+ * Instead of opening a {@link RegionScannerImpl}, and with it a set of StoreScanners and heaps,
+ * for every Get, the Gets which only differ in their row are sorted by row and served by one
+ * shared scanner which is moved from row to row with {@link RegionScanner#reseek(byte[])}. A
+ * reseek only moves forward, so the store file scanners and the already loaded blocks are reused
+ * across the whole batch. Unlike a single Get, the store files are not skipped by their row bloom
+ * filters, only the ROWCOL blooms are consulted by the reseek, so this pays off for Gets of rows
+ * which mostly exist. The scanner is bounded to the row of the current Get, so a missing row costs
+ * one seek but never reads the following rows. Gets which cannot share the scanner, for example
+ * because they carry a filter, are executed one by one exactly like {@link RSRpcServices} does for
+ * a single Get.
+ * <p>
+ * The Gets are executed until their results reach the given size budget or the call deadline has
+ * passed, the remaining ones are left to the caller which then applies its usual result size limit
+ * and deadline check to them.
+ * <p>
+ * All the scanners opened here are handed to the given
+ * {@link RSRpcServices.RegionScannersCloseCallBack} so the returned cells, which may still point
+ * into cached blocks, stay valid until the response has been shipped.
+ */
+@InterfaceAudience.Private
+final class BatchedGetExecutor {
+
+  /** Whether the Gets of a multi request against one region share a single region scanner. */
+  static final String MULTI_GET_BATCH_ENABLED_KEY = "hbase.regionserver.multiget.batch.enabled";
+
+  static final boolean DEFAULT_MULTI_GET_BATCH_ENABLED = false;
+
+  /** The minimum number of Gets in a region action before the batched path is used. */
+  static final String MULTI_GET_BATCH_MIN_SIZE_KEY = "hbase.regionserver.multiget.batch.min.size";
+
+  static final int DEFAULT_MULTI_GET_BATCH_MIN_SIZE = 8;
+
+  private final HRegion region;
+
+  private final Get[] gets;
+
+  private final Result[] results;
+
+  private final IOException[] errors;
+
+  private final long[] times;
+
+  private final long maxResultSize;
+
+  private final long deadline;
+
+  private long resultSize;
+
+  private final RSRpcServices.RegionScannersCloseCallBack closeCallBack;
+
+  /**
+   * @param region        the region all the Gets target
+   * @param gets          the Gets, a {@code null} element is skipped and left to the caller
+   * @param closeCallBack the callback which closes the opened scanners once the response is shipped
+   * @param maxResultSize the size of the results after which no more Gets are executed
+   * @param deadline      the time after which no more Gets are executed, {@link Long#MAX_VALUE}
+   *                      if there is none
+   */
+  BatchedGetExecutor(HRegion region, Get[] gets,
+    RSRpcServices.RegionScannersCloseCallBack closeCallBack, long maxResultSize, long deadline) {
+    this.region = region;
+    this.gets = gets;
+    this.results = new Result[gets.length];
+    this.errors = new IOException[gets.length];
+    this.times = new long[gets.length];
+    this.closeCallBack = closeCallBack;
+    this.maxResultSize = maxResultSize;
+    this.deadline = deadline;
+  }
+
+  /**
+   * Returns the result of the Get at the given position, or {@code null} if it has not been
+   * executed here or failed.
+   */
+  Result getResult(int i) {
+    return results[i];
+  }
+
+  /**
+   * Returns the error of the Get at the given position, or {@code null} if it did not fail.
+   */
+  IOException getError(int i) {
+    return errors[i];
+  }
+
+  /**
+   * Returns the time in milliseconds spent on the Get at the given position.
+   */
+  long getTime(int i) {
+    return times[i];
+  }
+
+  private boolean isStopped() {
+    return resultSize >= maxResultSize
+      || deadline < Long.MAX_VALUE && EnvironmentEdgeManager.currentTime() > deadline;
+  }
+
+  /**
+   * Execute the non null Gets. After this method returns every non null Get has either a result or
+   * an error, unless the size budget has been exhausted or the deadline has passed before it could
+   * be executed.
+   */
+  void execute() {
+    boolean stale = region.getRegionInfo().getReplicaId() != 0;
+    RegionCoprocessorHost coprocessorHost = region.getCoprocessorHost();
+    List<Integer> shared = new ArrayList<>(gets.length);
+    Get template = null;
+    for (int i = 0; i < gets.length; i++) {
+      Get get = gets[i];
+      if (get == null) {
+        continue;
+      }
+      if (isStopped()) {
+        return;
+      }
+      long before = EnvironmentEdgeManager.currentTime();
+      try {
+        region.prepareGet(get);
+        // pre-get CP hook
+        if (coprocessorHost != null) {
+          List<Cell> cells = new ArrayList<>();
+          if (coprocessorHost.preGet(get, cells)) {
+            region.metricsUpdateForGet(cells, before);
+            results[i] = Result.create(cells, get.isCheckExistenceOnly() ? !cells.isEmpty() : null,
+              stale);
+            times[i] = EnvironmentEdgeManager.currentTime() - before;
+            continue;
+          }
+        }
+        // Coprocessors may have changed the Get so only decide here whether it can be batched
+        if (template == null && get.getFilter() == null) {
+          template = get;
+        }
+        if (template != null && canShareScanner(template, get)) {
+          shared.add(i);
+        } else {
+          getOne(i, stale, before);
+        }
+      } catch (IOException e) {
+        errors[i] = e;
+      }
+    }
+    if (shared.size() == 1) {
+      int i = shared.get(0);
+      try {
+        getOne(i, stale, EnvironmentEdgeManager.currentTime());
+      } catch (IOException e) {
+        errors[i] = e;
+      }
+    } else if (!shared.isEmpty()) {
+      getShared(shared, template, stale);
+    }
+  }
+
+  private void getOne(int i, boolean stale, long before) throws IOException {
+    Get get = gets[i];
+    Scan scan = new Scan(get);
+    if (scan.getLoadColumnFamiliesOnDemandValue() == null) {
+      scan.setLoadColumnFamiliesOnDemand(region.isLoadingCfsOnDemandDefault());
+    }
+    List<Cell> cells = new ArrayList<>();
+    RegionScannerImpl scanner = region.getScanner(scan);
+    closeCallBack.addScanner(scanner);
+    scanner.next(cells);
+    complete(i, cells, stale, before);
+  }
+
+  private void getShared(List<Integer> shared, Get template, boolean stale) {
+    Comparator<byte[]> comparator = Bytes.BYTES_COMPARATOR;
+    shared.sort((i, j) -> comparator.compare(gets[i].getRow(), gets[j].getRow()));
+    Scan scan = new Scan(template)
+      .withStartRow(gets[shared.get(0)].getRow(), true)
+      .withStopRow(gets[shared.get(shared.size() - 1)].getRow(), true)
+      // The rows are usually spread over the region, stream reading would waste IO
+      .setReadType(ReadType.PREAD);
+    if (scan.getLoadColumnFamiliesOnDemandValue() == null) {
+      scan.setLoadColumnFamiliesOnDemand(region.isLoadingCfsOnDemandDefault());
+    }
+    RegionScannerImpl scanner;
+    try {
+      scanner = region.getScanner(scan);
+    } catch (IOException e) {
+      for (int i : shared) {
+        errors[i] = e;
+      }
+      return;
+    }
+    closeCallBack.addScanner(scanner);
+    // The row the scanner returned last, and its cells. The scanner is positioned after it.
+    byte[] scannedRow = null;
+    List<Cell> scanned = null;
+    for (int n = 0; n < shared.size(); n++) {
+      if (isStopped()) {
+        return;
+      }
+      int i = shared.get(n);
+      byte[] row = gets[i].getRow();
+      long before = EnvironmentEdgeManager.currentTime();
+      try {
+        if (scannedRow == null || comparator.compare(scannedRow, row) < 0) {
+          // Stop at the requested row, a missing row must not make the scanner read the next ones
+          scanner.setStopRow(row, true);
+          scanner.reseek(row);
+          scanned = new ArrayList<>();
+          scanner.next(scanned);
+          scannedRow = scanned.isEmpty() ? row : CellUtil.cloneRow(scanned.get(0));
+        }
+        List<Cell> cells = scannedRow != null && Bytes.equals(scannedRow, row)
+          ? new ArrayList<>(scanned)
+          : new ArrayList<>();
+        complete(i, cells, stale, before);
+      } catch (IOException e) {
+        // The scanner may be in an undefined state now, fail the remaining Gets as well and let
+        // the client retry them.
+        for (int m = n; m < shared.size(); m++) {
+          errors[shared.get(m)] = e;
+        }
+        return;
+      }
+    }
+  }
+
+  private void complete(int i, List<Cell> cells, boolean stale, long before) throws IOException {
+    Get get = gets[i];
+    // post-get CP hook
+    if (region.getCoprocessorHost() != null) {
+      region.getCoprocessorHost().postGet(get, cells);
+    }
+    region.metricsUpdateForGet(cells, before);
+    results[i] =
+      Result.create(cells, get.isCheckExistenceOnly() ? !cells.isEmpty() : null, stale);
+    times[i] = EnvironmentEdgeManager.currentTime() - before;
+    for (Cell cell : cells) {
+      resultSize += PrivateCellUtil.estimatedSerializedSizeOf(cell);
+    }
+  }
+
+  /**
+   * Whether the two Gets select exactly the same cells of their rows, i.e, they only differ in
+   * their row and can be served by the same scanner.
+   */
+  static boolean canShareScanner(Get a, Get b) {
+    if (a == b) {
+      return true;
+    }
+    if (a.getFilter() != null || b.getFilter() != null) {
+      return false;
+    }
+    if (
+      a.isCheckExistenceOnly() != b.isCheckExistenceOnly()
+        || a.getCacheBlocks() != b.getCacheBlocks() || a.getMaxVersions() != b.getMaxVersions()
+        || a.getMaxResultsPerColumnFamily() != b.getMaxResultsPerColumnFamily()
+        || a.getRowOffsetPerColumnFamily() != b.getRowOffsetPerColumnFamily()
+        || a.getIsolationLevel() != b.getIsolationLevel()
+        || !Objects.equals(a.getLoadColumnFamiliesOnDemandValue(),
+          b.getLoadColumnFamiliesOnDemandValue())
+    ) {
+      return false;
+    }
+    if (
+      !isSameTimeRange(a.getTimeRange(), b.getTimeRange())
+        || !a.getColumnFamilyTimeRange().isEmpty() || !b.getColumnFamilyTimeRange().isEmpty()
+    ) {
+      return false;
+    }
+    return isSameColumns(a.getFamilyMap(), b.getFamilyMap())
+      && isSameAttributes(a.getAttributesMap(), b.getAttributesMap());
+  }
+
+  private static boolean isSameTimeRange(TimeRange a, TimeRange b) {
+    return a.getMin() == b.getMin() && a.getMax() == b.getMax();
+  }
+
+  private static boolean isSameColumns(Map<byte[], NavigableSet<byte[]>> a,
+    Map<byte[], NavigableSet<byte[]>> b) {
+    if (a.size() != b.size()) {
+      return false;
+    }
+    for (Map.Entry<byte[], NavigableSet<byte[]>> e : a.entrySet()) {
+      if (!b.containsKey(e.getKey())) {
+        return false;
+      }
+      NavigableSet<byte[]> qa = e.getValue();
+      NavigableSet<byte[]> qb = b.get(e.getKey());
+      boolean wholeFamilyA = qa == null || qa.isEmpty();
+      boolean wholeFamilyB = qb == null || qb.isEmpty();
+      if (wholeFamilyA || wholeFamilyB) {
+        if (wholeFamilyA != wholeFamilyB) {
+          return false;
+        }
+        continue;
+      }
+      if (qa.size() != qb.size() || !qa.containsAll(qb)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isSameAttributes(Map<String, byte[]> a, Map<String, byte[]> b) {
+    if (a.size() != b.size()) {
+      return false;
+    }
+    for (Map.Entry<String, byte[]> e : a.entrySet()) {
+      if (!Arrays.equals(e.getValue(), b.get(e.getKey()))) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.ipc.RpcCall;
+import org.apache.hadoop.hbase.ipc.RpcServer;
+import org.apache.hadoop.hbase.util.Threads;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.hbase.thirdparty.com.google.common.base.Throwables;
+import org.apache.hbase.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Runs the per region batches of a multi request concurrently instead of one region after the
+ * other on the handler, so a multi touching many regions takes about as long as its slowest region
+ * instead of the sum of all of them. The WAL syncs of the concurrent batches are coalesced by the
+ * WAL sync batching, so they mostly share a single sync.
+ * <p>
+ * The handler takes part in the work, at most {@link #MULTI_CONCURRENT_REGIONS_KEY} - 1 more
+ * threads of the shared pool help it for one call. A helper which only gets a pool thread once all
+ * the batches have been claimed just returns, so a saturated pool degrades to the sequential
+ * behavior. The helpers run with the current {@link RpcCall} of the handler so the request user,
+ * the deadline and the response size accounting are the ones of the call.
+ */
+@InterfaceAudience.Private
+class ConcurrentRegionActionExecutor {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ConcurrentRegionActionExecutor.class);
+
+  /** Whether to run the region actions of a multi request concurrently. */
+  public static final String MULTI_CONCURRENT_ENABLED_KEY =
+    "hbase.regionserver.multi.concurrent.enabled";
+
+  public static final boolean DEFAULT_MULTI_CONCURRENT_ENABLED = false;
+
+  /** The maximum number of region actions of one multi request running at the same time. */
+  public static final String MULTI_CONCURRENT_REGIONS_KEY =
+    "hbase.regionserver.multi.concurrent.regions";
+
+  public static final int DEFAULT_MULTI_CONCURRENT_REGIONS = 4;
+
+  /** The number of threads helping the handlers for all the multi requests of the server. */
+  public static final String MULTI_CONCURRENT_THREADS_KEY =
+    "hbase.regionserver.multi.concurrent.threads";
+
+  public static final int DEFAULT_MULTI_CONCURRENT_THREADS = 30;
+
+  private final ThreadPoolExecutor pool;
+
+  private final int maxConcurrentRegions;
+
+  ConcurrentRegionActionExecutor(Configuration conf) {
+    this.maxConcurrentRegions =
+      Math.max(1, conf.getInt(MULTI_CONCURRENT_REGIONS_KEY, DEFAULT_MULTI_CONCURRENT_REGIONS));
+    int threads = conf.getInt(MULTI_CONCURRENT_THREADS_KEY, DEFAULT_MULTI_CONCURRENT_THREADS);
+    this.pool = Threads.getBoundedCachedThreadPool(threads, 60, TimeUnit.SECONDS,
+      new ThreadFactoryBuilder().setNameFormat("RS-MultiRegionAction-%d").setDaemon(true)
+        .setUncaughtExceptionHandler(Threads.LOGGING_EXCEPTION_HANDLER).build());
+    LOG.info("Concurrent multi region actions enabled, threads={}, maxConcurrentRegions={}",
+      threads, maxConcurrentRegions);
+  }
+
+  /**
+   * Runs all the given tasks and returns once they are all done. An unchecked exception thrown by
+   * a task is rethrown once the other tasks are done.
+   */
+  void execute(List<Runnable> tasks) throws InterruptedIOException {
+    AtomicInteger next = new AtomicInteger();
+    CountDownLatch done = new CountDownLatch(tasks.size());
+    AtomicReference<Throwable> error = new AtomicReference<>();
+    RpcCall call = RpcServer.getCurrentCall().orElse(null);
+    Runnable worker = () -> {
+      for (int i; (i = next.getAndIncrement()) < tasks.size();) {
+        try {
+          tasks.get(i).run();
+        } catch (Throwable t) {
+          error.compareAndSet(null, t);
+        } finally {
+          done.countDown();
+        }
+      }
+    };
+    int helpers = Math.min(maxConcurrentRegions, tasks.size()) - 1;
+    for (int i = 0; i < helpers; i++) {
+      try {
+        pool.execute(() -> {
+          RpcServer.setCurrentCall(call);
+          try {
+            worker.run();
+          } finally {
+            RpcServer.unsetCurrentCall();
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        // shutting down, the handler does the remaining work itself
+        break;
+      }
+    }
+    worker.run();
+    try {
+      done.await();
+    } catch (InterruptedException e) {
+      throw (InterruptedIOException) new InterruptedIOException(
+        "Interrupted while waiting for the region actions of the multi request").initCause(e);
+    }
+    Throwable t = error.get();
+    if (t != null) {
+      Throwables.throwIfUnchecked(t);
+      throw new RuntimeException(t);
+    }
+  }
+
+  void stop() {
+    pool.shutdownNow();
+  }
+}
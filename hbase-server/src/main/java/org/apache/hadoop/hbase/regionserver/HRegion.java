@@ -138,7 +138,9 @@ import org.apache.hadoop.hbase.io.hfile.BlockCache;
 import org.apache.hadoop.hbase.io.hfile.HFile;
 import org.apache.hadoop.hbase.ipc.CoprocessorRpcUtils;
 import org.apache.hadoop.hbase.ipc.RpcCall;
+import org.apache.hadoop.hbase.ipc.RpcScheduler;
 import org.apache.hadoop.hbase.ipc.RpcServer;
+import org.apache.hadoop.hbase.ipc.RpcServerInterface;
 import org.apache.hadoop.hbase.ipc.ServerCall;
 import org.apache.hadoop.hbase.mob.MobFileCache;
 import org.apache.hadoop.hbase.monitoring.MonitoredTask;
@@ -7990,6 +7992,21 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
     stats.setCompactionPressure((int) (rsServices.getCompactionPressure() * 100 > 100
       ? 100
       : rsServices.getCompactionPressure() * 100));
+    // Let the clients back off before the calls pile up in the call queue
+    RpcServerInterface rpcServer = rsServices.getRpcServer();
+    if (rpcServer != null) {
+      if (rpcServer.getMetrics() != null) {
+        stats.setRpcQueueTime(rpcServer.getMetrics().getQueueTimeAverage());
+      }
+      // relative to the handlers which may take calls, the adaptive handler pool may have parked
+      // some of them
+      RpcScheduler scheduler = rpcServer.getScheduler();
+      int handlers = scheduler != null ? scheduler.getEnabledGeneralRpcHandlerCount() : 0;
+      if (handlers > 0) {
+        stats.setHandlerSaturation(
+          Math.min(100, scheduler.getActiveGeneralRpcHandlerCount() * 100 / handlers));
+      }
+    }
     return stats.build();
   }
 
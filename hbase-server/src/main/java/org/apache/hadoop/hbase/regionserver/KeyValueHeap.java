@@ -407,6 +407,12 @@ public class KeyValueHeap extends NonReversedNonLazyKeyValueScanner
     return current == null ? null : current.getNextIndexedKey();
   }
 
+  @Override
+  public boolean isSeekInsideBlockCheap() {
+    // here we check the current block of the top scanner
+    return current != null && current.isSeekInsideBlockCheap();
+  }
+
   @Override
   public void shipped() throws IOException {
     for (KeyValueScanner scanner : this.scannersForDelayedClose) {
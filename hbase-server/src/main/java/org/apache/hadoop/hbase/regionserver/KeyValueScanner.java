@@ -164,4 +164,13 @@ public interface KeyValueScanner extends Shipper, Closeable {
    *         HFileWriterImpl#getMidpoint, or null if not known.
    */
   public Cell getNextIndexedKey();
+
+  /**
+   * @return true if a seek inside the current block is cheap, i.e, it is encoded with
+   *         {@link org.apache.hadoop.hbase.io.encoding.DataBlockEncoding#CELL_INDEX}, so seeking to
+   *         the next column or row should be preferred over skipping cell by cell
+   */
+  default boolean isSeekInsideBlockCheap() {
+    return false;
+  }
 }
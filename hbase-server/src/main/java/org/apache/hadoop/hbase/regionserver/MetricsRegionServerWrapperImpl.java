@@ -1132,4 +1132,9 @@ class MetricsRegionServerWrapperImpl implements MetricsRegionServerWrapper {
   public long getByteBuffAllocatorUsedBufferCount() {
     return this.allocator.getUsedBufferCount();
   }
+
+  @Override
+  public double getByteBuffAllocatorPoolFragmentationRatio() {
+    return this.allocator.getPoolFragmentationRatio();
+  }
 }
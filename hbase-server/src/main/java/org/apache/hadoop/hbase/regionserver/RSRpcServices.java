@@ -20,6 +20,7 @@ package org.apache.hadoop.hbase.regionserver;
 import com.google.errorprone.annotations.RestrictedApi;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.UncheckedIOException;
 import java.net.BindException;
 import java.net.InetAddress;
@@ -29,6 +30,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -86,6 +88,7 @@ import org.apache.hadoop.hbase.client.VersionInfoUtil;
 import org.apache.hadoop.hbase.exceptions.FailedSanityCheckException;
 import org.apache.hadoop.hbase.exceptions.OutOfOrderScannerNextException;
 import org.apache.hadoop.hbase.exceptions.ScannerResetException;
+import org.apache.hadoop.hbase.exceptions.TimeoutIOException;
 import org.apache.hadoop.hbase.exceptions.UnknownProtocolException;
 import org.apache.hadoop.hbase.io.ByteBuffAllocator;
 import org.apache.hadoop.hbase.io.hfile.BlockCache;
@@ -332,6 +335,27 @@ public class RSRpcServices extends HBaseRpcServicesBase<HRegionServer>
    */
   private final boolean rejectRowsWithSizeOverThreshold;
 
+  /**
+   * Whether the Gets of a multi request against one region are served by a shared region scanner,
+   * see {@link BatchedGetExecutor}.
+   */
+  private final boolean multiGetBatchEnabled;
+
+  /**
+   * The minimum number of Gets in a region action for {@link #multiGetBatchEnabled} to apply
+   */
+  private final int multiGetBatchMinSize;
+
+  /**
+   * Runs the region actions of a multi request concurrently, null if disabled.
+   */
+  private final ConcurrentRegionActionExecutor concurrentRegionActions;
+
+  /**
+   * Computes the next batch of client scans in the background, null if disabled.
+   */
+  private final ScanPrefetcher scanPrefetcher;
+
   final AtomicBoolean clearCompactionQueues = new AtomicBoolean(false);
 
   /**
@@ -377,12 +401,36 @@ public class RSRpcServices extends HBaseRpcServicesBase<HRegionServer>
       this.lease = lease;
     }
 
+    @Override
+    public void prepareDeferredRun() throws IOException {
+      // The response references the blocks of the scanner so they can only be released once it
+      // has been sent. The lease is added back right away though, the next call on the scanner
+      // waits for the release, see RegionScannerHolder#takePrefetched.
+      RegionScannerHolder rsh = scanners.get(scannerName);
+      if (rsh != null) {
+        rsh.deferShipped();
+        if (lease != null) {
+          server.getLeaseManager().addLease(lease);
+        }
+      }
+    }
+
     @Override
     public void run() throws IOException {
+      RegionScannerHolder rsh = scanners.get(scannerName);
+      if (rsh != null && rsh.deferredResponseSent(scanPrefetcher)) {
+        // Possibly on a network thread, the blocks are released by the prefetch or the next call
+        return;
+      }
       this.shipper.shipped();
       // We're done. On way out re-add the above removed lease. The lease was temp removed for this
       // Rpc call and we are at end of the call now. Time to add it back.
-      if (scanners.containsKey(scannerName)) {
+      if (rsh != null) {
+        if (scanPrefetcher != null) {
+          // The blocks of the response are released, start computing the next one. This is done
+          // before the lease is back so the next call always sees the prefetch.
+          rsh.startPrefetch(scanPrefetcher);
+        }
         if (lease != null) {
           server.getLeaseManager().addLease(lease);
         }
@@ -420,6 +468,7 @@ public class RSRpcServices extends HBaseRpcServicesBase<HRegionServer>
     private final AtomicLong nextCallSeq = new AtomicLong(0);
     private final RegionScanner s;
     private final HRegion r;
+    private final Shipper shipper;
     private final RpcCallback closeCallBack;
     private final RpcCallback shippedCallback;
     private byte[] rowOfLastPartialResult;
@@ -427,12 +476,27 @@ public class RSRpcServices extends HBaseRpcServicesBase<HRegionServer>
     private boolean fullRegionScan;
     private final String clientIPAndPort;
     private final String userName;
-
-    RegionScannerHolder(RegionScanner s, HRegion r, RpcCallback closeCallBack,
+    // The number of rows to prefetch once the current response has been shipped, 0 for none, and
+    // the limits of the call which asked for it. Guarded by this, like the pending prefetch.
+    private int prefetchRows;
+    private boolean prefetchAllowPartials;
+    private long prefetchMaxResultSize;
+    private long prefetchTimeLimitDelta;
+    // The pending prefetch, see ScanPrefetcher
+    private ScanPrefetcher.Prefetch prefetch;
+    // Prefetched results not handed out yet, only used by the call owning the scanner
+    private ScanPrefetcher.PrefetchedResults prefetched;
+    // Whether the last response, which references the blocks of the scanner, is still being sent,
+    // and whether its blocks still have to be released before using the scanner. Guarded by this.
+    private boolean shippedDeferred;
+    private boolean needShipped;
+
+    RegionScannerHolder(RegionScanner s, HRegion r, Shipper shipper, RpcCallback closeCallBack,
       RpcCallback shippedCallback, boolean needCursor, boolean fullRegionScan,
       String clientIPAndPort, String userName) {
       this.s = s;
       this.r = r;
+      this.shipper = shipper;
       this.closeCallBack = closeCallBack;
       this.shippedCallback = shippedCallback;
       this.needCursor = needCursor;
@@ -450,6 +514,111 @@ public class RSRpcServices extends HBaseRpcServicesBase<HRegionServer>
       return nextCallSeq.compareAndSet(currentSeq, currentSeq + 1);
     }
 
+    /**
+     * Returns the prefetched results not handed out yet, waiting for a running prefetch if
+     * needed. It first waits for the previous response to be sent if it references the blocks of
+     * the scanner, and releases them if nobody did yet. After this call no prefetch is running on
+     * the scanner anymore and it can be used by the current call.
+     * @param timeoutMs how long to wait for the previous response to be sent
+     */
+    ScanPrefetcher.PrefetchedResults takePrefetched(long timeoutMs) throws IOException {
+      ScanPrefetcher.Prefetch f;
+      boolean ship;
+      synchronized (this) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (shippedDeferred) {
+          long remaining = deadline - System.nanoTime();
+          if (remaining <= 0) {
+            throw new TimeoutIOException(
+              "Timed out waiting for the previous response of the scanner to be sent");
+          }
+          try {
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+          } catch (InterruptedException e) {
+            throw (IOException) new InterruptedIOException().initCause(e);
+          }
+        }
+        prefetchRows = 0;
+        f = prefetch;
+        prefetch = null;
+        ship = needShipped;
+        needShipped = false;
+      }
+      if (f != null) {
+        prefetched = ScanPrefetcher.await(f);
+        // A prefetch cancelled before it started has not released the blocks
+        ship |= prefetched == null;
+      }
+      if (ship) {
+        shipper.shipped();
+      }
+      return prefetched;
+    }
+
+    /**
+     * Defers the release of the blocks referenced by the current response until it has been
+     * sent, see {@link #deferredResponseSent(ScanPrefetcher)}.
+     */
+    synchronized void deferShipped() {
+      shippedDeferred = true;
+    }
+
+    /**
+     * Called once a response has been sent. When its release was deferred, hands the release of
+     * the blocks over to the prefetch, if any, or to the next call, as this may run on a network
+     * thread where no blocking work should happen.
+     * @return whether the release of the blocks was deferred
+     */
+    synchronized boolean deferredResponseSent(ScanPrefetcher prefetcher) {
+      if (!shippedDeferred) {
+        return false;
+      }
+      shippedDeferred = false;
+      needShipped = true;
+      notifyAll();
+      if (prefetcher != null && prefetchRows > 0) {
+        // The prefetch releases the blocks first, see ScanPrefetcher
+        startPrefetch(prefetcher);
+        needShipped = false;
+      }
+      return true;
+    }
+
+    /**
+     * Asks for the prefetch of the next batch once the current response has been shipped.
+     * @param maxResultSize  the result size limit of the current call, including the quota
+     * @param timeLimitDelta the time limit of the current call, negative for none
+     */
+    synchronized void requestPrefetch(int rows, boolean allowPartials, long maxResultSize,
+      long timeLimitDelta) {
+      prefetchRows = rows;
+      prefetchAllowPartials = allowPartials;
+      prefetchMaxResultSize = maxResultSize;
+      prefetchTimeLimitDelta = timeLimitDelta;
+    }
+
+    /**
+     * Starts the prefetch asked for by the last call, if any. Must only be called once the blocks
+     * referenced by the response of that call have been released.
+     */
+    synchronized void startPrefetch(ScanPrefetcher prefetcher) {
+      if (prefetchRows > 0) {
+        long timeLimit = prefetchTimeLimitDelta < 0
+          ? -1L
+          : EnvironmentEdgeManager.currentTime() + prefetchTimeLimitDelta;
+        prefetch = prefetcher.prefetch(r, s, shipper, prefetchRows, prefetchMaxResultSize,
+          prefetchAllowPartials, timeLimit);
+        prefetchRows = 0;
+      }
+    }
+
+    synchronized void cancelPrefetch() {
+      prefetchRows = 0;
+      if (prefetch != null) {
+        prefetch.cancel(false);
+      }
+    }
+
     // Should be called only when we need to print lease expired messages otherwise
     // cache the String once made.
     @Override
@@ -478,6 +647,7 @@ public class RSRpcServices extends HBaseRpcServicesBase<HRegionServer>
       }
       LOG.info("Scanner lease {} expired {}", this.scannerName, rsh);
       server.getMetrics().incrScannerLeaseExpired();
+      rsh.cancelPrefetch();
       RegionScanner s = rsh.s;
       HRegion region = null;
       try {
@@ -714,12 +884,43 @@ public class RSRpcServices extends HBaseRpcServicesBase<HRegionServer>
     ClientProtos.ResultOrException.Builder resultOrExceptionBuilder =
       ResultOrException.newBuilder();
     boolean hasResultOrException = false;
+    long deadline = getCallDeadline();
+    BatchedGetExecutor batchedGets = null;
+    if (multiGetBatchEnabled && context != null && closeCallBack != null) {
+      // the old loop only enforces the size limit when the client can retry right away
+      batchedGets = executeBatchedGets(region, actions, closeCallBack,
+        context.isRetryImmediatelySupported() ? maxQuotaResultSize : Long.MAX_VALUE, deadline);
+    }
+    IOException deadlineIOE = null;
+    int position = -1;
     for (ClientProtos.Action action : actions.getActionList()) {
+      position++;
       hasResultOrException = false;
       resultOrExceptionBuilder.clear();
       try {
         Result r = null;
 
+        if (
+          deadlineIOE != null
+            || deadline < Long.MAX_VALUE && EnvironmentEdgeManager.currentTime() > deadline
+        ) {
+          // The client has given up on this call, do not waste the handler on the remaining
+          // actions. The pending mutations are still applied below.
+          if (deadlineIOE == null) {
+            deadlineIOE = new TimeoutIOException(
+              "Call deadline exceeded, skipped the remaining actions on " + region);
+          }
+          NameBytesPair pair = ResponseConverter.buildException(deadlineIOE);
+          resultOrExceptionBuilder.setException(pair);
+          if (context != null) {
+            context.incrementResponseExceptionSize(pair.getSerializedSize());
+          }
+          resultOrExceptionBuilder.setIndex(action.getIndex());
+          builder.addResultOrException(resultOrExceptionBuilder.build());
+          skipCellsForMutation(action, cellScanner);
+          continue;
+        }
+
         if (
           context != null && context.isRetryImmediatelySupported()
             && (context.getResponseCellSize() > maxQuotaResultSize
@@ -767,11 +968,20 @@ public class RSRpcServices extends HBaseRpcServicesBase<HRegionServer>
               + "reverse Scan.");
           }
           try {
-            Get get = ProtobufUtil.toGet(pbGet);
-            if (context != null) {
-              r = get(get, (region), closeCallBack, context);
+            if (batchedGets != null && batchedGets.getError(position) != null) {
+              before -= batchedGets.getTime(position);
+              throw batchedGets.getError(position);
+            } else if (batchedGets != null && batchedGets.getResult(position) != null) {
+              // account the time the Get took in the batch, not the lookup here
+              before -= batchedGets.getTime(position);
+              r = batchedGets.getResult(position);
             } else {
-              r = region.get(get);
+              Get get = ProtobufUtil.toGet(pbGet);
+              if (context != null) {
+                r = get(get, (region), closeCallBack, context);
+              } else {
+                r = region.get(get);
+              }
             }
           } finally {
             final MetricsRegionServer metricsRegionServer = server.getMetrics();
@@ -863,6 +1073,41 @@ public class RSRpcServices extends HBaseRpcServicesBase<HRegionServer>
     return cellsToReturn;
   }
 
+  /**
+   * Execute the Gets of a region action through a {@link BatchedGetExecutor} if the action only
+   * consists of Gets and is large enough.
+   * @return the executor holding the results, or null if the Gets have to be executed one by one
+   */
+  private BatchedGetExecutor executeBatchedGets(HRegion region, RegionAction actions,
+    RegionScannersCloseCallBack closeCallBack, long maxResultSize, long deadline) {
+    int count = actions.getActionCount();
+    // meta rows are not sorted in plain byte order
+    if (count < multiGetBatchMinSize || region.getRegionInfo().isMetaRegion()) {
+      return null;
+    }
+    Get[] gets = new Get[count];
+    for (int i = 0; i < count; i++) {
+      ClientProtos.Action action = actions.getAction(i);
+      if (!action.hasGet()) {
+        return null;
+      }
+      ClientProtos.Get pbGet = action.getGet();
+      if (pbGet.hasClosestRowBefore() && pbGet.getClosestRowBefore()) {
+        // leave it to the regular path which rejects it
+        continue;
+      }
+      try {
+        gets[i] = ProtobufUtil.toGet(pbGet);
+      } catch (IOException e) {
+        // leave it to the regular path which reports the error
+      }
+    }
+    BatchedGetExecutor executor =
+      new BatchedGetExecutor(region, gets, closeCallBack, maxResultSize, deadline);
+    executor.execute();
+    return executor;
+  }
+
   private void checkCellSizeLimit(final HRegion r, final Mutation m) throws IOException {
     if (r.maxCellSize > 0) {
       CellScanner cells = m.cellScanner();
@@ -1164,12 +1409,23 @@ public class RSRpcServices extends HBaseRpcServicesBase<HRegionServer>
       conf.getInt(HConstants.BATCH_ROWS_THRESHOLD_NAME, HConstants.BATCH_ROWS_THRESHOLD_DEFAULT);
     rejectRowsWithSizeOverThreshold =
       conf.getBoolean(REJECT_BATCH_ROWS_OVER_THRESHOLD, DEFAULT_REJECT_BATCH_ROWS_OVER_THRESHOLD);
+    multiGetBatchEnabled = conf.getBoolean(BatchedGetExecutor.MULTI_GET_BATCH_ENABLED_KEY,
+      BatchedGetExecutor.DEFAULT_MULTI_GET_BATCH_ENABLED);
+    multiGetBatchMinSize = conf.getInt(BatchedGetExecutor.MULTI_GET_BATCH_MIN_SIZE_KEY,
+      BatchedGetExecutor.DEFAULT_MULTI_GET_BATCH_MIN_SIZE);
     scannerLeaseTimeoutPeriod = conf.getInt(HConstants.HBASE_CLIENT_SCANNER_TIMEOUT_PERIOD,
       HConstants.DEFAULT_HBASE_CLIENT_SCANNER_TIMEOUT_PERIOD);
     maxScannerResultSize = conf.getLong(HConstants.HBASE_SERVER_SCANNER_MAX_RESULT_SIZE_KEY,
       HConstants.DEFAULT_HBASE_SERVER_SCANNER_MAX_RESULT_SIZE);
     rpcTimeout =
       conf.getInt(HConstants.HBASE_RPC_TIMEOUT_KEY, HConstants.DEFAULT_HBASE_RPC_TIMEOUT);
+    scanPrefetcher = conf.getBoolean(ScanPrefetcher.SCAN_PREFETCH_ENABLED_KEY,
+      ScanPrefetcher.DEFAULT_SCAN_PREFETCH_ENABLED) ? new ScanPrefetcher(conf) : null;
+    concurrentRegionActions =
+      conf.getBoolean(ConcurrentRegionActionExecutor.MULTI_CONCURRENT_ENABLED_KEY,
+        ConcurrentRegionActionExecutor.DEFAULT_MULTI_CONCURRENT_ENABLED)
+          ? new ConcurrentRegionActionExecutor(conf)
+          : null;
     minimumScanTimeLimitDelta = conf.getLong(REGION_SERVER_RPC_MINIMUM_SCAN_TIME_LIMIT_DELTA,
       DEFAULT_REGION_SERVER_RPC_MINIMUM_SCAN_TIME_LIMIT_DELTA);
     rpcServer.setNamedQueueRecorder(rs.getNamedQueueRecorder());
@@ -1377,8 +1633,8 @@ public class RSRpcServices extends HBaseRpcServicesBase<HRegionServer>
     RpcCallback shippedCallback = new RegionScannerShippedCallBack(scannerName, shipper, lease);
     RpcCallback closeCallback =
       s instanceof RpcCallback ? (RpcCallback) s : new RegionScannerCloseCallBack(s);
-    RegionScannerHolder rsh = new RegionScannerHolder(s, r, closeCallback, shippedCallback,
-      needCursor, fullRegionScan, getRemoteClientIpAndPort(), getUserName());
+    RegionScannerHolder rsh = new RegionScannerHolder(s, r, shipper, closeCallback,
+      shippedCallback, needCursor, fullRegionScan, getRemoteClientIpAndPort(), getUserName());
     RegionScannerHolder existing = scanners.putIfAbsent(scannerName, rsh);
     assert existing == null : "scannerId must be unique within regionserver's whole lifecycle! "
       + scannerName + ", " + existing;
@@ -1448,6 +1704,12 @@ public class RSRpcServices extends HBaseRpcServicesBase<HRegionServer>
   }
 
   void stop() {
+    if (scanPrefetcher != null) {
+      scanPrefetcher.stop();
+    }
+    if (concurrentRegionActions != null) {
+      concurrentRegionActions.stop();
+    }
     closeAllScanners();
     internalStop();
   }
@@ -2628,15 +2890,21 @@ public class RSRpcServices extends HBaseRpcServicesBase<HRegionServer>
   private void failRegionAction(MultiResponse.Builder responseBuilder,
     RegionActionResult.Builder regionActionResultBuilder, RegionAction regionAction,
     CellScanner cellScanner, Throwable error) {
+    responseBuilder.addRegionActionResult(
+      failRegionAction(regionActionResultBuilder, regionAction, cellScanner, error));
+  }
+
+  private RegionActionResult failRegionAction(RegionActionResult.Builder regionActionResultBuilder,
+    RegionAction regionAction, CellScanner cellScanner, Throwable error) {
     rpcServer.getMetrics().exception(error);
     regionActionResultBuilder.setException(ResponseConverter.buildException(error));
-    responseBuilder.addRegionActionResult(regionActionResultBuilder.build());
     // All Mutations in this RegionAction not executed as we can not see the Region online here
     // in this RS. Will be retried from Client. Skipping all the Cells in CellScanner
     // corresponding to these Mutations.
     if (cellScanner != null) {
       skipCellsForMutations(regionAction.getActionList(), cellScanner);
     }
+    return regionActionResultBuilder.build();
   }
 
   private boolean isReplicationRequest(Action action) {
@@ -2763,6 +3031,12 @@ public class RSRpcServices extends HBaseRpcServicesBase<HRegionServer>
     Map<RegionSpecifier, ClientProtos.RegionLoadStats> regionStats =
       new HashMap<>(request.getRegionActionCount());
 
+    if (concurrentRegionActions != null && isConcurrentMulti(request)) {
+      multiConcurrently(request, cellScanner, nonceGroup, context, spaceQuotaEnforcement,
+        responseBuilder, regionStats);
+      return setRegionStatistics(responseBuilder, regionStats).build();
+    }
+
     for (RegionAction regionAction : request.getRegionActionList()) {
       OperationQuota quota;
       HRegion region;
@@ -2884,14 +3158,141 @@ public class RSRpcServices extends HBaseRpcServicesBase<HRegionServer>
     if (cellsToReturn != null && !cellsToReturn.isEmpty() && controller != null) {
       controller.setCellScanner(CellUtil.createCellScanner(cellsToReturn));
     }
+    return setRegionStatistics(responseBuilder, regionStats).build();
+  }
 
+  private static MultiResponse.Builder setRegionStatistics(MultiResponse.Builder responseBuilder,
+    Map<RegionSpecifier, ClientProtos.RegionLoadStats> regionStats) {
     MultiRegionLoadStats.Builder builder = MultiRegionLoadStats.newBuilder();
     for (Entry<RegionSpecifier, ClientProtos.RegionLoadStats> stat : regionStats.entrySet()) {
       builder.addRegion(stat.getKey());
       builder.addStat(stat.getValue());
     }
-    responseBuilder.setRegionStatistics(builder);
-    return responseBuilder.build();
+    return responseBuilder.setRegionStatistics(builder);
+  }
+
+  /**
+   * Whether the region actions of the multi request can run concurrently, that is there are several
+   * of them, each on a different region, and they only hold non atomic Puts and Deletes, which
+   * return no cells. The actions on a region, and so on a row, are applied in the order of the
+   * request, so several region actions on the same region are executed one after the other.
+   */
+  private static boolean isConcurrentMulti(MultiRequest request) {
+    if (request.getRegionActionCount() < 2) {
+      return false;
+    }
+    Set<RegionSpecifier> regions = new HashSet<>(request.getRegionActionCount());
+    for (RegionAction regionAction : request.getRegionActionList()) {
+      if (regionAction.hasCondition() || (regionAction.hasAtomic() && regionAction.getAtomic())) {
+        return false;
+      }
+      if (!regions.add(regionAction.getRegion())) {
+        return false;
+      }
+      for (Action action : regionAction.getActionList()) {
+        if (!action.hasMutation()) {
+          return false;
+        }
+        MutationType type = action.getMutation().getMutateType();
+        if (type != MutationType.PUT && type != MutationType.DELETE) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Executes the non atomic region actions of a multi request concurrently, see
+   * {@link ConcurrentRegionActionExecutor}. The regions are looked up and the quotas checked on the
+   * handler, in the order of the request, the batches then run concurrently and their results are
+   * added to the response in the order of the request.
+   */
+  private void multiConcurrently(MultiRequest request, CellScanner cellScanner, long nonceGroup,
+    RpcCallContext context, ActivePolicyEnforcement spaceQuotaEnforcement,
+    MultiResponse.Builder responseBuilder,
+    Map<RegionSpecifier, ClientProtos.RegionLoadStats> regionStats) throws ServiceException {
+    int count = request.getRegionActionCount();
+    RegionActionResult[] results = new RegionActionResult[count];
+    HRegion[] regions = new HRegion[count];
+    List<Runnable> tasks = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      RegionAction regionAction = request.getRegionAction(i);
+      RegionActionResult.Builder regionActionResultBuilder = RegionActionResult.newBuilder();
+      HRegion region;
+      OperationQuota quota;
+      try {
+        region = getRegion(regionAction.getRegion());
+        quota = getRpcQuotaManager().checkQuota(region, regionAction.getActionList());
+      } catch (IOException e) {
+        results[i] = failRegionAction(regionActionResultBuilder, regionAction, cellScanner, e);
+        continue;
+      }
+      if (
+        shouldRejectRequestsFromClient(region) && regionAction.getActionCount() > 0
+          && !isReplicationRequest(regionAction.getAction(0))
+      ) {
+        quota.close();
+        results[i] = failRegionAction(regionActionResultBuilder, regionAction, cellScanner,
+          new DoNotRetryIOException(
+            region.getRegionInfo().getRegionNameAsString() + " is in STANDBY state"));
+        continue;
+      }
+      // The cells of all the region actions come in one cell block, hand each batch its own cells
+      CellScanner regionCells;
+      try {
+        regionCells = takeCellsForMutations(regionAction.getActionList(), cellScanner);
+      } catch (IOException e) {
+        quota.close();
+        results[i] = failRegionAction(regionActionResultBuilder, regionAction, null, e);
+        continue;
+      }
+      regions[i] = region;
+      int index = i;
+      tasks.add(() -> {
+        try {
+          // doNonAtomicRegionMutation manages the exception internally
+          doNonAtomicRegionMutation(region, quota, regionAction, regionCells,
+            regionActionResultBuilder, null, nonceGroup, null, context, spaceQuotaEnforcement);
+        } finally {
+          quota.close();
+        }
+        results[index] = regionActionResultBuilder.build();
+      });
+    }
+    try {
+      concurrentRegionActions.execute(tasks);
+    } catch (IOException e) {
+      throw new ServiceException(e);
+    }
+    for (int i = 0; i < count; i++) {
+      responseBuilder.addRegionActionResult(results[i]);
+      if (regions[i] != null) {
+        ClientProtos.RegionLoadStats regionLoadStats = regions[i].getLoadStatistics();
+        if (regionLoadStats != null) {
+          regionStats.put(request.getRegionAction(i).getRegion(), regionLoadStats);
+        }
+      }
+    }
+  }
+
+  /**
+   * Takes the cells of the given mutations out of the shared cell scanner of the request.
+   * @return a scanner over the taken cells, or null if the request has no cell block
+   */
+  private static CellScanner takeCellsForMutations(List<Action> actions, CellScanner cellScanner)
+    throws IOException {
+    if (cellScanner == null) {
+      return null;
+    }
+    List<Cell> cells = new ArrayList<>();
+    for (Action action : actions) {
+      MutationProto m = action.getMutation();
+      for (int i = 0; i < m.getAssociatedCellCount() && cellScanner.advance(); i++) {
+        cells.add(cellScanner.current());
+      }
+    }
+    return CellUtil.createCellScanner(cells);
   }
 
   private void skipCellsForMutations(List<Action> actions, CellScanner cellScanner) {
@@ -3242,6 +3643,13 @@ public class RSRpcServices extends HBaseRpcServicesBase<HRegionServer>
       if (controller != null && controller.getCallTimeout() > 0) {
         timeLimitDelta = Math.min(timeLimitDelta, controller.getCallTimeout());
       }
+      // The call may have waited in the call queue for a while, only the rest of its timeout is
+      // left for scanning.
+      long deadline = getCallDeadline();
+      if (deadline < Long.MAX_VALUE) {
+        timeLimitDelta =
+          Math.min(timeLimitDelta, deadline - EnvironmentEdgeManager.currentTime());
+      }
       // Use half of whichever timeout value was more restrictive... But don't allow
       // the time limit to be less than the allowable minimum (could cause an
       // immediatate timeout before scanning any data).
@@ -3255,6 +3663,14 @@ public class RSRpcServices extends HBaseRpcServicesBase<HRegionServer>
     return -1L;
   }
 
+  /**
+   * Returns the time after which the client has given up on the current call, or
+   * {@link Long#MAX_VALUE} if there is no such time.
+   */
+  private static long getCallDeadline() {
+    return RpcServer.getCurrentCall().map(RpcCall::getDeadline).orElse(Long.MAX_VALUE);
+  }
+
   private void checkLimitOfRows(int numOfCompleteRows, int limitOfRows, boolean moreRows,
     ScannerContext scannerContext, ScanResponse.Builder builder) {
     if (numOfCompleteRows >= limitOfRows) {
@@ -3269,8 +3685,8 @@ public class RSRpcServices extends HBaseRpcServicesBase<HRegionServer>
   // return whether we have more results in region.
   private void scan(HBaseRpcController controller, ScanRequest request, RegionScannerHolder rsh,
     long maxQuotaResultSize, int maxResults, int limitOfRows, List<Result> results,
-    ScanResponse.Builder builder, MutableObject<Object> lastBlock, RpcCallContext context)
-    throws IOException {
+    ScanResponse.Builder builder, MutableObject<Object> lastBlock, RpcCallContext context,
+    ScanPrefetcher.PrefetchedResults prefetched) throws IOException {
     HRegion region = rsh.r;
     RegionScanner scanner = rsh.s;
     long maxResultSize;
@@ -3317,6 +3733,8 @@ public class RSRpcServices extends HBaseRpcServicesBase<HRegionServer>
         boolean allowHeartbeatMessages = clientHandlesHeartbeats && allowPartialResults;
 
         long timeLimit = getTimeLimit(controller, allowHeartbeatMessages);
+        // Without heartbeats the scan can not return early, give up once the client did
+        long deadline = allowHeartbeatMessages ? Long.MAX_VALUE : getCallDeadline();
 
         final LimitScope sizeScope =
           allowPartialResults ? LimitScope.BETWEEN_CELLS : LimitScope.BETWEEN_ROWS;
@@ -3336,7 +3754,29 @@ public class RSRpcServices extends HBaseRpcServicesBase<HRegionServer>
         contextBuilder.setTrackMetrics(trackMetrics);
         ScannerContext scannerContext = contextBuilder.build();
         boolean limitReached = false;
-        while (numOfResults < maxResults) {
+        if (prefetched != null) {
+          // Hand out what was computed after the previous call first. It is only prefetched when
+          // there is no limit of rows so no need to count the complete rows here.
+          long prefetchedSize = 0;
+          while (
+            numOfResults < maxResults && prefetchedSize < maxResultSize && prefetched.hasNext()
+          ) {
+            Result r = prefetched.next();
+            for (Cell cell : r.rawCells()) {
+              prefetchedSize += PrivateCellUtil.estimatedSerializedSizeOf(cell);
+            }
+            lastBlock.setValue(addSize(context, r, lastBlock.getValue()));
+            results.add(r);
+            numOfResults++;
+          }
+          if (!prefetched.hasNext()) {
+            rsh.prefetched = null;
+          }
+          moreRows = prefetched.hasNext() || prefetched.isMoreRows();
+          // Only continue with the scanner if the prefetch stopped early without any result
+          limitReached = numOfResults > 0 || !moreRows;
+        }
+        while (!limitReached && numOfResults < maxResults) {
           // Reset the batch progress to 0 before every call to RegionScanner#nextRaw. The
           // batch limit is a limit on the number of cells per Result. Thus, if progress is
           // being tracked (i.e. scannerContext.keepProgress() is true) then we need to
@@ -3412,6 +3852,13 @@ public class RSRpcServices extends HBaseRpcServicesBase<HRegionServer>
           boolean timeLimitReached = scannerContext.checkTimeLimit(LimitScope.BETWEEN_ROWS);
           boolean resultsLimitReached = numOfResults >= maxResults;
           limitReached = sizeLimitReached || timeLimitReached || resultsLimitReached;
+          if (
+            !limitReached && moreRows && deadline < Long.MAX_VALUE
+              && EnvironmentEdgeManager.currentTime() > deadline
+          ) {
+            // The scanner is closed and the client reopens it after its last seen row
+            throw new TimeoutIOException("Call deadline exceeded while scanning " + region);
+          }
 
           if (limitReached || !moreRows) {
             // We only want to mark a ScanResponse as a heartbeat message in the event that
@@ -3596,6 +4043,9 @@ public class RSRpcServices extends HBaseRpcServicesBase<HRegionServer>
     MutableObject<Object> lastBlock = new MutableObject<>();
     boolean scannerClosed = false;
     try {
+      // Make sure no prefetch is running on the scanner before touching it
+      ScanPrefetcher.PrefetchedResults prefetched =
+        rsh.takePrefetched(scannerLeaseTimeoutPeriod);
       List<Result> results = new ArrayList<>(Math.min(rows, 512));
       if (rows > 0) {
         boolean done = false;
@@ -3613,7 +4063,7 @@ public class RSRpcServices extends HBaseRpcServicesBase<HRegionServer>
         }
         if (!done) {
           scan((HBaseRpcController) controller, request, rsh, maxQuotaResultSize, rows, limitOfRows,
-            results, builder, lastBlock, context);
+            results, builder, lastBlock, context, prefetched);
         } else {
           builder.setMoreResultsInRegion(!results.isEmpty());
         }
@@ -3658,6 +4108,17 @@ public class RSRpcServices extends HBaseRpcServicesBase<HRegionServer>
       if (!builder.getMoreResults() || !builder.getMoreResultsInRegion() || closeScanner) {
         scannerClosed = true;
         closeScanner(region, scanner, scannerName, context);
+      } else if (
+        scanPrefetcher != null && context != null && rsh.prefetched == null && limitOfRows <= 0
+          && !rsh.needCursor && !(request.hasTrackScanMetrics() && request.getTrackScanMetrics())
+      ) {
+        // Prefetch the next batch once the response has been shipped, see
+        // RegionScannerShippedCallBack. It is bounded like this call, including the quota.
+        long timeLimit = getTimeLimit((HBaseRpcController) controller, true);
+        rsh.requestPrefetch(rows,
+          request.hasClientHandlesPartials() && request.getClientHandlesPartials(),
+          maxQuotaResultSize,
+          timeLimit < 0 ? -1L : Math.max(timeLimit - EnvironmentEdgeManager.currentTime(), 0));
       }
       return builder.build();
     } catch (IOException e) {
@@ -78,8 +78,8 @@ class RegionScannerImpl implements RegionScanner, Shipper, RpcCallback {
   protected Cell joinedContinuationRow = null;
   private boolean filterClosed = false;
 
-  protected final byte[] stopRow;
-  protected final boolean includeStopRow;
+  protected byte[] stopRow;
+  protected boolean includeStopRow;
   protected final HRegion region;
   protected final CellComparator comparator;
 
@@ -754,6 +754,15 @@ class RegionScannerImpl implements RegionScanner, Shipper, RpcCallback {
     TraceUtil.trace(this::closeInternal, () -> region.createRegionSpan("RegionScanner.close"));
   }
 
+  /**
+   * Moves the stop row of this scanner. Used by {@link BatchedGetExecutor} to bound the scanner to
+   * the row of the Get it currently serves, so a missing row does not make it read the next rows.
+   */
+  synchronized void setStopRow(byte[] stopRow, boolean includeStopRow) {
+    this.stopRow = stopRow;
+    this.includeStopRow = includeStopRow;
+  }
+
   @Override
   public synchronized boolean reseek(byte[] row) throws IOException {
     return TraceUtil.trace(() -> {
@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.regionserver.Region.Operation;
+import org.apache.hadoop.hbase.regionserver.ScannerContext.LimitScope;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.hadoop.hbase.util.Threads;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.hbase.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Speculatively computes the next batch of a client scan once the previous response has been
+ * shipped, so the server side work of a sequential scan overlaps with the network round trip and
+ * the client side processing.
+ * <p>
+ * The prefetched cells are copied out of the block cache so the scanner can be
+ * {@link Shipper#shipped() shipped} right after the prefetch, the amount of data buffered per
+ * scanner is bounded by {@link #SCAN_PREFETCH_MAX_SIZE_KEY}. A prefetch only ever runs between two
+ * client calls, the next call first cancels a prefetch which has not started yet or waits for the
+ * running one, see {@link #await(Prefetch)}. It runs outside of any rpc call, the results are only
+ * accounted for in the quota and size limits of the call which hands them out.
+ */
+@InterfaceAudience.Private
+class ScanPrefetcher {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ScanPrefetcher.class);
+
+  /** Whether to prefetch the next batch of client scans. */
+  public static final String SCAN_PREFETCH_ENABLED_KEY = "hbase.regionserver.scan.prefetch.enabled";
+
+  public static final boolean DEFAULT_SCAN_PREFETCH_ENABLED = false;
+
+  /** The maximum size of the data buffered for one scanner. */
+  public static final String SCAN_PREFETCH_MAX_SIZE_KEY =
+    "hbase.regionserver.scan.prefetch.max.size";
+
+  public static final long DEFAULT_SCAN_PREFETCH_MAX_SIZE = 2L * 1024 * 1024;
+
+  /** The number of threads prefetching for all the scanners of the region server. */
+  public static final String SCAN_PREFETCH_THREADS_KEY = "hbase.regionserver.scan.prefetch.threads";
+
+  public static final int DEFAULT_SCAN_PREFETCH_THREADS = 10;
+
+  /**
+   * The results computed by a prefetch. They are handed out to the following client calls until
+   * drained.
+   */
+  static final class PrefetchedResults {
+
+    private final List<Result> results;
+
+    private final boolean moreRows;
+
+    private int next;
+
+    PrefetchedResults(List<Result> results, boolean moreRows) {
+      this.results = results;
+      this.moreRows = moreRows;
+    }
+
+    boolean hasNext() {
+      return next < results.size();
+    }
+
+    Result next() {
+      return results.get(next++);
+    }
+
+    /**
+     * Whether the scanner has more rows after the prefetched ones.
+     */
+    boolean isMoreRows() {
+      return moreRows;
+    }
+  }
+
+  /**
+   * A scheduled prefetch. A plain {@link FutureTask} can also be cancelled while it runs, the
+   * prefetch would then go on using the scanner concurrently with the next call and its rows would
+   * be lost. This one can only be cancelled before it has started.
+   */
+  static final class Prefetch extends FutureTask<PrefetchedResults> {
+
+    // Set by whichever comes first, the start of the prefetch or its cancellation
+    private final AtomicBoolean claimed = new AtomicBoolean();
+
+    Prefetch(Callable<PrefetchedResults> callable) {
+      super(callable);
+    }
+
+    @Override
+    public void run() {
+      if (claimed.compareAndSet(false, true)) {
+        super.run();
+      }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      return claimed.compareAndSet(false, true) && super.cancel(false);
+    }
+  }
+
+  private final ThreadPoolExecutor pool;
+
+  private final long maxSize;
+
+  ScanPrefetcher(Configuration conf) {
+    this.maxSize = conf.getLong(SCAN_PREFETCH_MAX_SIZE_KEY, DEFAULT_SCAN_PREFETCH_MAX_SIZE);
+    int threads = conf.getInt(SCAN_PREFETCH_THREADS_KEY, DEFAULT_SCAN_PREFETCH_THREADS);
+    this.pool = Threads.getBoundedCachedThreadPool(threads, 60, TimeUnit.SECONDS,
+      new ThreadFactoryBuilder().setNameFormat("RS-ScanPrefetch-%d").setDaemon(true)
+        .setUncaughtExceptionHandler(Threads.LOGGING_EXCEPTION_HANDLER).build());
+    LOG.info("Scan prefetch enabled, threads={}, maxSize={}", threads, maxSize);
+  }
+
+  /**
+   * Schedule the prefetch of the next batch of the given scanner.
+   * @param maxResults          the maximum number of results, i.e, the caching of the scan
+   * @param maxResultSize       the result size limit of the call which asked for the prefetch
+   * @param allowPartialResults whether the client accepts partial rows
+   * @param timeLimit           the time at which the prefetch stops after the current row, a
+   *                            negative value for no limit
+   */
+  Prefetch prefetch(HRegion region, RegionScanner scanner, Shipper shipper, int maxResults,
+    long maxResultSize, boolean allowPartialResults, long timeLimit) {
+    Prefetch prefetch = new Prefetch(() -> fetch(region, scanner, shipper, maxResults,
+      maxResultSize, allowPartialResults, timeLimit));
+    pool.execute(prefetch);
+    return prefetch;
+  }
+
+  private PrefetchedResults fetch(HRegion region, RegionScanner scanner, Shipper shipper,
+    int maxResults, long maxResultSize, boolean allowPartialResults, long timeLimit)
+    throws IOException {
+    long sizeLimit = scanner.getMaxResultSize() > 0
+      ? Math.min(scanner.getMaxResultSize(), maxResultSize)
+      : maxResultSize;
+    sizeLimit = Math.min(sizeLimit, maxSize);
+    boolean stale = region.getRegionInfo().getReplicaId() != 0;
+    List<Result> results = new ArrayList<>();
+    boolean moreRows = true;
+    region.startRegionOperation(Operation.SCAN);
+    try {
+      synchronized (scanner) {
+        // The release of the blocks of the last response may have been deferred until it had
+        // been sent, in which case it is left to us. Releasing them twice does no harm.
+        shipper.shipped();
+        LimitScope sizeScope =
+          allowPartialResults ? LimitScope.BETWEEN_CELLS : LimitScope.BETWEEN_ROWS;
+        // Nobody waits for a heartbeat here, so only ever stop between rows when out of time
+        ScannerContext scannerContext = ScannerContext.newBuilder(true)
+          .setSizeLimit(sizeScope, sizeLimit, sizeLimit).setBatchLimit(scanner.getBatch())
+          .setTimeLimit(LimitScope.BETWEEN_ROWS, timeLimit).build();
+        ArrayList<Cell> values = new ArrayList<>(32);
+        while (results.size() < maxResults) {
+          scannerContext.setBatchProgress(0);
+          moreRows = scanner.nextRaw(values, scannerContext);
+          // The cells outlive the shipped call below, copy them out of the block cache.
+          CellUtil.cloneIfNecessary(values);
+          if (!values.isEmpty()) {
+            results.add(
+              Result.create(values, null, stale, scannerContext.mayHaveMoreCellsInRow()));
+          } else if (!moreRows && !results.isEmpty()) {
+            // See HBASE-21206, same as in RSRpcServices
+            int lastIdx = results.size() - 1;
+            Result r = results.get(lastIdx);
+            if (r.mayHaveMoreCellsInRow()) {
+              results.set(lastIdx, Result.create(r.rawCells(), r.getExists(), r.isStale(), false));
+            }
+          }
+          if (
+            !moreRows || scannerContext.checkSizeLimit(LimitScope.BETWEEN_ROWS)
+              || scannerContext.checkTimeLimit(LimitScope.BETWEEN_ROWS)
+          ) {
+            break;
+          }
+          values.clear();
+        }
+        shipper.shipped();
+      }
+    } finally {
+      region.closeRegionOperation();
+    }
+    return new PrefetchedResults(results, moreRows);
+  }
+
+  /**
+   * Wait for the given prefetch. A prefetch which has not started yet is cancelled, in which case
+   * {@code null} is returned, so the caller can safely use the scanner afterwards.
+   */
+  static PrefetchedResults await(Prefetch prefetch) throws IOException {
+    if (prefetch.cancel(false)) {
+      return null;
+    }
+    try {
+      return prefetch.get();
+    } catch (CancellationException e) {
+      return null;
+    } catch (InterruptedException e) {
+      throw (IOException) new InterruptedIOException().initCause(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+
+  void stop() {
+    pool.shutdownNow();
+  }
+}
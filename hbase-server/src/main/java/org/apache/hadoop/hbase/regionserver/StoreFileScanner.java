@@ -34,6 +34,7 @@ import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.PrivateCellUtil;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.io.TimeRange;
+import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
 import org.apache.hadoop.hbase.io.hfile.HFileScanner;
 import org.apache.hadoop.hbase.regionserver.querymatcher.ScanQueryMatcher;
 import org.apache.yetus.audience.InterfaceAudience;
@@ -556,6 +557,11 @@ public class StoreFileScanner implements KeyValueScanner {
     return hfs.getNextIndexedKey();
   }
 
+  @Override
+  public boolean isSeekInsideBlockCheap() {
+    return hfs.getCurrentBlockEncoding() == DataBlockEncoding.CELL_INDEX;
+  }
+
   @Override
   public void shipped() throws IOException {
     this.hfs.shipped();
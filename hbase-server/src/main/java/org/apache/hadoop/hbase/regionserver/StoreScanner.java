@@ -36,6 +36,7 @@ import org.apache.hadoop.hbase.client.IsolationLevel;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.executor.ExecutorService;
 import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
 import org.apache.hadoop.hbase.regionserver.ScannerContext.LimitScope;
 import org.apache.hadoop.hbase.regionserver.ScannerContext.NextState;
 import org.apache.hadoop.hbase.regionserver.handler.ParallelSeekHandler;
@@ -78,6 +79,13 @@ public class StoreScanner extends NonReversedNonLazyKeyValueScanner
   private final boolean get;
   private final boolean explicitColumnQuery;
   private final boolean useRowColBloom;
+  /**
+   * Whether to seek instead of trying to skip when the current block of the current scanner is
+   * encoded with {@link DataBlockEncoding#CELL_INDEX}, where a seek inside the block is cheap. The
+   * encoding of the block is checked as files written before a change of the family encoding keep
+   * their own.
+   */
+  private final boolean seekInsideCheapBlocks;
   /**
    * A flag that enables StoreFileScanner parallel-seeking
    */
@@ -179,6 +187,7 @@ public class StoreScanner extends NonReversedNonLazyKeyValueScanner
     // StoreFile.passesBloomFilter(Scan, SortedSet<byte[]>).
     this.useRowColBloom = numColumns > 1 || (!get && numColumns == 1) && (store == null
       || store.getColumnFamilyDescriptor().getBloomFilterType() == BloomType.ROWCOL);
+    this.seekInsideCheapBlocks = scanType == ScanType.USER_SCAN;
     this.maxRowSize = scanInfo.getTableMaxRowSize();
     this.preadMaxBytes = scanInfo.getPreadMaxBytes();
     if (get) {
@@ -804,7 +813,7 @@ public class StoreScanner extends NonReversedNonLazyKeyValueScanner
   private void seekOrSkipToNextRow(Cell cell) throws IOException {
     // If it is a Get Scan, then we know that we are done with this row; there are no more
     // rows beyond the current one: don't try to optimize.
-    if (!get) {
+    if (!get && !preferSeekInsideBlock()) {
       if (trySkipToNextRow(cell)) {
         return;
       }
@@ -813,11 +822,15 @@ public class StoreScanner extends NonReversedNonLazyKeyValueScanner
   }
 
   private void seekOrSkipToNextColumn(Cell cell) throws IOException {
-    if (!trySkipToNextColumn(cell)) {
+    if (preferSeekInsideBlock() || !trySkipToNextColumn(cell)) {
       seekAsDirection(matcher.getKeyForNextColumn(cell));
     }
   }
 
+  private boolean preferSeekInsideBlock() {
+    return seekInsideCheapBlocks && heap.isSeekInsideBlockCheap();
+  }
+
   /**
    * See if we should actually SEEK or rather just SKIP to the next Cell (see HBASE-13109).
    * ScanQueryMatcher may issue SEEK hints, such as seek to next column, next row, or seek to an
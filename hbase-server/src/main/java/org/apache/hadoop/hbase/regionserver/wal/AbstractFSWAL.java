@@ -55,6 +55,7 @@ import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantLock;
 import org.apache.commons.lang3.mutable.MutableLong;
 import org.apache.hadoop.conf.Configuration;
@@ -155,6 +156,22 @@ public abstract class AbstractFSWAL<W extends WriterBase> implements WAL {
   public static final String WAL_SHUTDOWN_WAIT_TIMEOUT_MS = "hbase.wal.shutdown.wait.timeout.ms";
   public static final int DEFAULT_WAL_SHUTDOWN_WAIT_TIMEOUT_MS = 15 * 1000;
 
+  /**
+   * The maximum time, in microseconds, a sync is held back so the appends and syncs coming in
+   * meanwhile share it. 0 disables the group commit window.
+   */
+  public static final String WAL_GROUP_COMMIT_MAX_WINDOW_US =
+    "hbase.regionserver.wal.group.commit.max.window.us";
+  public static final long DEFAULT_WAL_GROUP_COMMIT_MAX_WINDOW_US = 0;
+
+  /**
+   * The group commit window as a fraction of the recent average sync time, so a fast WAL device
+   * barely delays syncs while a slow one collects more edits per sync.
+   */
+  public static final String WAL_GROUP_COMMIT_WINDOW_RATIO =
+    "hbase.regionserver.wal.group.commit.window.ratio";
+  public static final float DEFAULT_WAL_GROUP_COMMIT_WINDOW_RATIO = 0.5f;
+
   /**
    * file system instance
    */
@@ -220,6 +237,16 @@ public abstract class AbstractFSWAL<W extends WriterBase> implements WAL {
 
   private final long walSyncTimeoutNs;
 
+  private final long groupCommitMaxWindowNs;
+
+  private final float groupCommitWindowRatio;
+
+  // moving average of the sync time, only used to size the group commit window
+  private volatile long avgSyncTimeNs;
+
+  // the edits appended since the last completed sync
+  private final LongAdder editsSinceLastSync = new LongAdder();
+
   private final long walTooOldNs;
 
   // If > than this size, roll the log.
@@ -506,6 +533,10 @@ public abstract class AbstractFSWAL<W extends WriterBase> implements WAL {
       conf.getInt(SLOW_SYNC_ROLL_INTERVAL_MS, DEFAULT_SLOW_SYNC_ROLL_INTERVAL_MS);
     this.walSyncTimeoutNs =
       TimeUnit.MILLISECONDS.toNanos(conf.getLong(WAL_SYNC_TIMEOUT_MS, DEFAULT_WAL_SYNC_TIMEOUT_MS));
+    this.groupCommitMaxWindowNs = TimeUnit.MICROSECONDS.toNanos(
+      conf.getLong(WAL_GROUP_COMMIT_MAX_WINDOW_US, DEFAULT_WAL_GROUP_COMMIT_MAX_WINDOW_US));
+    this.groupCommitWindowRatio =
+      conf.getFloat(WAL_GROUP_COMMIT_WINDOW_RATIO, DEFAULT_WAL_GROUP_COMMIT_WINDOW_RATIO);
     this.syncFutureCache = new SyncFutureCache(conf);
     this.implClassName = getClass().getSimpleName();
     this.walTooOldNs = TimeUnit.SECONDS
@@ -877,7 +908,9 @@ public abstract class AbstractFSWAL<W extends WriterBase> implements WAL {
         if (closed) {
           throw new IOException("WAL has been closed");
         } else {
+          long startTimeNs = System.nanoTime();
           syncFuture.get(walSyncTimeoutNs);
+          postSyncWait(System.nanoTime() - startTimeNs);
         }
       }
     } catch (TimeoutIOException tioe) {
@@ -1134,6 +1167,7 @@ public abstract class AbstractFSWAL<W extends WriterBase> implements WAL {
       }
     }
     doAppend(writer, entry);
+    editsSinceLastSync.increment();
     assert highestUnsyncedTxid < entry.getTxid();
     highestUnsyncedTxid = entry.getTxid();
     if (entry.isCloseRegion()) {
@@ -1182,13 +1216,36 @@ public abstract class AbstractFSWAL<W extends WriterBase> implements WAL {
       }
       slowSyncCount.incrementAndGet(); // it's fine to unconditionally increment this
     }
+    // racy when several syncs complete at once, which is fine for an average
+    avgSyncTimeNs += (timeInNanos - avgSyncTimeNs) / 8;
+    long edits = editsSinceLastSync.sumThenReset();
     if (!listeners.isEmpty()) {
       for (WALActionsListener listener : listeners) {
         listener.postSync(timeInNanos, handlerSyncs);
+        listener.postSyncBatch(handlerSyncs, edits);
       }
     }
   }
 
+  private void postSyncWait(long timeInNanos) {
+    if (!listeners.isEmpty()) {
+      for (WALActionsListener listener : listeners) {
+        listener.postSyncWait(timeInNanos);
+      }
+    }
+  }
+
+  /**
+   * Returns how long a sync may be held back so it also covers the appends coming in meanwhile,
+   * see {@link #WAL_GROUP_COMMIT_MAX_WINDOW_US}, 0 if the sync should be issued right away.
+   */
+  protected final long getGroupCommitWindowNs() {
+    if (groupCommitMaxWindowNs <= 0) {
+      return 0;
+    }
+    return Math.min(groupCommitMaxWindowNs, (long) (avgSyncTimeNs * groupCommitWindowRatio));
+  }
+
   protected final long stampSequenceIdAndPublishToRingBuffer(RegionInfo hri, WALKeyImpl key,
     WALEdit edits, boolean inMemstore, RingBuffer<RingBufferTruck> ringBuffer) throws IOException {
     if (this.closed) {
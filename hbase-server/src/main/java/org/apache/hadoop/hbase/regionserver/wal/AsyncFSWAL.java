@@ -198,6 +198,11 @@ public class AsyncFSWAL extends AbstractFSWAL<AsyncWriter> {
 
   private long highestProcessedAppendTxidAtLastSync;
 
+  // whether a sync is held back by the group commit window, and since when
+  private boolean groupCommitPending;
+
+  private long groupCommitStartNs;
+
   private final int waitOnShutdownInSeconds;
 
   private final StreamSlowMonitor streamSlowMonitor;
@@ -416,6 +421,7 @@ public class AsyncFSWAL extends AbstractFSWAL<AsyncWriter> {
   }
 
   private void sync(AsyncWriter writer) {
+    groupCommitPending = false;
     fileLengthAtLastSync = writer.getLength();
     long currentHighestProcessedAppendTxid = highestProcessedAppendTxid;
     boolean shouldUseHsync =
@@ -668,7 +674,17 @@ public class AsyncFSWAL extends AbstractFSWAL<AsyncWriter> {
               && syncFutures.last().getTxid() > highestProcessedAppendTxidAtLastSync
           ) {
             // no new data in the ringbuffer and we have at least one sync request
-            sync(writer);
+            long delayNs = getGroupCommitDelayNs();
+            if (delayNs > 0) {
+              // hold the sync back for more appends, they reschedule the consumer themselves
+              eventLoopGroup.next().schedule(() -> {
+                if (shouldScheduleConsumer()) {
+                  consumeExecutor.execute(consumer);
+                }
+              }, delayNs, TimeUnit.NANOSECONDS);
+            } else {
+              sync(writer);
+            }
           }
           return;
         } else {
@@ -683,6 +699,20 @@ public class AsyncFSWAL extends AbstractFSWAL<AsyncWriter> {
     consumeExecutor.execute(consumer);
   }
 
+  // how much longer the pending sync is held back by the group commit window
+  private long getGroupCommitDelayNs() {
+    long windowNs = getGroupCommitWindowNs();
+    if (windowNs <= 0) {
+      return 0;
+    }
+    long nowNs = System.nanoTime();
+    if (!groupCommitPending) {
+      groupCommitPending = true;
+      groupCommitStartNs = nowNs;
+    }
+    return windowNs - (nowNs - groupCommitStartNs);
+  }
+
   private boolean shouldScheduleConsumer() {
     int currentEpochAndState = epochAndState;
     if (writerBroken(currentEpochAndState) || waitingRoll(currentEpochAndState)) {
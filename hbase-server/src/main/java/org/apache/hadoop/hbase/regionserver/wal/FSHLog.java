@@ -41,6 +41,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileSystem;
@@ -168,6 +169,12 @@ public class FSHLog extends AbstractFSWAL<Writer> {
 
   private final AtomicInteger closeErrorCount = new AtomicInteger();
 
+  // The amount of unsynced data above which a sync is not held back for the group commit window
+  private final long batchSize;
+
+  // The length of the current writer at its last successful sync
+  private volatile long fileLengthAtLastSync;
+
   private final int waitOnShutdownInSeconds;
   private final ExecutorService closeExecutor = Executors.newCachedThreadPool(
     new ThreadFactoryBuilder().setDaemon(true).setNameFormat("Close-WAL-Writer-%d").build());
@@ -251,6 +258,7 @@ public class FSHLog extends AbstractFSWAL<Writer> {
     this.lowReplicationRollLimit =
       conf.getInt(LOW_REPLICATION_ROLL_LIMIT, DEFAULT_LOW_REPLICATION_ROLL_LIMIT);
     this.closeErrorsTolerated = conf.getInt(ROLL_ERRORS_TOLERATED, DEFAULT_ROLL_ERRORS_TOLERATED);
+    this.batchSize = conf.getLong(AsyncFSWAL.WAL_BATCH_SIZE, AsyncFSWAL.DEFAULT_WAL_BATCH_SIZE);
     this.waitOnShutdownInSeconds =
       conf.getInt(FSHLOG_WAIT_ON_SHUTDOWN_IN_SECONDS, DEFAULT_FSHLOG_WAIT_ON_SHUTDOWN_IN_SECONDS);
     // This is the 'writer' -- a single threaded executor. This single thread 'consumes' what is
@@ -400,6 +408,7 @@ public class FSHLog extends AbstractFSWAL<Writer> {
       }
       logRollAndSetupWalProps(oldPath, newPath, oldFileLen);
       this.writer = nextWriter;
+      this.fileLengthAtLastSync = nextWriter != null ? nextWriter.getLength() : 0;
       if (nextWriter != null && nextWriter instanceof ProtobufLogWriter) {
         this.hdfs_out = ((ProtobufLogWriter) nextWriter).getStream();
       } else {
@@ -605,6 +614,24 @@ public class FSHLog extends AbstractFSWAL<Writer> {
       return sequence;
     }
 
+    private void awaitGroupCommit(long windowNs) {
+      if (windowNs <= 0) {
+        return;
+      }
+      // park in slices so the unsynced size is checked a few times during the window
+      long sliceNs = Math.max(windowNs / 4, 1);
+      long deadlineNs = System.nanoTime() + windowNs;
+      long leftNs = windowNs;
+      while (leftNs > 0 && !isInterrupted()) {
+        Writer w = writer;
+        if (w == null || w.getLength() - fileLengthAtLastSync >= batchSize) {
+          return;
+        }
+        LockSupport.parkNanos(Math.min(sliceNs, leftNs));
+        leftNs = deadlineNs - System.nanoTime();
+      }
+    }
+
     boolean areSyncFuturesReleased() {
       // check whether there is no sync futures offered, and no in-flight sync futures that is being
       // processed.
@@ -645,13 +672,19 @@ public class FSHLog extends AbstractFSWAL<Writer> {
             }
             break;
           }
+          // Hold the sync back so the appends and syncs coming in meanwhile share it. The writer
+          // is synced up to the highest unsynced txid read below, so they are released with it.
+          // Stop waiting once enough unsynced data has piled up, as AsyncFSWAL does.
+          awaitGroupCommit(getGroupCommitWindowNs());
           // I got something. Lets run. Save off current sequence number in case it changes
           // while we run.
           long start = System.nanoTime();
           Throwable lastException = null;
           try {
             long unSyncedFlushSeq = highestUnsyncedTxid;
+            long lengthBeforeSync = writer.getLength();
             writer.sync(sf.isForceSync());
+            fileLengthAtLastSync = lengthBeforeSync;
             if (unSyncedFlushSeq > currentSequence) {
               currentSequence = unSyncedFlushSeq;
             }
@@ -51,6 +51,16 @@ public class MetricsWAL implements WALActionsListener {
     source.incrementSyncTime(timeInNanos / 1000000L);
   }
 
+  @Override
+  public void postSyncBatch(final int handlerSyncs, final long edits) {
+    source.incrementSyncBatch(handlerSyncs, edits);
+  }
+
+  @Override
+  public void postSyncWait(final long timeInNanos) {
+    source.incrementSyncWaitTime(timeInNanos / 1000L);
+  }
+
   @Override
   public void postAppend(final long size, final long time, final WALKey logkey,
     final WALEdit logEdit) throws IOException {
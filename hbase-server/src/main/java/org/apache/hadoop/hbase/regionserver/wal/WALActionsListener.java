@@ -115,4 +115,21 @@ public interface WALActionsListener {
    */
   default void postSync(final long timeInNanos, final int handlerSyncs) {
   }
+
+  /**
+   * For notification post writer sync, with how many edits and sync calls the sync covered. Used
+   * by metrics system to show how well the syncs are batched.
+   * @param handlerSyncs How many sync handler calls were released by this call to filesystem sync.
+   * @param edits        How many edits were appended since the previous sync completed.
+   */
+  default void postSyncBatch(final int handlerSyncs, final long edits) {
+  }
+
+  /**
+   * For notification post a sync call returns.
+   * @param timeInNanos How long the caller waited for its sync in nanoseconds, including the time
+   *                    the sync was held back by the group commit window.
+   */
+  default void postSyncWait(final long timeInNanos) {
+  }
 }
@@ -22,10 +22,13 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.ipc.NettyRpcClientConfigHelper;
 import org.apache.hadoop.hbase.wal.NettyAsyncFSWALConfigHelper;
 import org.apache.yetus.audience.InterfaceAudience;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import org.apache.hbase.thirdparty.io.netty.channel.Channel;
 import org.apache.hbase.thirdparty.io.netty.channel.EventLoopGroup;
 import org.apache.hbase.thirdparty.io.netty.channel.ServerChannel;
+import org.apache.hbase.thirdparty.io.netty.channel.epoll.Epoll;
 import org.apache.hbase.thirdparty.io.netty.channel.epoll.EpollEventLoopGroup;
 import org.apache.hbase.thirdparty.io.netty.channel.epoll.EpollServerSocketChannel;
 import org.apache.hbase.thirdparty.io.netty.channel.epoll.EpollSocketChannel;
@@ -39,6 +42,8 @@ import org.apache.hbase.thirdparty.io.netty.util.concurrent.DefaultThreadFactory
  */
 @InterfaceAudience.Private
 public class NettyEventLoopGroupConfig {
+  private static final Logger LOG = LoggerFactory.getLogger(NettyEventLoopGroupConfig.class);
+
   private final EventLoopGroup group;
 
   private final Class<? extends ServerChannel> serverChannelClass;
@@ -48,8 +53,17 @@ public class NettyEventLoopGroupConfig {
   private static boolean useEpoll(Configuration conf) {
     // Config to enable native transport.
     boolean epollEnabled = conf.getBoolean("hbase.netty.nativetransport", true);
-    // Use the faster native epoll transport mechanism on linux if enabled
-    return epollEnabled && JVM.isLinux() && JVM.isAmd64();
+    // Use the faster native epoll transport mechanism on linux if enabled, on any architecture
+    // the native library is shipped for, and fall back to NIO if it can not be loaded.
+    if (!epollEnabled || !JVM.isLinux()) {
+      return false;
+    }
+    if (!Epoll.isAvailable()) {
+      LOG.warn("Native epoll transport is not available, falling back to NIO",
+        Epoll.unavailabilityCause());
+      return false;
+    }
+    return true;
   }
 
   public NettyEventLoopGroupConfig(Configuration conf, String threadPoolName) {
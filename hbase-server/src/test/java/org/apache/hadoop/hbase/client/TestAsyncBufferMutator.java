@@ -35,8 +35,10 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.HBaseClassTestRule;
 import org.apache.hadoop.hbase.HBaseTestingUtil;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.testclassification.ClientTests;
 import org.apache.hadoop.hbase.testclassification.MediumTests;
@@ -239,6 +241,68 @@ public class TestAsyncBufferMutator {
     assertArrayEquals(VALUE, table.get(new Get(Bytes.toBytes(0))).get().getValue(CF, CQ));
   }
 
+  @Test
+  public void testPerServerFlush() throws Exception {
+    Put put = new Put(Bytes.toBytes(0)).addColumn(CF, CQ, VALUE);
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.setLong(ConnectionConfiguration.WRITE_BUFFER_PER_SERVER_SIZE_KEY, 5 * put.heapSize());
+    try (AsyncConnection conn = ConnectionFactory.createAsyncConnection(conf).get()) {
+      AsyncTable<?> table = conn.getTable(MULTI_REGION_TABLE_NAME);
+      List<CompletableFuture<Void>> futures = new ArrayList<>();
+      try (AsyncBufferedMutator mutator = conn.getBufferedMutatorBuilder(MULTI_REGION_TABLE_NAME)
+        .disableWriteBufferPeriodicFlush().setWriteBufferSize(100 * put.heapSize()).build()) {
+        // the location is not cached yet so the mutation stays in the shared buffer
+        CompletableFuture<Void> unlocated = mutator.mutate(put);
+        // cache the locations of all the regions, which are all on the only region server
+        conn.getRegionLocator(MULTI_REGION_TABLE_NAME)
+          .prefetchRegionLocations(HConstants.EMPTY_START_ROW, HConstants.EMPTY_END_ROW).get();
+        for (int i = 1; i <= 5; i++) {
+          futures.add(mutator.mutate(new Put(Bytes.toBytes(i)).addColumn(CF, CQ, VALUE)));
+        }
+        // reached the per server size, flushed without waiting for the whole write buffer
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+        assertFalse(unlocated.isDone());
+        mutator.flush();
+        unlocated.get();
+      }
+      for (int i = 0; i <= 5; i++) {
+        assertArrayEquals(VALUE, table.get(new Get(Bytes.toBytes(i))).get().getValue(CF, CQ));
+      }
+    }
+  }
+
+  @Test
+  public void testPerServerFlushKeepsRowOrder() throws Exception {
+    byte[] row = Bytes.toBytes(10);
+    byte[] newValue = Bytes.toBytes("new");
+    Put put = new Put(row).addColumn(CF, CQ, VALUE);
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    // every mutation which goes to a per server buffer is sent out immediately
+    conf.setLong(ConnectionConfiguration.WRITE_BUFFER_PER_SERVER_SIZE_KEY, 1);
+    try (AsyncConnection conn = ConnectionFactory.createAsyncConnection(conf).get()) {
+      AsyncTable<?> table = conn.getTable(MULTI_REGION_TABLE_NAME);
+      CompletableFuture<Void> first;
+      CompletableFuture<Void> second;
+      try (AsyncBufferedMutator mutator = conn.getBufferedMutatorBuilder(MULTI_REGION_TABLE_NAME)
+        .disableWriteBufferPeriodicFlush().setWriteBufferSize(100 * put.heapSize()).build()) {
+        // the location is not cached yet so the mutation goes to the shared buffer
+        first = mutator.mutate(put);
+        conn.getRegionLocator(MULTI_REGION_TABLE_NAME)
+          .prefetchRegionLocations(HConstants.EMPTY_START_ROW, HConstants.EMPTY_END_ROW).get();
+        // the location is cached now, but the row still has a mutation in the shared buffer so this
+        // one must not go to the per server buffer, which would be sent out before the first one
+        second = mutator.mutate(new Put(row).addColumn(CF, CQ, newValue));
+        Thread.sleep(1000);
+        assertFalse(first.isDone());
+        assertFalse(second.isDone());
+        mutator.flush();
+        first.get();
+        second.get();
+      }
+      assertArrayEquals(newValue, table.get(new Get(row)).get().getValue(CF, CQ));
+    }
+  }
+
   private static final class AsyncBufferMutatorForTest extends AsyncBufferedMutatorImpl {
 
     private int flushCount;
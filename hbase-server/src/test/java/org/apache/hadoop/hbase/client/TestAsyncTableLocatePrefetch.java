@@ -18,10 +18,13 @@
 package org.apache.hadoop.hbase.client;
 
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 import java.util.concurrent.ExecutionException;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.HBaseClassTestRule;
 import org.apache.hadoop.hbase.HBaseTestingUtil;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.testclassification.ClientTests;
 import org.apache.hadoop.hbase.testclassification.MediumTests;
@@ -79,4 +82,29 @@ public class TestAsyncTableLocatePrefetch {
       assertNotNull(LOCATOR.getRegionLocationInCache(TABLE_NAME, row));
     }
   }
+
+  @Test
+  public void testPrefetchRegionLocations() throws Exception {
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    // only fetch the located region itself when locating a row
+    conf.setInt(AsyncNonMetaRegionLocator.LOCATE_PREFETCH_LIMIT, 1);
+    try (AsyncConnection conn = ConnectionFactory.createAsyncConnection(conf).get()) {
+      AsyncRegionLocator locator = ((AsyncConnectionImpl) conn).getLocator();
+      conn.getRegionLocator(TABLE_NAME)
+        .prefetchRegionLocations(Bytes.toBytes("cdd"), Bytes.toBytes("mmm")).get();
+      // the region containing the start row, and all the regions starting in the range
+      for (String row : new String[] { "ccc", "cdd", "ddd", "hhh", "lll", "lzz" }) {
+        assertNotNull(row, locator.getRegionLocationInCache(TABLE_NAME, Bytes.toBytes(row)));
+      }
+      for (String row : new String[] { "bbb", "mmm", "nnn", "zzz" }) {
+        assertNull(row, locator.getRegionLocationInCache(TABLE_NAME, Bytes.toBytes(row)));
+      }
+      conn.getRegionLocator(TABLE_NAME).prefetchRegionLocations(HConstants.EMPTY_START_ROW,
+        HConstants.EMPTY_END_ROW).get();
+      assertNotNull(locator.getRegionLocationInCache(TABLE_NAME, Bytes.toBytes("aaa")));
+      for (byte[] row : HBaseTestingUtil.KEYS_FOR_HBA_CREATE_TABLE) {
+        assertNotNull(locator.getRegionLocationInCache(TABLE_NAME, row));
+      }
+    }
+  }
 }
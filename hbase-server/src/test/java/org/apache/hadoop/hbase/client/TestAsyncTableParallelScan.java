@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.client;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseTestingUtil;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.AdvancedScanResultConsumer.ScanController;
+import org.apache.hadoop.hbase.client.AdvancedScanResultConsumer.ScanResumer;
+import org.apache.hadoop.hbase.testclassification.ClientTests;
+import org.apache.hadoop.hbase.testclassification.LargeTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.ArgumentCaptor;
+
+@Category({ LargeTests.class, ClientTests.class })
+public class TestAsyncTableParallelScan {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+    HBaseClassTestRule.forClass(TestAsyncTableParallelScan.class);
+
+  private static final HBaseTestingUtil TEST_UTIL = new HBaseTestingUtil();
+
+  private static TableName TABLE_NAME = TableName.valueOf("async");
+
+  private static byte[] FAMILY = Bytes.toBytes("cf");
+
+  private static byte[] CQ = Bytes.toBytes("cq");
+
+  private static int COUNT = 1000;
+
+  private static AsyncConnection CONN;
+
+  private static AsyncTable<?> TABLE;
+
+  private static byte[] row(int i) {
+    return Bytes.toBytes(String.format("%03d", i));
+  }
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    TEST_UTIL.startMiniCluster(3);
+    byte[][] splitKeys = new byte[8][];
+    for (int i = 111; i < 999; i += 111) {
+      splitKeys[i / 111 - 1] = row(i);
+    }
+    TEST_UTIL.createTable(TABLE_NAME, FAMILY, splitKeys);
+    TEST_UTIL.waitTableAvailable(TABLE_NAME);
+    CONN = ConnectionFactory.createAsyncConnection(TEST_UTIL.getConfiguration()).get();
+    TABLE = CONN.getTable(TABLE_NAME);
+    TABLE.putAll(IntStream.range(0, COUNT)
+      .mapToObj(i -> new Put(row(i)).addColumn(FAMILY, CQ, Bytes.toBytes(i)))
+      .collect(Collectors.toList())).get();
+  }
+
+  @AfterClass
+  public static void tearDown() throws Exception {
+    CONN.close();
+    TEST_UTIL.shutdownMiniCluster();
+  }
+
+  private static List<Integer> scan(ResultScanner scanner) throws Exception {
+    List<Integer> values = new ArrayList<>();
+    try (ResultScanner s = scanner) {
+      for (Result result; (result = s.next()) != null;) {
+        values.add(Bytes.toInt(result.getValue(FAMILY, CQ)));
+      }
+    }
+    return values;
+  }
+
+  private static List<Integer> expected(int start, int end, boolean reversed) {
+    List<Integer> values = IntStream.range(start, end).boxed().collect(Collectors.toList());
+    if (reversed) {
+      values.sort((a, b) -> b - a);
+    }
+    return values;
+  }
+
+  @Test
+  public void testOrdered() throws Exception {
+    Scan scan = new Scan().setCaching(10).setMaxResultSize(1);
+    assertEquals(expected(0, COUNT, false), scan(TABLE.getParallelScanner(scan, 3, true)));
+    assertEquals(expected(50, 555, false),
+      scan(TABLE.getParallelScanner(new Scan().withStartRow(row(50)).withStopRow(row(555)), 2,
+        true)));
+  }
+
+  @Test
+  public void testOrderedReversed() throws Exception {
+    Scan scan = new Scan().withStartRow(row(700), true).withStopRow(row(100), false)
+      .setReversed(true).setCaching(10);
+    assertEquals(expected(101, 701, true), scan(TABLE.getParallelScanner(scan, 4, true)));
+  }
+
+  @Test
+  public void testUnordered() throws Exception {
+    Scan scan = new Scan().setCaching(10).setMaxResultSize(1).setScanMetricsEnabled(true);
+    ResultScanner scanner = TABLE.getParallelScanner(scan, 9, false);
+    List<Integer> values = scan(scanner);
+    assertEquals(COUNT, values.size());
+    values.sort(Integer::compare);
+    assertEquals(expected(0, COUNT, false), values);
+    assertNotNull(scanner.getScanMetrics());
+    assertEquals(COUNT, scanner.getScanMetrics().countOfRowsScanned.get());
+  }
+
+  @Test
+  public void testLimit() throws Exception {
+    assertEquals(expected(0, 300, false),
+      scan(TABLE.getParallelScanner(new Scan().setLimit(300), 4, false)));
+  }
+
+  @Test
+  public void testCloseEarly() throws Exception {
+    try (ResultScanner scanner = TABLE.getParallelScanner(new Scan().setCaching(1), 4, true)) {
+      for (int i = 0; i < 10; i++) {
+        assertEquals(i, Bytes.toInt(scanner.next().getValue(FAMILY, CQ)));
+      }
+    }
+  }
+
+  @Test
+  public void testFailureStopsOtherRanges() throws Exception {
+    @SuppressWarnings("unchecked")
+    AsyncTable<AdvancedScanResultConsumer> table = mock(AsyncTable.class);
+    List<byte[]> startKeys = Arrays.asList(new byte[0], row(100), row(200), row(300));
+    ResultScanner scanner = new ParallelScanResultScanner(table, new Scan(),
+      CompletableFuture.completedFuture(startKeys), 3, false, 1);
+    ArgumentCaptor<AdvancedScanResultConsumer> consumers =
+      ArgumentCaptor.forClass(AdvancedScanResultConsumer.class);
+    verify(table, times(3)).scan(any(Scan.class), consumers.capture());
+    AdvancedScanResultConsumer first = consumers.getAllValues().get(0);
+    AdvancedScanResultConsumer second = consumers.getAllValues().get(1);
+    AdvancedScanResultConsumer third = consumers.getAllValues().get(2);
+    // the second range has filled its cache and is suspended
+    ScanController suspended = mock(ScanController.class);
+    ScanResumer resumer = mock(ScanResumer.class);
+    when(suspended.suspend()).thenReturn(resumer);
+    Result result =
+      Result.create(new Cell[] { new KeyValue(row(150), FAMILY, CQ, Bytes.toBytes(1)) });
+    second.onNext(new Result[] { result }, suspended);
+    verify(suspended).suspend();
+
+    first.onError(new IOException("inject"));
+    try {
+      scanner.next();
+      fail("should fail");
+    } catch (IOException e) {
+      assertEquals("inject", e.getMessage());
+    }
+    // the suspended range is resumed so it runs into the terminate, the running range terminates
+    // on its next results, and the pending range is never started
+    verify(resumer).resume();
+    ScanController running = mock(ScanController.class);
+    third.onNext(new Result[] { result }, running);
+    verify(running).terminate();
+    verify(running, never()).suspend();
+    verify(table, times(3)).scan(any(Scan.class), any(AdvancedScanResultConsumer.class));
+    scanner.close();
+  }
+
+  @Test
+  public void testSplit() {
+    List<byte[]> startKeys = Arrays.asList(new byte[0], row(100), row(200), row(300));
+    List<Scan> scans = ParallelScanResultScanner.split(new Scan(), startKeys);
+    assertEquals(4, scans.size());
+    assertEquals(0, scans.get(0).getStartRow().length);
+    assertArrayEquals(row(100), scans.get(0).getStopRow());
+    assertFalse(scans.get(0).includeStopRow());
+    assertArrayEquals(row(300), scans.get(3).getStartRow());
+    assertTrue(scans.get(3).includeStartRow());
+    assertEquals(0, scans.get(3).getStopRow().length);
+
+    scans = ParallelScanResultScanner.split(
+      new Scan().withStartRow(row(200), false).withStopRow(row(300), true), startKeys);
+    assertEquals(1, scans.size());
+    assertArrayEquals(row(200), scans.get(0).getStartRow());
+    assertFalse(scans.get(0).includeStartRow());
+    assertTrue(scans.get(0).includeStopRow());
+
+    scans = ParallelScanResultScanner.split(
+      new Scan().withStartRow(row(250)).withStopRow(row(50)).setReversed(true), startKeys);
+    assertEquals(3, scans.size());
+    assertArrayEquals(row(250), scans.get(0).getStartRow());
+    assertArrayEquals(row(200), scans.get(0).getStopRow());
+    assertTrue(scans.get(0).includeStopRow());
+    assertArrayEquals(row(100), scans.get(2).getStartRow());
+    assertFalse(scans.get(2).includeStartRow());
+    assertArrayEquals(row(50), scans.get(2).getStopRow());
+  }
+}
@@ -1096,4 +1096,76 @@ public class TestFilterList {
     filterList = new FilterList(Operator.MUST_PASS_ONE, subFilter1, subFilter2);
     Assert.assertEquals(ReturnCode.SEEK_NEXT_USING_HINT, filterList.filterCell(kv1));
   }
+
+  private static final ReturnCode[] MERGE_ORDER =
+    { ReturnCode.INCLUDE, ReturnCode.INCLUDE_AND_NEXT_COL, ReturnCode.INCLUDE_AND_SEEK_NEXT_ROW,
+      ReturnCode.SKIP, ReturnCode.NEXT_COL, ReturnCode.NEXT_ROW, ReturnCode.SEEK_NEXT_USING_HINT };
+
+  /**
+   * Expected merge results, indexed by [localRC][rc] in {@link #MERGE_ORDER}, as produced by the
+   * previous switch based merge of {@link FilterListWithAND}.
+   */
+  private static final ReturnCode[][] AND_MERGE = {
+    { ReturnCode.INCLUDE, ReturnCode.INCLUDE_AND_NEXT_COL, ReturnCode.INCLUDE_AND_SEEK_NEXT_ROW,
+      ReturnCode.SKIP, ReturnCode.NEXT_COL, ReturnCode.NEXT_ROW, ReturnCode.SEEK_NEXT_USING_HINT },
+    { ReturnCode.INCLUDE_AND_NEXT_COL, ReturnCode.INCLUDE_AND_NEXT_COL,
+      ReturnCode.INCLUDE_AND_SEEK_NEXT_ROW, ReturnCode.NEXT_COL, ReturnCode.NEXT_COL,
+      ReturnCode.NEXT_ROW, ReturnCode.SEEK_NEXT_USING_HINT },
+    { ReturnCode.INCLUDE_AND_SEEK_NEXT_ROW, ReturnCode.INCLUDE_AND_SEEK_NEXT_ROW,
+      ReturnCode.INCLUDE_AND_SEEK_NEXT_ROW, ReturnCode.NEXT_ROW, ReturnCode.NEXT_ROW,
+      ReturnCode.NEXT_ROW, ReturnCode.SEEK_NEXT_USING_HINT },
+    { ReturnCode.SKIP, ReturnCode.NEXT_COL, ReturnCode.NEXT_ROW, ReturnCode.SKIP,
+      ReturnCode.NEXT_COL, ReturnCode.NEXT_ROW, ReturnCode.SEEK_NEXT_USING_HINT },
+    { ReturnCode.NEXT_COL, ReturnCode.NEXT_COL, ReturnCode.NEXT_ROW, ReturnCode.NEXT_COL,
+      ReturnCode.NEXT_COL, ReturnCode.NEXT_ROW, ReturnCode.SEEK_NEXT_USING_HINT },
+    { ReturnCode.NEXT_ROW, ReturnCode.NEXT_ROW, ReturnCode.NEXT_ROW, ReturnCode.NEXT_ROW,
+      ReturnCode.NEXT_ROW, ReturnCode.NEXT_ROW, ReturnCode.SEEK_NEXT_USING_HINT },
+    { ReturnCode.SEEK_NEXT_USING_HINT, ReturnCode.SEEK_NEXT_USING_HINT,
+      ReturnCode.SEEK_NEXT_USING_HINT, ReturnCode.SEEK_NEXT_USING_HINT,
+      ReturnCode.SEEK_NEXT_USING_HINT, ReturnCode.SEEK_NEXT_USING_HINT,
+      ReturnCode.SEEK_NEXT_USING_HINT } };
+
+  /**
+   * Expected merge results, indexed by [localRC][rc] in {@link #MERGE_ORDER}, as produced by the
+   * previous switch based merge of {@link FilterListWithOR}.
+   */
+  private static final ReturnCode[][] OR_MERGE = {
+    { ReturnCode.INCLUDE, ReturnCode.INCLUDE, ReturnCode.INCLUDE, ReturnCode.INCLUDE,
+      ReturnCode.INCLUDE, ReturnCode.INCLUDE, ReturnCode.INCLUDE },
+    { ReturnCode.INCLUDE, ReturnCode.INCLUDE_AND_NEXT_COL, ReturnCode.INCLUDE_AND_NEXT_COL,
+      ReturnCode.INCLUDE, ReturnCode.INCLUDE_AND_NEXT_COL, ReturnCode.INCLUDE_AND_NEXT_COL,
+      ReturnCode.INCLUDE },
+    { ReturnCode.INCLUDE, ReturnCode.INCLUDE_AND_NEXT_COL, ReturnCode.INCLUDE_AND_SEEK_NEXT_ROW,
+      ReturnCode.INCLUDE, ReturnCode.INCLUDE_AND_NEXT_COL, ReturnCode.INCLUDE_AND_SEEK_NEXT_ROW,
+      ReturnCode.INCLUDE },
+    { ReturnCode.INCLUDE, ReturnCode.INCLUDE, ReturnCode.INCLUDE, ReturnCode.SKIP,
+      ReturnCode.SKIP, ReturnCode.SKIP, ReturnCode.SKIP },
+    { ReturnCode.INCLUDE, ReturnCode.INCLUDE_AND_NEXT_COL, ReturnCode.INCLUDE_AND_NEXT_COL,
+      ReturnCode.SKIP, ReturnCode.NEXT_COL, ReturnCode.NEXT_COL, ReturnCode.SKIP },
+    { ReturnCode.INCLUDE, ReturnCode.INCLUDE_AND_NEXT_COL, ReturnCode.INCLUDE_AND_SEEK_NEXT_ROW,
+      ReturnCode.SKIP, ReturnCode.NEXT_COL, ReturnCode.NEXT_ROW, ReturnCode.SKIP },
+    { ReturnCode.INCLUDE, ReturnCode.INCLUDE, ReturnCode.INCLUDE, ReturnCode.SKIP,
+      ReturnCode.SKIP, ReturnCode.SKIP, ReturnCode.SEEK_NEXT_USING_HINT } };
+
+  @Test
+  public void testMergeReturnCodeWithAND() {
+    for (int i = 0; i < MERGE_ORDER.length; i++) {
+      for (int j = 0; j < MERGE_ORDER.length; j++) {
+        assertEquals("localRC=" + MERGE_ORDER[i] + ", rc=" + MERGE_ORDER[j], AND_MERGE[i][j],
+          FilterListWithAND.mergeReturnCode(MERGE_ORDER[j], MERGE_ORDER[i]));
+      }
+    }
+  }
+
+  @Test
+  public void testMergeReturnCodeWithOR() {
+    for (int i = 0; i < MERGE_ORDER.length; i++) {
+      // The first sub-filter which has not been skipped decides the initial return code.
+      assertEquals(MERGE_ORDER[i], FilterListWithOR.mergeReturnCode(null, MERGE_ORDER[i]));
+      for (int j = 0; j < MERGE_ORDER.length; j++) {
+        assertEquals("localRC=" + MERGE_ORDER[i] + ", rc=" + MERGE_ORDER[j], OR_MERGE[i][j],
+          FilterListWithOR.mergeReturnCode(MERGE_ORDER[j], MERGE_ORDER[i]));
+      }
+    }
+  }
 }
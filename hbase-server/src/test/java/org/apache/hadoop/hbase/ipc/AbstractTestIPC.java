@@ -60,6 +60,7 @@ import org.apache.hadoop.hbase.CellScanner;
 import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.DoNotRetryIOException;
 import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.MatcherPredicate;
 import org.apache.hadoop.hbase.Server;
@@ -74,6 +75,7 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.hbase.thirdparty.com.google.common.base.Strings;
 import org.apache.hbase.thirdparty.com.google.common.collect.ImmutableList;
 import org.apache.hbase.thirdparty.com.google.common.collect.Lists;
 import org.apache.hbase.thirdparty.com.google.protobuf.ServiceException;
@@ -174,6 +176,45 @@ public abstract class AbstractTestIPC {
     }
   }
 
+  @Test
+  public void testCompressResponse() throws IOException, ServiceException {
+    Configuration conf = new Configuration(HBaseConfiguration.create());
+    conf.set(RpcClient.RESPONSE_COMPRESSOR_KEY, GzipCodec.class.getCanonicalName());
+    Configuration serverConf = new Configuration(CONF);
+    serverConf.setInt(RpcServer.RESPONSE_COMPRESSION_MIN_SIZE_KEY, 0);
+    List<Cell> cells = new ArrayList<>();
+    int count = 3;
+    for (int i = 0; i < count; i++) {
+      cells.add(CELL);
+    }
+    RpcServer rpcServer = createRpcServer(null, "testRpcServer",
+      Lists.newArrayList(new RpcServer.BlockingServiceAndInterface(SERVICE, null)),
+      new InetSocketAddress("localhost", 0), serverConf, new FifoRpcScheduler(serverConf, 1));
+
+    try (AbstractRpcClient<?> client = createRpcClient(conf)) {
+      rpcServer.start();
+      BlockingInterface stub = newBlockingStub(client, rpcServer.getListenerAddress());
+      HBaseRpcController pcrc = new HBaseRpcControllerImpl(CellUtil.createCellScanner(cells));
+      String message = Strings.repeat("hello", 1000);
+      assertEquals(message,
+        stub.echo(pcrc, EchoRequestProto.newBuilder().setMessage(message).build()).getMessage());
+      int index = 0;
+      CellScanner cellScanner = pcrc.cellScanner();
+      assertNotNull(cellScanner);
+      while (cellScanner.advance()) {
+        assertEquals(CELL, cellScanner.current());
+        index++;
+      }
+      assertEquals(count, index);
+      // without cells
+      pcrc = new HBaseRpcControllerImpl();
+      assertEquals(message,
+        stub.echo(pcrc, EchoRequestProto.newBuilder().setMessage(message).build()).getMessage());
+    } finally {
+      rpcServer.stop();
+    }
+  }
+
   protected abstract AbstractRpcClient<?>
     createRpcClientRTEDuringConnectionSetup(Configuration conf) throws IOException;
 
@@ -440,6 +481,46 @@ public abstract class AbstractTestIPC {
     }
   }
 
+  @Test
+  public void testOutstandingBytes() throws Exception {
+    Configuration conf = new Configuration(CONF);
+    conf.set(HConstants.HBASE_CLIENT_IPC_POOL_TYPE, "LeastLoaded");
+    RpcServer rpcServer = createRpcServer(null, "testRpcServer",
+      Lists.newArrayList(new RpcServer.BlockingServiceAndInterface(SERVICE, null)),
+      new InetSocketAddress("localhost", 0), CONF, new FifoRpcScheduler(CONF, 1));
+    try (AbstractRpcClient<?> client = createRpcClient(conf)) {
+      rpcServer.start();
+      Interface stub = newStub(client, rpcServer.getListenerAddress());
+      PauseRequestProto pauseParam = PauseRequestProto.newBuilder().setMs(500).build();
+      EchoRequestProto echoParam = EchoRequestProto.newBuilder().setMessage("hello").build();
+      List<Cell> cells = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        cells.add(CELL);
+      }
+      // the echo waits for the pause as the server has a single handler
+      BlockingRpcCallback<EmptyResponseProto> pauseCallback = new BlockingRpcCallback<>();
+      stub.pause(new HBaseRpcControllerImpl(), pauseParam, pauseCallback);
+      BlockingRpcCallback<EchoResponseProto> echoCallback = new BlockingRpcCallback<>();
+      stub.echo(new HBaseRpcControllerImpl(CellUtil.createCellScanner(cells)), echoParam,
+        echoCallback);
+      // the cell block is counted once it is built
+      long paramBytes = pauseParam.getSerializedSize() + echoParam.getSerializedSize();
+      Waiter.waitFor(conf, 5000, () -> client.getOutstandingBytes() > paramBytes);
+      assertNotNull(pauseCallback.get());
+      assertNotNull(echoCallback.get());
+      assertEquals(0, client.getOutstandingBytes());
+
+      // no cell block this time, but a response is expected now that some were received
+      pauseCallback = new BlockingRpcCallback<>();
+      stub.pause(new HBaseRpcControllerImpl(), pauseParam, pauseCallback);
+      assertTrue(client.getOutstandingBytes() > pauseParam.getSerializedSize());
+      assertNotNull(pauseCallback.get());
+      assertEquals(0, client.getOutstandingBytes());
+    } finally {
+      rpcServer.stop();
+    }
+  }
+
   private SpanData waitSpan(Matcher<SpanData> matcher) {
     Waiter.waitFor(CONF, 1000,
       new MatcherPredicate<>(() -> traceRule.getSpans(), hasItem(matcher)));
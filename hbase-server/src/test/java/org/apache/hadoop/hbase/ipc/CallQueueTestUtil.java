@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.ipc;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.Optional;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.security.User;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import org.apache.hbase.thirdparty.com.google.protobuf.Message;
+
+import org.apache.hadoop.hbase.shaded.protobuf.RequestConverter;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.Action;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.MultiRequest;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.RegionAction;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.HBaseProtos.RegionSpecifier.RegionSpecifierType;
+
+/**
+ * Calls and requests for the tests of the call queues which schedule by tenant and by cost.
+ */
+final class CallQueueTestUtil {
+
+  static final Configuration CONF = HBaseConfiguration.create();
+
+  static final byte[] REGION = Bytes.toBytes("table,,1.0123456789abcdef.");
+
+  private CallQueueTestUtil() {
+  }
+
+  /**
+   * Returns a call of the given user with the given request.
+   */
+  static CallRunner mockCall(String user, Message param) {
+    CallRunner task = mock(CallRunner.class);
+    RpcCall call = mock(RpcCall.class);
+    when(task.getRpcCall()).thenReturn(call);
+    when(call.getParam()).thenReturn(param);
+    when(call.getSize()).thenReturn(0L);
+    when(call.getRequestUser())
+      .thenReturn(Optional.of(User.createUserForTesting(CONF, user, new String[0])));
+    return task;
+  }
+
+  static Message get(byte[] region) throws IOException {
+    return RequestConverter.buildGetRequest(region, new Get(Bytes.toBytes("row")));
+  }
+
+  static Message multi(int actions) {
+    RegionAction.Builder regionAction = RegionAction.newBuilder()
+      .setRegion(RequestConverter.buildRegionSpecifier(RegionSpecifierType.REGION_NAME, REGION));
+    for (int i = 0; i < actions; i++) {
+      regionAction.addAction(Action.newBuilder().setIndex(i));
+    }
+    return MultiRequest.newBuilder().addRegionAction(regionAction).build();
+  }
+}
@@ -64,6 +64,16 @@ public class DelegatingRpcScheduler extends RpcScheduler {
     return delegate.getActiveGeneralRpcHandlerCount();
   }
 
+  @Override
+  public int getGeneralRpcHandlerCount() {
+    return delegate.getGeneralRpcHandlerCount();
+  }
+
+  @Override
+  public int getEnabledGeneralRpcHandlerCount() {
+    return delegate.getEnabledGeneralRpcHandlerCount();
+  }
+
   @Override
   public int getActivePriorityRpcHandlerCount() {
     return delegate.getActivePriorityRpcHandlerCount();
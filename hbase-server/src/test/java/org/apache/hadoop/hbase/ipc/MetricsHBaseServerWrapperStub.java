@@ -53,6 +53,11 @@ public class MetricsHBaseServerWrapperStub implements MetricsHBaseServerWrapper
     return 201;
   }
 
+  @Override
+  public int getEnabledGeneralRpcHandlerCount() {
+    return 206;
+  }
+
   @Override
   public int getActivePriorityRpcHandlerCount() {
     return 202;
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.ipc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.testclassification.RPCTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({ RPCTests.class, SmallTests.class })
+public class TestAdaptiveHandlerPool {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+    HBaseClassTestRule.forClass(TestAdaptiveHandlerPool.class);
+
+  private final AtomicInteger activeHandlerCount = new AtomicInteger(0);
+
+  private AdaptiveHandlerPool createPool(int handlerCount, int numCallQueues) {
+    Configuration conf = HBaseConfiguration.create();
+    conf.setFloat(AdaptiveHandlerPool.MIN_HANDLERS_KEY, 0.25f);
+    conf.setLong(AdaptiveHandlerPool.TARGET_WAIT_KEY, 10);
+    // never limited by the load of the test machine
+    conf.setFloat(AdaptiveHandlerPool.MAX_CPU_KEY, Float.MAX_VALUE);
+    return new AdaptiveHandlerPool("test", handlerCount, numCallQueues, activeHandlerCount, conf);
+  }
+
+  @Test
+  public void testShrinkWhenIdleAndGrowWhenCallsWait() {
+    AdaptiveHandlerPool pool = createPool(20, 2);
+    assertEquals(20, pool.getLimit());
+    for (int i = 0; i < 100; i++) {
+      pool.resize();
+    }
+    assertEquals(5, pool.getLimit());
+
+    pool.recordQueueWait(100);
+    pool.resize();
+    assertEquals(6, pool.getLimit());
+    for (int i = 0; i < 100; i++) {
+      pool.recordQueueWait(100);
+      pool.resize();
+    }
+    assertEquals(20, pool.getLimit());
+  }
+
+  @Test
+  public void testNoShrinkWhileHandlersBusy() {
+    AdaptiveHandlerPool pool = createPool(20, 2);
+    activeHandlerCount.set(10);
+    pool.resize();
+    assertEquals(20, pool.getLimit());
+  }
+
+  @Test
+  public void testMinCoversAllQueues() {
+    AdaptiveHandlerPool pool = createPool(20, 8);
+    for (int i = 0; i < 100; i++) {
+      pool.resize();
+    }
+    assertEquals(8, pool.getLimit());
+  }
+
+  @Test
+  public void testParkedHandlerResumes() throws InterruptedException {
+    AdaptiveHandlerPool pool = createPool(20, 2);
+    for (int i = 0; i < 100; i++) {
+      pool.resize();
+    }
+    CountDownLatch enabled = new CountDownLatch(1);
+    Thread handler = new Thread(() -> {
+      try {
+        pool.awaitEnabled(10);
+        enabled.countDown();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    handler.start();
+    assertFalse(enabled.await(100, TimeUnit.MILLISECONDS));
+    pool.stop();
+    assertTrue(enabled.await(10, TimeUnit.SECONDS));
+    handler.join();
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.ipc;
+
+import static org.apache.hadoop.hbase.ipc.CallQueueTestUtil.CONF;
+import static org.apache.hadoop.hbase.ipc.CallQueueTestUtil.REGION;
+import static org.apache.hadoop.hbase.ipc.CallQueueTestUtil.get;
+import static org.apache.hadoop.hbase.ipc.CallQueueTestUtil.mockCall;
+import static org.apache.hadoop.hbase.ipc.CallQueueTestUtil.multi;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.testclassification.RPCTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({ RPCTests.class, SmallTests.class })
+public class TestCostBasedCallQueue {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+    HBaseClassTestRule.forClass(TestCostBasedCallQueue.class);
+
+  @Test
+  public void testCheapCallNotBehindExpensiveOnes() throws Exception {
+    CostBasedCallQueue queue = new CostBasedCallQueue(100, null, CONF);
+    CallRunner[] multis = new CallRunner[5];
+    for (int i = 0; i < multis.length; i++) {
+      multis[i] = mockCall("batch", multi(1000));
+      assertTrue(queue.offer(multis[i]));
+    }
+    CallRunner get = mockCall("online", get(REGION));
+    assertTrue(queue.offer(get));
+    assertEquals(6, queue.size());
+
+    // the get is cheaper than the first queued multi
+    assertSame(get, queue.take());
+    // the multis of the same user stay in order
+    for (CallRunner multi : multis) {
+      assertSame(multi, queue.take());
+    }
+    assertEquals(0, queue.size());
+  }
+
+  @Test
+  public void testFairShareBetweenUsers() throws Exception {
+    CostBasedCallQueue queue = new CostBasedCallQueue(100, null, CONF);
+    CallRunner[] a = new CallRunner[3];
+    CallRunner[] b = new CallRunner[3];
+    for (int i = 0; i < a.length; i++) {
+      a[i] = mockCall("a", multi(10));
+      queue.offer(a[i]);
+    }
+    for (int i = 0; i < b.length; i++) {
+      b[i] = mockCall("b", multi(10));
+      queue.offer(b[i]);
+    }
+    // same cost so the users alternate
+    for (int i = 0; i < a.length; i++) {
+      assertSame(a[i], queue.take());
+      assertSame(b[i], queue.take());
+    }
+  }
+
+  @Test
+  public void testCapacity() throws Exception {
+    CostBasedCallQueue queue = new CostBasedCallQueue(2, null, CONF);
+    assertTrue(queue.offer(mockCall("a", get(REGION))));
+    assertTrue(queue.offer(mockCall("a", get(REGION))));
+    assertEquals(0, queue.remainingCapacity());
+    assertFalse(queue.offer(mockCall("a", get(REGION))));
+  }
+
+  @Test
+  public void testLearnRegionCost() throws Exception {
+    CallCostEstimator estimator = new CallCostEstimator(CONF);
+    RpcCall call = mockCall("a", multi(10)).getRpcCall();
+    CallCostEstimator.Estimate estimate = estimator.estimate(call);
+    assertEquals(10 * CallCostEstimator.DEFAULT_DEFAULT_ACTION_COST, estimate.getCost());
+    assertEquals("table", estimate.getTable().toStringUtf8());
+    assertEquals("a", estimate.getUser());
+
+    // 10 actions took 50ms, i.e, 5ms per action
+    estimator.record(estimate, TimeUnit.MILLISECONDS.toNanos(50));
+    assertEquals(10 * 5000, estimator.estimate(call).getCost());
+  }
+
+  @Test
+  public void testLearnSubMillisecondCost() throws Exception {
+    CallCostEstimator estimator = new CallCostEstimator(CONF);
+    RpcCall call = mockCall("a", multi(10)).getRpcCall();
+    CallCostEstimator.Estimate estimate = estimator.estimate(call);
+
+    // 10 actions took 200us, i.e, 20us per action
+    estimator.record(estimate, TimeUnit.MICROSECONDS.toNanos(200));
+    assertEquals(10 * 20, estimator.estimate(call).getCost());
+  }
+
+  @Test
+  public void testRemove() throws Exception {
+    CostBasedCallQueue queue = new CostBasedCallQueue(2, null, CONF);
+    CallRunner first = mockCall("a", get(REGION));
+    CallRunner second = mockCall("a", get(REGION));
+    assertTrue(queue.offer(first));
+    assertTrue(queue.offer(second));
+    assertEquals(0, queue.remainingCapacity());
+
+    assertTrue(queue.remove(first));
+    assertFalse(queue.remove(first));
+    assertEquals(1, queue.size());
+    assertSame(second, queue.poll());
+  }
+
+  @Test
+  public void testRemoveThroughIterator() throws Exception {
+    CostBasedCallQueue queue = new CostBasedCallQueue(100, null, CONF);
+    CallRunner first = mockCall("a", get(REGION));
+    CallRunner second = mockCall("a", get(REGION));
+    CallRunner third = mockCall("b", get(REGION));
+    assertTrue(queue.offer(first));
+    assertTrue(queue.offer(second));
+    assertTrue(queue.offer(third));
+
+    assertTrue(queue.removeIf(call -> call == second));
+    assertTrue(queue.removeAll(Collections.singleton(third)));
+    assertEquals(1, queue.size());
+    assertSame(first, queue.poll());
+    assertEquals(0, queue.size());
+  }
+
+  @Test
+  public void testCostQueueType() {
+    Configuration conf = new Configuration(CONF);
+    conf.set(RpcExecutor.CALL_QUEUE_TYPE_CONF_KEY, RpcExecutor.CALL_QUEUE_TYPE_COST_CONF_VALUE);
+    BalancedQueueRpcExecutor executor =
+      new BalancedQueueRpcExecutor("test", 1, 100, null, conf, null);
+    assertTrue(executor.getQueues().get(0) instanceof CostBasedCallQueue);
+  }
+}
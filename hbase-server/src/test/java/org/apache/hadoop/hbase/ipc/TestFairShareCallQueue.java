@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.ipc;
+
+import static org.apache.hadoop.hbase.ipc.CallQueueTestUtil.CONF;
+import static org.apache.hadoop.hbase.ipc.CallQueueTestUtil.REGION;
+import static org.apache.hadoop.hbase.ipc.CallQueueTestUtil.get;
+import static org.apache.hadoop.hbase.ipc.CallQueueTestUtil.mockCall;
+import static org.apache.hadoop.hbase.ipc.CallQueueTestUtil.multi;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.testclassification.RPCTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({ RPCTests.class, SmallTests.class })
+public class TestFairShareCallQueue {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+    HBaseClassTestRule.forClass(TestFairShareCallQueue.class);
+
+  @Test
+  public void testDeficitRoundRobin() throws Exception {
+    FairShareCallQueue queue = new FairShareCallQueue(100, null, CONF);
+    // a multi of 10 actions costs a whole quantum, a get a tenth of it
+    CallRunner[] multis = new CallRunner[3];
+    for (int i = 0; i < multis.length; i++) {
+      multis[i] = mockCall("a", multi(10));
+      assertTrue(queue.offer(multis[i]));
+    }
+    CallRunner[] gets = new CallRunner[3];
+    for (int i = 0; i < gets.length; i++) {
+      gets[i] = mockCall("b", get(REGION));
+      assertTrue(queue.offer(gets[i]));
+    }
+    assertEquals(6, queue.size());
+
+    // every round serves one multi, or all the gets
+    assertSame(multis[0], queue.take());
+    for (CallRunner get : gets) {
+      assertSame(get, queue.take());
+    }
+    assertSame(multis[1], queue.take());
+    assertSame(multis[2], queue.take());
+    assertEquals(0, queue.size());
+  }
+
+  @Test
+  public void testCallLargerThanQuantum() throws Exception {
+    FairShareCallQueue queue = new FairShareCallQueue(100, null, CONF);
+    CallRunner large = mockCall("a", multi(1000));
+    assertTrue(queue.offer(large));
+    assertSame(large, queue.poll());
+    assertEquals(0, queue.size());
+  }
+
+  @Test
+  public void testTenantShareOfCapacity() throws Exception {
+    Configuration conf = new Configuration(CONF);
+    conf.setFloat(FairShareCallQueue.MAX_SHARE_CONF_KEY, 0.5f);
+    FairShareCallQueue queue = new FairShareCallQueue(4, null, conf);
+    assertTrue(queue.offer(mockCall("a", get(REGION))));
+    assertTrue(queue.offer(mockCall("a", get(REGION))));
+    // a noisy tenant can not take the whole queue
+    assertFalse(queue.offer(mockCall("a", get(REGION))));
+    assertTrue(queue.offer(mockCall("b", get(REGION))));
+    assertTrue(queue.offer(mockCall("b", get(REGION))));
+    assertEquals(0, queue.remainingCapacity());
+    assertFalse(queue.offer(mockCall("c", get(REGION))));
+  }
+
+  @Test
+  public void testRemove() throws Exception {
+    FairShareCallQueue queue = new FairShareCallQueue(100, null, CONF);
+    CallRunner first = mockCall("a", get(REGION));
+    CallRunner second = mockCall("b", get(REGION));
+    assertTrue(queue.offer(first));
+    assertTrue(queue.offer(second));
+
+    assertTrue(queue.remove(first));
+    assertFalse(queue.remove(first));
+    assertEquals(1, queue.size());
+    assertSame(second, queue.poll());
+    assertEquals(0, queue.size());
+  }
+
+  @Test
+  public void testRemoveThroughIterator() throws Exception {
+    FairShareCallQueue queue = new FairShareCallQueue(100, null, CONF);
+    CallRunner first = mockCall("a", get(REGION));
+    CallRunner second = mockCall("a", get(REGION));
+    CallRunner third = mockCall("b", get(REGION));
+    assertTrue(queue.offer(first));
+    assertTrue(queue.offer(second));
+    assertTrue(queue.offer(third));
+
+    assertTrue(queue.removeIf(call -> call == second));
+    assertTrue(queue.removeAll(Collections.singleton(third)));
+    assertEquals(1, queue.size());
+    assertSame(first, queue.poll());
+    assertEquals(0, queue.size());
+  }
+
+  @Test
+  public void testTenantQueueBalancer() throws Exception {
+    Configuration conf = new Configuration(CONF);
+    TenantQueueBalancer balancer = new TenantQueueBalancer(conf, 1024);
+    assertEquals(balancer.getNextQueue(mockCall("a", get(REGION))),
+      balancer.getNextQueue(mockCall("a", multi(10))));
+    assertNotEquals(balancer.getNextQueue(mockCall("a", get(REGION))),
+      balancer.getNextQueue(mockCall("b", get(REGION))));
+
+    conf.set(TenantQueueBalancer.TENANT_CONF_KEY, "namespace");
+    balancer = new TenantQueueBalancer(conf, 1024);
+    byte[] region1 = Bytes.toBytes("ns:t1,,1.0123456789abcdef.");
+    byte[] region2 = Bytes.toBytes("ns:t2,,1.0123456789abcdef.");
+    assertEquals(balancer.getNextQueue(mockCall("a", get(region1))),
+      balancer.getNextQueue(mockCall("b", get(region2))));
+
+    conf.set(TenantQueueBalancer.TENANT_CONF_KEY, "table");
+    balancer = new TenantQueueBalancer(conf, 1024);
+    assertEquals(balancer.getNextQueue(mockCall("a", get(REGION))),
+      balancer.getNextQueue(mockCall("b", multi(10))));
+  }
+}
@@ -59,6 +59,7 @@ public class TestNettyIPC extends AbstractTestIPC {
     List<Object[]> params = new ArrayList<>();
     params.add(new Object[] { "nio" });
     params.add(new Object[] { "perClientNio" });
+    params.add(new Object[] { "nioFlushConsolidation" });
     if (JVM.isLinux() && JVM.isAmd64()) {
       params.add(new Object[] { "epoll" });
     }
@@ -93,6 +94,7 @@ public class TestNettyIPC extends AbstractTestIPC {
   private void setConf(Configuration conf) {
     switch (eventLoopType) {
       case "nio":
+      case "nioFlushConsolidation":
         NettyRpcClientConfigHelper.setEventLoopConfig(conf, NIO, NioSocketChannel.class);
         break;
       case "epoll":
@@ -110,6 +112,10 @@ public class TestNettyIPC extends AbstractTestIPC {
   protected RpcServer createRpcServer(Server server, String name,
     List<RpcServer.BlockingServiceAndInterface> services, InetSocketAddress bindAddress,
     Configuration conf, RpcScheduler scheduler) throws IOException {
+    if (eventLoopType.equals("nioFlushConsolidation")) {
+      conf = new Configuration(conf);
+      conf.setInt(NettyRpcServer.HBASE_NETTY_RPCSERVER_FLUSH_CONSOLIDATION_KEY, 16);
+    }
     return new NettyRpcServer(server, name, services, bindAddress, conf, scheduler, true);
   }
 
@@ -81,6 +81,7 @@ public class TestRpcMetrics {
     HELPER.assertGauge("numOpenConnections", 105, serverSource);
     HELPER.assertGauge("numActiveHandler", 106, serverSource);
     HELPER.assertGauge("numActiveGeneralHandler", 201, serverSource);
+    HELPER.assertGauge("numEnabledGeneralHandler", 206, serverSource);
     HELPER.assertGauge("numActivePriorityHandler", 202, serverSource);
     HELPER.assertGauge("numActiveReplicationHandler", 203, serverSource);
     HELPER.assertGauge("numActiveWriteHandler", 50, serverSource);
@@ -27,6 +27,8 @@ import org.apache.hadoop.hbase.HBaseClassTestRule;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.testclassification.RegionServerTests;
 import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.hadoop.hbase.util.ManualEnvironmentEdge;
 import org.junit.ClassRule;
 import org.junit.Rule;
 import org.junit.Test;
@@ -231,6 +233,46 @@ public class TestQuotaState {
     }
   }
 
+  @Test
+  public void testGetLimiterUpdatesLastQuery() {
+    ManualEnvironmentEdge edge = new ManualEnvironmentEdge();
+    edge.setValue(100);
+    EnvironmentEdgeManager.injectEdge(edge);
+    try {
+      UserQuotaState quotaInfo = new UserQuotaState();
+      assertEquals(0, quotaInfo.getLastQuery());
+      quotaInfo.getGlobalLimiter();
+      assertEquals(100, quotaInfo.getLastQuery());
+      edge.setValue(200);
+      quotaInfo.getTableLimiter(UNKNOWN_TABLE_NAME);
+      assertEquals(200, quotaInfo.getLastQuery());
+    } finally {
+      EnvironmentEdgeManager.reset();
+    }
+  }
+
+  @Test
+  public void testTableLimiterReadDuringUpdate() {
+    final TableName TABLE_A = TableName.valueOf("TableA");
+    final TableName TABLE_B = TableName.valueOf("TableB");
+
+    UserQuotaState quotaInfo = new UserQuotaState();
+    quotaInfo.setQuotas(TABLE_A, buildReqNumThrottle(3));
+    QuotaLimiter limiterA = quotaInfo.getTableLimiter(TABLE_A);
+
+    // Drop the limiter of A, a reader which already got it keeps using the same one
+    UserQuotaState otherQuotaState = new UserQuotaState(10);
+    otherQuotaState.setQuotas(TABLE_B, buildReqNumThrottle(5));
+    quotaInfo.update(otherQuotaState);
+    assertNoopLimiter(quotaInfo.getTableLimiter(TABLE_A));
+    assertThrottleException(quotaInfo.getTableLimiter(TABLE_B), 5);
+    assertThrottleException(limiterA, 3);
+
+    // The limiters of the other state are not modified by updating this one
+    otherQuotaState.setQuotas(TABLE_A, buildReqNumThrottle(7));
+    assertNoopLimiter(quotaInfo.getTableLimiter(TABLE_A));
+  }
+
   private Quotas buildReqNumThrottle(final long limit) {
     return Quotas.newBuilder()
       .setThrottle(Throttle.newBuilder()
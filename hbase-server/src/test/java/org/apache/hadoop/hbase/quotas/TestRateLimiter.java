@@ -430,4 +430,44 @@ public class TestRateLimiter {
     avgLimiter.consume(-80);
     assertTrue(limit == avgLimiter.getAvailable());
   }
+
+  @Test
+  public void testConcurrentConsume() throws InterruptedException {
+    ManualEnvironmentEdge testEdge = new ManualEnvironmentEdge();
+    EnvironmentEdgeManager.injectEdge(testEdge);
+    try {
+      for (RateLimiter limiter : new RateLimiter[] { new AverageIntervalRateLimiter(),
+        new FixedIntervalRateLimiter() }) {
+        long limit = 100000;
+        limiter.set(limit, TimeUnit.SECONDS);
+        int threads = 8;
+        int consumesPerThread = 1000;
+        Thread[] consumers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+          consumers[i] = new Thread(() -> {
+            for (int j = 0; j < consumesPerThread; j++) {
+              if (limiter.canExecute(2)) {
+                limiter.consume(2);
+                // compensate half of the estimate, as an operation quota does on close
+                limiter.consume(-1);
+              }
+            }
+          });
+          consumers[i].start();
+        }
+        for (Thread consumer : consumers) {
+          consumer.join();
+        }
+        // no refill as the time did not move, every consumed unit is accounted
+        assertEquals(limit - threads * consumesPerThread, limiter.getAvailable());
+
+        // the next refill reconciles the consumed units
+        testEdge.incValue(1000);
+        assertTrue(limiter.canExecute(limit));
+        assertEquals(limit, limiter.getAvailable());
+      }
+    } finally {
+      EnvironmentEdgeManager.reset();
+    }
+  }
 }
@@ -152,6 +152,11 @@ public class MetricsRegionServerWrapperStub implements MetricsRegionServerWrappe
     return 0;
   }
 
+  @Override
+  public double getByteBuffAllocatorPoolFragmentationRatio() {
+    return 0;
+  }
+
   @Override
   public int getActiveScanners() {
     return 0;
@@ -0,0 +1,298 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.CompareOperator;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseTestingUtil;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.filter.BinaryComparator;
+import org.apache.hadoop.hbase.filter.ValueFilter;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.hadoop.hbase.util.ManualEnvironmentEdge;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TestName;
+
+@Category({ RegionServerTests.class, MediumTests.class })
+public class TestBatchedGetExecutor {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+    HBaseClassTestRule.forClass(TestBatchedGetExecutor.class);
+
+  private static final HBaseTestingUtil TEST_UTIL = new HBaseTestingUtil();
+
+  private static final byte[] FAMILY = Bytes.toBytes("cf");
+
+  private static final byte[] QUALIFIER1 = Bytes.toBytes("q1");
+
+  private static final byte[] QUALIFIER2 = Bytes.toBytes("q2");
+
+  @Rule
+  public TestName name = new TestName();
+
+  private HRegion region;
+
+  @Before
+  public void setUp() throws IOException {
+    TableDescriptor td = TableDescriptorBuilder.newBuilder(TableName.valueOf(name.getMethodName()))
+      .setColumnFamily(ColumnFamilyDescriptorBuilder.of(FAMILY)).build();
+    region = TEST_UTIL.createLocalHRegion(td, HConstants.EMPTY_START_ROW, HConstants.EMPTY_END_ROW);
+    // only even rows exist
+    for (int i = 0; i < 100; i += 2) {
+      region.put(new Put(row(i)).addColumn(FAMILY, QUALIFIER1, Bytes.toBytes(i))
+        .addColumn(FAMILY, QUALIFIER2, Bytes.toBytes(-i)));
+      if (i == 50) {
+        region.flush(true);
+      }
+    }
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    HBaseTestingUtil.closeRegionAndWAL(region);
+  }
+
+  private static byte[] row(int i) {
+    return Bytes.toBytes(String.format("row-%03d", i));
+  }
+
+  private void assertSameAsGet(Get[] gets, BatchedGetExecutor executor) throws Exception {
+    for (int i = 0; i < gets.length; i++) {
+      assertNull(executor.getError(i));
+      Result expected = region.get(gets[i]);
+      Result actual = executor.getResult(i);
+      assertNotNull(actual);
+      Result.compareResults(expected, actual);
+    }
+  }
+
+  @Test
+  public void testUnsortedRowsWithMissingAndDuplicates() throws Exception {
+    int[] rows = { 98, 3, 4, 4, 57, 0, 99, 42, 150, 4 };
+    Get[] gets = new Get[rows.length];
+    for (int i = 0; i < rows.length; i++) {
+      gets[i] = new Get(row(rows[i])).addColumn(FAMILY, QUALIFIER1);
+    }
+    RSRpcServices.RegionScannersCloseCallBack closeCallBack =
+      new RSRpcServices.RegionScannersCloseCallBack();
+    BatchedGetExecutor executor =
+      new BatchedGetExecutor(region, gets, closeCallBack, Long.MAX_VALUE, Long.MAX_VALUE);
+    executor.execute();
+    try {
+      assertSameAsGet(gets, executor);
+      assertTrue(executor.getResult(1).isEmpty());
+      assertEquals(4, Bytes.toInt(executor.getResult(3).getValue(FAMILY, QUALIFIER1)));
+      assertFalse(executor.getResult(3).containsColumn(FAMILY, QUALIFIER2));
+    } finally {
+      closeCallBack.run();
+    }
+  }
+
+  @Test
+  public void testIncompatibleGets() throws Exception {
+    Get[] gets = new Get[] { new Get(row(10)), new Get(row(2)).addColumn(FAMILY, QUALIFIER2),
+      new Get(row(20)).setFilter(new ValueFilter(CompareOperator.EQUAL,
+        new BinaryComparator(Bytes.toBytes(20)))),
+      null, new Get(row(30)), new Get(row(31)).setCheckExistenceOnly(true) };
+    RSRpcServices.RegionScannersCloseCallBack closeCallBack =
+      new RSRpcServices.RegionScannersCloseCallBack();
+    BatchedGetExecutor executor =
+      new BatchedGetExecutor(region, gets, closeCallBack, Long.MAX_VALUE, Long.MAX_VALUE);
+    executor.execute();
+    try {
+      assertNull(executor.getResult(3));
+      assertNull(executor.getError(3));
+      gets[3] = new Get(row(0));
+      for (int i = 0; i < gets.length; i++) {
+        if (i == 3) {
+          continue;
+        }
+        assertNull(executor.getError(i));
+        Result.compareResults(region.get(gets[i]), executor.getResult(i));
+      }
+      assertEquals(1, executor.getResult(2).size());
+      assertFalse(executor.getResult(5).getExists());
+    } finally {
+      closeCallBack.run();
+    }
+  }
+
+  @Test
+  public void testGetOutOfRegion() throws IOException {
+    HBaseTestingUtil.closeRegionAndWAL(region);
+    TableDescriptor td = TableDescriptorBuilder.newBuilder(TableName.valueOf(name.getMethodName()))
+      .setColumnFamily(ColumnFamilyDescriptorBuilder.of(FAMILY)).build();
+    region = TEST_UTIL.createLocalHRegion(td, row(0), row(50));
+    Get[] gets = new Get[] { new Get(row(10)), new Get(row(60)), new Get(row(20)) };
+    RSRpcServices.RegionScannersCloseCallBack closeCallBack =
+      new RSRpcServices.RegionScannersCloseCallBack();
+    BatchedGetExecutor executor =
+      new BatchedGetExecutor(region, gets, closeCallBack, Long.MAX_VALUE, Long.MAX_VALUE);
+    executor.execute();
+    try {
+      assertNotNull(executor.getResult(0));
+      assertNotNull(executor.getError(1));
+      assertNotNull(executor.getResult(2));
+    } finally {
+      closeCallBack.run();
+    }
+  }
+
+  @Test
+  public void testResultSizeBudget() throws Exception {
+    Get[] gets = new Get[10];
+    for (int i = 0; i < gets.length; i++) {
+      gets[i] = new Get(row(i * 2)).addColumn(FAMILY, QUALIFIER1);
+    }
+    RSRpcServices.RegionScannersCloseCallBack closeCallBack =
+      new RSRpcServices.RegionScannersCloseCallBack();
+    // any result exhausts the budget
+    BatchedGetExecutor executor =
+      new BatchedGetExecutor(region, gets, closeCallBack, 1, Long.MAX_VALUE);
+    executor.execute();
+    try {
+      assertEquals(0, Bytes.toInt(executor.getResult(0).getValue(FAMILY, QUALIFIER1)));
+      for (int i = 1; i < gets.length; i++) {
+        // left to the caller, which applies its result size limit to them
+        assertNull(executor.getResult(i));
+        assertNull(executor.getError(i));
+      }
+    } finally {
+      closeCallBack.run();
+    }
+  }
+
+  @Test
+  public void testDeadline() throws Exception {
+    Get[] gets = new Get[10];
+    for (int i = 0; i < gets.length; i++) {
+      gets[i] = new Get(row(i * 2)).addColumn(FAMILY, QUALIFIER1);
+    }
+    ManualEnvironmentEdge edge = new ManualEnvironmentEdge();
+    edge.setValue(EnvironmentEdgeManager.currentTime());
+    EnvironmentEdgeManager.injectEdge(edge);
+    RSRpcServices.RegionScannersCloseCallBack closeCallBack =
+      new RSRpcServices.RegionScannersCloseCallBack();
+    try {
+      long deadline = edge.currentTime();
+      BatchedGetExecutor executor =
+        new BatchedGetExecutor(region, gets, closeCallBack, Long.MAX_VALUE, deadline);
+      executor.execute();
+      assertSameAsGet(gets, executor);
+
+      // the deadline has passed, all the Gets are left to the caller which fails them
+      edge.incValue(1);
+      executor = new BatchedGetExecutor(region, gets, closeCallBack, Long.MAX_VALUE, deadline);
+      executor.execute();
+      for (int i = 0; i < gets.length; i++) {
+        assertNull(executor.getResult(i));
+        assertNull(executor.getError(i));
+      }
+    } finally {
+      closeCallBack.run();
+      EnvironmentEdgeManager.reset();
+    }
+  }
+
+  @Test
+  public void testMissingRowsBeforeWideRow() throws Exception {
+    // a wide row right after the missing ones
+    Put put = new Put(row(11));
+    for (int i = 0; i < 1000; i++) {
+      put.addColumn(FAMILY, Bytes.toBytes("wide-" + i), Bytes.toBytes(i));
+    }
+    region.put(put);
+    Get[] gets = new Get[] { new Get(row(1)), new Get(row(3)), new Get(row(5)), new Get(row(7)),
+      new Get(row(9)), new Get(row(12)) };
+    RSRpcServices.RegionScannersCloseCallBack closeCallBack =
+      new RSRpcServices.RegionScannersCloseCallBack();
+    BatchedGetExecutor executor =
+      new BatchedGetExecutor(region, gets, closeCallBack, Long.MAX_VALUE, Long.MAX_VALUE);
+    executor.execute();
+    try {
+      for (int i = 0; i < 5; i++) {
+        assertTrue(executor.getResult(i).isEmpty());
+      }
+      assertEquals(12, Bytes.toInt(executor.getResult(5).getValue(FAMILY, QUALIFIER1)));
+    } finally {
+      closeCallBack.run();
+    }
+  }
+
+  @Test
+  public void testStopRowBoundsScanner() throws Exception {
+    RegionScannerImpl scanner = region.getScanner(new Scan().withStartRow(row(1)));
+    try {
+      List<Cell> cells = new ArrayList<>();
+      scanner.setStopRow(row(1), true);
+      scanner.reseek(row(1));
+      assertFalse(scanner.next(cells));
+      assertTrue(cells.isEmpty());
+      scanner.setStopRow(row(2), true);
+      scanner.reseek(row(2));
+      scanner.next(cells);
+      assertEquals(2, cells.size());
+      assertTrue(Bytes.equals(row(2), CellUtil.cloneRow(cells.get(0))));
+    } finally {
+      scanner.close();
+    }
+  }
+
+  @Test
+  public void testCanShareScanner() throws IOException {
+    Get get = new Get(row(1)).addColumn(FAMILY, QUALIFIER1).readVersions(2);
+    assertTrue(BatchedGetExecutor.canShareScanner(get,
+      new Get(row(2)).addColumn(FAMILY, QUALIFIER1).readVersions(2)));
+    assertFalse(BatchedGetExecutor.canShareScanner(get,
+      new Get(row(2)).addColumn(FAMILY, QUALIFIER1)));
+    assertFalse(BatchedGetExecutor.canShareScanner(get,
+      new Get(row(2)).addColumn(FAMILY, QUALIFIER2).readVersions(2)));
+    assertFalse(BatchedGetExecutor.canShareScanner(get,
+      new Get(row(2)).addFamily(FAMILY).readVersions(2)));
+    assertFalse(BatchedGetExecutor.canShareScanner(get,
+      new Get(row(2)).addColumn(FAMILY, QUALIFIER1).readVersions(2).setTimeRange(0, 10)));
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseTestingUtil;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValueUtil;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TestName;
+
+/**
+ * Scans selecting a few columns of wide rows stored with {@link DataBlockEncoding#CELL_INDEX},
+ * where the store scanner seeks from column to column instead of skipping cell by cell.
+ */
+@Category({ RegionServerTests.class, MediumTests.class })
+public class TestCellIndexEncodedScan {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+    HBaseClassTestRule.forClass(TestCellIndexEncodedScan.class);
+
+  private static final HBaseTestingUtil TEST_UTIL = new HBaseTestingUtil();
+
+  private static final byte[] FAMILY = Bytes.toBytes("cf");
+
+  private static final int ROWS = 20;
+
+  private static final int COLUMNS = 500;
+
+  @Rule
+  public TestName name = new TestName();
+
+  private HRegion region;
+
+  @Before
+  public void setUp() throws IOException {
+    TableDescriptor td = TableDescriptorBuilder.newBuilder(TableName.valueOf(name.getMethodName()))
+      .setColumnFamily(ColumnFamilyDescriptorBuilder.newBuilder(FAMILY)
+        .setDataBlockEncoding(DataBlockEncoding.CELL_INDEX).setMaxVersions(3).build())
+      .build();
+    region =
+      TEST_UTIL.createLocalHRegion(td, HConstants.EMPTY_START_ROW, HConstants.EMPTY_END_ROW);
+    for (long ts = 1; ts <= 2; ts++) {
+      for (int i = 0; i < ROWS; i++) {
+        Put put = new Put(row(i));
+        for (int j = 0; j < COLUMNS; j++) {
+          put.addColumn(FAMILY, qualifier(j), ts, Bytes.toBytes(i * COLUMNS + j + ts));
+        }
+        region.put(put);
+      }
+      region.flush(true);
+    }
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    HBaseTestingUtil.closeRegionAndWAL(region);
+  }
+
+  private static byte[] row(int i) {
+    return Bytes.toBytes(String.format("row-%03d", i));
+  }
+
+  private static byte[] qualifier(int j) {
+    return Bytes.toBytes(String.format("q-%04d", j));
+  }
+
+  @Test
+  public void testScanFewColumns() throws IOException {
+    assertScanFewColumns();
+  }
+
+  private void assertScanFewColumns() throws IOException {
+    int[] columns = { 0, 7, 250, 251, 499 };
+    Scan scan = new Scan();
+    for (int j : columns) {
+      scan.addColumn(FAMILY, qualifier(j));
+    }
+    // a column which does not exist
+    scan.addColumn(FAMILY, Bytes.toBytes("q-1000"));
+    try (RegionScannerImpl scanner = region.getScanner(scan)) {
+      List<Cell> cells = new ArrayList<>();
+      for (int i = 0; i < ROWS; i++) {
+        cells.clear();
+        scanner.next(cells);
+        assertEquals(columns.length, cells.size());
+        for (int k = 0; k < columns.length; k++) {
+          Cell cell = cells.get(k);
+          assertArrayEquals(row(i), CellUtil.cloneRow(cell));
+          assertArrayEquals(qualifier(columns[k]), CellUtil.cloneQualifier(cell));
+          assertEquals(2, cell.getTimestamp());
+          assertEquals(i * COLUMNS + columns[k] + 2, Bytes.toLong(CellUtil.cloneValue(cell)));
+        }
+      }
+    }
+  }
+
+  /**
+   * Files written before a change of the family encoding keep their own encoding, which decides
+   * whether seeking inside their blocks is cheap.
+   */
+  @Test
+  public void testEncodingOfBlockDecidesSeek() throws IOException {
+    TableDescriptor td = TableDescriptorBuilder.newBuilder(region.getTableDescriptor())
+      .modifyColumnFamily(ColumnFamilyDescriptorBuilder
+        .newBuilder(region.getTableDescriptor().getColumnFamily(FAMILY))
+        .setDataBlockEncoding(DataBlockEncoding.FAST_DIFF).build())
+      .build();
+    region.close();
+    region = HRegion.openHRegion(TEST_UTIL.getDataTestDir(), region.getRegionInfo(), td,
+      region.getWAL(), TEST_UTIL.getConfiguration());
+    Put put = new Put(row(ROWS));
+    for (int j = 0; j < COLUMNS; j++) {
+      put.addColumn(FAMILY, qualifier(j), 3, Bytes.toBytes(ROWS * COLUMNS + j + 3L));
+    }
+    region.put(put);
+    region.flush(true);
+
+    int cellIndexFiles = 0;
+    int fastDiffFiles = 0;
+    for (HStoreFile sf : region.getStore(FAMILY).getStorefiles()) {
+      try (StoreFileScanner scanner = sf.getPreadScanner(false, Long.MAX_VALUE, 0, false)) {
+        assertTrue(scanner.seek(KeyValueUtil.createFirstOnRow(HConstants.EMPTY_START_ROW)));
+        DataBlockEncoding encoding = sf.getReader().getHFileReader().getDataBlockEncoding();
+        if (encoding == DataBlockEncoding.CELL_INDEX) {
+          assertTrue(scanner.isSeekInsideBlockCheap());
+          cellIndexFiles++;
+        } else {
+          assertEquals(DataBlockEncoding.FAST_DIFF, encoding);
+          assertFalse(scanner.isSeekInsideBlockCheap());
+          fastDiffFiles++;
+        }
+      }
+    }
+    assertEquals(2, cellIndexFiles);
+    assertEquals(1, fastDiffFiles);
+    assertScanFewColumns();
+  }
+
+  @Test
+  public void testScanAllVersionsOfFewColumns() throws IOException {
+    Scan scan = new Scan().withStartRow(row(5)).readAllVersions();
+    scan.addColumn(FAMILY, qualifier(3));
+    scan.addColumn(FAMILY, qualifier(400));
+    try (RegionScannerImpl scanner = region.getScanner(scan)) {
+      List<Cell> cells = new ArrayList<>();
+      scanner.next(cells);
+      assertEquals(4, cells.size());
+      assertArrayEquals(qualifier(3), CellUtil.cloneQualifier(cells.get(0)));
+      assertEquals(2, cells.get(0).getTimestamp());
+      assertEquals(1, cells.get(1).getTimestamp());
+      assertArrayEquals(qualifier(400), CellUtil.cloneQualifier(cells.get(3)));
+      assertArrayEquals(row(5), CellUtil.cloneRow(cells.get(3)));
+    }
+  }
+}
@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseTestingUtil;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.hadoop.hbase.shaded.protobuf.ProtobufUtil;
+import org.apache.hadoop.hbase.shaded.protobuf.RequestConverter;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.Action;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.MultiRequest;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.MultiResponse;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.MutationProto.MutationType;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.RegionAction;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.RegionActionResult;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.ResultOrException;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.HBaseProtos.RegionSpecifier.RegionSpecifierType;
+
+@Category({ RegionServerTests.class, MediumTests.class })
+public class TestConcurrentRegionActionExecutor {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+    HBaseClassTestRule.forClass(TestConcurrentRegionActionExecutor.class);
+
+  private static final HBaseTestingUtil TEST_UTIL = new HBaseTestingUtil();
+
+  private static final TableName TABLE_NAME =
+    TableName.valueOf(TestConcurrentRegionActionExecutor.class.getSimpleName());
+
+  private static final byte[] FAMILY = Bytes.toBytes("cf");
+
+  private static final byte[] QUALIFIER1 = Bytes.toBytes("q1");
+
+  private static final byte[] QUALIFIER2 = Bytes.toBytes("q2");
+
+  private static final int ROWS = 200;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    Configuration conf = TEST_UTIL.getConfiguration();
+    conf.setBoolean(ConcurrentRegionActionExecutor.MULTI_CONCURRENT_ENABLED_KEY, true);
+    conf.setInt(ConcurrentRegionActionExecutor.MULTI_CONCURRENT_REGIONS_KEY, 3);
+    TEST_UTIL.startMiniCluster(1);
+    byte[][] splitKeys = new byte[9][];
+    for (int i = 0; i < splitKeys.length; i++) {
+      splitKeys[i] = row((i + 1) * ROWS / 10);
+    }
+    TEST_UTIL.createTable(TABLE_NAME, FAMILY, splitKeys);
+  }
+
+  @AfterClass
+  public static void tearDown() throws Exception {
+    TEST_UTIL.shutdownMiniCluster();
+  }
+
+  private static byte[] row(int i) {
+    return Bytes.toBytes(String.format("row-%03d", i));
+  }
+
+  @Test
+  public void testMultiAcrossRegions() throws Exception {
+    try (Table table = TEST_UTIL.getConnection().getTable(TABLE_NAME)) {
+      List<Put> puts = new ArrayList<>(ROWS);
+      for (int i = 0; i < ROWS; i++) {
+        puts.add(new Put(row(i)).addColumn(FAMILY, QUALIFIER1, Bytes.toBytes(i))
+          .addColumn(FAMILY, QUALIFIER2, Bytes.toBytes(-i)));
+      }
+      table.put(puts);
+      List<Delete> deletes = new ArrayList<>();
+      for (int i = 0; i < ROWS; i += 3) {
+        deletes.add(new Delete(row(i)).addColumns(FAMILY, QUALIFIER2));
+      }
+      table.delete(deletes);
+      for (int i = 0; i < ROWS; i++) {
+        Result r = table.get(new Get(row(i)));
+        assertEquals(i, Bytes.toInt(r.getValue(FAMILY, QUALIFIER1)));
+        if (i % 3 == 0) {
+          assertFalse(r.containsColumn(FAMILY, QUALIFIER2));
+        } else {
+          assertEquals(-i, Bytes.toInt(r.getValue(FAMILY, QUALIFIER2)));
+        }
+      }
+    }
+  }
+
+  private static RegionAction put(byte[] regionName, byte[] row, long ts, int value)
+    throws Exception {
+    Put put = new Put(row).addColumn(FAMILY, QUALIFIER1, ts, Bytes.toBytes(value));
+    return RegionAction.newBuilder()
+      .setRegion(
+        RequestConverter.buildRegionSpecifier(RegionSpecifierType.REGION_NAME, regionName))
+      .addAction(Action.newBuilder().setIndex(0)
+        .setMutation(ProtobufUtil.toMutation(MutationType.PUT, put)))
+      .build();
+  }
+
+  /**
+   * Region actions on the same region, here on the same row and timestamp, so the last one applied
+   * wins, must be applied in the order of the request.
+   */
+  @Test
+  public void testRegionActionsOnSameRowAppliedInOrder() throws Exception {
+    RSRpcServices rpcServices = TEST_UTIL.getRSForFirstRegionInTable(TABLE_NAME).getRSRpcServices();
+    try (Table table = TEST_UTIL.getConnection().getTable(TABLE_NAME);
+      RegionLocator locator = TEST_UTIL.getConnection().getRegionLocator(TABLE_NAME)) {
+      for (int i = 0; i < 20; i++) {
+        byte[] row = Bytes.toBytes("same-row-" + i);
+        byte[] regionName = locator.getRegionLocation(row).getRegion().getRegionName();
+        byte[] otherRow = row((i * 10) % ROWS);
+        byte[] otherRegionName = locator.getRegionLocation(otherRow).getRegion().getRegionName();
+        MultiRequest request = MultiRequest.newBuilder().addRegionAction(put(regionName, row, 1, 1))
+          .addRegionAction(put(otherRegionName, otherRow, 1, 1))
+          .addRegionAction(put(regionName, row, 1, 2)).build();
+        MultiResponse response = rpcServices.multi(null, request);
+        assertEquals(3, response.getRegionActionResultCount());
+        for (RegionActionResult result : response.getRegionActionResultList()) {
+          assertFalse(result.hasException());
+          for (ResultOrException roe : result.getResultOrExceptionList()) {
+            assertFalse(roe.hasException());
+          }
+        }
+        Result r = table.get(new Get(row));
+        assertTrue(r.containsColumn(FAMILY, QUALIFIER1));
+        assertEquals(2, Bytes.toInt(r.getValue(FAMILY, QUALIFIER1)));
+      }
+    }
+  }
+
+  @Test
+  public void testTasksRunConcurrently() throws Exception {
+    ConcurrentRegionActionExecutor executor =
+      new ConcurrentRegionActionExecutor(TEST_UTIL.getConfiguration());
+    try {
+      // only passes if three tasks run at the same time
+      CyclicBarrier barrier = new CyclicBarrier(3);
+      AtomicInteger done = new AtomicInteger();
+      List<Runnable> tasks = new ArrayList<>();
+      for (int i = 0; i < 6; i++) {
+        tasks.add(() -> {
+          try {
+            barrier.await(30, TimeUnit.SECONDS);
+          } catch (Exception e) {
+            throw new RuntimeException(e);
+          }
+          done.incrementAndGet();
+        });
+      }
+      executor.execute(tasks);
+      assertEquals(6, done.get());
+    } finally {
+      executor.stop();
+    }
+  }
+
+  @Test
+  public void testUncheckedExceptionRethrown() throws Exception {
+    ConcurrentRegionActionExecutor executor =
+      new ConcurrentRegionActionExecutor(TEST_UTIL.getConfiguration());
+    try {
+      IllegalStateException error = new IllegalStateException("inject");
+      AtomicInteger done = new AtomicInteger();
+      List<Runnable> tasks = new ArrayList<>();
+      for (int i = 0; i < 5; i++) {
+        int index = i;
+        tasks.add(() -> {
+          if (index == 2) {
+            throw error;
+          }
+          done.incrementAndGet();
+        });
+      }
+      try {
+        executor.execute(tasks);
+        fail("should have rethrown the exception of the task");
+      } catch (IllegalStateException e) {
+        assertSame(error, e);
+      }
+      // the other tasks still ran
+      assertEquals(4, done.get());
+    } finally {
+      executor.stop();
+    }
+  }
+}
@@ -18,12 +18,25 @@
 package org.apache.hadoop.hbase.regionserver;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.apache.hadoop.hbase.HBaseClassTestRule;
 import org.apache.hadoop.hbase.client.RegionInfoBuilder;
+import org.apache.hadoop.hbase.exceptions.TimeoutIOException;
 import org.apache.hadoop.hbase.ipc.RpcCall;
 import org.apache.hadoop.hbase.ipc.RpcServer;
 import org.apache.hadoop.hbase.testclassification.MediumTests;
@@ -66,7 +79,68 @@ public class TestRSRpcServices {
     HRegion region = Mockito.mock(HRegion.class);
     Mockito.when(region.getRegionInfo()).thenReturn(RegionInfoBuilder.FIRST_META_REGIONINFO);
     RSRpcServices.RegionScannerHolder rsh = new RSRpcServices.RegionScannerHolder(null, region,
-      null, null, false, false, clientIpAndPort, userNameTest);
+      null, null, null, false, false, clientIpAndPort, userNameTest);
     LOG.info("rsh: {}", rsh);
   }
+
+  private static RSRpcServices.RegionScannerHolder newHolder(Shipper shipper) {
+    HRegion region = Mockito.mock(HRegion.class);
+    Mockito.when(region.getRegionInfo()).thenReturn(RegionInfoBuilder.FIRST_META_REGIONINFO);
+    return new RSRpcServices.RegionScannerHolder(Mockito.mock(RegionScanner.class), region,
+      shipper, null, null, false, false, "", "");
+  }
+
+  /**
+   * The next call on a scanner must wait until the previous response, which references the blocks
+   * of the scanner, has been sent, and then release the blocks before using the scanner.
+   */
+  @Test
+  public void testNextCallWaitsForDeferredShipped() throws Exception {
+    Shipper shipper = Mockito.mock(Shipper.class);
+    List<Thread> shippedBy = Collections.synchronizedList(new ArrayList<>());
+    Mockito.doAnswer(invocation -> {
+      shippedBy.add(Thread.currentThread());
+      return null;
+    }).when(shipper).shipped();
+    RSRpcServices.RegionScannerHolder rsh = newHolder(shipper);
+    rsh.deferShipped();
+    CompletableFuture<Void> nextCall = CompletableFuture.runAsync(() -> {
+      try {
+        assertNull(rsh.takePrefetched(60000));
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    try {
+      nextCall.get(500, TimeUnit.MILLISECONDS);
+      fail("The next call should wait for the response to be sent");
+    } catch (TimeoutException e) {
+      // expected
+    }
+    Mockito.verify(shipper, Mockito.never()).shipped();
+    // the response has been sent, on a network thread which must not release the blocks itself
+    assertTrue(rsh.deferredResponseSent(null));
+    nextCall.get(60, TimeUnit.SECONDS);
+    // released once, by the next call
+    assertEquals(1, shippedBy.size());
+    assertNotSame(Thread.currentThread(), shippedBy.get(0));
+    // nothing is deferred anymore, the regular callback releases the blocks
+    assertFalse(rsh.deferredResponseSent(null));
+    assertNull(rsh.takePrefetched(60000));
+    Mockito.verify(shipper, Mockito.times(1)).shipped();
+  }
+
+  @Test
+  public void testNextCallTimesOutWaitingForDeferredShipped() throws IOException {
+    Shipper shipper = Mockito.mock(Shipper.class);
+    RSRpcServices.RegionScannerHolder rsh = newHolder(shipper);
+    rsh.deferShipped();
+    try {
+      rsh.takePrefetched(100);
+      fail("Should time out waiting for the response to be sent");
+    } catch (TimeoutIOException e) {
+      // expected, the scanner is then closed and the blocks released by the close
+    }
+    Mockito.verify(shipper, Mockito.never()).shipped();
+  }
 }
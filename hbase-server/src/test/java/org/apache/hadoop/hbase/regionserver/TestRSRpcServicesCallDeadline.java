@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseTestingUtil;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.exceptions.ScannerResetException;
+import org.apache.hadoop.hbase.exceptions.TimeoutIOException;
+import org.apache.hadoop.hbase.filter.FilterBase;
+import org.apache.hadoop.hbase.ipc.RpcCall;
+import org.apache.hadoop.hbase.ipc.RpcCallback;
+import org.apache.hadoop.hbase.ipc.RpcServer;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.EnvironmentEdge;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+
+import org.apache.hbase.thirdparty.com.google.protobuf.ServiceException;
+
+import org.apache.hadoop.hbase.shaded.protobuf.ProtobufUtil;
+import org.apache.hadoop.hbase.shaded.protobuf.RequestConverter;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.MultiRequest;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.MultiResponse;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.RegionAction;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.ResultOrException;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.ScanRequest;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.ScanResponse;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.HBaseProtos.RegionSpecifier.RegionSpecifierType;
+
+/**
+ * Test that {@link RSRpcServices} stops working on a call once its deadline has passed.
+ * <p>
+ * The requests are issued directly on the {@link RSRpcServices} of the region server, from the
+ * test thread, as the current call of a mocked {@link RpcCall} with a deadline. The time seen by
+ * the test thread jumps when a {@link TimeJumpFilter} reads a given row, so the deadline passes in
+ * the middle of a request while the rest of the mini cluster keeps the real time.
+ */
+@Category({ RegionServerTests.class, MediumTests.class })
+public class TestRSRpcServicesCallDeadline {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+    HBaseClassTestRule.forClass(TestRSRpcServicesCallDeadline.class);
+
+  private static final HBaseTestingUtil TEST_UTIL = new HBaseTestingUtil();
+
+  private static final TableName TABLE_NAME = TableName.valueOf("TestRSRpcServicesCallDeadline");
+
+  private static final byte[] FAMILY = Bytes.toBytes("cf");
+
+  private static final byte[] QUALIFIER = Bytes.toBytes("cq");
+
+  private static final int ROWS = 10;
+
+  private static final long DEADLINE_MS = 1000;
+
+  private static volatile TestThreadEdge EDGE;
+
+  private static volatile byte[] JUMP_ROW;
+
+  private static volatile long JUMP_MS;
+
+  private static byte[] regionName;
+
+  private static RSRpcServices rpcServices;
+
+  private final AtomicReference<RpcCallback> callback = new AtomicReference<>();
+
+  /**
+   * Adds an offset to the time seen by the thread which created it, the other threads see the
+   * real time.
+   */
+  private static final class TestThreadEdge implements EnvironmentEdge {
+
+    private final Thread thread = Thread.currentThread();
+
+    private volatile long offset;
+
+    @Override
+    public long currentTime() {
+      long now = System.currentTimeMillis();
+      return Thread.currentThread() == thread ? now + offset : now;
+    }
+  }
+
+  /**
+   * Moves the time of the test thread forward when reading {@link #JUMP_ROW}.
+   */
+  public static final class TimeJumpFilter extends FilterBase {
+
+    @Override
+    public boolean filterRowKey(Cell firstRowCell) {
+      TestThreadEdge edge = EDGE;
+      if (edge != null && CellUtil.matchingRows(firstRowCell, JUMP_ROW)) {
+        edge.offset += JUMP_MS;
+      }
+      return false;
+    }
+
+    @Override
+    public byte[] toByteArray() {
+      return new byte[0];
+    }
+
+    public static TimeJumpFilter parseFrom(final byte[] pbBytes) {
+      return new TimeJumpFilter();
+    }
+  }
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    TEST_UTIL.startMiniCluster(1);
+    try (Table table = TEST_UTIL.createTable(TABLE_NAME, FAMILY)) {
+      for (int i = 0; i < ROWS; i++) {
+        table.put(new Put(row(i)).addColumn(FAMILY, QUALIFIER, Bytes.toBytes(i)));
+      }
+    }
+    HRegion region = TEST_UTIL.getHBaseCluster().getRegions(TABLE_NAME).get(0);
+    regionName = region.getRegionInfo().getRegionName();
+    rpcServices = TEST_UTIL.getRSForFirstRegionInTable(TABLE_NAME).getRSRpcServices();
+  }
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    TEST_UTIL.shutdownMiniCluster();
+  }
+
+  @Before
+  public void setUp() {
+    EDGE = new TestThreadEdge();
+    JUMP_ROW = row(1);
+    EnvironmentEdgeManager.injectEdge(EDGE);
+    RpcCall call = Mockito.mock(RpcCall.class);
+    Mockito.when(call.getDeadline())
+      .thenReturn(EnvironmentEdgeManager.currentTime() + DEADLINE_MS);
+    Mockito.when(call.getClientVersionInfo()).thenReturn(ProtobufUtil.getVersionInfo());
+    // still connected
+    Mockito.when(call.disconnectSince()).thenReturn(-1L);
+    Mockito.doAnswer(invocation -> {
+      callback.set(invocation.getArgument(0));
+      return null;
+    }).when(call).setCallBack(Mockito.any());
+    RpcServer.setCurrentCall(call);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    RpcServer.unsetCurrentCall();
+    EnvironmentEdgeManager.reset();
+    EDGE = null;
+    // as if the response had been sent, releases the scanners of the call
+    RpcCallback cb = callback.getAndSet(null);
+    if (cb != null) {
+      cb.run();
+    }
+  }
+
+  private static byte[] row(int i) {
+    return Bytes.toBytes(String.format("row-%02d", i));
+  }
+
+  @Test
+  public void testMultiSkipsRemainingActions() throws Exception {
+    JUMP_MS = 2 * DEADLINE_MS;
+    RegionAction.Builder regionAction = RegionAction.newBuilder().setRegion(
+      RequestConverter.buildRegionSpecifier(RegionSpecifierType.REGION_NAME, regionName));
+    for (int i = 0; i < 5; i++) {
+      Get get = new Get(row(i)).setFilter(new TimeJumpFilter());
+      regionAction.addAction(
+        ClientProtos.Action.newBuilder().setIndex(i).setGet(ProtobufUtil.toGet(get)).build());
+    }
+    MultiResponse response =
+      rpcServices.multi(null, MultiRequest.newBuilder().addRegionAction(regionAction).build());
+
+    List<ResultOrException> results = response.getRegionActionResult(0).getResultOrExceptionList();
+    assertEquals(5, results.size());
+    // the deadline passes while reading row 1
+    for (int i = 0; i < 2; i++) {
+      assertEquals(i, results.get(i).getIndex());
+      assertTrue(results.get(i).hasResult());
+      assertFalse(results.get(i).hasException());
+    }
+    for (int i = 2; i < 5; i++) {
+      assertEquals(i, results.get(i).getIndex());
+      assertFalse(results.get(i).hasResult());
+      assertEquals(TimeoutIOException.class.getName(),
+        results.get(i).getException().getName());
+    }
+  }
+
+  @Test
+  public void testScanWithoutHeartbeatsFailsAndResetsScanner() throws Exception {
+    JUMP_MS = 2 * DEADLINE_MS;
+    ScanRequest request = RequestConverter
+      .buildScanRequest(regionName, new Scan().setFilter(new TimeJumpFilter()), ROWS, false)
+      .toBuilder().setClientHandlesHeartbeats(false).setClientHandlesPartials(false).build();
+    try {
+      rpcServices.scan(null, request);
+      fail("Should have timed out while scanning");
+    } catch (ServiceException e) {
+      // the scanner has been closed, the client reopens it after its last seen row
+      assertTrue(e.getCause() instanceof ScannerResetException);
+      assertTrue(e.getCause().getCause() instanceof TimeoutIOException);
+    }
+  }
+
+  @Test
+  public void testScanTimeLimitBoundedByDeadline() throws Exception {
+    // past the time left until the deadline, but not past the scanner lease and rpc timeouts
+    JUMP_MS = 5 * DEADLINE_MS;
+    ScanRequest request = RequestConverter
+      .buildScanRequest(regionName, new Scan().setFilter(new TimeJumpFilter()), ROWS, false);
+    ScanResponse response = rpcServices.scan(null, request);
+    assertTrue(response.getHeartbeatMessage());
+    assertTrue(response.getMoreResultsInRegion());
+    assertTrue(response.getResultsCount() < ROWS);
+    // the response has been sent, the scanner is leased again and can be closed
+    callback.getAndSet(null).run();
+    rpcServices.scan(null,
+      RequestConverter.buildScanRequest(response.getScannerId(), 0, true, false));
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseTestingUtil;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.AdvancedScanResultConsumer;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.io.ByteBuffAllocator;
+import org.apache.hadoop.hbase.io.DeallocateRewriteByteBuffAllocator;
+import org.apache.hadoop.hbase.io.hfile.BlockCacheFactory;
+import org.apache.hadoop.hbase.testclassification.LargeTests;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Scans through the region server with {@link ScanPrefetcher} enabled. The blocks are served from
+ * an off heap bucket cache whose buffers are overwritten once released, so a prefetch which
+ * releases the blocks of a response still being sent, or which races with the next call, shows
+ * up as wrong, missing or duplicated rows.
+ */
+@Category({ RegionServerTests.class, LargeTests.class })
+public class TestRegionServerScanPrefetch {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+    HBaseClassTestRule.forClass(TestRegionServerScanPrefetch.class);
+
+  private static final HBaseTestingUtil TEST_UTIL = new HBaseTestingUtil();
+
+  private static final TableName TABLE_NAME = TableName.valueOf("TestRegionServerScanPrefetch");
+
+  private static final byte[] CF = Bytes.toBytes("CF");
+
+  private static final byte[] CQ = Bytes.toBytes("CQ");
+
+  private static final int ROWS = 300;
+
+  private static Table TABLE;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    Configuration conf = TEST_UTIL.getConfiguration();
+    conf.setBoolean(ScanPrefetcher.SCAN_PREFETCH_ENABLED_KEY, true);
+    conf.set(ByteBuffAllocator.BYTEBUFF_ALLOCATOR_CLASS,
+      DeallocateRewriteByteBuffAllocator.class.getName());
+    conf.setBoolean(ByteBuffAllocator.ALLOCATOR_POOL_ENABLED_KEY, true);
+    conf.setInt(ByteBuffAllocator.MIN_ALLOCATE_SIZE_KEY, 0);
+    conf.setInt(BlockCacheFactory.BUCKET_CACHE_WRITER_THREADS_KEY, 20);
+    conf.setInt(ByteBuffAllocator.BUFFER_SIZE_KEY, 2048);
+    conf.set(HConstants.BUCKET_CACHE_IOENGINE_KEY, "offheap");
+    conf.setInt(HConstants.BUCKET_CACHE_SIZE_KEY, 64);
+    TEST_UTIL.startMiniCluster(1);
+    TABLE = TEST_UTIL.createTable(TABLE_NAME, new byte[][] { CF }, 1, 1024, null);
+    List<Put> puts = new ArrayList<>();
+    for (int i = 0; i < ROWS; i++) {
+      puts.add(new Put(row(i)).addColumn(CF, CQ, value(i)));
+    }
+    TABLE.put(puts);
+    TEST_UTIL.getAdmin().flush(TABLE_NAME);
+  }
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    TABLE.close();
+    TEST_UTIL.shutdownMiniCluster();
+  }
+
+  private static byte[] row(int i) {
+    return Bytes.toBytes(String.format("row-%04d", i));
+  }
+
+  private static byte[] value(int i) {
+    byte[] value = new byte[200];
+    Bytes.putInt(value, value.length - Bytes.SIZEOF_INT, i);
+    return value;
+  }
+
+  private static void assertScan(int caching) throws IOException {
+    try (ResultScanner scanner = TABLE.getScanner(new Scan().setCaching(caching))) {
+      for (int i = 0; i < ROWS; i++) {
+        Result result = scanner.next();
+        assertArrayEquals(row(i), result.getRow());
+        assertArrayEquals(value(i), result.getValue(CF, CQ));
+      }
+      assertNull(scanner.next());
+    }
+  }
+
+  @Test
+  public void testScanReturnsEveryRowOnce() throws IOException {
+    for (int caching : new int[] { 1, 3, 10, 100 }) {
+      assertScan(caching);
+    }
+  }
+
+  @Test
+  public void testConcurrentScans() throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        int caching = 1 + i % 4;
+        futures.add(pool.submit(() -> {
+          assertScan(caching);
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testPrefetchBoundedByCallResultSize() throws Exception {
+    // Every call is limited to a single row by size, which must also hold for the prefetched rows
+    // handed out by the following calls.
+    Scan scan = new Scan().setCaching(10).setMaxResultSize(1);
+    List<Integer> batchSizes = new ArrayList<>();
+    List<Result> results = new ArrayList<>();
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    TEST_UTIL.getAsyncConnection().getTable(TABLE_NAME).scan(scan,
+      new AdvancedScanResultConsumer() {
+
+        @Override
+        public void onNext(Result[] batch, ScanController controller) {
+          batchSizes.add(batch.length);
+          for (Result result : batch) {
+            results.add(result);
+          }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+          future.completeExceptionally(error);
+        }
+
+        @Override
+        public void onComplete() {
+          future.complete(null);
+        }
+      });
+    future.get();
+    assertEquals(ROWS, results.size());
+    for (int i = 0; i < ROWS; i++) {
+      assertArrayEquals(row(i), results.get(i).getRow());
+      assertEquals(1, batchSizes.get(i).intValue());
+    }
+  }
+}
@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseTestingUtil;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TestName;
+
+@Category({ RegionServerTests.class, MediumTests.class })
+public class TestScanPrefetcher {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+    HBaseClassTestRule.forClass(TestScanPrefetcher.class);
+
+  private static final HBaseTestingUtil TEST_UTIL = new HBaseTestingUtil();
+
+  private static final byte[] FAMILY = Bytes.toBytes("cf");
+
+  private static final byte[] QUALIFIER = Bytes.toBytes("q");
+
+  private static final int ROWS = 25;
+
+  @Rule
+  public TestName name = new TestName();
+
+  private HRegion region;
+
+  private ScanPrefetcher prefetcher;
+
+  @Before
+  public void setUp() throws IOException {
+    TableDescriptor td = TableDescriptorBuilder.newBuilder(TableName.valueOf(name.getMethodName()))
+      .setColumnFamily(ColumnFamilyDescriptorBuilder.of(FAMILY)).build();
+    region =
+      TEST_UTIL.createLocalHRegion(td, HConstants.EMPTY_START_ROW, HConstants.EMPTY_END_ROW);
+    for (int i = 0; i < ROWS; i++) {
+      region.put(new Put(row(i)).addColumn(FAMILY, QUALIFIER, Bytes.toBytes(i)));
+    }
+    region.flush(true);
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.setInt(ScanPrefetcher.SCAN_PREFETCH_THREADS_KEY, 1);
+    prefetcher = new ScanPrefetcher(conf);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    prefetcher.stop();
+    HBaseTestingUtil.closeRegionAndWAL(region);
+  }
+
+  private static byte[] row(int i) {
+    return Bytes.toBytes(String.format("row-%03d", i));
+  }
+
+  private ScanPrefetcher.PrefetchedResults prefetch(RegionScannerImpl scanner, int maxResults,
+    long maxResultSize) throws Exception {
+    ScanPrefetcher.Prefetch future = prefetcher.prefetch(region, scanner, scanner, maxResults,
+      maxResultSize, false, Long.MAX_VALUE);
+    // wait for completion, await cancels a prefetch which has not started yet
+    future.get();
+    return ScanPrefetcher.await(future);
+  }
+
+  @Test
+  public void testPrefetchContinuesScan() throws Exception {
+    try (RegionScannerImpl scanner = region.getScanner(new Scan())) {
+      List<Cell> cells = new ArrayList<>();
+      assertTrue(scanner.next(cells));
+      assertArrayEquals(row(0), CellUtil.cloneRow(cells.get(0)));
+
+      ScanPrefetcher.PrefetchedResults prefetched = prefetch(scanner, 10, Long.MAX_VALUE);
+      for (int i = 1; i <= 10; i++) {
+        assertTrue(prefetched.hasNext());
+        Result r = prefetched.next();
+        assertArrayEquals(row(i), r.getRow());
+        assertFalse(r.mayHaveMoreCellsInRow());
+      }
+      assertFalse(prefetched.hasNext());
+      assertTrue(prefetched.isMoreRows());
+
+      // the scanner continues right after the prefetched rows
+      cells.clear();
+      assertTrue(scanner.next(cells));
+      assertArrayEquals(row(11), CellUtil.cloneRow(cells.get(0)));
+
+      prefetched = prefetch(scanner, 100, Long.MAX_VALUE);
+      int count = 0;
+      while (prefetched.hasNext()) {
+        assertArrayEquals(row(12 + count), prefetched.next().getRow());
+        count++;
+      }
+      assertEquals(ROWS - 12, count);
+      assertFalse(prefetched.isMoreRows());
+    }
+  }
+
+  @Test
+  public void testPrefetchRespectsSizeLimit() throws Exception {
+    try (RegionScannerImpl scanner = region.getScanner(new Scan())) {
+      ScanPrefetcher.PrefetchedResults prefetched = prefetch(scanner, 100, 1);
+      // the size limit is checked between rows so at least one row is returned
+      assertTrue(prefetched.hasNext());
+      assertArrayEquals(row(0), prefetched.next().getRow());
+      assertFalse(prefetched.hasNext());
+      assertTrue(prefetched.isMoreRows());
+    }
+  }
+
+  @Test
+  public void testAwaitDoesNotCancelRunningPrefetch() throws Exception {
+    try (RegionScannerImpl scanner = region.getScanner(new Scan())) {
+      CountDownLatch started = new CountDownLatch(1);
+      CountDownLatch resume = new CountDownLatch(1);
+      // hold the prefetch on its first release of the blocks, before it reads any row
+      Shipper shipper = () -> {
+        started.countDown();
+        try {
+          resume.await();
+        } catch (InterruptedException e) {
+          throw new IOException(e);
+        }
+      };
+      ScanPrefetcher.Prefetch future =
+        prefetcher.prefetch(region, scanner, shipper, 10, Long.MAX_VALUE, false, Long.MAX_VALUE);
+      started.await();
+      // too late to cancel, the rows it reads would be lost
+      assertFalse(future.cancel(false));
+      resume.countDown();
+      ScanPrefetcher.PrefetchedResults prefetched = ScanPrefetcher.await(future);
+      for (int i = 0; i < 10; i++) {
+        assertArrayEquals(row(i), prefetched.next().getRow());
+      }
+      assertFalse(prefetched.hasNext());
+    }
+  }
+
+  @Test
+  public void testCancelPrefetchNotStarted() throws Exception {
+    try (RegionScannerImpl scanner = region.getScanner(new Scan())) {
+      CountDownLatch started = new CountDownLatch(1);
+      CountDownLatch resume = new CountDownLatch(1);
+      // keep the single prefetch thread busy
+      Shipper blocking = () -> {
+        started.countDown();
+        try {
+          resume.await();
+        } catch (InterruptedException e) {
+          throw new IOException(e);
+        }
+      };
+      ScanPrefetcher.Prefetch running = prefetcher.prefetch(region, scanner, blocking, 1,
+        Long.MAX_VALUE, false, Long.MAX_VALUE);
+      started.await();
+      ScanPrefetcher.Prefetch queued =
+        prefetcher.prefetch(region, scanner, scanner, 10, Long.MAX_VALUE, false, Long.MAX_VALUE);
+      assertNull(ScanPrefetcher.await(queued));
+      resume.countDown();
+      assertArrayEquals(row(0), ScanPrefetcher.await(running).next().getRow());
+      // the cancelled prefetch never touched the scanner
+      List<Cell> cells = new ArrayList<>();
+      assertTrue(scanner.next(cells));
+      assertArrayEquals(row(1), CellUtil.cloneRow(cells.get(0)));
+    }
+  }
+}
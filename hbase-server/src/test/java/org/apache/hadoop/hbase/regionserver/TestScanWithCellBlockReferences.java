@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseTestingUtil;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.io.ByteBuffAllocator;
+import org.apache.hadoop.hbase.io.DeallocateRewriteByteBuffAllocator;
+import org.apache.hadoop.hbase.io.hfile.BlockCacheFactory;
+import org.apache.hadoop.hbase.testclassification.LargeTests;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Scans with response cellblocks referencing the cached blocks instead of copying them. The next
+ * scan rpc of the client is sent as soon as a response arrives, so it usually reaches the region
+ * server before the previous response has been completely sent. It must find the scanner lease and
+ * wait for the release of the blocks, which are overwritten once released.
+ */
+@Category({ RegionServerTests.class, LargeTests.class })
+public class TestScanWithCellBlockReferences {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+    HBaseClassTestRule.forClass(TestScanWithCellBlockReferences.class);
+
+  private static final HBaseTestingUtil TEST_UTIL = new HBaseTestingUtil();
+
+  private static final TableName TABLE_NAME =
+    TableName.valueOf("TestScanWithCellBlockReferences");
+
+  private static final byte[] CF = Bytes.toBytes("CF");
+
+  private static final byte[] CQ = Bytes.toBytes("CQ");
+
+  private static final int ROWS = 300;
+
+  private static Table TABLE;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    Configuration conf = TEST_UTIL.getConfiguration();
+    conf.setInt("hbase.ipc.cellblock.reference.min.size", 1);
+    // Rows with a limit are not prefetched, so both ways of releasing the blocks are covered
+    conf.setBoolean(ScanPrefetcher.SCAN_PREFETCH_ENABLED_KEY, true);
+    conf.set(ByteBuffAllocator.BYTEBUFF_ALLOCATOR_CLASS,
+      DeallocateRewriteByteBuffAllocator.class.getName());
+    conf.setBoolean(ByteBuffAllocator.ALLOCATOR_POOL_ENABLED_KEY, true);
+    conf.setInt(ByteBuffAllocator.MIN_ALLOCATE_SIZE_KEY, 0);
+    conf.setInt(BlockCacheFactory.BUCKET_CACHE_WRITER_THREADS_KEY, 20);
+    conf.setInt(ByteBuffAllocator.BUFFER_SIZE_KEY, 2048);
+    conf.set(HConstants.BUCKET_CACHE_IOENGINE_KEY, "offheap");
+    conf.setInt(HConstants.BUCKET_CACHE_SIZE_KEY, 64);
+    // A lease exception is not retried
+    conf.setInt(HConstants.HBASE_CLIENT_RETRIES_NUMBER, 1);
+    TEST_UTIL.startMiniCluster(1);
+    TABLE = TEST_UTIL.createTable(TABLE_NAME, new byte[][] { CF }, 1, 1024, null);
+    List<Put> puts = new ArrayList<>();
+    for (int i = 0; i < ROWS; i++) {
+      puts.add(new Put(row(i)).addColumn(CF, CQ, value(i)));
+    }
+    TABLE.put(puts);
+    TEST_UTIL.getAdmin().flush(TABLE_NAME);
+    // load the blocks into the cache
+    assertScan(new Scan().setCaching(ROWS), ROWS);
+  }
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    TABLE.close();
+    TEST_UTIL.shutdownMiniCluster();
+  }
+
+  private static byte[] row(int i) {
+    return Bytes.toBytes(String.format("row-%04d", i));
+  }
+
+  private static byte[] value(int i) {
+    byte[] value = new byte[200];
+    Bytes.putInt(value, value.length - Bytes.SIZEOF_INT, i);
+    return value;
+  }
+
+  private static void assertScan(Scan scan, int rows) throws IOException {
+    try (ResultScanner scanner = TABLE.getScanner(scan)) {
+      for (int i = 0; i < rows; i++) {
+        Result result = scanner.next();
+        assertArrayEquals(row(i), result.getRow());
+        assertArrayEquals(value(i), result.getValue(CF, CQ));
+      }
+      assertNull(scanner.next());
+    }
+  }
+
+  @Test
+  public void testNextScanSentImmediately() throws IOException {
+    for (int caching : new int[] { 1, 2, 10 }) {
+      assertScan(new Scan().setCaching(caching), ROWS);
+      assertScan(new Scan().setCaching(caching).setLimit(ROWS - 1), ROWS - 1);
+    }
+  }
+
+  @Test
+  public void testConcurrentScans() throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        Scan scan = new Scan().setCaching(1 + i % 4);
+        int rows = i % 2 == 0 ? ROWS : ROWS - 1;
+        if (rows < ROWS) {
+          scan.setLimit(rows);
+        }
+        futures.add(pool.submit(() -> {
+          assertScan(scan, rows);
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
@@ -44,7 +44,11 @@ import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
@@ -685,6 +689,116 @@ public abstract class AbstractTestFSWAL {
     }
   }
 
+  /**
+   * Records the largest sync batches and the longest wait for a sync.
+   */
+  private static final class SyncBatchListener implements WALActionsListener {
+
+    private final AtomicInteger maxHandlerSyncs = new AtomicInteger();
+
+    private final AtomicLong maxEdits = new AtomicLong();
+
+    private final AtomicLong maxSyncTimeNs = new AtomicLong();
+
+    private final AtomicLong maxSyncWaitNs = new AtomicLong();
+
+    @Override
+    public void postSync(long timeInNanos, int handlerSyncs) {
+      maxSyncTimeNs.accumulateAndGet(timeInNanos, Math::max);
+    }
+
+    @Override
+    public void postSyncBatch(int handlerSyncs, long edits) {
+      maxHandlerSyncs.accumulateAndGet(handlerSyncs, Math::max);
+      maxEdits.accumulateAndGet(edits, Math::max);
+    }
+
+    @Override
+    public void postSyncWait(long timeInNanos) {
+      maxSyncWaitNs.accumulateAndGet(timeInNanos, Math::max);
+    }
+  }
+
+  private AbstractFSWAL<?> newGroupCommitWAL(long maxWindowUs, long batchSize,
+    WALActionsListener listener) throws IOException {
+    Configuration conf = new Configuration(CONF);
+    conf.setLong(AbstractFSWAL.WAL_GROUP_COMMIT_MAX_WINDOW_US, maxWindowUs);
+    // always use the max window once a sync has been timed
+    conf.setFloat(AbstractFSWAL.WAL_GROUP_COMMIT_WINDOW_RATIO, 1e6f);
+    conf.setLong(AsyncFSWAL.WAL_BATCH_SIZE, batchSize);
+    // a single FSHLog sync runner, so the syncs released together are counted together
+    conf.setInt("hbase.regionserver.hlog.syncer.count", 1);
+    return newWAL(FS, CommonFSUtils.getWALRootDir(conf), DIR.toString(),
+      HConstants.HREGION_OLDLOGDIR_NAME, conf, Collections.singletonList(listener), true, null,
+      null);
+  }
+
+  @Test
+  public void testGroupCommitBatchesSyncs() throws Exception {
+    long maxWindowUs = 20000;
+    SyncBatchListener listener = new SyncBatchListener();
+    AbstractFSWAL<?> wal = newGroupCommitWAL(maxWindowUs, AsyncFSWAL.DEFAULT_WAL_BATCH_SIZE,
+      listener);
+    TableDescriptor htd = TableDescriptorBuilder.newBuilder(TableName.valueOf("table"))
+      .setColumnFamily(ColumnFamilyDescriptorBuilder.of("row")).build();
+    RegionInfo hri = RegionInfoBuilder.newBuilder(htd.getTableName()).build();
+    NavigableMap<byte[], Integer> scopes = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    MultiVersionConcurrencyControl mvcc = new MultiVersionConcurrencyControl();
+    int writers = 8;
+    ExecutorService exec = Executors.newFixedThreadPool(writers);
+    try {
+      // time a first sync so the window opens
+      addEdits(wal, hri, htd, 1, mvcc, scopes, "row");
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < writers; i++) {
+        futures.add(exec.submit(() -> {
+          for (int j = 0; j < 20; j++) {
+            addEdits(wal, hri, htd, 1, mvcc, scopes, "row");
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      exec.shutdownNow();
+      wal.close();
+    }
+    assertTrue("edits per sync " + listener.maxEdits, listener.maxEdits.get() > 1);
+    assertTrue("handler syncs per sync " + listener.maxHandlerSyncs,
+      listener.maxHandlerSyncs.get() > 1);
+    // at worst a sync waits for the sync in flight, then for the window and its own sync
+    long boundNs = TimeUnit.MICROSECONDS.toNanos(maxWindowUs) + 2 * listener.maxSyncTimeNs.get()
+      + TimeUnit.MILLISECONDS.toNanos(500);
+    assertTrue("sync wait " + listener.maxSyncWaitNs + " ns over " + boundNs + " ns",
+      listener.maxSyncWaitNs.get() < boundNs);
+  }
+
+  @Test
+  public void testGroupCommitWindowBoundedBySize() throws Exception {
+    long maxWindowUs = TimeUnit.SECONDS.toMicros(30);
+    SyncBatchListener listener = new SyncBatchListener();
+    // any unsynced edit is enough to sync right away
+    AbstractFSWAL<?> wal = newGroupCommitWAL(maxWindowUs, 1, listener);
+    TableDescriptor htd = TableDescriptorBuilder.newBuilder(TableName.valueOf("table"))
+      .setColumnFamily(ColumnFamilyDescriptorBuilder.of("row")).build();
+    RegionInfo hri = RegionInfoBuilder.newBuilder(htd.getTableName()).build();
+    NavigableMap<byte[], Integer> scopes = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    MultiVersionConcurrencyControl mvcc = new MultiVersionConcurrencyControl();
+    try {
+      // time a first sync so the window opens
+      addEdits(wal, hri, htd, 1, mvcc, scopes, "row");
+      long startNs = System.nanoTime();
+      addEdits(wal, hri, htd, 1, mvcc, scopes, "row");
+      long elapsedNs = System.nanoTime() - startNs;
+      assertTrue("sync took " + elapsedNs + " ns",
+        elapsedNs < TimeUnit.MICROSECONDS.toNanos(maxWindowUs) / 2);
+    } finally {
+      wal.close();
+    }
+  }
+
   public static final class FlushSpecificStoresPolicy extends FlushPolicy {
 
     @Override
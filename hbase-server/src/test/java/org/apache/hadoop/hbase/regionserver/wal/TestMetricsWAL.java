@@ -77,6 +77,16 @@ public class TestMetricsWAL {
     verify(source, times(1)).incrementSyncTime(145);
   }
 
+  @Test
+  public void testPostSyncBatchAndWait() throws Exception {
+    MetricsWALSource source = mock(MetricsWALSourceImpl.class);
+    MetricsWAL metricsWAL = new MetricsWAL(source);
+    metricsWAL.postSyncBatch(3, 12);
+    metricsWAL.postSyncWait(TimeUnit.MICROSECONDS.toNanos(250));
+    verify(source, times(1)).incrementSyncBatch(3, 12);
+    verify(source, times(1)).incrementSyncWaitTime(250);
+  }
+
   @Test
   public void testSlowAppend() throws Exception {
     String testName = name.getMethodName();
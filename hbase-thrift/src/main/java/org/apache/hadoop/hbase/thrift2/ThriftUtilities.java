@@ -930,6 +930,8 @@ public final class ThriftUtilities {
         return DataBlockEncoding.FAST_DIFF;
       case 7:
         return DataBlockEncoding.ROW_INDEX_V1;
+      case 8:
+        return DataBlockEncoding.CELL_INDEX;
       default:
         return DataBlockEncoding.NONE;
     }
@@ -1165,6 +1167,8 @@ public final class ThriftUtilities {
         return TDataBlockEncoding.FAST_DIFF;
       case ROW_INDEX_V1:
         return TDataBlockEncoding.ROW_INDEX_V1;
+      case CELL_INDEX:
+        return TDataBlockEncoding.CELL_INDEX;
       default:
         return TDataBlockEncoding.NONE;
     }
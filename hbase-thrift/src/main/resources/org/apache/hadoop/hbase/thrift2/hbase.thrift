@@ -369,7 +369,8 @@ enum TDataBlockEncoding {
   // id 5 is reserved for the COPY_KEY algorithm for benchmarking
   // COPY_KEY(5, "org.apache.hadoop.hbase.io.encoding.CopyKeyDataBlockEncoder"),
   // PREFIX_TREE(6, "org.apache.hadoop.hbase.codec.prefixtree.PrefixTreeCodec"),
-  ROW_INDEX_V1 = 7
+  ROW_INDEX_V1 = 7,
+  CELL_INDEX = 8
 }
 
 /**